@@ -0,0 +1,391 @@
+package com.lupcode.Utilities.collections;
+
+import java.util.AbstractQueue;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * {@link BlockingQueue} that does not use any locks.
+ * Elements are stored in a {@link ConcurrentLinkedQueue} and threads
+ * waiting for elements (or for space if a capacity is set) park until
+ * they get woken up, so multiple producers and consumers never block each other
+ * @author LupCode.com (Luca Vogels)
+ * @since 2026-10-16
+ * @param <E> Element that should be stored
+ */
+public class ConcurrentLinkedBlockingQueue<E> extends AbstractQueue<E> implements BlockingQueue<E> {
+
+	/** Amount of cancelled waiters after which they get swept out of the queues of waiting threads */
+	protected static final int SWEEP_THRESHOLD = 64;
+
+	/**
+	 * Parked thread that is done as soon as it got signalled or stopped waiting. 
+	 * Waiters that stopped waiting stay in their queue until they get skipped 
+	 * or swept so stopping does not need to search the queue
+	 */
+	protected static class Waiter extends AtomicBoolean {
+		private static final long serialVersionUID = 1L;
+		protected final Thread thread = Thread.currentThread();
+	}
+
+	protected final ConcurrentLinkedQueue<E> queue = new ConcurrentLinkedQueue<>();
+	protected final ConcurrentLinkedQueue<Waiter> waiters = new ConcurrentLinkedQueue<>();
+	protected final ConcurrentLinkedQueue<Waiter> producers = new ConcurrentLinkedQueue<>();
+	protected final AtomicInteger count = new AtomicInteger(), cancelled = new AtomicInteger();
+	protected volatile int capacity = -1;
+
+	/**
+	 * Creates a new queue with unlimited capacity
+	 */
+	public ConcurrentLinkedBlockingQueue() {
+
+	}
+
+	/**
+	 * Creates a new queue with a fixed capacity
+	 * @param capacity Capacity how many elements can be hold at maximum (zero or negative for no limit)
+	 */
+	public ConcurrentLinkedBlockingQueue(int capacity) {
+		this.capacity = capacity;
+	}
+
+	public ConcurrentLinkedBlockingQueue(Collection<? extends E> c) {
+		addAll(c);
+	}
+
+	/**
+	 * Returns how many elements this queue can hold at maximum.
+	 * If zero or negative no limit set
+	 * @return Maximum amount of elements (zero or negative for no limit)
+	 */
+	public int getCapacity() {
+		return capacity;
+	}
+
+	/**
+	 * Sets how many elements this queue can hold at maximum.
+	 * Already contained elements stay in the queue.
+	 * If zero or negative no limit is set
+	 * @param capacity Maximum amount of elements (zero or negative for no limit)
+	 */
+	public void setCapacity(int capacity) {
+		this.capacity = capacity;
+		while(signal(producers));
+	}
+
+	/**
+	 * Reserves space for a new element
+	 * @return True if reserved, false if capacity is reached
+	 */
+	protected boolean reserve() {
+		int capacity = this.capacity, c;
+		if(capacity <= 0) {
+			count.incrementAndGet();
+			return true;
+		}
+		do {
+			if((c = count.get()) >= capacity) return false;
+		} while(!count.compareAndSet(c, c + 1));
+		return true;
+	}
+
+	/**
+	 * Reserves space for multiple new elements
+	 * @param n Amount of elements that should be added
+	 * @return Amount of elements space has been reserved for
+	 */
+	protected int reserve(int n) {
+		int capacity = this.capacity, c, k;
+		if(capacity <= 0) {
+			count.addAndGet(n);
+			return n;
+		}
+		do {
+			if((k = Math.min(n, capacity - (c = count.get()))) <= 0) return 0;
+		} while(!count.compareAndSet(c, c + k));
+		return k;
+	}
+
+	/**
+	 * Gets called after an element has been removed
+	 */
+	protected void removed() {
+		count.decrementAndGet();
+		if(capacity > 0) signal(producers);
+	}
+
+	/**
+	 * Takes the first element
+	 * @return Element or null if empty
+	 */
+	protected E pollElement() {
+		E e = queue.poll();
+		if(e != null) removed();
+		return e;
+	}
+
+	/**
+	 * Wakes up the thread that waits the longest for an element
+	 */
+	protected void signal() {
+		signal(waiters);
+	}
+
+	/**
+	 * Wakes up the thread that waits the longest and skips waiters that stopped waiting
+	 * @param waiters Queue of waiting threads
+	 * @return True if a thread has been woken up
+	 */
+	protected static boolean signal(ConcurrentLinkedQueue<Waiter> waiters) {
+		Waiter waiter;
+		while((waiter = waiters.poll()) != null) {
+			if(waiter.compareAndSet(false, true)) {
+				LockSupport.unpark(waiter.thread);
+				return true;
+			}
+		} return false;
+	}
+
+	/**
+	 * Stops waiting without searching the queue of waiting threads. 
+	 * Once enough waiters stopped they get swept out of the queues at once
+	 * @param waiter Waiter of the calling thread
+	 * @return True if stopped, false if the thread already got signalled
+	 */
+	protected boolean cancel(Waiter waiter) {
+		if(!waiter.compareAndSet(false, true)) return false;
+		if(cancelled.incrementAndGet() >= SWEEP_THRESHOLD) {
+			cancelled.set(0);
+			waiters.removeIf(Waiter::get);
+			producers.removeIf(Waiter::get);
+		}
+		return true;
+	}
+
+	/**
+	 * Stops waiting for an element. If the calling thread already got
+	 * signalled by a producer the wake up gets passed on so it does not get lost
+	 * @param waiter Waiter of the calling thread
+	 */
+	protected void leave(Waiter waiter) {
+		if(!cancel(waiter) && !queue.isEmpty()) signal();
+	}
+
+	/**
+	 * Waits until an element is available
+	 * @param nanos Nanoseconds how long to wait at maximum (negative to wait without limit)
+	 * @return Element or null if timeout elapsed
+	 * @throws InterruptedException if interrupted while waiting
+	 */
+	protected E await(long nanos) throws InterruptedException {
+		E e = pollElement();
+		if(e != null) return e;
+		final long deadline = System.nanoTime() + nanos;
+		Waiter waiter = null;
+		while(true) {
+			if(waiter == null) waiters.offer(waiter = new Waiter()); // register before checking again so no wake up gets lost
+			if((e = pollElement()) != null) { leave(waiter); return e; }
+			if(Thread.interrupted()) { leave(waiter); throw new InterruptedException(); }
+			if(nanos < 0) {
+				LockSupport.park(this);
+			} else {
+				final long remaining = deadline - System.nanoTime();
+				if(remaining <= 0) { leave(waiter); return null; }
+				LockSupport.parkNanos(this, remaining);
+			}
+			if(waiter.get()) waiter = null; // signalled so it is no longer registered
+			if((e = pollElement()) != null) {
+				if(waiter != null) leave(waiter);
+				return e;
+			}
+		}
+	}
+
+	@Override
+	public boolean offer(E e) {
+		if(e == null) throw new NullPointerException("Element cannot be null");
+		if(!reserve()) return false;
+		queue.offer(e);
+		signal();
+		return true;
+	}
+
+	/**
+	 * Adds multiple elements with a single enqueue operation so consumers 
+	 * either see all or none of them. If the capacity does not suffice 
+	 * only the first elements that fit get added
+	 * @param c Elements that should be added
+	 * @return Amount of elements that have been added (from the beginning of the collection)
+	 * @throws NullPointerException if collection or one of its elements is null
+	 * @throws IllegalArgumentException if collection is this queue
+	 */
+	public int offerAll(Collection<? extends E> c) throws NullPointerException, IllegalArgumentException {
+		if(c == null) throw new NullPointerException("Collection cannot be null");
+		if(c == this) throw new IllegalArgumentException("Cannot add to itself");
+		final ArrayList<E> elements = new ArrayList<>(c);
+		final int n = reserve(elements.size());
+		if(n <= 0) return 0;
+		try {
+			queue.addAll(n == elements.size() ? elements : elements.subList(0, n));
+		} catch (NullPointerException ex) {
+			count.addAndGet(-n); // nothing has been added
+			throw new NullPointerException("Element cannot be null");
+		}
+		for(int i=0; i<n && !waiters.isEmpty(); i++) signal();
+		return n;
+	}
+
+	/**
+	 * Waits until space is available and adds the element
+	 * @param e Element that should be added
+	 * @param nanos Nanoseconds how long to wait at maximum (negative to wait without limit)
+	 * @return True if added, false if timeout elapsed
+	 * @throws InterruptedException if interrupted while waiting
+	 */
+	protected boolean awaitSpace(E e, long nanos) throws InterruptedException {
+		if(offer(e)) return true;
+		final long deadline = System.nanoTime() + nanos;
+		Waiter waiter = null;
+		while(true) {
+			if(waiter == null) producers.offer(waiter = new Waiter()); // register before checking again so no wake up gets lost
+			if(offer(e)) { leaveProducers(waiter); return true; }
+			if(Thread.interrupted()) { leaveProducers(waiter); throw new InterruptedException(); }
+			if(nanos < 0) {
+				LockSupport.park(this);
+			} else {
+				final long remaining = deadline - System.nanoTime();
+				if(remaining <= 0) { leaveProducers(waiter); return false; }
+				LockSupport.parkNanos(this, remaining);
+			}
+			if(waiter.get()) waiter = null; // signalled so it is no longer registered
+			if(offer(e)) {
+				if(waiter != null) leaveProducers(waiter);
+				return true;
+			}
+		}
+	}
+
+	/**
+	 * Stops waiting for space. If the calling thread already got
+	 * signalled by a consumer the wake up gets passed on so it does not get lost
+	 * @param waiter Waiter of the calling thread
+	 */
+	protected void leaveProducers(Waiter waiter) {
+		if(!cancel(waiter) && count.get() < capacity) signal(producers);
+	}
+
+	@Override
+	public void put(E e) throws InterruptedException {
+		if(e == null) throw new NullPointerException("Element cannot be null");
+		awaitSpace(e, -1);
+	}
+
+	@Override
+	public boolean offer(E e, long timeout, TimeUnit unit) throws InterruptedException {
+		if(e == null) throw new NullPointerException("Element cannot be null");
+		return awaitSpace(e, Math.max(0, unit.toNanos(timeout)));
+	}
+
+	@Override
+	public E poll() {
+		return pollElement();
+	}
+
+	@Override
+	public E take() throws InterruptedException {
+		return await(-1);
+	}
+
+	@Override
+	public E poll(long timeout, TimeUnit unit) throws InterruptedException {
+		return await(Math.max(0, unit.toNanos(timeout)));
+	}
+
+	@Override
+	public E peek() {
+		return queue.peek();
+	}
+
+	@Override
+	public int remainingCapacity() {
+		final int capacity = this.capacity;
+		return capacity > 0 ? Math.max(0, capacity - count.get()) : Integer.MAX_VALUE;
+	}
+
+	@Override
+	public int drainTo(Collection<? super E> c) {
+		return drainTo(c, Integer.MAX_VALUE);
+	}
+
+	@Override
+	public int drainTo(Collection<? super E> c, int maxElements) {
+		if(c == this) throw new IllegalArgumentException("Cannot drain to itself");
+		int count = 0;
+		E e;
+		while(count < maxElements && (e = pollElement()) != null) {
+			c.add(e);
+			count++;
+		} return count;
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return queue.isEmpty();
+	}
+
+	@Override
+	public int size() {
+		return Math.max(0, count.get());
+	}
+
+	@Override
+	public boolean contains(Object o) {
+		return queue.contains(o);
+	}
+
+	@Override
+	public boolean remove(Object o) {
+		if(!queue.remove(o)) return false;
+		removed();
+		return true;
+	}
+
+	@Override
+	public void clear() {
+		while(pollElement() != null);
+	}
+
+	@Override
+	public Iterator<E> iterator() {
+		final Iterator<E> it = queue.iterator();
+		return new Iterator<E>() {
+			@Override
+			public boolean hasNext() {
+				return it.hasNext();
+			}
+
+			@Override
+			public E next() {
+				return it.next();
+			}
+
+			@Override
+			public void remove() {
+				it.remove();
+				removed();
+			}
+		};
+	}
+
+	@Override
+	public String toString() {
+		return queue.toString();
+	}
+}
@@ -0,0 +1,622 @@
+package com.lupcode.Utilities.collections.scheduled;
+
+import java.util.AbstractQueue;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * {@link BlockingQueue} that schedules elements in an array based d-ary min-heap.
+ * Times and insertion order are stored in primitive arrays parallel to the elements,
+ * so adding an element does not allocate anything except when the arrays need to grow.
+ * Elements with the same time become available in the order they have been added.
+ * Times are {@link System#nanoTime()} deadlines, system times passed to the {@code *At} 
+ * methods get converted once on insert so changes of the system clock do not affect them.
+ * Only one waiting thread (leader) waits until the first element becomes available,
+ * other threads wait until they get signaled
+ * @author LupCode.com (Luca Vogels)
+ * @since 2026-10-16
+ * @param <E> Element that should be held by queue
+ */
+public class ScheduledArrayBlockingQueue<E> extends AbstractQueue<E> implements ScheduledBlockingQueue<E> {
+
+	public static int DEFAULT_INITIAL_CAPACITY = 16, DEFAULT_ARITY = 4;
+
+	protected final int arity;
+	protected final ReentrantLock lock = new ReentrantLock();
+	protected final Condition condNotEmpty = lock.newCondition();
+	protected final Condition condNotFull = lock.newCondition();
+	protected Object[] elements;
+	protected long[] times, sequences;
+	protected long sequence = 0;
+	protected volatile int totalSize = 0;
+	protected volatile int capacity = -1;
+	protected Thread leader = null;
+
+	/**
+	 * Creates a new queue with unlimited capacity
+	 */
+	public ScheduledArrayBlockingQueue() {
+		this(-1);
+	}
+
+	/**
+	 * Creates a new queue with a fixed capacity
+	 * @param capacity Capacity how many elements can be hold at maximum (zero or negative for no limit)
+	 */
+	public ScheduledArrayBlockingQueue(int capacity) {
+		this(capacity, DEFAULT_ARITY);
+	}
+
+	/**
+	 * Creates a new queue
+	 * @param capacity Capacity how many elements can be hold at maximum (zero or negative for no limit)
+	 * @param arity Amount of children per node of the heap. Higher values make the heap
+	 * flatter so adding gets faster while taking needs more comparisons
+	 * @throws IllegalArgumentException if arity is less than two
+	 */
+	public ScheduledArrayBlockingQueue(int capacity, int arity) throws IllegalArgumentException {
+		if(arity < 2) throw new IllegalArgumentException("Arity must be at least two");
+		this.arity = arity;
+		this.capacity = capacity;
+		final int initial = capacity > 0 ? Math.min(capacity, DEFAULT_INITIAL_CAPACITY) : DEFAULT_INITIAL_CAPACITY;
+		this.elements = new Object[initial];
+		this.times = new long[initial];
+		this.sequences = new long[initial];
+	}
+
+	/**
+	 * @return Amount of children per node of the heap
+	 */
+	public int getArity() {
+		return arity;
+	}
+
+	/**
+	 * Returns how many elements (including scheduled ones) this queue can hold at maximum
+	 * @return Maximum amount of elements (zero or negative for no limit)
+	 */
+	public int getCapacity() {
+		return capacity;
+	}
+
+	/**
+	 * Sets how many elements (including scheduled ones) this queue can hold at maximum.
+	 * Already contained elements stay in the queue
+	 * @param capacity Maximum amount of elements (zero or negative for no limit)
+	 */
+	public void setCapacity(int capacity) {
+		lock.lock();
+		try {
+			this.capacity = capacity;
+			condNotFull.signalAll();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * @return True if the capacity is reached (lock must be held)
+	 */
+	protected boolean isFull() {
+		final int capacity = this.capacity;
+		return capacity > 0 && totalSize >= capacity;
+	}
+
+	/**
+	 * Checks if the node at index a becomes available before the node at index b
+	 * @param a Index of the first node
+	 * @param b Index of the second node
+	 * @return True if node a comes first
+	 */
+	protected boolean before(int a, int b) {
+		return times[a] < times[b] || (times[a] == times[b] && sequences[a] < sequences[b]);
+	}
+
+	/**
+	 * Moves a node to another index
+	 * @param from Index of the node
+	 * @param to Index the node should be moved to
+	 */
+	protected void move(int from, int to) {
+		elements[to] = elements[from];
+		times[to] = times[from];
+		sequences[to] = sequences[from];
+	}
+
+	/**
+	 * Moves a node towards the root until its parent comes first
+	 * @param index Index of the node
+	 * @return New index of the node
+	 */
+	protected int siftUp(int index) {
+		final Object element = elements[index];
+		final long time = times[index], seq = sequences[index];
+		while(index > 0) {
+			final int parent = (index - 1) / arity;
+			if(times[parent] < time || (times[parent] == time && sequences[parent] < seq)) break;
+			move(parent, index);
+			index = parent;
+		}
+		elements[index] = element;
+		times[index] = time;
+		sequences[index] = seq;
+		return index;
+	}
+
+	/**
+	 * Moves a node towards the leaves until it comes before all its children
+	 * @param index Index of the node
+	 * @return New index of the node
+	 */
+	protected int siftDown(int index) {
+		final int size = totalSize;
+		final Object element = elements[index];
+		final long time = times[index], seq = sequences[index];
+		while(true) {
+			final int first = index * arity + 1;
+			if(first >= size) break;
+			int min = first;
+			final int end = Math.min(first + arity, size);
+			for(int child = first + 1; child < end; child++)
+				if(before(child, min)) min = child;
+			if(time < times[min] || (time == times[min] && seq < sequences[min])) break;
+			move(min, index);
+			index = min;
+		}
+		elements[index] = element;
+		times[index] = time;
+		sequences[index] = seq;
+		return index;
+	}
+
+	/**
+	 * Adds an element if space is available (lock must be held)
+	 * @param time Value of {@link System#nanoTime()} when the element should become available
+	 * @param e Element that should be added
+	 * @return True if added, false if capacity is reached
+	 */
+	protected boolean insert(long time, E e) {
+		if(isFull()) return false;
+		final int index = totalSize;
+		if(index == elements.length) {
+			int length = index + (index >> 1) + 1;
+			if(capacity > 0) length = Math.min(length, capacity);
+			elements = Arrays.copyOf(elements, length);
+			times = Arrays.copyOf(times, length);
+			sequences = Arrays.copyOf(sequences, length);
+		}
+		elements[index] = e;
+		times[index] = time;
+		sequences[index] = sequence++;
+		totalSize = index + 1;
+		if(siftUp(index) == 0) { // new first element changes how long the leader has to wait
+			leader = null;
+			condNotEmpty.signal();
+		}
+		return true;
+	}
+
+	/**
+	 * Removes the node at the given index (lock must be held)
+	 * @param index Index of the node
+	 * @return Removed element
+	 */
+	@SuppressWarnings("unchecked")
+	protected E removeAt(int index) {
+		final E element = (E) elements[index];
+		final int last = totalSize - 1;
+		totalSize = last;
+		if(index != last) {
+			move(last, index);
+			elements[last] = null;
+			if(siftDown(index) == index) siftUp(index); // last node may come before the parent
+		} else elements[last] = null;
+		condNotFull.signal();
+		return element;
+	}
+
+	/**
+	 * Takes the first element if it is available (lock must be held)
+	 * @param now Current value of {@link System#nanoTime()}
+	 * @return Element or null if no element is available
+	 */
+	protected E pollAvailable(long now) {
+		if(totalSize == 0 || times[0] > now) return null;
+		return removeAt(0);
+	}
+
+	/**
+	 * Adds an element and waits for space if necessary
+	 * @param time Value of {@link System#nanoTime()} when the element should become available
+	 * @param e Element that should be added
+	 * @param nanos Nanoseconds how long to wait at maximum (negative to wait without limit)
+	 * @return True if added, false if timeout elapsed
+	 * @throws InterruptedException if interrupted while waiting
+	 */
+	protected boolean awaitSpace(long time, E e, long nanos) throws InterruptedException {
+		if(e == null) throw new NullPointerException("Element cannot be null");
+		lock.lockInterruptibly();
+		try {
+			while(!insert(time, e)) {
+				if(nanos == 0) return false;
+				if(nanos < 0) condNotFull.await();
+				else nanos = Math.max(0, condNotFull.awaitNanos(nanos));
+			} return true;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Waits until an element becomes available
+	 * @param nanos Nanoseconds how long to wait at maximum (negative to wait without limit)
+	 * @return Element or null if timeout elapsed
+	 * @throws InterruptedException if interrupted while waiting
+	 */
+	protected E await(long nanos) throws InterruptedException {
+		lock.lockInterruptibly();
+		try {
+			while(true) {
+				if(totalSize == 0) {
+					if(nanos == 0) return null;
+					if(nanos < 0) condNotEmpty.await();
+					else nanos = Math.max(0, condNotEmpty.awaitNanos(nanos));
+					continue;
+				}
+				final long delay = times[0] - System.nanoTime();
+				if(delay <= 0) return removeAt(0);
+				if(nanos == 0) return null;
+				if(leader != null) {
+					if(nanos < 0) condNotEmpty.await();
+					else nanos = Math.max(0, condNotEmpty.awaitNanos(nanos));
+					continue;
+				}
+				final Thread thread = Thread.currentThread();
+				leader = thread;
+				try {
+					final long wait = nanos < 0 ? delay : Math.min(nanos, delay);
+					final long remaining = condNotEmpty.awaitNanos(wait);
+					if(nanos > 0) nanos = Math.max(0, nanos - (wait - remaining));
+				} finally {
+					if(leader == thread) leader = null;
+				}
+			}
+		} finally {
+			if(leader == null && totalSize > 0) condNotEmpty.signal(); // next thread takes over
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public E poll() {
+		lock.lock();
+		try {
+			return pollAvailable(System.nanoTime());
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public E poll(long timeout, TimeUnit unit) throws InterruptedException {
+		return await(Math.max(0, unit.toNanos(timeout)));
+	}
+
+	@Override
+	public E take() throws InterruptedException {
+		return await(-1);
+	}
+
+	@SuppressWarnings("unchecked")
+	@Override
+	public E peek() {
+		lock.lock();
+		try {
+			return totalSize > 0 && times[0] <= System.nanoTime() ? (E) elements[0] : null;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Only amount of elements currently available (not included scheduled elements).
+	 * Only visits available elements and their children
+	 */
+	@Override
+	public int size() {
+		lock.lock();
+		try {
+			return countAvailable(0, System.nanoTime());
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Counts the available elements in a subtree of the heap (lock must be held)
+	 * @param index Index of the root of the subtree
+	 * @param now Current value of {@link System#nanoTime()}
+	 * @return Amount of available elements in the subtree
+	 */
+	protected int countAvailable(int index, long now) {
+		if(index >= totalSize || times[index] > now) return 0;
+		int count = 1;
+		final int first = index * arity + 1;
+		for(int child = first; child < first + arity && child < totalSize; child++)
+			count += countAvailable(child, now);
+		return count;
+	}
+
+	@Override
+	/** Only true if currently elements are available (not included scheduled elements) */
+	public boolean isEmpty() {
+		return peek() == null;
+	}
+
+	@Override
+	public long getTotalSize() {
+		return totalSize;
+	}
+
+	@Override
+	public boolean isCompletelyEmpty() {
+		return totalSize == 0;
+	}
+
+	@Override
+	public boolean offer(E e) {
+		return offerAtNanoTime(System.nanoTime(), e);
+	}
+
+	@Override
+	public boolean offerIn(long duration, E e) {
+		return offerAtNanoTime(ScheduledQueue.nanoTimeIn(TimeUnit.MILLISECONDS.toNanos(duration)), e);
+	}
+
+	@Override
+	public boolean offerInNanos(long nanos, E e) {
+		return offerAtNanoTime(ScheduledQueue.nanoTimeIn(nanos), e);
+	}
+
+	@Override
+	public boolean offerAt(long time, E e) {
+		return offerAtNanoTime(ScheduledQueue.toNanoTime(time), e);
+	}
+
+	/**
+	 * Adds an element if space is available
+	 * @param nanoTime Value of {@link System#nanoTime()} when the element should become available
+	 * @param e Element that should be added
+	 * @return True if added, false if capacity is reached
+	 */
+	protected boolean offerAtNanoTime(long nanoTime, E e) {
+		if(e == null) throw new NullPointerException("Element cannot be null");
+		lock.lock();
+		try {
+			return insert(nanoTime, e);
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public boolean offer(E e, long timeout, TimeUnit unit) throws InterruptedException {
+		return awaitSpace(System.nanoTime(), e, Math.max(0, unit.toNanos(timeout)));
+	}
+
+	@Override
+	public boolean offerIn(long duration, E e, long timeout, TimeUnit unit) throws InterruptedException {
+		return awaitSpace(ScheduledQueue.nanoTimeIn(TimeUnit.MILLISECONDS.toNanos(duration)), e, Math.max(0, unit.toNanos(timeout)));
+	}
+
+	@Override
+	public boolean offerAt(long time, E e, long timeout, TimeUnit unit) throws InterruptedException {
+		return awaitSpace(ScheduledQueue.toNanoTime(time), e, Math.max(0, unit.toNanos(timeout)));
+	}
+
+	@Override
+	public boolean addIn(long duration, E e) {
+		return addAtNanoTime(ScheduledQueue.nanoTimeIn(TimeUnit.MILLISECONDS.toNanos(duration)), e);
+	}
+
+	@Override
+	public boolean addAt(long time, E e) {
+		return addAtNanoTime(ScheduledQueue.toNanoTime(time), e);
+	}
+
+	@Override
+	public boolean addInNanos(long nanos, E e) {
+		return addAtNanoTime(ScheduledQueue.nanoTimeIn(nanos), e);
+	}
+
+	@Override
+	public boolean addAtNanoTime(long nanoTime, E e) {
+		if(!offerAtNanoTime(nanoTime, e)) throw new IllegalStateException("Maximum capacity of "+capacity+" reached");
+		return true;
+	}
+
+	@Override
+	public boolean addAllIn(long duration, Collection<? extends E> c) {
+		return addAllAtNanoTime(ScheduledQueue.nanoTimeIn(TimeUnit.MILLISECONDS.toNanos(duration)), c);
+	}
+
+	@Override
+	public boolean addAllAt(long time, Collection<? extends E> c) {
+		return addAllAtNanoTime(ScheduledQueue.toNanoTime(time), c);
+	}
+
+	/**
+	 * Adds all elements so they become available once {@link System#nanoTime()} reaches the given value
+	 * @param nanoTime Value of {@link System#nanoTime()} when the elements should become available
+	 * @param c Elements that should be added
+	 * @return True if this collection changed as a result of the call
+	 */
+	protected boolean addAllAtNanoTime(long nanoTime, Collection<? extends E> c) {
+		if(c == null || c.isEmpty()) return false;
+		if(c == this) throw new IllegalArgumentException("Cannot add to itself");
+		for(E e : c) addAtNanoTime(nanoTime, e);
+		return true;
+	}
+
+	@Override
+	public void put(E e) throws InterruptedException {
+		awaitSpace(System.nanoTime(), e, -1);
+	}
+
+	@Override
+	public void putIn(long duration, E e) throws InterruptedException {
+		awaitSpace(ScheduledQueue.nanoTimeIn(TimeUnit.MILLISECONDS.toNanos(duration)), e, -1);
+	}
+
+	@Override
+	public void putAt(long time, E e) throws InterruptedException {
+		awaitSpace(ScheduledQueue.toNanoTime(time), e, -1);
+	}
+
+	@Override
+	public int remainingCapacity() {
+		final int capacity = this.capacity;
+		return capacity > 0 ? Math.max(0, capacity - totalSize) : Integer.MAX_VALUE;
+	}
+
+	/**
+	 * Needs to search all elements
+	 */
+	@Override
+	public boolean remove(Object o) {
+		if(o == null) return false;
+		lock.lock();
+		try {
+			for(int i=0; i<totalSize; i++)
+				if(o.equals(elements[i])) {
+					removeAt(i);
+					return true;
+				}
+			return false;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public boolean contains(Object o) {
+		if(o == null) return false;
+		lock.lock();
+		try {
+			for(int i=0; i<totalSize; i++)
+				if(o.equals(elements[i])) return true;
+			return false;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public void clear() {
+		lock.lock();
+		try {
+			Arrays.fill(elements, 0, totalSize, null);
+			totalSize = 0;
+			condNotFull.signalAll();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Iterates over a snapshot of all elements including the ones that are not available yet.
+	 * Elements are not ordered by time
+	 */
+	@Override
+	public Iterator<E> iterator() {
+		final Object[] snapshot;
+		lock.lock();
+		try {
+			snapshot = Arrays.copyOf(elements, totalSize);
+		} finally {
+			lock.unlock();
+		}
+		return new Iterator<E>() {
+			protected int index = 0;
+
+			@Override
+			public boolean hasNext() {
+				return index < snapshot.length;
+			}
+
+			@SuppressWarnings("unchecked")
+			@Override
+			public E next() {
+				if(index >= snapshot.length) throw new NoSuchElementException();
+				return (E) snapshot[index++];
+			}
+
+			@Override
+			public void remove() {
+				if(index == 0) throw new IllegalStateException();
+				final Object element = snapshot[index - 1];
+				lock.lock();
+				try {
+					for(int i=0; i<totalSize; i++)
+						if(elements[i] == element) {
+							removeAt(i);
+							return;
+						}
+				} finally {
+					lock.unlock();
+				}
+			}
+		};
+	}
+
+	@Override
+	public int drainTo(Collection<? super E> c) {
+		return drainTo(c, Integer.MAX_VALUE);
+	}
+
+	@Override
+	public int drainTo(Collection<? super E> c, int maxElements) {
+		if(c == null) throw new NullPointerException("Collection cannot be null");
+		if(c == this) throw new IllegalArgumentException("Cannot drain to itself");
+		lock.lock();
+		try {
+			final long now = System.nanoTime();
+			int count = 0;
+			E e;
+			while(count < maxElements && (e = pollAvailable(now)) != null) {
+				c.add(e);
+				count++;
+			} return count;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public int drainAllTo(Collection<? super E> c) {
+		if(c == null) throw new NullPointerException("Collection cannot be null");
+		if(c == this) throw new IllegalArgumentException("Cannot drain to itself");
+		lock.lock();
+		try {
+			int count = 0;
+			while(totalSize > 0) {
+				c.add(removeAt(0));
+				count++;
+			} return count;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public String toString() {
+		return new StringBuilder(getClass().getSimpleName()).append("{totalSize=").append(totalSize).
+				append("; capacity=").append(capacity).append("; arity=").append(arity).append("}").toString();
+	}
+}
@@ -1,5 +1,6 @@
 package com.lupcode.Utilities.collections.scheduled;
 
+import java.util.Collection;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.TimeUnit;
 
@@ -82,4 +83,13 @@ public interface ScheduledBlockingQueue<E> extends ScheduledQueue<E>, BlockingQu
      *         element prevents it from being added to this queue
      */
     public boolean offerAt(long time, E e, long timeout, TimeUnit unit) throws InterruptedException;
+	
+	/**
+	 * Removes all elements including the ones that are not available yet 
+	 * and adds them to the given collection in order of their time
+	 * @param c Collection to transfer elements into
+	 * @return Amount of elements transferred
+	 * @throws NullPointerException if the specified collection is null
+	 */
+	public int drainAllTo(Collection<? super E> c);
 }
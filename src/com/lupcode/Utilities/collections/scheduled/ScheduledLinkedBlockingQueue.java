@@ -16,13 +16,124 @@ import java.util.concurrent.locks.ReentrantReadWriteLock;
 /**
  * {@link BlockingQueue} that allows to efficiently schedule elements 
  * so they become available after a certain amount of time. 
+ * Elements are ordered by {@link System#nanoTime()} deadlines, system times passed 
+ * to the {@code *At} methods get converted once on insert so changes of the system clock 
+ * do not let elements become available early or late
  * @author LupCode.com (Luca Vogels)
  * @since 2021-01-07
  * @param <E> Element that should be held by queue
  */
 public class ScheduledLinkedBlockingQueue<E> implements ScheduledBlockingQueue<E> {
 	
+	/**
+	 * Handle of an element scheduled by {@link ScheduledLinkedBlockingQueue#scheduleAt(long, Object)} 
+	 * that can cancel or reschedule the element in logarithmic time without searching the whole queue
+	 */
+	public class ScheduledHandle {
+		protected final E element;
+		protected volatile long nanoTime;
+		
+		protected ScheduledHandle(E element, long nanoTime) {
+			this.element = element;
+			this.nanoTime = nanoTime;
+		}
+		
+		/**
+		 * @return Element that has been scheduled
+		 */
+		public E getElement() {
+			return element;
+		}
+		
+		/**
+		 * @return Value of {@link System#nanoTime()} when the element becomes available
+		 */
+		public long getNanoTime() {
+			return nanoTime;
+		}
+		
+		/**
+		 * @return True if element is still in the queue (scheduled or available)
+		 */
+		public boolean isPending() {
+			lock.readLock().lock();
+			try {
+				final Queue<E> q = elements.get(nanoTime);
+				if(q != null)
+					for(E e : q)
+						if(e == element) return true;
+				return false;
+			} finally {
+				lock.readLock().unlock();
+			}
+		}
+		
+		/**
+		 * Removes the element from the queue
+		 * @return True if removed, false if it has already been taken or removed
+		 */
+		public boolean cancel() {
+			lock.writeLock().lock();
+			try {
+				if(!unlink(this)) return false;
+				if(totalSize < capacity) condNotFull.signalAll();
+				return true;
+			} finally {
+				lock.writeLock().unlock();
+			}
+		}
+		
+		/**
+		 * Changes when the element becomes available
+		 * @param time System time in milliseconds when the element should become available
+		 * @return True if rescheduled, false if it has already been taken or removed
+		 */
+		public boolean reschedule(long time) {
+			return rescheduleAtNanoTime(ScheduledQueue.toNanoTime(time));
+		}
+		
+		/**
+		 * Changes when the element becomes available
+		 * @param nanos Nanoseconds from now after which the element should become available
+		 * @return True if rescheduled, false if it has already been taken or removed
+		 */
+		public boolean rescheduleInNanos(long nanos) {
+			return rescheduleAtNanoTime(ScheduledQueue.nanoTimeIn(nanos));
+		}
+		
+		/**
+		 * Changes when the element becomes available
+		 * @param nanoTime Value of {@link System#nanoTime()} when the element should become available
+		 * @return True if rescheduled, false if it has already been taken or removed
+		 */
+		public boolean rescheduleAtNanoTime(long nanoTime) {
+			lock.writeLock().lock();
+			try {
+				if(!unlink(this)) return false;
+				this.nanoTime = nanoTime;
+				getQueueForInsert(nanoTime).add(element);
+				added(nanoTime, 1);
+				condNotEmpty.signalAll();
+				return true;
+			} finally {
+				lock.writeLock().unlock();
+			}
+		}
+		
+		@Override
+		public String toString() {
+			return new StringBuilder(getClass().getSimpleName()).append("{nanoTime=").append(nanoTime).
+					append("; element=").append(element).append("}").toString();
+		}
+	}
+	
 	protected long totalSize = 0, capacity = -1;
+	/** Amount of elements in buckets up to {@link #dueUntil} */
+	protected long dueSize = 0;
+	/** Value of {@link System#nanoTime()} up to which buckets are counted in {@link #dueSize} */
+	protected long dueUntil = Long.MIN_VALUE;
+	/** Lower bound of the first bucket after {@link #dueUntil} */
+	protected long nextDue = Long.MAX_VALUE;
 	protected boolean allowNull = true;
 	protected TreeMap<Long, Queue<E>> elements = new TreeMap<>();
 	protected ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
@@ -95,11 +206,66 @@ public class ScheduledLinkedBlockingQueue<E> implements ScheduledBlockingQueue<E
 		this.allowNull = nullable;
 	}
 	
-	protected Queue<E> getQueueForInsert(long time){
-		Queue<E> q = elements.get(time);
+	/**
+	 * Updates the counts after elements have been added (write lock must be held)
+	 * @param nanoTime Key of the bucket the elements have been added to
+	 * @param count Amount of added elements
+	 */
+	protected void added(long nanoTime, int count) {
+		totalSize += count;
+		if(nanoTime <= dueUntil) dueSize += count;
+		else if(nanoTime < nextDue) nextDue = nanoTime;
+	}
+	
+	/**
+	 * Updates the counts after elements have been removed (write lock must be held)
+	 * @param nanoTime Key of the bucket the elements have been removed from
+	 * @param count Amount of removed elements
+	 */
+	protected void removed(long nanoTime, int count) {
+		totalSize -= count;
+		if(nanoTime <= dueUntil) dueSize -= count;
+	}
+	
+	/**
+	 * Counts the buckets that became due until the given time (write lock must be held)
+	 * @param now Current value of {@link System#nanoTime()}
+	 */
+	protected void advance(long now) {
+		if(now <= dueUntil) return;
+		if(nextDue <= now)
+			for(Queue<E> q : elements.subMap(dueUntil, false, now, true).values())
+				dueSize += q.size();
+		dueUntil = now;
+		final Long next = elements.higherKey(now);
+		nextDue = next != null ? next : Long.MAX_VALUE;
+	}
+	
+	/**
+	 * Removes the element of a handle from its bucket (write lock must be held). 
+	 * Buckets are keyed by nanoseconds so they mostly contain a single element
+	 * @param handle Handle of the element that should be removed
+	 * @return True if removed, false if element is not in the queue anymore
+	 */
+	protected boolean unlink(ScheduledHandle handle) {
+		final Queue<E> q = elements.get(handle.nanoTime);
+		if(q == null) return false;
+		final Iterator<E> it = q.iterator();
+		while(it.hasNext()) {
+			if(it.next() != handle.element) continue;
+			it.remove();
+			if(q.isEmpty()) elements.remove(handle.nanoTime);
+			removed(handle.nanoTime, 1);
+			return true;
+		}
+		return false;
+	}
+	
+	protected Queue<E> getQueueForInsert(long nanoTime){
+		Queue<E> q = elements.get(nanoTime);
 		if(q == null) {
 			q = new LinkedList<>();
-			elements.put(time, q);
+			elements.put(nanoTime, q);
 		} return q;
 	}
 
@@ -108,12 +274,12 @@ public class ScheduledLinkedBlockingQueue<E> implements ScheduledBlockingQueue<E
 		lock.writeLock().lock();
 		try {
 			Entry<Long, Queue<E>> first = elements.firstEntry();
-			if(first == null || first.getKey() > System.currentTimeMillis())
+			if(first == null || first.getKey() > System.nanoTime())
 				throw new NoSuchElementException();
 			try {
 				E e = first.getValue().remove();
 				if(first.getValue().isEmpty()) elements.remove(first.getKey());
-				totalSize--;
+				removed(first.getKey(), 1);
 				if(totalSize < capacity) condNotFull.signalAll();
 				return e;
 			} catch (Exception ex) {
@@ -130,12 +296,12 @@ public class ScheduledLinkedBlockingQueue<E> implements ScheduledBlockingQueue<E
 		lock.writeLock().lock();
 		try {
 			Entry<Long, Queue<E>> first = elements.firstEntry();
-			if(first == null || first.getKey() > System.currentTimeMillis())
+			if(first == null || first.getKey() > System.nanoTime())
 				return null;
 			try {
 				E e = first.getValue().remove();
 				if(first.getValue().isEmpty()) elements.remove(first.getKey());
-				totalSize--;
+				removed(first.getKey(), 1);
 				if(totalSize < capacity) condNotFull.signalAll();
 				return e;
 			} catch (Exception ex) {
@@ -152,7 +318,7 @@ public class ScheduledLinkedBlockingQueue<E> implements ScheduledBlockingQueue<E
 		lock.readLock().lock();
 		try {
 			Entry<Long, Queue<E>> first = elements.firstEntry();
-			if(first == null || first.getKey() > System.currentTimeMillis())
+			if(first == null || first.getKey() > System.nanoTime())
 				throw new NoSuchElementException();
 			try {
 				return first.getValue().element();
@@ -170,7 +336,7 @@ public class ScheduledLinkedBlockingQueue<E> implements ScheduledBlockingQueue<E
 		lock.readLock().lock();
 		try {
 			Entry<Long, Queue<E>> first = elements.firstEntry();
-			if(first == null || first.getKey() > System.currentTimeMillis())
+			if(first == null || first.getKey() > System.nanoTime())
 				return null;
 			return first.getValue().peek();
 		} finally {
@@ -181,24 +347,44 @@ public class ScheduledLinkedBlockingQueue<E> implements ScheduledBlockingQueue<E
 	@Override
 	/** Only amount of elements currently available (not included scheduled elements) */
 	public int size() {
+		return (int) Math.min(Integer.MAX_VALUE, getDueSize());
+	}
+	
+	/**
+	 * Returns how many elements are currently available. 
+	 * The count is maintained on every change, only buckets 
+	 * that became due since the last call need to be counted
+	 * @return Amount of available elements
+	 */
+	public long getDueSize() {
+		final long now = System.nanoTime();
 		lock.readLock().lock();
 		try {
-			int count = 0;
-			Iterator<Entry<Long, Queue<E>>> it = elements.entrySet().iterator();
-			while(it.hasNext()) {
-				Entry<Long, Queue<E>> entry = it.next();
-				if(entry == null || entry.getValue() == null || entry.getValue().isEmpty()) {
-					it.remove();
-					continue;
-				}
-				if(entry.getKey() <= System.currentTimeMillis()) {
-					count += entry.getValue().size();
-				} else break;
-			}
-			return count;
+			if(nextDue > now) return dueSize;
 		} finally {
 			lock.readLock().unlock();
 		}
+		lock.writeLock().lock();
+		try {
+			advance(now);
+			return dueSize;
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+	
+	/**
+	 * Returns how many elements are scheduled but not available yet
+	 * @return Amount of scheduled elements
+	 */
+	public long getFutureSize() {
+		lock.writeLock().lock();
+		try {
+			advance(System.nanoTime());
+			return totalSize - dueSize;
+		} finally {
+			lock.writeLock().unlock();
+		}
 	}
 	
 	@Override
@@ -210,7 +396,7 @@ public class ScheduledLinkedBlockingQueue<E> implements ScheduledBlockingQueue<E
 	/** Only true if currently elements are available (not included scheduled elements) */
 	public boolean isEmpty() {
 		Entry<Long, Queue<E>> first = elements.firstEntry();
-		return first == null || first.getKey() > System.currentTimeMillis();
+		return first == null || first.getKey() > System.nanoTime();
 	}
 	
 	@Override
@@ -262,8 +448,8 @@ public class ScheduledLinkedBlockingQueue<E> implements ScheduledBlockingQueue<E
 				if(inner == null) return;
 				lock.writeLock().lock();
 				try {
-					totalSize--;
 					inner.remove();
+					removed(currKey != null ? currKey : Long.MAX_VALUE, 1);
 					if(currKey != null) {
 						Queue<E> q = elements.get(currKey);
 						if(q == null || q.isEmpty()) {
@@ -285,7 +471,7 @@ public class ScheduledLinkedBlockingQueue<E> implements ScheduledBlockingQueue<E
 		try {
 			ArrayList<E> list = new ArrayList<>();
 			for(Entry<Long, Queue<E>> entry : elements.entrySet())
-				if(entry.getKey() <= System.currentTimeMillis())
+				if(entry.getKey() <= System.nanoTime())
 					list.addAll(entry.getValue());
 				else break;
 			return list.toArray();
@@ -300,7 +486,7 @@ public class ScheduledLinkedBlockingQueue<E> implements ScheduledBlockingQueue<E
 		try {
 			ArrayList<E> list = new ArrayList<>();
 			for(Entry<Long, Queue<E>> entry : elements.entrySet())
-				if(entry.getKey() <= System.currentTimeMillis())
+				if(entry.getKey() <= System.nanoTime())
 					list.addAll(entry.getValue());
 				else break;
 			return list.toArray(a);
@@ -330,30 +516,44 @@ public class ScheduledLinkedBlockingQueue<E> implements ScheduledBlockingQueue<E
 
 	@Override
 	public boolean addAll(Collection<? extends E> c) {
-		return addAllAt(System.currentTimeMillis(), c);
+		return addAllAtNanoTime(System.nanoTime(), c);
 	}
 	
 	@Override
 	public boolean addAllIn(long duration, Collection<? extends E> c) {
-		return addAllAt(System.currentTimeMillis() + duration, c);
+		return addAllAtNanoTime(ScheduledQueue.nanoTimeIn(TimeUnit.MILLISECONDS.toNanos(duration)), c);
 	}
 	
 	@Override
 	public boolean addAllAt(long time, Collection<? extends E> c) {
+		return addAllAtNanoTime(ScheduledQueue.toNanoTime(time), c);
+	}
+	
+	/**
+	 * Adds all elements from collection so that they become 
+	 * available once {@link System#nanoTime()} reaches the given value
+	 * @param nanoTime Value of {@link System#nanoTime()} at which elements should become available
+	 * @param c Collection of elements that should be added
+	 * @return True if this collection changed as a result of the call
+	 */
+	protected boolean addAllAtNanoTime(long nanoTime, Collection<? extends E> c) {
 		if(c == null || c.isEmpty()) return false;
 		lock.writeLock().lock();
 		try {
 			boolean changed = false;
-			Queue<E> q = getQueueForInsert(time);
-			for(E o : c) {
-				if(o == null || !allowNull) throw new NullPointerException("Element cannot be null");
-				if(capacity > 0 && totalSize > capacity)
-					throw new IllegalStateException("Maximum capacity of "+capacity+" reached");
-				changed &= q.add(o);
-				totalSize++;
+			Queue<E> q = getQueueForInsert(nanoTime);
+			try {
+				for(E o : c) {
+					if(o == null && !allowNull) throw new NullPointerException("Element cannot be null");
+					if(capacity > 0 && totalSize >= capacity)
+						throw new IllegalStateException("Maximum capacity of "+capacity+" reached");
+					if(q.add(o)) changed = true;
+					added(nanoTime, 1);
+				}
+			} finally { // elements added before an exception stay in the queue
+				if(q.isEmpty()) elements.remove(nanoTime);
+				if(changed) condNotEmpty.signalAll();
 			}
-			if(q.isEmpty()) elements.remove(time);
-			if(changed) condNotEmpty.signalAll();
 			return changed;
 		} finally {
 			lock.writeLock().unlock();
@@ -366,7 +566,7 @@ public class ScheduledLinkedBlockingQueue<E> implements ScheduledBlockingQueue<E
 		lock.writeLock().lock();
 		try {
 			boolean changed = false;
-			long newTotalSize = 0;
+			long newTotalSize = 0, newDueSize = 0;
 			Iterator<Entry<Long, Queue<E>>> it = elements.entrySet().iterator();
 			while(it.hasNext()) {
 				Entry<Long, Queue<E>> entry = it.next();
@@ -376,9 +576,11 @@ public class ScheduledLinkedBlockingQueue<E> implements ScheduledBlockingQueue<E
 				}
 				changed |= entry.getValue().removeAll(c);
 				newTotalSize += entry.getValue().size();
+				if(entry.getKey() <= dueUntil) newDueSize += entry.getValue().size();
 				if(entry.getValue().isEmpty()) it.remove();
 			}
 			this.totalSize = newTotalSize;
+			this.dueSize = newDueSize;
 			if(changed && totalSize < capacity) condNotFull.signalAll(); 
 			return changed;
 		} finally {
@@ -395,7 +597,7 @@ public class ScheduledLinkedBlockingQueue<E> implements ScheduledBlockingQueue<E
 		}
 		lock.writeLock().lock();
 		try {
-			long newTotalSize = 0;
+			long newTotalSize = 0, newDueSize = 0;
 			boolean changed = false;
 			Iterator<Entry<Long, Queue<E>>> it = elements.entrySet().iterator();
 			while(it.hasNext()) {
@@ -406,10 +608,12 @@ public class ScheduledLinkedBlockingQueue<E> implements ScheduledBlockingQueue<E
 				}
 				changed |= entry.getValue().retainAll(c);
 				newTotalSize += entry.getValue().size();
+				if(entry.getKey() <= dueUntil) newDueSize += entry.getValue().size();
 				if(entry.getValue().isEmpty())
 					it.remove();
 			}
 			this.totalSize = newTotalSize;
+			this.dueSize = newDueSize;
 			if(changed && totalSize < capacity) condNotFull.signalAll();
 			return changed;
 		} finally {
@@ -423,6 +627,8 @@ public class ScheduledLinkedBlockingQueue<E> implements ScheduledBlockingQueue<E
 		try {
 			elements.clear();
 			totalSize = 0;
+			dueSize = 0;
+			nextDue = Long.MAX_VALUE;
 			condNotFull.signalAll();
 		} finally {
 			lock.writeLock().unlock();
@@ -431,24 +637,34 @@ public class ScheduledLinkedBlockingQueue<E> implements ScheduledBlockingQueue<E
 
 	@Override
 	public boolean add(E e) {
-		return addAt(System.currentTimeMillis(), e);
+		return addAtNanoTime(System.nanoTime(), e);
 	}
 	
 	@Override
 	public boolean addIn(long duration, E e) {
-		return addAt(System.currentTimeMillis() + duration, e);
+		return addAtNanoTime(ScheduledQueue.nanoTimeIn(TimeUnit.MILLISECONDS.toNanos(duration)), e);
+	}
+	
+	@Override
+	public boolean addInNanos(long nanos, E e) {
+		return addAtNanoTime(ScheduledQueue.nanoTimeIn(nanos), e);
 	}
 
 	@Override
 	public boolean addAt(long time, E e) {
+		return addAtNanoTime(ScheduledQueue.toNanoTime(time), e);
+	}
+	
+	@Override
+	public boolean addAtNanoTime(long nanoTime, E e) {
 		if(e == null && !allowNull) throw new NullPointerException("Element cannot be null");
 		lock.writeLock().lock();
 		try {
-			if(capacity > 0 && totalSize > capacity)
+			if(capacity > 0 && totalSize >= capacity)
 				throw new IllegalStateException("Maximum capacity of "+capacity+" reached");
-			Queue<E> q = getQueueForInsert(time);
+			Queue<E> q = getQueueForInsert(nanoTime);
 			boolean changed = q.add(e);
-			totalSize++;
+			added(nanoTime, 1);
 			if(changed) condNotEmpty.signalAll();
 			return changed;
 		} finally {
@@ -456,25 +672,94 @@ public class ScheduledLinkedBlockingQueue<E> implements ScheduledBlockingQueue<E
 		}
 	}
 
+	/**
+	 * Adds the given element so that it becomes available at the given system time 
+	 * and returns a handle that can cancel or reschedule it without searching the queue
+	 * @param time System time in milliseconds when the element should become available
+	 * @param e Element that should be added
+	 * @return Handle of the scheduled element
+	 * @throws IllegalStateException if the element cannot be added at this time due to capacity restrictions
+	 * @throws NullPointerException if the element is null and null is not allowed
+	 */
+	public ScheduledHandle scheduleAt(long time, E e) throws IllegalStateException, NullPointerException {
+		return scheduleAtNanoTime(ScheduledQueue.toNanoTime(time), e);
+	}
+	
+	/**
+	 * Adds the given element so that it becomes available after the given duration 
+	 * and returns a handle that can cancel or reschedule it without searching the queue
+	 * @param duration Milliseconds from now after which element should become available
+	 * @param e Element that should be added
+	 * @return Handle of the scheduled element
+	 * @throws IllegalStateException if the element cannot be added at this time due to capacity restrictions
+	 * @throws NullPointerException if the element is null and null is not allowed
+	 */
+	public ScheduledHandle scheduleIn(long duration, E e) throws IllegalStateException, NullPointerException {
+		return scheduleAtNanoTime(ScheduledQueue.nanoTimeIn(TimeUnit.MILLISECONDS.toNanos(duration)), e);
+	}
+	
+	/**
+	 * Adds the given element so that it becomes available after the given amount of nanoseconds 
+	 * and returns a handle that can cancel or reschedule it without searching the queue
+	 * @param nanos Nanoseconds from now after which element should become available
+	 * @param e Element that should be added
+	 * @return Handle of the scheduled element
+	 * @throws IllegalStateException if the element cannot be added at this time due to capacity restrictions
+	 * @throws NullPointerException if the element is null and null is not allowed
+	 */
+	public ScheduledHandle scheduleInNanos(long nanos, E e) throws IllegalStateException, NullPointerException {
+		return scheduleAtNanoTime(ScheduledQueue.nanoTimeIn(nanos), e);
+	}
+	
+	/**
+	 * Adds the given element so that it becomes available once {@link System#nanoTime()} reaches the given value 
+	 * and returns a handle that can cancel or reschedule it without searching the queue
+	 * @param nanoTime Value of {@link System#nanoTime()} at which element should become available
+	 * @param e Element that should be added
+	 * @return Handle of the scheduled element
+	 * @throws IllegalStateException if the element cannot be added at this time due to capacity restrictions
+	 * @throws NullPointerException if the element is null and null is not allowed
+	 */
+	public ScheduledHandle scheduleAtNanoTime(long nanoTime, E e) throws IllegalStateException, NullPointerException {
+		addAtNanoTime(nanoTime, e);
+		return new ScheduledHandle(e, nanoTime);
+	}
+
 	@Override
 	public boolean offer(E e) {
-		return offerAt(System.currentTimeMillis(), e);
+		return offerAtNanoTime(System.nanoTime(), e);
 	}
 	
 	@Override
 	public boolean offerIn(long duration, E e) {
-		return offerAt(System.currentTimeMillis() + duration, e);
+		return offerAtNanoTime(ScheduledQueue.nanoTimeIn(TimeUnit.MILLISECONDS.toNanos(duration)), e);
+	}
+	
+	@Override
+	public boolean offerInNanos(long nanos, E e) {
+		return offerAtNanoTime(ScheduledQueue.nanoTimeIn(nanos), e);
 	}
 
 	@Override
 	public boolean offerAt(long time, E e) {
+		return offerAtNanoTime(ScheduledQueue.toNanoTime(time), e);
+	}
+	
+	/**
+	 * Adds the given element to the collection so that it becomes 
+	 * available once {@link System#nanoTime()} reaches the given value
+	 * @param nanoTime Value of {@link System#nanoTime()} at which element should become available
+	 * @param e Element that should be added
+	 * @return {@code true} if the element was added to this queue, else {@code false}
+	 */
+	protected boolean offerAtNanoTime(long nanoTime, E e) {
 		if(e == null && !allowNull) throw new NullPointerException("Element cannot be null");
 		lock.writeLock().lock();
 		try {
-			if(capacity > 0 && totalSize > capacity) return false;
-			Queue<E> q = getQueueForInsert(time);
+			if(capacity > 0 && totalSize >= capacity) return false;
+			Queue<E> q = getQueueForInsert(nanoTime);
 			boolean changed = q.add(e);
-			totalSize++;
+			added(nanoTime, 1);
 			if(changed) condNotEmpty.signalAll();
 			return changed;
 		} finally {
@@ -484,28 +769,41 @@ public class ScheduledLinkedBlockingQueue<E> implements ScheduledBlockingQueue<E
 	
 	@Override
 	public boolean offer(E e, long timeout, TimeUnit unit) throws InterruptedException {
-		return offerAt(System.currentTimeMillis(), e, timeout, unit);
+		return offerAtNanoTime(System.nanoTime(), e, timeout, unit);
 	}
 	
 	@Override
 	public boolean offerIn(long duration, E e, long timeout, TimeUnit unit) throws InterruptedException {
-		return offerAt(System.currentTimeMillis() + duration, e, timeout, unit);
+		return offerAtNanoTime(ScheduledQueue.nanoTimeIn(TimeUnit.MILLISECONDS.toNanos(duration)), e, timeout, unit);
 	}
 
 	@Override
 	public boolean offerAt(long time, E e, long timeout, TimeUnit unit) throws InterruptedException {
+		return offerAtNanoTime(ScheduledQueue.toNanoTime(time), e, timeout, unit);
+	}
+	
+	/**
+	 * Adds the given element to the collection so that it becomes available once 
+	 * {@link System#nanoTime()} reaches the given value, waiting if necessary for space to become available
+	 * @param nanoTime Value of {@link System#nanoTime()} at which element should become available
+	 * @param e Element that should be added
+	 * @param timeout How long to wait before giving up, in units of {@code unit}
+	 * @param unit Time unit of the timeout
+	 * @return {@code true} if successful, or {@code false} if the specified waiting time elapses before space is available
+	 * @throws InterruptedException if interrupted while waiting
+	 */
+	protected boolean offerAtNanoTime(long nanoTime, E e, long timeout, TimeUnit unit) throws InterruptedException {
 		if(e == null && !allowNull) throw new NullPointerException("Element cannot be null");
-		timeout = unit.toMillis(timeout);
+		long nanos = unit.toNanos(timeout);
 		lock.writeLock().lock();
 		try {
-			long start = System.currentTimeMillis(), wait;
 			boolean full = false;
-			while((full = capacity > 0 && totalSize >= capacity) && (wait = timeout-(System.currentTimeMillis()-start)) > 0)
-				condNotFull.await(wait, TimeUnit.MILLISECONDS);
+			while((full = capacity > 0 && totalSize >= capacity) && nanos > 0)
+				nanos = condNotFull.awaitNanos(nanos);
 			if(full) return false;
-			Queue<E> q = getQueueForInsert(time);
+			Queue<E> q = getQueueForInsert(nanoTime);
 			q.add(e);
-			totalSize++;
+			added(nanoTime, 1);
 			condNotEmpty.signalAll();
 			return true;
 		} finally {
@@ -515,24 +813,35 @@ public class ScheduledLinkedBlockingQueue<E> implements ScheduledBlockingQueue<E
 
 	@Override
 	public void put(E e) throws InterruptedException {
-		putAt(System.currentTimeMillis(), e);
+		putAtNanoTime(System.nanoTime(), e);
 	}
 	
 	@Override
 	public void putIn(long duration, E e) throws InterruptedException {
-		putAt(System.currentTimeMillis() + duration, e);
+		putAtNanoTime(ScheduledQueue.nanoTimeIn(TimeUnit.MILLISECONDS.toNanos(duration)), e);
 	}
 
 	@Override
 	public void putAt(long time, E e) throws InterruptedException {
+		putAtNanoTime(ScheduledQueue.toNanoTime(time), e);
+	}
+	
+	/**
+	 * Adds the given element to the collection so that it becomes available once 
+	 * {@link System#nanoTime()} reaches the given value, waiting if necessary for space to become available
+	 * @param nanoTime Value of {@link System#nanoTime()} at which element should become available
+	 * @param e Element that should be added
+	 * @throws InterruptedException if interrupted while waiting
+	 */
+	protected void putAtNanoTime(long nanoTime, E e) throws InterruptedException {
 		if(e == null && !allowNull) throw new NullPointerException("Element cannot be null");
 		lock.writeLock().lock();
 		try {
 			while(capacity > 0 && totalSize >= capacity)
 				condNotFull.await();
-			Queue<E> q = getQueueForInsert(time);
+			Queue<E> q = getQueueForInsert(nanoTime);
 			boolean changed = q.add(e);
-			totalSize++;
+			added(nanoTime, 1);
 			if(changed) condNotEmpty.signalAll();
 		} finally {
 			lock.writeLock().unlock();
@@ -550,17 +859,17 @@ public class ScheduledLinkedBlockingQueue<E> implements ScheduledBlockingQueue<E
 					condNotEmpty.await();
 					continue;
 				}
-				long now = System.currentTimeMillis();
-				if(first.getKey() > now){
-					condNotEmpty.await(Math.max(0, first.getKey()-now), TimeUnit.MILLISECONDS);
+				final long delay = first.getKey() - System.nanoTime();
+				if(delay > 0){
+					condNotEmpty.awaitNanos(delay);
 					first = null;
 				}
-			} while(first != null);
+			} while(first == null);
 			try {
 				@SuppressWarnings("null")
 				E e = first.getValue().remove();
 				if(first.getValue().isEmpty()) elements.remove(first.getKey());
-				totalSize--;
+				removed(first.getKey(), 1);
 				if(totalSize < capacity) condNotFull.signalAll();
 				return e;
 			} catch (Exception ex) {
@@ -574,34 +883,33 @@ public class ScheduledLinkedBlockingQueue<E> implements ScheduledBlockingQueue<E
 
 	@Override
 	public E poll(long timeout, TimeUnit unit) throws InterruptedException {
-		timeout = unit.toMillis(timeout);
+		long nanos = unit.toNanos(timeout);
 		lock.writeLock().lock();
 		try {
-			long start = System.currentTimeMillis(), wait=Math.max(0, timeout);
 			Entry<Long, Queue<E>> first = null;
 			do {
 				first = elements.firstEntry();
 				if(first == null) {
-					condNotEmpty.await(wait, TimeUnit.MILLISECONDS);
+					if(nanos > 0) nanos = condNotEmpty.awaitNanos(nanos);
 					continue;
 				}
-				long now = System.currentTimeMillis();
-				if(first.getKey() > now){
-					condNotEmpty.await(Math.min(wait, first.getKey()-now), TimeUnit.MILLISECONDS);
+				final long delay = first.getKey() - System.nanoTime();
+				if(delay > 0){
+					if(nanos > 0) nanos = delay < nanos ? nanos - delay + condNotEmpty.awaitNanos(delay) : condNotEmpty.awaitNanos(nanos);
 					first = null;
 				}
-			} while(first == null && (wait = timeout-(System.currentTimeMillis()-start)) > 0);
+			} while(first == null && nanos > 0);
 			if(first == null) return null;
 			try {
 				E e = first.getValue().remove();
 				if(first.getValue().isEmpty()) elements.remove(first.getKey());
-				totalSize--;
+				removed(first.getKey(), 1);
 				if(totalSize < capacity) condNotFull.signalAll();
 				return e;
 			} catch (Exception ex) {
 				elements.remove(first.getKey());
 			}
-			return wait > 0 ? poll(wait, TimeUnit.MILLISECONDS) : null;
+			return poll(nanos, TimeUnit.NANOSECONDS);
 		} finally {
 			lock.writeLock().unlock();
 		}
@@ -624,8 +932,8 @@ public class ScheduledLinkedBlockingQueue<E> implements ScheduledBlockingQueue<E
 					continue;
 				}
 				if(entry.getValue().remove(o)) {
+					removed(entry.getKey(), 1);
 					if(entry.getValue().isEmpty()) it.remove();
-					totalSize--;
 					if(totalSize < capacity) condNotFull.signalAll();
 					return true;
 				}
@@ -650,54 +958,69 @@ public class ScheduledLinkedBlockingQueue<E> implements ScheduledBlockingQueue<E
 
 	@Override
 	public int drainTo(Collection<? super E> c) {
+		return drainDue(c, Integer.MAX_VALUE, System.nanoTime());
+	}
+
+	@Override
+	public int drainTo(Collection<? super E> c, int maxElements) {
+		return drainDue(c, maxElements, System.nanoTime());
+	}
+	
+	/**
+	 * Removes the elements that are due at the given time and adds them to the given collection. 
+	 * All elements get removed with a single lock acquisition so no other thread 
+	 * can take or add elements in between
+	 * @param c Collection the elements should be added to
+	 * @param maxElements Maximum amount of elements that should be removed
+	 * @param now Value of {@link System#nanoTime()} up to which elements should be removed
+	 * @return Amount of removed elements
+	 * @throws NullPointerException if collection is null
+	 * @throws IllegalArgumentException if collection is this queue
+	 */
+	public int drainDue(Collection<? super E> c, int maxElements, long now) throws NullPointerException, IllegalArgumentException {
 		if(c == null) throw new NullPointerException("Collection cannot be null");
+		if(c == this) throw new IllegalArgumentException("Cannot drain to itself");
 		lock.writeLock().lock();
 		try {
 			int count = 0;
-			Iterator<Entry<Long, Queue<E>>> it = elements.entrySet().iterator();
-			while(it.hasNext()) {
-				Entry<Long, Queue<E>> entry = it.next();
-				if(entry == null || entry.getValue() == null || entry.getValue().isEmpty()) {
-					it.remove();
-					continue;
+			Entry<Long, Queue<E>> first;
+			while(count < maxElements && (first = elements.firstEntry()) != null && first.getKey() <= now) {
+				final Queue<E> q = first.getValue();
+				if(q.size() <= maxElements - count) {
+					elements.pollFirstEntry();
+					c.addAll(q);
+					count += q.size();
+					removed(first.getKey(), q.size());
+				} else {
+					while(count < maxElements) {
+						c.add(q.remove());
+						count++;
+						removed(first.getKey(), 1);
+					}
 				}
-				if(entry.getKey() <= System.currentTimeMillis()) {
-					c.addAll(entry.getValue());
-					totalSize -= entry.getValue().size();
-					it.remove();
-				} else break;
 			}
-			if(totalSize < capacity) condNotFull.signalAll();
+			if(count > 0 && totalSize < capacity) condNotFull.signalAll();
 			return count;
 		} finally {
 			lock.writeLock().unlock();
 		}
-		
 	}
 
 	@Override
-	public int drainTo(Collection<? super E> c, int maxElements) {
+	public int drainAllTo(Collection<? super E> c) {
 		if(c == null) throw new NullPointerException("Collection cannot be null");
 		lock.writeLock().lock();
 		try {
 			int count = 0;
-			Iterator<Entry<Long, Queue<E>>> it = elements.entrySet().iterator();
-			while(it.hasNext()) {
-				Entry<Long, Queue<E>> entry = it.next();
-				if(entry == null || entry.getValue() == null || entry.getValue().isEmpty()) {
-					it.remove();
-					continue;
-				}
-				if(entry.getKey() <= System.currentTimeMillis()) {
-					while(!entry.getValue().isEmpty() && count < maxElements) {
-						c.add(entry.getValue().remove());
-						count++;
-						totalSize--;
-					}
-					if(entry.getValue().isEmpty()) it.remove();
-				} else break;
+			for(Queue<E> q : elements.values()) {
+				c.addAll(q);
+				count += q.size();
 			}
-			if(totalSize < capacity) condNotFull.signalAll();
+			elements.clear();
+			totalSize = 0;
+			dueSize = 0;
+			nextDue = Long.MAX_VALUE;
+			condNotFull.signalAll();
 			return count;
 		} finally {
 			lock.writeLock().unlock();
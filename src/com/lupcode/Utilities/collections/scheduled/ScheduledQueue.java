@@ -112,4 +112,71 @@ public interface ScheduledQueue<E> extends Queue<E> {
      *         element prevents it from being added to this queue
 	 */
 	public boolean offerAt(long time, E e);
+	
+	/**
+	 * Adds the given element to the collection so that it becomes 
+	 * available after the given amount of nanoseconds or throwing an {@code IllegalStateException}
+     * if no space is currently available. 
+     * The delay is measured with {@link System#nanoTime()} so it is not affected by changes of the system clock
+     * @param nanos Nanoseconds from now after which element should become available
+	 * @param e Element that should be added
+	 * @return {@code true} (as specified by {@link Collection#add})
+	 * @throws IllegalStateException if the element cannot be added at this
+     *         time due to capacity restrictions
+     * @throws NullPointerException if the specified element is null
+	 */
+	public boolean addInNanos(long nanos, E e);
+	
+	/**
+	 * Adds the given element to the collection so that it becomes 
+	 * available after the given amount of nanoseconds. 
+     * The delay is measured with {@link System#nanoTime()} so it is not affected by changes of the system clock
+	 * @param nanos Nanoseconds from now after which element should become available
+	 * @param e Element that should be added
+	 * @return {@code true} if the element was added to this queue, else
+     *         {@code false}
+     * @throws NullPointerException if the specified element is null
+	 */
+	public boolean offerInNanos(long nanos, E e);
+	
+	/**
+	 * Adds the given element to the collection so that it becomes 
+	 * available once {@link System#nanoTime()} reaches the given value 
+	 * or throwing an {@code IllegalStateException} if no space is currently available
+	 * @param nanoTime Value of {@link System#nanoTime()} at which element should become available
+	 * @param e Element that should be added
+	 * @return {@code true} (as specified by {@link Collection#add})
+	 * @throws IllegalStateException if the element cannot be added at this
+     *         time due to capacity restrictions
+     * @throws NullPointerException if the specified element is null
+	 */
+	public boolean addAtNanoTime(long nanoTime, E e);
+	
+	
+	/**
+	 * Returns the value of {@link System#nanoTime()} after the given amount of nanoseconds. 
+	 * Delays get clamped so that deadlines can be compared by subtraction without overflowing
+	 * @param nanos Nanoseconds from now
+	 * @return Value of {@link System#nanoTime()} after the given nanoseconds
+	 */
+	public static long nanoTimeIn(long nanos) {
+		return System.nanoTime() + Math.max(-MAX_DELAY_NANOS, Math.min(MAX_DELAY_NANOS, nanos));
+	}
+	
+	/**
+	 * Converts a system time in milliseconds into the corresponding value of {@link System#nanoTime()}. 
+	 * Elements scheduled at a system time get converted once when they are inserted, 
+	 * so later changes of the system clock do not let them become available early or late
+	 * @param time System time in milliseconds
+	 * @return Value of {@link System#nanoTime()} at the given system time
+	 */
+	public static long toNanoTime(long time) {
+		final long millis = Math.max(-MAX_DELAY_NANOS / 1000000L, Math.min(MAX_DELAY_NANOS / 1000000L, time - System.currentTimeMillis()));
+		return nanoTimeIn(millis * 1000000L);
+	}
+	
+	/**
+	 * Largest delay in nanoseconds (about 73 years) that elements can be scheduled in
+	 */
+	public static final long MAX_DELAY_NANOS = Long.MAX_VALUE >> 2;
 }
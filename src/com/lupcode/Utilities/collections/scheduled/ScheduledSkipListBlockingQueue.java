@@ -0,0 +1,548 @@
+package com.lupcode.Utilities.collections.scheduled;
+
+import java.util.AbstractQueue;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * {@link BlockingQueue} that schedules elements in a concurrent skip list so producers
+ * and consumers do not use any locks and never block each other.
+ * Elements with the same time become available in the order they have been added.
+ * Times are {@link System#nanoTime()} deadlines, system times passed to the {@code *At} 
+ * methods get converted once on insert so changes of the system clock do not affect them.
+ * Waiting consumers use the leader/follower pattern: only one consumer (leader) waits
+ * until the first element becomes available, all others park until they get woken up,
+ * so adding an element wakes up at most one consumer
+ * @author LupCode.com (Luca Vogels)
+ * @since 2026-10-16
+ * @param <E> Element that should be held by queue
+ */
+public class ScheduledSkipListBlockingQueue<E> extends AbstractQueue<E> implements ScheduledBlockingQueue<E> {
+
+	/** Amount of cancelled waiters after which they get swept out of the queues of waiting threads */
+	protected static final int SWEEP_THRESHOLD = 64;
+
+	/**
+	 * Parked thread that is done as soon as it got signalled or stopped waiting. 
+	 * Waiters that stopped waiting stay in their queue until they get skipped 
+	 * or swept so stopping does not need to search the queue
+	 */
+	protected static class Waiter extends AtomicBoolean {
+		private static final long serialVersionUID = 1L;
+		protected final Thread thread = Thread.currentThread();
+	}
+
+	/**
+	 * Scheduled element ordered by its {@link System#nanoTime()} deadline and the order it has been added in
+	 * @param <E> Element that should be held
+	 */
+	protected static final class Node<E> implements Comparable<Node<E>> {
+		protected final long time, sequence;
+		protected final E element;
+
+		protected Node(long time, long sequence, E element) {
+			this.time = time;
+			this.sequence = sequence;
+			this.element = element;
+		}
+
+		@Override
+		public int compareTo(Node<E> o) {
+			final int cmp = Long.compare(time, o.time);
+			return cmp != 0 ? cmp : Long.compare(sequence, o.sequence);
+		}
+	}
+
+	protected final ConcurrentSkipListSet<Node<E>> nodes = new ConcurrentSkipListSet<>();
+	protected final AtomicLong sequencer = new AtomicLong(), count = new AtomicLong();
+	protected final AtomicReference<Thread> leader = new AtomicReference<>();
+	protected final ConcurrentLinkedQueue<Waiter> followers = new ConcurrentLinkedQueue<>();
+	protected final ConcurrentLinkedQueue<Waiter> producers = new ConcurrentLinkedQueue<>();
+	protected final AtomicInteger cancelled = new AtomicInteger();
+	protected volatile long capacity = -1;
+
+	/**
+	 * Creates a new queue with unlimited capacity
+	 */
+	public ScheduledSkipListBlockingQueue() {
+
+	}
+
+	/**
+	 * Creates a new queue with unlimited capacity
+	 * that contains the given elements (available immediately)
+	 * @param c Elements that should be added
+	 */
+	public ScheduledSkipListBlockingQueue(Collection<? extends E> c) {
+		addAll(c);
+	}
+
+	/**
+	 * Creates a new queue with a fixed capacity
+	 * @param capacity Capacity how many elements can be hold at maximum (zero or negative for no limit)
+	 */
+	public ScheduledSkipListBlockingQueue(long capacity) {
+		this.capacity = capacity;
+	}
+
+	/**
+	 * Returns how many elements (including scheduled ones) this queue can hold at maximum
+	 * @return Maximum amount of elements (zero or negative for no limit)
+	 */
+	public long getCapacity() {
+		return capacity;
+	}
+
+	/**
+	 * Sets how many elements (including scheduled ones) this queue can hold at maximum.
+	 * Already contained elements stay in the queue
+	 * @param capacity Maximum amount of elements (zero or negative for no limit)
+	 */
+	public void setCapacity(long capacity) {
+		this.capacity = capacity;
+		while(signal(producers));
+	}
+
+	/**
+	 * Reserves space for a new element
+	 * @return True if reserved, false if capacity is reached
+	 */
+	protected boolean reserve() {
+		final long capacity = this.capacity;
+		if(capacity <= 0) {
+			count.incrementAndGet();
+			return true;
+		}
+		long c;
+		do {
+			if((c = count.get()) >= capacity) return false;
+		} while(!count.compareAndSet(c, c + 1));
+		return true;
+	}
+
+	/**
+	 * Gets called after an element has been removed
+	 */
+	protected void removed() {
+		count.decrementAndGet();
+		if(capacity > 0) signal(producers);
+	}
+
+	/**
+	 * Wakes up the leader so it waits for the new first element
+	 * or a follower if no consumer is waiting for the first element
+	 */
+	protected void signal() {
+		final Thread thread = leader.get();
+		if(thread != null) LockSupport.unpark(thread);
+		else signal(followers);
+	}
+
+	/**
+	 * Wakes up the thread that waits the longest and skips waiters that stopped waiting
+	 * @param waiters Queue of waiting threads
+	 * @return True if a thread has been woken up
+	 */
+	protected static boolean signal(ConcurrentLinkedQueue<Waiter> waiters) {
+		Waiter waiter;
+		while((waiter = waiters.poll()) != null) {
+			if(waiter.compareAndSet(false, true)) {
+				LockSupport.unpark(waiter.thread);
+				return true;
+			}
+		} return false;
+	}
+
+	/**
+	 * Stops waiting without searching the queue of waiting threads. 
+	 * Once enough waiters stopped they get swept out of the queues at once
+	 * @param waiter Waiter of the calling thread
+	 * @return True if stopped, false if the thread already got signalled
+	 */
+	protected boolean cancel(Waiter waiter) {
+		if(!waiter.compareAndSet(false, true)) return false;
+		if(cancelled.incrementAndGet() >= SWEEP_THRESHOLD) {
+			cancelled.set(0);
+			followers.removeIf(Waiter::get);
+			producers.removeIf(Waiter::get);
+		}
+		return true;
+	}
+
+	/**
+	 * Adds an element at the given time if space is available
+	 * @param time Value of {@link System#nanoTime()} when the element should become available
+	 * @param e Element that should be added
+	 * @return True if added, false if capacity is reached
+	 * @throws NullPointerException if element is null
+	 */
+	protected boolean insert(long time, E e) throws NullPointerException {
+		if(e == null) throw new NullPointerException("Element cannot be null");
+		if(!reserve()) return false;
+		final Node<E> node = new Node<>(time, sequencer.getAndIncrement(), e);
+		nodes.add(node);
+		// a new first element changes how long the leader has to wait
+		if(leader.get() == null || firstNode() == node) signal();
+		return true;
+	}
+
+	/**
+	 * Takes the first element if it is available
+	 * @param now Current value of {@link System#nanoTime()}
+	 * @return Element or null if no element is available
+	 */
+	protected E pollAvailable(long now) {
+		while(true) {
+			final Node<E> first = firstNode();
+			if(first == null || first.time > now) return null;
+			if(nodes.remove(first)) { // otherwise taken by another consumer
+				removed();
+				return first.element;
+			}
+		}
+	}
+
+	/**
+	 * @return First node or null if empty
+	 */
+	protected Node<E> firstNode() {
+		try {
+			return nodes.first();
+		} catch (NoSuchElementException ex) {
+			return null;
+		}
+	}
+
+	/**
+	 * Waits until an element becomes available
+	 * @param nanos Nanoseconds how long to wait at maximum (negative to wait without limit)
+	 * @return Element or null if timeout elapsed
+	 * @throws InterruptedException if interrupted while waiting
+	 */
+	protected E await(long nanos) throws InterruptedException {
+		E e = pollAvailable(System.nanoTime());
+		if(e != null || nanos == 0) return e;
+		final long deadline = System.nanoTime() + nanos;
+		final Thread current = Thread.currentThread();
+		try {
+			while(true) {
+				if(leader.get() == null && !nodes.isEmpty() && leader.compareAndSet(null, current)) {
+					// leader waits until first element becomes available
+					try {
+						if((e = pollAvailable(System.nanoTime())) != null) return e;
+						if(Thread.interrupted()) throw new InterruptedException();
+						final Node<E> first = firstNode();
+						long wait = first != null ? first.time - System.nanoTime() : Long.MAX_VALUE;
+						if(nanos >= 0) {
+							final long remaining = deadline - System.nanoTime();
+							if(remaining <= 0) return null;
+							wait = Math.min(wait, remaining);
+						}
+						if(wait > 0) LockSupport.parkNanos(this, wait);
+					} finally {
+						leader.compareAndSet(current, null);
+					}
+				} else {
+					final Waiter waiter = new Waiter();
+					followers.offer(waiter); // register before checking again so no wake up gets lost
+					try {
+						if((e = pollAvailable(System.nanoTime())) != null) return e;
+						if(Thread.interrupted()) throw new InterruptedException();
+						if(leader.get() == null && !nodes.isEmpty()) continue; // becomes leader
+						if(nanos < 0) {
+							LockSupport.park(this);
+						} else {
+							final long remaining = deadline - System.nanoTime();
+							if(remaining <= 0) return null;
+							LockSupport.parkNanos(this, remaining);
+						}
+					} finally {
+						cancel(waiter);
+					}
+				}
+				if((e = pollAvailable(System.nanoTime())) != null) return e;
+			}
+		} finally {
+			// hand over waiting for the first element to a follower
+			if(leader.get() == null && !nodes.isEmpty()) signal(followers);
+		}
+	}
+
+	/**
+	 * Waits until space is available and adds the element
+	 * @param time Value of {@link System#nanoTime()} when the element should become available
+	 * @param e Element that should be added
+	 * @param nanos Nanoseconds how long to wait at maximum (negative to wait without limit)
+	 * @return True if added, false if timeout elapsed
+	 * @throws InterruptedException if interrupted while waiting
+	 */
+	protected boolean awaitSpace(long time, E e, long nanos) throws InterruptedException {
+		if(insert(time, e)) return true;
+		final long deadline = System.nanoTime() + nanos;
+		while(true) {
+			final Waiter waiter = new Waiter();
+			producers.offer(waiter); // register before checking again so no wake up gets lost
+			try {
+				if(insert(time, e)) return true;
+				if(Thread.interrupted()) throw new InterruptedException();
+				if(nanos < 0) {
+					LockSupport.park(this);
+				} else {
+					final long remaining = deadline - System.nanoTime();
+					if(remaining <= 0) return false;
+					LockSupport.parkNanos(this, remaining);
+				}
+			} finally {
+				if(!cancel(waiter) && count.get() < capacity) signal(producers); // pass on wake up
+			}
+		}
+	}
+
+	@Override
+	public E poll() {
+		return pollAvailable(System.nanoTime());
+	}
+
+	@Override
+	public E poll(long timeout, TimeUnit unit) throws InterruptedException {
+		return await(Math.max(0, unit.toNanos(timeout)));
+	}
+
+	@Override
+	public E take() throws InterruptedException {
+		return await(-1);
+	}
+
+	@Override
+	public E peek() {
+		final Node<E> first = firstNode();
+		return first != null && first.time <= System.nanoTime() ? first.element : null;
+	}
+
+	/**
+	 * Only amount of elements currently available (not included scheduled elements).
+	 * Needs to count all available elements
+	 */
+	@Override
+	public int size() {
+		return nodes.headSet(new Node<E>(System.nanoTime(), Long.MAX_VALUE, null)).size();
+	}
+
+	@Override
+	/** Only true if currently elements are available (not included scheduled elements) */
+	public boolean isEmpty() {
+		return peek() == null;
+	}
+
+	@Override
+	public long getTotalSize() {
+		return Math.max(0, count.get());
+	}
+
+	@Override
+	public boolean isCompletelyEmpty() {
+		return nodes.isEmpty();
+	}
+
+	@Override
+	public boolean offer(E e) {
+		return insert(System.nanoTime(), e);
+	}
+
+	@Override
+	public boolean offerIn(long duration, E e) {
+		return insert(ScheduledQueue.nanoTimeIn(TimeUnit.MILLISECONDS.toNanos(duration)), e);
+	}
+
+	@Override
+	public boolean offerAt(long time, E e) {
+		return insert(ScheduledQueue.toNanoTime(time), e);
+	}
+
+	@Override
+	public boolean offerInNanos(long nanos, E e) {
+		return insert(ScheduledQueue.nanoTimeIn(nanos), e);
+	}
+
+	@Override
+	public boolean offer(E e, long timeout, TimeUnit unit) throws InterruptedException {
+		return awaitSpace(System.nanoTime(), e, Math.max(0, unit.toNanos(timeout)));
+	}
+
+	@Override
+	public boolean offerIn(long duration, E e, long timeout, TimeUnit unit) throws InterruptedException {
+		return awaitSpace(ScheduledQueue.nanoTimeIn(TimeUnit.MILLISECONDS.toNanos(duration)), e, Math.max(0, unit.toNanos(timeout)));
+	}
+
+	@Override
+	public boolean offerAt(long time, E e, long timeout, TimeUnit unit) throws InterruptedException {
+		return awaitSpace(ScheduledQueue.toNanoTime(time), e, Math.max(0, unit.toNanos(timeout)));
+	}
+
+	@Override
+	public boolean addIn(long duration, E e) {
+		return addAtNanoTime(ScheduledQueue.nanoTimeIn(TimeUnit.MILLISECONDS.toNanos(duration)), e);
+	}
+
+	@Override
+	public boolean addAt(long time, E e) {
+		return addAtNanoTime(ScheduledQueue.toNanoTime(time), e);
+	}
+
+	@Override
+	public boolean addInNanos(long nanos, E e) {
+		return addAtNanoTime(ScheduledQueue.nanoTimeIn(nanos), e);
+	}
+
+	@Override
+	public boolean addAtNanoTime(long nanoTime, E e) {
+		if(!insert(nanoTime, e)) throw new IllegalStateException("Maximum capacity of "+capacity+" reached");
+		return true;
+	}
+
+	@Override
+	public boolean addAllIn(long duration, Collection<? extends E> c) {
+		return addAllAtNanoTime(ScheduledQueue.nanoTimeIn(TimeUnit.MILLISECONDS.toNanos(duration)), c);
+	}
+
+	@Override
+	public boolean addAllAt(long time, Collection<? extends E> c) {
+		return addAllAtNanoTime(ScheduledQueue.toNanoTime(time), c);
+	}
+
+	/**
+	 * Adds all elements so they become available once {@link System#nanoTime()} reaches the given value
+	 * @param nanoTime Value of {@link System#nanoTime()} when the elements should become available
+	 * @param c Elements that should be added
+	 * @return True if this collection changed as a result of the call
+	 */
+	protected boolean addAllAtNanoTime(long nanoTime, Collection<? extends E> c) {
+		if(c == null || c.isEmpty()) return false;
+		if(c == this) throw new IllegalArgumentException("Cannot add to itself");
+		for(E e : c) addAtNanoTime(nanoTime, e);
+		return true;
+	}
+
+	@Override
+	public void put(E e) throws InterruptedException {
+		awaitSpace(System.nanoTime(), e, -1);
+	}
+
+	@Override
+	public void putIn(long duration, E e) throws InterruptedException {
+		awaitSpace(ScheduledQueue.nanoTimeIn(TimeUnit.MILLISECONDS.toNanos(duration)), e, -1);
+	}
+
+	@Override
+	public void putAt(long time, E e) throws InterruptedException {
+		awaitSpace(ScheduledQueue.toNanoTime(time), e, -1);
+	}
+
+	@Override
+	public int remainingCapacity() {
+		final long capacity = this.capacity;
+		return capacity > 0 ? (int)Math.max(0, Math.min(Integer.MAX_VALUE, capacity - count.get())) : Integer.MAX_VALUE;
+	}
+
+	/**
+	 * Needs to search all elements
+	 */
+	@Override
+	public boolean remove(Object o) {
+		if(o == null) return false;
+		for(Node<E> node : nodes)
+			if(o.equals(node.element) && nodes.remove(node)) {
+				removed();
+				return true;
+			}
+		return false;
+	}
+
+	@Override
+	public boolean contains(Object o) {
+		if(o == null) return false;
+		for(Node<E> node : nodes)
+			if(o.equals(node.element)) return true;
+		return false;
+	}
+
+	@Override
+	public void clear() {
+		while(nodes.pollFirst() != null) removed();
+	}
+
+	/**
+	 * Iterates over all elements including the ones that are not available yet in order of their time
+	 */
+	@Override
+	public Iterator<E> iterator() {
+		final Iterator<Node<E>> it = nodes.iterator();
+		return new Iterator<E>() {
+			protected Node<E> last = null;
+
+			@Override
+			public boolean hasNext() {
+				return it.hasNext();
+			}
+
+			@Override
+			public E next() {
+				return (last = it.next()).element;
+			}
+
+			@Override
+			public void remove() {
+				if(last == null) throw new IllegalStateException();
+				if(nodes.remove(last)) removed();
+				last = null;
+			}
+		};
+	}
+
+	@Override
+	public int drainTo(Collection<? super E> c) {
+		return drainTo(c, Integer.MAX_VALUE);
+	}
+
+	@Override
+	public int drainTo(Collection<? super E> c, int maxElements) {
+		if(c == null) throw new NullPointerException("Collection cannot be null");
+		if(c == this) throw new IllegalArgumentException("Cannot drain to itself");
+		final long now = System.nanoTime();
+		int count = 0;
+		E e;
+		while(count < maxElements && (e = pollAvailable(now)) != null) {
+			c.add(e);
+			count++;
+		} return count;
+	}
+
+	@Override
+	public int drainAllTo(Collection<? super E> c) {
+		if(c == null) throw new NullPointerException("Collection cannot be null");
+		if(c == this) throw new IllegalArgumentException("Cannot drain to itself");
+		int count = 0;
+		Node<E> node;
+		while((node = nodes.pollFirst()) != null) {
+			removed();
+			c.add(node.element);
+			count++;
+		} return count;
+	}
+
+	@Override
+	public String toString() {
+		return new StringBuilder(getClass().getSimpleName()).append("{totalSize=").append(getTotalSize()).
+				append("; capacity=").append(capacity).append("}").toString();
+	}
+}
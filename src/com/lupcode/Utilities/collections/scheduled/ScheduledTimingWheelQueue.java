@@ -0,0 +1,688 @@
+package com.lupcode.Utilities.collections.scheduled;
+
+import java.lang.reflect.Array;
+import java.util.AbstractQueue;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * {@link BlockingQueue} that schedules elements in a hierarchical timing wheel
+ * so adding and cancelling is done in constant time independent of how many
+ * elements are scheduled. Time is divided into ticks of a configurable duration,
+ * elements become available at the first tick at or after their scheduled time.
+ * All elements of a tick get moved to the available elements at once.
+ * Ticks are measured with {@link System#nanoTime()}, system times passed to the {@code *At}
+ * methods get converted once on insert so changes of the system clock do not affect them.
+ * Suited for large amounts of timeouts that mostly get cancelled before they expire
+ * @author LupCode.com (Luca Vogels)
+ * @since 2026-10-16
+ * @param <E> Element that should be held by queue
+ */
+public class ScheduledTimingWheelQueue<E> extends AbstractQueue<E> implements ScheduledBlockingQueue<E> {
+
+	public static long DEFAULT_TICK_NANOS = 1000000L;
+
+	protected static final int WHEEL_BITS = 8, WHEEL_SIZE = 1 << WHEEL_BITS, WHEEL_MASK = WHEEL_SIZE - 1, LEVELS = 4;
+	protected static final long MAX_DELTA = (1L << (WHEEL_BITS * LEVELS)) - 1;
+
+	/**
+	 * Scheduled element that can be cancelled in constant time.
+	 * Timers are linked in circular lists with a sentinel timer as head
+	 */
+	public class Timer {
+		protected final E element;
+		protected long tick;
+		/** Level of the wheel the timer is in or -1 if available */
+		protected int level = -1;
+		protected Timer prev = null, next = null;
+
+		protected Timer(E element, long tick) {
+			this.element = element;
+			this.tick = tick;
+		}
+
+		/**
+		 * @return Element that has been scheduled
+		 */
+		public E getElement() {
+			return element;
+		}
+
+		/**
+		 * @return True if element is still in the queue (scheduled or available)
+		 */
+		public boolean isPending() {
+			lock.lock();
+			try {
+				return prev != null;
+			} finally {
+				lock.unlock();
+			}
+		}
+
+		/**
+		 * Removes the element from the queue
+		 * @return True if removed, false if it has already been taken or removed
+		 */
+		public boolean cancel() {
+			lock.lock();
+			try {
+				if(prev == null) return false;
+				unlink(this);
+				return true;
+			} finally {
+				lock.unlock();
+			}
+		}
+	}
+
+	protected final long tickNanos, startNanos;
+	protected final ReentrantLock lock = new ReentrantLock();
+	protected final Condition condNotEmpty = lock.newCondition();
+	protected final Timer[][] wheels;
+	protected final Timer ready;
+	protected final int[] levelCounts = new int[LEVELS];
+	/** Next tick that needs to be processed */
+	protected long current = 0;
+	protected volatile long totalSize = 0;
+	protected volatile int readyCount = 0;
+	protected Thread leader = null;
+	/** Tick until which the leader sleeps */
+	protected long leaderTick = Long.MAX_VALUE;
+
+	/**
+	 * Creates a new queue with ticks of {@link ScheduledTimingWheelQueue#DEFAULT_TICK_NANOS}
+	 */
+	public ScheduledTimingWheelQueue() {
+		this(DEFAULT_TICK_NANOS, TimeUnit.NANOSECONDS);
+	}
+
+	/**
+	 * Creates a new queue
+	 * @param tickDuration Resolution in which scheduled elements become available
+	 * @param unit Time unit of the tick duration
+	 * @throws IllegalArgumentException if tick duration is not positive
+	 */
+	@SuppressWarnings("unchecked")
+	public ScheduledTimingWheelQueue(long tickDuration, TimeUnit unit) throws IllegalArgumentException {
+		this.tickNanos = unit.toNanos(tickDuration);
+		if(tickNanos <= 0) throw new IllegalArgumentException("Tick duration must be positive");
+		this.startNanos = nanoTime();
+		this.wheels = (Timer[][]) Array.newInstance(Timer.class, LEVELS, WHEEL_SIZE);
+		for(Timer[] wheel : wheels)
+			for(int i=0; i<WHEEL_SIZE; i++) wheel[i] = sentinel();
+		this.ready = sentinel();
+	}
+
+	/**
+	 * @return Duration of a tick in nanoseconds
+	 */
+	public long getTickNanos() {
+		return tickNanos;
+	}
+
+	/**
+	 * Clock used by this queue, can be overwritten for testing
+	 * @return Current value of the clock in nanoseconds (same as {@link System#nanoTime()})
+	 */
+	protected long nanoTime() {
+		return System.nanoTime();
+	}
+
+	protected Timer sentinel() {
+		Timer sentinel = new Timer(null, 0);
+		sentinel.prev = sentinel.next = sentinel;
+		return sentinel;
+	}
+
+	/**
+	 * Appends a timer to a list
+	 * @param list Sentinel of the list
+	 * @param timer Timer that should be appended
+	 */
+	protected void link(Timer list, Timer timer) {
+		timer.prev = list.prev;
+		timer.next = list;
+		list.prev.next = timer;
+		list.prev = timer;
+	}
+
+	/**
+	 * Removes a timer from the queue (lock must be held)
+	 * @param timer Timer that should be removed
+	 */
+	protected void unlink(Timer timer) {
+		timer.prev.next = timer.next;
+		timer.next.prev = timer.prev;
+		timer.prev = timer.next = null;
+		totalSize--;
+		if(timer.level < 0) readyCount--;
+		else levelCounts[timer.level]--;
+	}
+
+	/**
+	 * Converts a value of the clock into the tick at which it is reached
+	 * @param nanoTime Value of the clock in nanoseconds
+	 * @return Tick at which the value is reached
+	 */
+	protected long toTick(long nanoTime) {
+		final long nanos = nanoTime - startNanos;
+		return nanos <= 0 ? -1 : (nanos + tickNanos - 1) / tickNanos;
+	}
+
+	/**
+	 * @return Tick that has been reached by the clock
+	 */
+	protected long currentTick() {
+		return (nanoTime() - startNanos) / tickNanos;
+	}
+
+	/**
+	 * Adds a timer to the available elements or to the wheel slot
+	 * that matches the remaining ticks (lock must be held)
+	 * @param timer Timer that should be inserted
+	 */
+	protected void insert(Timer timer) {
+		long delta = timer.tick - current;
+		if(delta < 0) {
+			link(ready, timer);
+			timer.level = -1;
+			readyCount++;
+			return;
+		}
+		long slotTick = timer.tick;
+		if(delta > MAX_DELTA) { // gets re-inserted once the highest level cascades
+			delta = MAX_DELTA;
+			slotTick = current + MAX_DELTA;
+		}
+		int level = 0;
+		while(level < LEVELS - 1 && delta >= 1L << (WHEEL_BITS * (level + 1))) level++;
+		link(wheels[level][(int)(slotTick >>> (WHEEL_BITS * level)) & WHEEL_MASK], timer);
+		timer.level = level;
+		levelCounts[level]++;
+	}
+
+	/**
+	 * Re-inserts all timers of a slot of a higher level
+	 * so they move closer to the lowest level (lock must be held)
+	 * @param slot Sentinel of the slot
+	 */
+	protected void cascade(Timer slot) {
+		Timer timer = slot.next;
+		slot.next = slot.prev = slot;
+		while(timer != slot) {
+			final Timer next = timer.next;
+			levelCounts[timer.level]--;
+			insert(timer);
+			timer = next;
+		}
+	}
+
+	/**
+	 * Processes the next tick by cascading higher levels if a lower level wrapped around
+	 * and moving all timers of the tick to the available elements at once (lock must be held)
+	 */
+	protected void processTick() {
+		for(int level = 1; level < LEVELS; level++) {
+			if(((current >>> (WHEEL_BITS * (level - 1))) & WHEEL_MASK) != 0) break;
+			cascade(wheels[level][(int)(current >>> (WHEEL_BITS * level)) & WHEEL_MASK]);
+		}
+		final Timer slot = wheels[0][(int)current & WHEEL_MASK];
+		if(slot.next != slot) {
+			int count = 0;
+			for(Timer timer = slot.next; timer != slot; timer = timer.next) { timer.level = -1; count++; }
+			levelCounts[0] -= count;
+			slot.next.prev = ready.prev;
+			ready.prev.next = slot.next;
+			slot.prev.next = ready;
+			ready.prev = slot.prev;
+			slot.next = slot.prev = slot;
+			readyCount += count;
+		}
+		current++;
+	}
+
+	/**
+	 * Processes all ticks that have been reached by the clock (lock must be held)
+	 */
+	protected void advance() {
+		final long now = currentTick();
+		while(current <= now && totalSize != readyCount) {
+			int empty = 0; // lower levels without timers
+			while(empty < LEVELS && levelCounts[empty] == 0) empty++;
+			if(empty == 0 || (current & WHEEL_MASK) == 0) {
+				processTick();
+				continue;
+			}
+			// skip ticks until the next tick that cascades the first level with timers
+			current = Math.min(((current >>> (WHEEL_BITS * empty)) + 1) << (WHEEL_BITS * empty), now + 1);
+		}
+		if(current <= now) current = now + 1; // wheel is empty so ticks can be skipped
+	}
+
+	/**
+	 * Returns the next tick at which timers become available or a level cascades,
+	 * ticks in between can be slept through (lock must be held)
+	 * @return Next tick that needs to be processed or {@link Long#MAX_VALUE} if wheel is empty
+	 */
+	protected long nextTick() {
+		long next = Long.MAX_VALUE;
+		for(int level = 1; level < LEVELS; level++) {
+			if(levelCounts[level] == 0) continue;
+			final int shift = WHEEL_BITS * level;
+			next = ((current + (1L << shift) - 1) >>> shift) << shift;
+			break;
+		}
+		if(levelCounts[0] > 0) {
+			for(long tick = current, end = Math.min(next, current + WHEEL_SIZE); tick < end; tick++) {
+				final Timer slot = wheels[0][(int)tick & WHEEL_MASK];
+				if(slot.next != slot) return tick;
+			}
+		}
+		return next;
+	}
+
+	/**
+	 * Schedules an element and returns a handle that can cancel it in constant time
+	 * @param time System time in milliseconds when the element should become available
+	 * @param e Element that should be added
+	 * @return Handle of the scheduled element
+	 * @throws NullPointerException if element is null
+	 */
+	public Timer scheduleAt(long time, E e) throws NullPointerException {
+		return scheduleIn(time - System.currentTimeMillis(), e);
+	}
+
+	/**
+	 * Schedules an element and returns a handle that can cancel it in constant time
+	 * @param nanoTime Value of {@link System#nanoTime()} when the element should become available
+	 * @param e Element that should be added
+	 * @return Handle of the scheduled element
+	 * @throws NullPointerException if element is null
+	 */
+	public Timer scheduleAtNanoTime(long nanoTime, E e) throws NullPointerException {
+		if(e == null) throw new NullPointerException("Element cannot be null");
+		lock.lock();
+		try {
+			advance();
+			Timer timer = new Timer(e, toTick(nanoTime));
+			insert(timer);
+			totalSize++;
+			if(timer.tick < leaderTick) leader = null; // leader sleeps too long
+			if(readyCount > 0 || leader == null) condNotEmpty.signal();
+			return timer;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Schedules an element and returns a handle that can cancel it in constant time
+	 * @param duration Milliseconds from now after which element should become available
+	 * @param e Element that should be added
+	 * @return Handle of the scheduled element
+	 * @throws NullPointerException if element is null
+	 */
+	public Timer scheduleIn(long duration, E e) throws NullPointerException {
+		return scheduleInNanos(TimeUnit.MILLISECONDS.toNanos(duration), e);
+	}
+
+	/**
+	 * Schedules an element and returns a handle that can cancel it in constant time. 
+	 * Requires a tick duration that is small enough for the needed precision
+	 * @param nanos Nanoseconds from now after which element should become available
+	 * @param e Element that should be added
+	 * @return Handle of the scheduled element
+	 * @throws NullPointerException if element is null
+	 */
+	public Timer scheduleInNanos(long nanos, E e) throws NullPointerException {
+		return scheduleAtNanoTime(nanoTime() + Math.max(-MAX_DELAY_NANOS, Math.min(MAX_DELAY_NANOS, nanos)), e);
+	}
+
+	/**
+	 * Takes the first available element (lock must be held)
+	 * @return Element or null if none available
+	 */
+	protected E pollReady() {
+		advance();
+		final Timer first = ready.next;
+		if(first == ready) return null;
+		unlink(first);
+		return first.element;
+	}
+
+	/**
+	 * Waits until an element becomes available. Only one waiting thread (leader)
+	 * wakes up at the next tick that has timers or cascades, other threads wait until they get signaled
+	 * @param nanos Nanoseconds how long to wait at maximum (negative to wait without limit)
+	 * @return Element or null if timeout elapsed
+	 * @throws InterruptedException if interrupted while waiting
+	 */
+	protected E await(long nanos) throws InterruptedException {
+		lock.lockInterruptibly();
+		try {
+			while(true) {
+				E e = pollReady();
+				if(e != null) return e;
+				if(nanos == 0) return null;
+				if(totalSize == 0 || leader != null) {
+					if(nanos < 0) condNotEmpty.await();
+					else nanos = Math.max(0, condNotEmpty.awaitNanos(nanos));
+					continue;
+				}
+				final Thread thread = Thread.currentThread();
+				leader = thread;
+				leaderTick = nextTick();
+				try {
+					final long delay = leaderTick == Long.MAX_VALUE ? Long.MAX_VALUE
+							: Math.max(1, startNanos + leaderTick * tickNanos - nanoTime());
+					final long wait = nanos < 0 ? delay : Math.min(nanos, delay);
+					final long remaining = condNotEmpty.awaitNanos(wait);
+					if(nanos > 0) nanos = Math.max(0, nanos - (wait - remaining));
+				} finally {
+					if(leader == thread) leader = null;
+					if(leader == null) leaderTick = Long.MAX_VALUE;
+				}
+			}
+		} finally {
+			if(leader == null && totalSize > 0) condNotEmpty.signal(); // next thread takes over
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public E poll() {
+		lock.lock();
+		try {
+			return pollReady();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public E poll(long timeout, TimeUnit unit) throws InterruptedException {
+		return await(Math.max(0, unit.toNanos(timeout)));
+	}
+
+	@Override
+	public E take() throws InterruptedException {
+		return await(-1);
+	}
+
+	@Override
+	public E peek() {
+		lock.lock();
+		try {
+			advance();
+			return ready.next != ready ? ready.next.element : null;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	/** Only amount of elements currently available (not included scheduled elements) */
+	public int size() {
+		lock.lock();
+		try {
+			advance();
+			return readyCount;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	/** Only true if currently elements are available (not included scheduled elements) */
+	public boolean isEmpty() {
+		return size() == 0;
+	}
+
+	@Override
+	public long getTotalSize() {
+		return totalSize;
+	}
+
+	@Override
+	public boolean isCompletelyEmpty() {
+		return totalSize == 0;
+	}
+
+	@Override
+	public boolean offer(E e) {
+		scheduleInNanos(0, e);
+		return true;
+	}
+
+	@Override
+	public boolean offerIn(long duration, E e) {
+		scheduleIn(duration, e);
+		return true;
+	}
+
+	@Override
+	public boolean offerInNanos(long nanos, E e) {
+		scheduleInNanos(nanos, e);
+		return true;
+	}
+
+	@Override
+	public boolean offerAt(long time, E e) {
+		scheduleAt(time, e);
+		return true;
+	}
+
+	@Override
+	public boolean offer(E e, long timeout, TimeUnit unit) {
+		return offer(e);
+	}
+
+	@Override
+	public boolean offerIn(long duration, E e, long timeout, TimeUnit unit) {
+		return offerIn(duration, e);
+	}
+
+	@Override
+	public boolean offerAt(long time, E e, long timeout, TimeUnit unit) {
+		return offerAt(time, e);
+	}
+
+	@Override
+	public boolean addIn(long duration, E e) {
+		return offerIn(duration, e);
+	}
+
+	@Override
+	public boolean addAt(long time, E e) {
+		return offerAt(time, e);
+	}
+
+	@Override
+	public boolean addInNanos(long nanos, E e) {
+		return offerInNanos(nanos, e);
+	}
+
+	@Override
+	public boolean addAtNanoTime(long nanoTime, E e) {
+		scheduleAtNanoTime(nanoTime, e);
+		return true;
+	}
+
+	@Override
+	public boolean addAllIn(long duration, Collection<? extends E> c) {
+		if(c == null || c.isEmpty()) return false;
+		final long nanoTime = nanoTime() + TimeUnit.MILLISECONDS.toNanos(Math.max(-MAX_DELAY_NANOS / 1000000L, Math.min(MAX_DELAY_NANOS / 1000000L, duration)));
+		for(E e : c) scheduleAtNanoTime(nanoTime, e);
+		return true;
+	}
+
+	@Override
+	public boolean addAllAt(long time, Collection<? extends E> c) {
+		return addAllIn(time - System.currentTimeMillis(), c);
+	}
+
+	@Override
+	public void put(E e) {
+		offer(e);
+	}
+
+	@Override
+	public void putIn(long duration, E e) {
+		offerIn(duration, e);
+	}
+
+	@Override
+	public void putAt(long time, E e) {
+		offerAt(time, e);
+	}
+
+	@Override
+	public int remainingCapacity() {
+		return Integer.MAX_VALUE;
+	}
+
+	/**
+	 * Collects all timers including the ones that are not available yet (lock must be held)
+	 * @return Available timers followed by the scheduled timers
+	 */
+	protected ArrayList<Timer> timers() {
+		ArrayList<Timer> timers = new ArrayList<>((int)Math.min(Integer.MAX_VALUE - 8, totalSize));
+		for(Timer timer = ready.next; timer != ready; timer = timer.next) timers.add(timer);
+		for(Timer[] wheel : wheels)
+			for(Timer slot : wheel)
+				for(Timer timer = slot.next; timer != slot; timer = timer.next) timers.add(timer);
+		return timers;
+	}
+
+	/**
+	 * Needs to search all elements.
+	 * Use {@link Timer#cancel()} to remove elements in constant time
+	 */
+	@Override
+	public boolean remove(Object o) {
+		lock.lock();
+		try {
+			for(Timer timer : timers())
+				if(o == null ? timer.element == null : o.equals(timer.element)) {
+					unlink(timer);
+					return true;
+				}
+			return false;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public boolean contains(Object o) {
+		lock.lock();
+		try {
+			for(Timer timer : timers())
+				if(o == null ? timer.element == null : o.equals(timer.element)) return true;
+			return false;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public void clear() {
+		lock.lock();
+		try {
+			for(Timer timer : timers()) timer.prev = timer.next = null;
+			for(Timer[] wheel : wheels)
+				for(Timer slot : wheel) slot.next = slot.prev = slot;
+			Arrays.fill(levelCounts, 0);
+			ready.next = ready.prev = ready;
+			totalSize = 0;
+			readyCount = 0;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Iterates over a snapshot of all elements including the ones that are not available yet.
+	 * Available elements come first, scheduled elements are not ordered by time
+	 */
+	@Override
+	public Iterator<E> iterator() {
+		final ArrayList<Timer> timers;
+		lock.lock();
+		try {
+			advance();
+			timers = timers();
+		} finally {
+			lock.unlock();
+		}
+		return new Iterator<E>() {
+			protected int index = 0;
+
+			@Override
+			public boolean hasNext() {
+				return index < timers.size();
+			}
+
+			@Override
+			public E next() {
+				if(index >= timers.size()) throw new NoSuchElementException();
+				return timers.get(index++).element;
+			}
+
+			@Override
+			public void remove() {
+				if(index == 0) throw new IllegalStateException();
+				timers.get(index - 1).cancel();
+			}
+		};
+	}
+
+	@Override
+	public int drainTo(Collection<? super E> c) {
+		return drainTo(c, Integer.MAX_VALUE);
+	}
+
+	@Override
+	public int drainTo(Collection<? super E> c, int maxElements) {
+		if(c == null) throw new NullPointerException("Collection cannot be null");
+		if(c == this) throw new IllegalArgumentException("Cannot drain to itself");
+		lock.lock();
+		try {
+			advance();
+			int count = 0;
+			while(count < maxElements && ready.next != ready) {
+				final Timer first = ready.next;
+				unlink(first);
+				c.add(first.element);
+				count++;
+			} return count;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public int drainAllTo(Collection<? super E> c) {
+		if(c == null) throw new NullPointerException("Collection cannot be null");
+		lock.lock();
+		try {
+			advance();
+			ArrayList<Timer> timers = timers();
+			timers.sort(Comparator.comparingLong(timer -> timer.tick));
+			clear();
+			for(Timer timer : timers) c.add(timer.element);
+			return timers.size();
+		} finally {
+			lock.unlock();
+		}
+	}
+}
@@ -0,0 +1,31 @@
+package com.lupcode.Utilities.exceptions;
+
+/**
+ * Reports an object of a pool that has been garbage collected without being released. 
+ * If the lease has been sampled the stack trace shows where the object has been allocated
+ * @author LupCode.com (Luca Vogels)
+ * @since 2026-10-16
+ */
+public class ObjectPoolLeakException extends RuntimeException {
+
+	private static final long serialVersionUID = 1L;
+
+	private static final String DEFAULT_MESSAGE = "Object has been garbage collected without being released to its pool";
+	
+	public ObjectPoolLeakException(){
+		super(DEFAULT_MESSAGE);
+	}
+	
+	public ObjectPoolLeakException(String message){
+		super(message);
+	}
+	
+	/**
+	 * @param message Message of the exception
+	 * @param stack If the stack trace of the calling thread should be recorded
+	 */
+	public ObjectPoolLeakException(String message, boolean stack){
+		super(message, null, false, stack);
+	}
+	
+}
@@ -1,17 +1,126 @@
 package com.lupcode.Utilities.executors;
 
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RunnableScheduledFuture;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
 
 import com.lupcode.Utilities.collections.scheduled.ScheduledBlockingQueue;
 import com.lupcode.Utilities.collections.scheduled.ScheduledLinkedBlockingQueue;
+import com.lupcode.Utilities.collections.scheduled.ScheduledQueue;
+import com.lupcode.Utilities.collections.scheduled.ScheduledSkipListBlockingQueue;
+import com.lupcode.Utilities.collections.scheduled.ScheduledTimingWheelQueue;
 
 /**
  * Extension to the {@link DynamicThreadPoolExecutor} which allows 
- * to schedule tasks so they get executed no directly but after a certain time
+ * to schedule tasks so they get executed no directly but after a certain time. 
+ * Implements the {@link ScheduledExecutorService} interface, 
+ * periodic tasks get cancelled when the executor gets shut down. 
+ * Delays are measured with {@link System#nanoTime()} so changes of the 
+ * system clock do not let tasks get executed early or late
  * @author LupCode.com (Luca Vogels)
  * @since 2021-01-07
  */
-public class DynamicScheduledThreadPoolExecutor extends DynamicThreadPoolExecutor {
+public class DynamicScheduledThreadPoolExecutor extends DynamicThreadPoolExecutor implements ScheduledExecutorService {
+
+	/**
+	 * Task that gets executed at a certain time and can be cancelled. 
+	 * Cancelled tasks get removed from the queue
+	 * @param <V> Type of the result
+	 */
+	protected class ScheduledFutureTask<V> extends FutureTask<V> implements RunnableScheduledFuture<V> {
+		
+		/** Value of {@link System#nanoTime()} when the task should be executed next */
+		protected volatile long time;
+		/** Nanoseconds between executions, positive for fixed rate, negative for fixed delay, zero if not periodic */
+		protected final long period;
+		/** Handle if queue is a {@link ScheduledTimingWheelQueue} */
+		protected volatile ScheduledTimingWheelQueue<Runnable>.Timer timer = null;
+		/** Handle if queue is a {@link ScheduledLinkedBlockingQueue} */
+		protected volatile ScheduledLinkedBlockingQueue<Runnable>.ScheduledHandle handle = null;
+		
+		/**
+		 * Creates a one-shot task
+		 * @param callable Callable that should be executed
+		 * @param time Value of {@link System#nanoTime()} when task should be executed
+		 */
+		protected ScheduledFutureTask(Callable<V> callable, long time) {
+			super(callable);
+			this.time = time;
+			this.period = 0;
+		}
+		
+		/**
+		 * Creates a one-shot or periodic task
+		 * @param runnable Task that should be executed
+		 * @param result Result the future returns on completion
+		 * @param time Value of {@link System#nanoTime()} when task should be executed first
+		 * @param period Nanoseconds between executions, positive for fixed rate, negative for fixed delay, zero if not periodic
+		 */
+		protected ScheduledFutureTask(Runnable runnable, V result, long time, long period) {
+			super(runnable, result);
+			this.time = time;
+			this.period = period;
+		}
+		
+		@Override
+		public boolean isPeriodic() {
+			return period != 0;
+		}
+		
+		@Override
+		public long getDelay(TimeUnit unit) {
+			return unit.convert(time - System.nanoTime(), TimeUnit.NANOSECONDS);
+		}
+		
+		@Override
+		public int compareTo(Delayed o) {
+			if(o == this) return 0;
+			if(o instanceof ScheduledFutureTask) return Long.compare(time - ((ScheduledFutureTask<?>)o).time, 0);
+			return Long.compare(getDelay(TimeUnit.NANOSECONDS), o.getDelay(TimeUnit.NANOSECONDS));
+		}
+		
+		@Override
+		public void run() {
+			if(!isPeriodic()) {
+				super.run();
+				return;
+			}
+			if(!runAndReset()) return;
+			if(shutdown) { cancel(false); return; }
+			time = period > 0 ? time + period : System.nanoTime() - period;
+			try {
+				enqueue(this);
+			} catch (RuntimeException ex) {
+				if(shutdown) cancel(false); // shut down in the meantime
+				else setException(ex); // e.g. queue full, get() reports why the task stopped
+			}
+		}
+		
+		@Override
+		public boolean cancel(boolean mayInterruptIfRunning) {
+			final boolean cancelled = super.cancel(mayInterruptIfRunning);
+			if(cancelled) dequeue(this);
+			return cancelled;
+		}
+		
+		@Override
+		protected void done() {
+			if(isPeriodic()) periodicTasks.remove(this);
+		}
+	}
+	
+	/** Periodic tasks that have not been cancelled or failed yet */
+	protected final Set<ScheduledFutureTask<?>> periodicTasks = ConcurrentHashMap.newKeySet();
 
 	/**
 	 * Creates a dynamic scheduled thread pool executor
@@ -21,8 +130,25 @@ public class DynamicScheduledThreadPoolExecutor extends DynamicThreadPoolExecuto
 	 * @param timeUnit Time unit for waiting for new tasks
 	 */
 	public DynamicScheduledThreadPoolExecutor(int coreSize, int maxSize, long keepAlive, TimeUnit timeUnit) {
+		this(coreSize, maxSize, keepAlive, timeUnit, new ScheduledLinkedBlockingQueue<>());
+	}
+	
+	/**
+	 * Creates a dynamic scheduled thread pool executor that stores its tasks in the given queue. 
+	 * A {@link ScheduledTimingWheelQueue} schedules and cancels tasks in constant time 
+	 * which suits large amounts of timeouts, a {@link ScheduledSkipListBlockingQueue} 
+	 * does not use locks which suits many threads scheduling and taking tasks
+	 * @param coreSize Amount of threads that will be kept alive even if no more tasks are available
+	 * @param maxSize Maximum of threads that can run simultaneously (zero or negative for no limit) 
+	 * @param keepAlive Time how long threads should wait for new tasks before they get destructed
+	 * @param timeUnit Time unit for waiting for new tasks
+	 * @param queue Empty queue the tasks should be stored in
+	 * @throws NullPointerException if queue is null
+	 */
+	public DynamicScheduledThreadPoolExecutor(int coreSize, int maxSize, long keepAlive, TimeUnit timeUnit, ScheduledBlockingQueue<Runnable> queue) throws NullPointerException {
 		super(coreSize, maxSize, keepAlive, timeUnit);
-		this.tasks = new ScheduledLinkedBlockingQueue<>();
+		if(queue == null) throw new NullPointerException("Queue cannot be null");
+		this.tasks = queue;
 	}
 	
 	@Override
@@ -55,62 +181,220 @@ public class DynamicScheduledThreadPoolExecutor extends DynamicThreadPoolExecuto
 	 * @param duration Milliseconds after which the task should be executed
 	 * @param command Task that should be executed
 	 */
-	public synchronized void executeIn(long duration, Runnable command) {
-		if(command == null) throw new NullPointerException("Runnable cannot be null");
-		if(shutdown) throw new IllegalStateException(getClass().getSimpleName()+" is currently shutting down");
-		((ScheduledBlockingQueue<Runnable>)this.tasks).addIn(duration, command);
-		updateThreadPool();
+	public void executeIn(long duration, Runnable command) {
+		executeIn(duration, TimeUnit.MILLISECONDS, command);
+	}
+	
+	/**
+	 * Executes a given task after a certain delay. 
+	 * The delay is measured with {@link System#nanoTime()} so the precision 
+	 * is only limited by the queue (e.g. the tick duration of a {@link ScheduledTimingWheelQueue}) 
+	 * and by how fast threads wake up
+	 * @param delay Delay after which the task should be executed
+	 * @param unit Time unit of the delay
+	 * @param command Task that should be executed
+	 * @throws RejectedExecutionException if executor is shutting down or the queue is full
+	 */
+	public void executeIn(long delay, TimeUnit unit, Runnable command) throws RejectedExecutionException {
+		if(command == null || unit == null) throw new NullPointerException("Runnable and unit cannot be null");
+		if(shutdown) throw shuttingDown();
+		final long nanoTime = ScheduledQueue.nanoTimeIn(Math.max(0, unit.toNanos(delay)));
+		addTask(nanoTime, taskTiming ? new TimedTask(command, nanoTime) : command);
 	}
 	
 	/**
 	 * Executes a task after a certain time. 
 	 * If high utilization it is possible that task 
-	 * will not get executed at exact time point
+	 * will not get executed at exact time point. 
+	 * The time gets converted once so later changes of the system clock do not affect the task
 	 * @param time System time in milliseconds when task should be executed
 	 * @param command Task that should be executed
+	 * @throws RejectedExecutionException if executor is shutting down or the queue is full
 	 */
-	public synchronized void executeAt(long time, Runnable command) {
+	public void executeAt(long time, Runnable command) throws RejectedExecutionException {
 		if(command == null) throw new NullPointerException("Runnable cannot be null");
-		if(shutdown) throw new IllegalStateException(getClass().getSimpleName()+" is currently shutting down");
-		((ScheduledBlockingQueue<Runnable>)this.tasks).addAt(time, command);
+		if(shutdown) throw shuttingDown();
+		final long nanoTime = ScheduledQueue.toNanoTime(time);
+		addTask(nanoTime, taskTiming ? new TimedTask(command, nanoTime) : command);
+	}
+	
+	/**
+	 * Adds a task without a future to the queue at the given time
+	 * @param nanoTime Value of {@link System#nanoTime()} when the task should be executed
+	 * @param command Task that should be queued
+	 * @throws RejectedExecutionException if the queue is full
+	 */
+	protected void addTask(long nanoTime, Runnable command) throws RejectedExecutionException {
+		try {
+			((ScheduledBlockingQueue<Runnable>)this.tasks).addAtNanoTime(nanoTime, command);
+		} catch (IllegalStateException ex) { throw queueFull(ex); }
+		added();
+	}
+	
+	/**
+	 * Adds a task to the queue at its scheduled time
+	 * @param <V> Type of the result
+	 * @param task Task that should be scheduled
+	 * @return Given task
+	 * @throws RejectedExecutionException if executor is shutting down or the queue is full
+	 */
+	protected <V> ScheduledFutureTask<V> enqueue(ScheduledFutureTask<V> task) throws RejectedExecutionException {
+		if(shutdown) throw shuttingDown();
+		try {
+			if(tasks instanceof ScheduledTimingWheelQueue)
+				task.timer = ((ScheduledTimingWheelQueue<Runnable>)this.tasks).scheduleAtNanoTime(task.time, task);
+			else if(tasks instanceof ScheduledLinkedBlockingQueue)
+				task.handle = ((ScheduledLinkedBlockingQueue<Runnable>)this.tasks).scheduleAtNanoTime(task.time, task);
+			else ((ScheduledBlockingQueue<Runnable>)this.tasks).addAtNanoTime(task.time, task);
+		} catch (IllegalStateException ex) { throw queueFull(ex); }
+		if(task.isPeriodic()) periodicTasks.add(task);
+		if(task.isCancelled()) dequeue(task); // cancelled while being added
+		else added();
+		return task;
+	}
+	
+	/**
+	 * Creates the exception for a task that does not fit into the queue. 
+	 * The {@link RejectionPolicy} is not used as it can only 
+	 * handle tasks that should be executed immediately
+	 * @param cause Exception thrown by the queue
+	 * @return Exception that should be thrown
+	 */
+	protected RejectedExecutionException queueFull(IllegalStateException cause) {
+		return new RejectedExecutionException("Task queue of "+getClass().getSimpleName()+" is full", cause);
+	}
+	
+	/**
+	 * Records the queue depth, notifies the watermark listener and 
+	 * starts a thread if needed after a task has been queued
+	 */
+	protected void added() {
+		if(taskTiming) metrics.recordQueueDepth(tasks.size());
+		checkHighWatermark();
 		updateThreadPool();
 	}
 	
+	/**
+	 * Removes a cancelled task from the queue
+	 * @param task Task that should be removed
+	 */
+	protected void dequeue(ScheduledFutureTask<?> task) {
+		final ScheduledTimingWheelQueue<Runnable>.Timer timer = task.timer;
+		final ScheduledLinkedBlockingQueue<Runnable>.ScheduledHandle handle = task.handle;
+		if(timer != null) timer.cancel();
+		else if(handle != null) handle.cancel();
+		else tasks.remove(task);
+	}
+	
+	/**
+	 * Converts a delay into the value of {@link System#nanoTime()} when it elapses
+	 * @param delay Delay from now
+	 * @param unit Time unit of the delay
+	 * @return Value of {@link System#nanoTime()} when the delay elapses
+	 */
+	protected static long timeIn(long delay, TimeUnit unit) {
+		return ScheduledQueue.nanoTimeIn(Math.max(0, unit.toNanos(delay)));
+	}
+	
+	@Override
+	public ScheduledFuture<?> schedule(Runnable command, long delay, TimeUnit unit) {
+		if(command == null || unit == null) throw new NullPointerException("Runnable and unit cannot be null");
+		return enqueue(new ScheduledFutureTask<Void>(command, null, timeIn(delay, unit), 0));
+	}
+	
+	@Override
+	public <V> ScheduledFuture<V> schedule(Callable<V> callable, long delay, TimeUnit unit) {
+		if(callable == null || unit == null) throw new NullPointerException("Callable and unit cannot be null");
+		return enqueue(new ScheduledFutureTask<V>(callable, timeIn(delay, unit)));
+	}
+	
+	@Override
+	public ScheduledFuture<?> scheduleAtFixedRate(Runnable command, long initialDelay, long period, TimeUnit unit) {
+		if(command == null || unit == null) throw new NullPointerException("Runnable and unit cannot be null");
+		if(period <= 0) throw new IllegalArgumentException("Period must be positive");
+		return enqueue(new ScheduledFutureTask<Void>(command, null, timeIn(initialDelay, unit), Math.max(1, Math.min(ScheduledQueue.MAX_DELAY_NANOS, unit.toNanos(period)))));
+	}
+	
+	@Override
+	public ScheduledFuture<?> scheduleWithFixedDelay(Runnable command, long initialDelay, long delay, TimeUnit unit) {
+		if(command == null || unit == null) throw new NullPointerException("Runnable and unit cannot be null");
+		if(delay <= 0) throw new IllegalArgumentException("Delay must be positive");
+		return enqueue(new ScheduledFutureTask<Void>(command, null, timeIn(initialDelay, unit), -Math.max(1, Math.min(ScheduledQueue.MAX_DELAY_NANOS, unit.toNanos(delay)))));
+	}
+	
+	/**
+	 * Executes a supplier after a certain delay. 
+	 * Cancelling the returned future removes the task from the queue
+	 * @param <T> Type of the result
+	 * @param supplier Supplier whose result completes the returned future
+	 * @param delay Delay after which the supplier should be executed
+	 * @param unit Time unit of the delay
+	 * @return Future that gets completed with the result of the supplier
+	 */
+	public <T> CompletableFuture<T> supplyAsync(Supplier<T> supplier, long delay, TimeUnit unit) {
+		if(supplier == null) throw new NullPointerException("Supplier cannot be null");
+		final CompletableFuture<T> future = new CompletableFuture<>();
+		final ScheduledFuture<?> task = schedule(() -> {
+			try {
+				future.complete(supplier.get());
+			} catch (Throwable ex) { future.completeExceptionally(ex); }
+		}, delay, unit);
+		future.whenComplete((result, ex) -> { if(future.isCancelled()) task.cancel(false); });
+		return future;
+	}
+	
+	/**
+	 * Executes a task after a certain delay. 
+	 * Cancelling the returned future removes the task from the queue
+	 * @param runnable Task that should be executed
+	 * @param delay Delay after which the task should be executed
+	 * @param unit Time unit of the delay
+	 * @return Future that gets completed after the task has run
+	 */
+	public CompletableFuture<Void> runAsync(Runnable runnable, long delay, TimeUnit unit) {
+		if(runnable == null) throw new NullPointerException("Runnable cannot be null");
+		return supplyAsync(() -> { runnable.run(); return null; }, delay, unit);
+	}
+	
+	/**
+	 * Returns how long a scheduled task waited since it became due
+	 * @param task Task that is about to be executed
+	 * @return Nanoseconds the task waited or negative if unknown
+	 */
+	@Override
+	protected long getQueueWait(Runnable task) {
+		if(task instanceof ScheduledFutureTask)
+			return Math.max(0, System.nanoTime() - ((ScheduledFutureTask<?>)task).time);
+		return super.getQueueWait(task);
+	}
+	
+	@Override
+	protected void drainPendingTasks(List<Runnable> pending) {
+		((ScheduledBlockingQueue<Runnable>)this.tasks).drainAllTo(pending);
+		super.drainPendingTasks(pending); // tasks of interrupted batches
+	}
+	
+	/**
+	 * Cancels all periodic tasks as they would keep the pool running forever. 
+	 * Delayed one-shot tasks still get executed
+	 */
+	@Override
+	protected void onShutdown() {
+		for(ScheduledFutureTask<?> task : periodicTasks)
+			task.cancel(false);
+	}
+	
 	@Override
-	protected void updateThreadPool() {
-		if(free.get() > 0 || (maxSize > 0 && threads.size() >= maxSize)) return;
+	protected boolean keepWorkerAlive(int threadCount) {
 		final ScheduledBlockingQueue<Runnable> queue = (ScheduledBlockingQueue<Runnable>) this.tasks;
-		Thread thread = new Thread(new Runnable() { public void run() {
-			boolean incremented = false;
-			do {
-				if(!incremented) { incremented=true; free.incrementAndGet(); }
-				try {
-					Runnable task = queue.poll(keepAlive, timeUnit);
-					if(task != null) {
-						if(incremented) { incremented=false; free.decrementAndGet(); }
-						updateThreadPool();
-						try {
-							task.run();
-						} catch (Exception ex) { ex.printStackTrace(); }
-					}
-				} catch (InterruptedException e) {}
-			} while(!queue.isEmpty() || (!queue.isCompletelyEmpty() && threads.size() <= Math.max(1, coreSize)) || (!shutdown && threads.size() <= coreSize));
-			if(incremented) { incremented=false; free.decrementAndGet(); }
-			threadsLock.lock();
-			threads.remove(Thread.currentThread());
-			threadsLock.unlock();
-		} });
-		threadsLock.lock();
-		threads.add(thread);
-		threadsLock.unlock();
-		thread.start();
+		return !queue.isEmpty() || (!queue.isCompletelyEmpty() && threadCount <= Math.max(1, coreSize)) || (!shutdown && threadCount <= coreSize);
 	}
 	
 	@Override
 	public String toString() {
 		return new StringBuilder(getClass().getSimpleName()).append("{coreSize=").append(coreSize).
-				append("; maxSize=").append(maxSize).append("; threads=").append(threads.size()).
-				append(" (active=").append(getActiveCount()).append(" free=").append(free.get()).
+				append("; maxSize=").append(maxSize).append("; threads=").append(getPoolSize()).
+				append(" (active=").append(getActiveCount()).append(" free=").append(getWaitingCount()).
 				append("); pendingTasks=").append(tasks.size()).append(" (withFuture=").
 				append(getPendingFutureTasks()).append(")").append("}").toString();
 	}
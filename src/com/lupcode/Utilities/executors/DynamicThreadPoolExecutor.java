@@ -1,33 +1,148 @@
 package com.lupcode.Utilities.executors;
 
+import java.lang.management.ManagementFactory;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
 import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.Executor;
-import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.LockSupport;
 import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+import com.lupcode.Utilities.collections.ConcurrentLinkedBlockingQueue;
+import com.lupcode.Utilities.collections.scheduled.ScheduledArrayBlockingQueue;
+import com.lupcode.Utilities.collections.scheduled.ScheduledLinkedBlockingQueue;
+import com.lupcode.Utilities.collections.scheduled.ScheduledSkipListBlockingQueue;
 
 /**
  * Executes tasks by using multiple threads that are lazily initialized.
  * A core amount of threads keeps running while additional threads get destructed 
- * after a certain period without work to do
+ * after a certain period without work to do. 
+ * Implements the {@link java.util.concurrent.ExecutorService} interface. 
+ * To wait until all tasks have completed and keep using the executor afterwards 
+ * use {@link DynamicThreadPoolExecutor#quiesce()} instead of shutting it down. 
+ * The task queue can be bounded with a {@link RejectionPolicy} deciding about tasks that do not fit. 
+ * For many tiny tasks threads can take batches of tasks from the queue at once. 
+ * Metrics can be read as snapshots with {@link DynamicThreadPoolExecutor#getStatistics()} or over JMX
  * @author LupCode.com (Luca Vogels)
  * @since 2020-01-07
  */
-public class DynamicThreadPoolExecutor implements Executor {
+public class DynamicThreadPoolExecutor extends AbstractExecutorService implements ExecutorMXBean {
 
+	/**
+	 * Worker of the work stealing mode that owns a deque of tasks. 
+	 * Only the owner pushes to its deque (at the head), 
+	 * other workers steal from the tail
+	 */
+	protected static class StealingWorker {
+		protected final ConcurrentLinkedDeque<Runnable> deque = new ConcurrentLinkedDeque<>();
+		protected final AtomicBoolean parked = new AtomicBoolean(false);
+		protected Thread thread;
+	}
 	
-	protected AtomicInteger free = new AtomicInteger(0);
-	protected BlockingQueue<Runnable> tasks = new LinkedBlockingQueue<>();
+	/**
+	 * Worker that takes tasks from the shared queue. Holds its lock while running 
+	 * tasks so shutting down only interrupts workers that are waiting for tasks
+	 */
+	protected static class QueueWorker {
+		protected final ReentrantLock lock = new ReentrantLock();
+		protected final Thread thread;
+		
+		protected QueueWorker(Thread thread) {
+			this.thread = thread;
+		}
+	}
+	
+	/**
+	 * Task that remembers when it has been queued so the queue wait can be measured. 
+	 * Equal to every other timed task that wraps the same task
+	 */
+	protected static class TimedTask implements Runnable {
+		protected final Runnable task;
+		/** Value of {@link System#nanoTime()} since when the task is waiting */
+		protected final long queued;
+		
+		protected TimedTask(Runnable task, long queued) {
+			this.task = task;
+			this.queued = queued;
+		}
+		
+		@Override
+		public void run() {
+			task.run();
+		}
+		
+		@Override
+		public boolean equals(Object obj) {
+			return obj == this || (obj instanceof TimedTask && ((TimedTask)obj).task == task);
+		}
+		
+		@Override
+		public int hashCode() {
+			return System.identityHashCode(task);
+		}
+		
+		@Override
+		public String toString() {
+			return task.toString();
+		}
+	}
+	
+	/** Added to {@link DynamicThreadPoolExecutor#state} for each live thread */
+	protected static final long THREAD = 1L << 32;
+	
+	/** Live threads in the upper 32 bits, idle threads in the lower 32 bits */
+	protected final AtomicLong state = new AtomicLong(0);
+	protected BlockingQueue<Runnable> tasks = new ConcurrentLinkedBlockingQueue<>();
 	protected Lock threadsLock = new ReentrantLock();
 	protected ArrayList<Thread> threads = new ArrayList<Thread>();
 	
 	protected int coreSize, maxSize;
 	protected long keepAlive;
 	protected TimeUnit timeUnit;
-	protected boolean shutdown = false;
+	/** True while no new tasks are accepted (after shutting down or while quiescing) */
+	protected volatile boolean shutdown = false;
+	/** True after {@link DynamicThreadPoolExecutor#shutdown()} or {@link DynamicThreadPoolExecutor#shutdownNow()} */
+	protected volatile boolean closed = false, stopped = false;
+	protected int quiescing = 0;
+	protected volatile boolean daemon = false;
+	protected volatile int concurrencyLimit = 0;
+	
+	protected final ExecutorMetrics metrics = new ExecutorMetrics();
+	protected volatile boolean taskTiming = false;
+	protected final CopyOnWriteArrayList<TaskDecorator> decorators = new CopyOnWriteArrayList<>();
+	protected ObjectName mbeanName = null;
+	
+	protected volatile int maxBatchSize = 1;
+	protected volatile long batchLatencyTarget = 0;
+	protected final LongAdder batchCount = new LongAdder(), batchTasks = new LongAdder(), batchNanos = new LongAdder();
+	protected final ConcurrentLinkedQueue<Runnable> abandonedTasks = new ConcurrentLinkedQueue<>();
+	
+	protected volatile RejectionPolicy rejectionPolicy = RejectionPolicy.FAIL_FAST;
+	protected volatile QueueWatermarkListener watermarkListener = null;
+	protected volatile int lowWatermark = 0, highWatermark = 0;
+	protected final AtomicBoolean aboveWatermark = new AtomicBoolean(false);
+	
+	protected final boolean workStealing;
+	protected final CopyOnWriteArrayList<StealingWorker> stealingWorkers = new CopyOnWriteArrayList<>();
+	protected final CopyOnWriteArrayList<QueueWorker> queueWorkers = new CopyOnWriteArrayList<>();
+	protected final ThreadLocal<StealingWorker> currentWorker = new ThreadLocal<>();
 	
 	/**
 	 * Creates a dynamic thread pool executor
@@ -37,6 +152,21 @@ public class DynamicThreadPoolExecutor implements Executor {
 	 * @param timeUnit Time unit for waiting for new tasks
 	 */
 	public DynamicThreadPoolExecutor(int coreSize, int maxSize, long keepAlive, TimeUnit timeUnit) {
+		this(coreSize, maxSize, keepAlive, timeUnit, false);
+	}
+	
+	/**
+	 * Creates a dynamic thread pool executor
+	 * @param coreSize Amount of threads that will be kept alive even if no more tasks are available
+	 * @param maxSize Maximum of threads that can run simultaneously (zero or negative for no limit) 
+	 * @param keepAlive Time how long threads should wait for new tasks before they get destructed
+	 * @param timeUnit Time unit for waiting for new tasks
+	 * @param workStealing If every thread should own a deque of tasks. Tasks executed from within 
+	 * a task get pushed to the deque of the current thread and idle threads steal tasks from others. 
+	 * Reduces contention if tasks spawn many subtasks
+	 */
+	public DynamicThreadPoolExecutor(int coreSize, int maxSize, long keepAlive, TimeUnit timeUnit, boolean workStealing) {
+		this.workStealing = workStealing;
 		this.coreSize = coreSize;
 		this.maxSize = maxSize;
 		this.keepAlive = Math.max(0, keepAlive);
@@ -49,7 +179,10 @@ public class DynamicThreadPoolExecutor implements Executor {
 	 * @return True if tasks are waiting
 	 */
 	public boolean hasPendingTasks() {
-		return !tasks.isEmpty();
+		if(!tasks.isEmpty()) return true;
+		for(StealingWorker worker : stealingWorkers)
+			if(!worker.deque.isEmpty()) return true;
+		return false;
 	}
 	
 	/**
@@ -57,7 +190,10 @@ public class DynamicThreadPoolExecutor implements Executor {
 	 * @return Amount of waiting tasks
 	 */
 	public int getPendingTasks() {
-		return tasks.size();
+		int size = tasks.size();
+		for(StealingWorker worker : stealingWorkers)
+			size += worker.deque.size();
+		return size;
 	}
 	
 	/**
@@ -68,7 +204,11 @@ public class DynamicThreadPoolExecutor implements Executor {
 	 * @return True on success
 	 */
 	public synchronized boolean removeTask(Runnable task) {
-		return tasks.remove(task);
+		final TimedTask timed = new TimedTask(task, 0); // equal to the queued timed task
+		if(tasks.remove(task) || tasks.remove(timed)) return true;
+		for(StealingWorker worker : stealingWorkers)
+			if(worker.deque.removeFirstOccurrence(task) || worker.deque.removeFirstOccurrence(timed)) return true;
+		return false;
 	}
 	
 	/**
@@ -76,6 +216,228 @@ public class DynamicThreadPoolExecutor implements Executor {
 	 */
 	public synchronized void removeAllWaitingTasks() {
 		tasks.clear();
+		for(StealingWorker worker : stealingWorkers)
+			worker.deque.clear();
+	}
+	
+	/**
+	 * Returns the queue that holds the pending tasks 
+	 * (tasks in the deques of the work stealing mode are not included)
+	 * @return Queue of pending tasks
+	 */
+	public BlockingQueue<Runnable> getQueue() {
+		return tasks;
+	}
+	
+	/**
+	 * Returns how many tasks can be queued at maximum before the 
+	 * {@link RejectionPolicy} decides what happens with further tasks
+	 * @return Maximum amount of queued tasks (zero or negative for no limit)
+	 */
+	public int getQueueCapacity() {
+		if(tasks instanceof ConcurrentLinkedBlockingQueue) return ((ConcurrentLinkedBlockingQueue<Runnable>)tasks).getCapacity();
+		if(tasks instanceof ScheduledLinkedBlockingQueue) return (int)Math.min(Integer.MAX_VALUE, ((ScheduledLinkedBlockingQueue<Runnable>)tasks).getCapacity());
+		if(tasks instanceof ScheduledSkipListBlockingQueue) return (int)Math.min(Integer.MAX_VALUE, ((ScheduledSkipListBlockingQueue<Runnable>)tasks).getCapacity());
+		if(tasks instanceof ScheduledArrayBlockingQueue) return ((ScheduledArrayBlockingQueue<Runnable>)tasks).getCapacity();
+		return tasks.remainingCapacity() == Integer.MAX_VALUE ? -1 : tasks.size() + tasks.remainingCapacity();
+	}
+	
+	/**
+	 * Sets how many tasks can be queued at maximum before the {@link RejectionPolicy} 
+	 * decides what happens with further tasks, which bounds the memory used under overload. 
+	 * In the work stealing mode tasks executed from within tasks go to the deque of 
+	 * the worker and are not limited. Tasks scheduled for later get rejected with a 
+	 * {@link java.util.concurrent.RejectedExecutionException} instead of being passed to the policy. 
+	 * Already queued tasks stay in the queue
+	 * @param capacity Maximum amount of queued tasks (zero or negative for no limit)
+	 * @throws UnsupportedOperationException if the queue does not support changing its capacity
+	 */
+	public void setQueueCapacity(int capacity) throws UnsupportedOperationException {
+		if(tasks instanceof ConcurrentLinkedBlockingQueue) ((ConcurrentLinkedBlockingQueue<Runnable>)tasks).setCapacity(capacity);
+		else if(tasks instanceof ScheduledLinkedBlockingQueue) ((ScheduledLinkedBlockingQueue<Runnable>)tasks).setCapacity(capacity);
+		else if(tasks instanceof ScheduledSkipListBlockingQueue) ((ScheduledSkipListBlockingQueue<Runnable>)tasks).setCapacity(capacity);
+		else if(tasks instanceof ScheduledArrayBlockingQueue) ((ScheduledArrayBlockingQueue<Runnable>)tasks).setCapacity(capacity);
+		else throw new UnsupportedOperationException(tasks.getClass().getSimpleName()+" does not support a capacity");
+	}
+	
+	/**
+	 * Returns the policy that decides what happens with tasks if the queue is full
+	 * @return Rejection policy
+	 */
+	public RejectionPolicy getRejectionPolicy() {
+		return rejectionPolicy;
+	}
+	
+	/**
+	 * Sets the policy that decides what happens with tasks if the queue is full
+	 * @param rejectionPolicy Rejection policy (null for {@link RejectionPolicy#FAIL_FAST})
+	 */
+	public void setRejectionPolicy(RejectionPolicy rejectionPolicy) {
+		this.rejectionPolicy = rejectionPolicy != null ? rejectionPolicy : RejectionPolicy.FAIL_FAST;
+	}
+	
+	/**
+	 * Returns the amount of pending tasks at which the watermark listener gets notified
+	 * @return High watermark
+	 */
+	public int getHighWatermark() {
+		return highWatermark;
+	}
+	
+	/**
+	 * Returns the amount of pending tasks the queue needs to drop to 
+	 * after the high watermark so the watermark listener gets notified again
+	 * @return Low watermark
+	 */
+	public int getLowWatermark() {
+		return lowWatermark;
+	}
+	
+	/**
+	 * Sets a listener that gets notified once when the amount of queued tasks reaches 
+	 * the high watermark and once when it dropped to the low watermark afterwards. 
+	 * Counting the queued tasks needs to be cheap for the used queue
+	 * @param lowWatermark Amount of tasks at which the listener gets notified that the load dropped
+	 * @param highWatermark Amount of tasks at which the listener gets notified about overload
+	 * @param listener Listener or null to remove the listener
+	 * @throws IllegalArgumentException if low watermark is greater than the high watermark
+	 */
+	public void setQueueWatermarks(int lowWatermark, int highWatermark, QueueWatermarkListener listener) throws IllegalArgumentException {
+		if(listener != null && lowWatermark > highWatermark) throw new IllegalArgumentException("Low watermark cannot be greater than high watermark");
+		this.watermarkListener = null;
+		this.lowWatermark = lowWatermark;
+		this.highWatermark = highWatermark;
+		this.aboveWatermark.set(false);
+		this.watermarkListener = listener;
+	}
+	
+	/**
+	 * Notifies the watermark listener if the high watermark got reached
+	 */
+	protected void checkHighWatermark() {
+		final QueueWatermarkListener listener = watermarkListener;
+		if(listener == null || aboveWatermark.get()) return;
+		if(tasks.size() < highWatermark) return;
+		synchronized (aboveWatermark) { // notifications keep their order
+			final int pending = tasks.size();
+			if(pending >= highWatermark && aboveWatermark.compareAndSet(false, true))
+				listener.onHighWatermark(this, pending);
+		}
+	}
+	
+	/**
+	 * Notifies the watermark listener if the amount of tasks 
+	 * dropped to the low watermark after the high watermark
+	 */
+	protected void checkLowWatermark() {
+		final QueueWatermarkListener listener = watermarkListener;
+		if(listener == null || !aboveWatermark.get()) return;
+		if(tasks.size() > lowWatermark) return;
+		synchronized (aboveWatermark) { // notifications keep their order
+			final int pending = tasks.size();
+			if(pending <= lowWatermark && aboveWatermark.compareAndSet(true, false))
+				listener.onLowWatermark(this, pending);
+		}
+	}
+	
+	/**
+	 * Adds a task to the shared queue. If the queue is full 
+	 * the {@link RejectionPolicy} decides what happens with the task
+	 * @param command Task that should be queued
+	 */
+	protected void offerTask(Runnable command) {
+		if(taskTiming) command = new TimedTask(command, System.nanoTime());
+		if(!tasks.offer(command)) rejectionPolicy.reject(command, this);
+		if(taskTiming) metrics.recordQueueDepth(tasks.size());
+		checkHighWatermark();
+	}
+	
+	/**
+	 * Adds multiple tasks to the shared queue with a single enqueue operation if the 
+	 * queue supports it. Tasks that do not fit get passed to the {@link RejectionPolicy}
+	 * @param commands Tasks that should be queued
+	 */
+	protected void offerTasks(List<Runnable> commands) {
+		if(taskTiming) {
+			final long now = System.nanoTime();
+			commands.replaceAll(command -> new TimedTask(command, now));
+		}
+		int added = 0;
+		if(tasks instanceof ConcurrentLinkedBlockingQueue)
+			added = ((ConcurrentLinkedBlockingQueue<Runnable>)tasks).offerAll(commands);
+		for(int i=added; i<commands.size(); i++) {
+			final Runnable command = commands.get(i);
+			if(!tasks.offer(command)) rejectionPolicy.reject(command, this);
+		}
+		if(taskTiming) metrics.recordQueueDepth(tasks.size());
+		checkHighWatermark();
+	}
+	
+	/**
+	 * Returns how many tasks a thread takes from the queue at once
+	 * @return Maximum amount of tasks per batch (one if batching is disabled)
+	 */
+	public int getMaxBatchSize() {
+		return maxBatchSize;
+	}
+	
+	/**
+	 * Returns how long a batch of tasks should take at maximum
+	 * @param unit Time unit of the returned time
+	 * @return Latency target of a batch (zero if batch sizes do not adapt)
+	 */
+	public long getBatchLatencyTarget(TimeUnit unit) {
+		return unit.convert(batchLatencyTarget, TimeUnit.NANOSECONDS);
+	}
+	
+	/**
+	 * Sets how many tasks a thread takes from the queue at once. Taking batches reduces 
+	 * the queue overhead for many tiny tasks (e.g. event dispatching). If a latency target is set 
+	 * every thread halves its batch size if a batch took longer and doubles it (up to the maximum) 
+	 * if a full batch took less than half of the target, so queued tasks do not wait too long 
+	 * behind a batch. Only used for the shared queue, not for the deques of the work stealing mode
+	 * @param maxBatchSize Maximum amount of tasks per batch (one or less to disable batching)
+	 * @param latencyTarget How long a batch should take at maximum (zero or negative for fixed batch sizes)
+	 * @param unit Time unit of the latency target
+	 */
+	public void setBatching(int maxBatchSize, long latencyTarget, TimeUnit unit) {
+		this.maxBatchSize = Math.max(1, maxBatchSize);
+		this.batchLatencyTarget = Math.max(0, unit.toNanos(latencyTarget));
+	}
+	
+	/**
+	 * Returns how many batches of tasks have been executed
+	 * @return Amount of batches
+	 */
+	public long getBatchCount() {
+		return batchCount.sum();
+	}
+	
+	/**
+	 * Returns how many tasks have been executed per batch on average
+	 * @return Average amount of tasks per batch
+	 */
+	public double getAverageBatchSize() {
+		final long count = batchCount.sum();
+		return count > 0 ? (double)batchTasks.sum() / count : 0;
+	}
+	
+	/**
+	 * Returns how long a batch of tasks took on average
+	 * @return Average nanoseconds per batch
+	 */
+	public double getAverageBatchNanos() {
+		final long count = batchCount.sum();
+		return count > 0 ? (double)batchNanos.sum() / count : 0;
+	}
+	
+	/**
+	 * Returns true if every thread owns a deque of tasks and 
+	 * idle threads steal tasks from other threads
+	 * @return True if work stealing mode is used
+	 */
+	public boolean isWorkStealing() {
+		return workStealing;
 	}
 	
 	/**
@@ -83,7 +445,7 @@ public class DynamicThreadPoolExecutor implements Executor {
 	 * @return Amount of threads in pool
 	 */
 	public int getPoolSize() {
-		return threads.size();
+		return threadCount(state.get());
 	}
 	
 	/**
@@ -91,7 +453,8 @@ public class DynamicThreadPoolExecutor implements Executor {
 	 * @return Amount of threads in use
 	 */
 	public int getActiveCount() {
-		return threads.size() - free.get();
+		final long state = this.state.get();
+		return threadCount(state) - idleCount(state);
 	}
 	
 	/**
@@ -99,7 +462,7 @@ public class DynamicThreadPoolExecutor implements Executor {
 	 * @return Amount of threads waiting
 	 */
 	public int getWaitingCount() {
-		return free.get();
+		return idleCount(state.get());
 	}
 	
 	/**
@@ -136,6 +499,207 @@ public class DynamicThreadPoolExecutor implements Executor {
 		this.maxSize = maxSize;
 	}
 	
+	/**
+	 * Returns how many threads may run simultaneously as decided at runtime 
+	 * (e.g. by a {@link HillClimbingController}). If zero or negative 
+	 * only the maximum pool size limits the amount of threads
+	 * @return Concurrency limit (zero or negative for no limit)
+	 */
+	public int getConcurrencyLimit() {
+		return concurrencyLimit;
+	}
+	
+	/**
+	 * Sets how many threads may run simultaneously. The limit never drops below the 
+	 * core pool size and never exceeds the maximum pool size. Threads above a lowered limit 
+	 * exit after finishing their current task. If zero or negative only the maximum pool 
+	 * size limits the amount of threads
+	 * @param concurrencyLimit Concurrency limit (zero or negative for no limit)
+	 */
+	public void setConcurrencyLimit(int concurrencyLimit) {
+		this.concurrencyLimit = concurrencyLimit;
+		if(workStealing) { if(hasPendingTasks()) signalWork(); }
+		else if(!tasks.isEmpty()) updateThreadPool();
+	}
+	
+	/**
+	 * Returns the amount of threads that may run simultaneously 
+	 * based on the maximum pool size and the concurrency limit
+	 * @return Maximum amount of threads (zero or negative for no limit)
+	 */
+	protected int getThreadLimit() {
+		final int limit = concurrencyLimit, maxSize = this.maxSize;
+		if(limit <= 0) return maxSize;
+		final int bounded = Math.max(limit, Math.max(1, coreSize));
+		return maxSize > 0 ? Math.min(bounded, maxSize) : bounded;
+	}
+	
+	/**
+	 * Returns how many tasks have been executed by the threads of this pool 
+	 * (tasks that threw an exception are included)
+	 * @return Amount of completed tasks
+	 */
+	@Override
+	public long getCompletedTaskCount() {
+		return metrics.getCompletedTaskCount();
+	}
+	
+	/**
+	 * Returns how many tasks threw an exception
+	 * @return Amount of failed tasks
+	 */
+	@Override
+	public long getFailedTaskCount() {
+		return metrics.getFailedTaskCount();
+	}
+	
+	/**
+	 * @return Amount of threads that have been created
+	 */
+	@Override
+	public long getSpawnedThreadCount() {
+		return metrics.getSpawnedThreadCount();
+	}
+	
+	/**
+	 * @return Amount of threads that have exited
+	 */
+	@Override
+	public long getRetiredThreadCount() {
+		return metrics.getRetiredThreadCount();
+	}
+	
+	/**
+	 * @return Highest amount of queued tasks while task timing has been enabled
+	 */
+	@Override
+	public int getPeakQueueDepth() {
+		return metrics.getPeakQueueDepth();
+	}
+	
+	@Override
+	public double getQueueWaitMean() {
+		return metrics.getQueueWait().getMean();
+	}
+	
+	@Override
+	public long getQueueWaitP99() {
+		return metrics.getQueueWait().getPercentile(0.99);
+	}
+	
+	@Override
+	public long getQueueWaitMax() {
+		return metrics.getQueueWait().getMax();
+	}
+	
+	@Override
+	public double getExecutionTimeMean() {
+		return metrics.getExecutionTime().getMean();
+	}
+	
+	@Override
+	public long getExecutionTimeP99() {
+		return metrics.getExecutionTime().getPercentile(0.99);
+	}
+	
+	@Override
+	public long getExecutionTimeMax() {
+		return metrics.getExecutionTime().getMax();
+	}
+	
+	/**
+	 * Returns the live metrics that get recorded by the threads of this pool
+	 * @return Live metrics
+	 */
+	public ExecutorMetrics getMetrics() {
+		return metrics;
+	}
+	
+	/**
+	 * Takes a snapshot of the metrics of this pool
+	 * @return Snapshot of the metrics
+	 */
+	public ExecutorStatistics getStatistics() {
+		final long state = this.state.get();
+		return new ExecutorStatistics(System.currentTimeMillis(), threadCount(state), threadCount(state) - idleCount(state), 
+				getPendingTasks(), metrics.getPeakQueueDepth(), metrics.getCompletedTaskCount(), metrics.getFailedTaskCount(), 
+				metrics.getSpawnedThreadCount(), metrics.getRetiredThreadCount(), 
+				metrics.getQueueWait().copy(), metrics.getExecutionTime().copy());
+	}
+	
+	/**
+	 * Resets the histograms and the peak queue depth
+	 */
+	@Override
+	public void resetMetrics() {
+		metrics.reset();
+	}
+	
+	/**
+	 * Returns true if the queue wait and execution time of every task 
+	 * as well as the peak queue depth get recorded
+	 * @return True if task timing is enabled
+	 */
+	@Override
+	public boolean isTaskTiming() {
+		return taskTiming;
+	}
+	
+	/**
+	 * Sets if the queue wait and execution time of every task as well as the peak queue depth 
+	 * should be recorded. Costs reading the clock a few times and a small wrapper per queued 
+	 * task (the queue returned by {@link DynamicThreadPoolExecutor#getQueue()} contains the wrappers)
+	 * @param taskTiming True if task timing should be enabled
+	 */
+	@Override
+	public void setTaskTiming(boolean taskTiming) {
+		this.taskTiming = taskTiming;
+	}
+	
+	/**
+	 * Adds a decorator whose hooks get called around every task
+	 * @param decorator Decorator that should be added
+	 * @throws NullPointerException if decorator is null
+	 */
+	public void addTaskDecorator(TaskDecorator decorator) throws NullPointerException {
+		if(decorator == null) throw new NullPointerException("Decorator cannot be null");
+		decorators.add(decorator);
+	}
+	
+	/**
+	 * Removes a decorator so its hooks do not get called anymore
+	 * @param decorator Decorator that should be removed
+	 * @return True if decorator has been removed
+	 */
+	public boolean removeTaskDecorator(TaskDecorator decorator) {
+		return decorators.remove(decorator);
+	}
+	
+	/**
+	 * Registers this pool at the platform MBean server so its metrics 
+	 * can be monitored over JMX. A previous registration gets removed
+	 * @param name Name of this pool in the object name
+	 * @return Object name this pool has been registered with
+	 * @throws JMException if registration failed
+	 */
+	public synchronized ObjectName registerMBean(String name) throws JMException {
+		unregisterMBean();
+		ObjectName objectName = new ObjectName(getClass().getPackageName()+":type="+getClass().getSimpleName()+",name="+ObjectName.quote(name));
+		ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+		return mbeanName = objectName;
+	}
+	
+	/**
+	 * Removes this pool from the platform MBean server if it has been registered
+	 * @throws JMException if removing failed
+	 */
+	public synchronized void unregisterMBean() throws JMException {
+		if(mbeanName == null) return;
+		final ObjectName objectName = mbeanName;
+		mbeanName = null;
+		ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+	}
+	
 	/**
 	 * Returns how long threads wait for new tasks before they get destructed
 	 * @return Time waiting for tasks before destructed
@@ -164,63 +728,627 @@ public class DynamicThreadPoolExecutor implements Executor {
 	
 	
 	
+	/**
+	 * Returns true if new threads get created as daemon threads
+	 * which do not prevent the JVM from exiting
+	 * @return True if threads are daemon threads
+	 */
+	public boolean isDaemon() {
+		return daemon;
+	}
+	
+	/**
+	 * Sets if new threads should be created as daemon threads
+	 * which do not prevent the JVM from exiting. 
+	 * Already running threads are not affected
+	 * @param daemon True if threads should be daemon threads
+	 */
+	public void setDaemon(boolean daemon) {
+		this.daemon = daemon;
+	}
+	
+	/**
+	 * Executes the given task by a thread of this pool
+	 * @throws RejectedExecutionException if executor is shutting down 
+	 * or the queue is full (depending on the {@link RejectionPolicy})
+	 * @throws NullPointerException if task is null
+	 */
 	@Override
-	public synchronized void execute(Runnable command) {
+	public void execute(Runnable command) throws RejectedExecutionException, NullPointerException {
+		if(workStealing) {
+			executeStealing(command);
+			return;
+		}
 		if(command == null) throw new NullPointerException("Runnable cannot be null");
-		if(shutdown) throw new IllegalStateException(getClass().getSimpleName()+" is currently shutting down");
-		tasks.add(command);
+		if(shutdown) throw shuttingDown();
+		offerTask(command);
 		updateThreadPool();
 	}
 	
-	protected void updateThreadPool() {
-		if(free.get() > 0 || (maxSize > 0 && threads.size() >= maxSize)) return;
-		Thread thread = new Thread(new Runnable() { public void run() {
-			boolean incremented = false;
-			do {
-				if(!incremented) { incremented=true; free.incrementAndGet(); }
-				try {
-					Runnable task = tasks.poll(keepAlive, timeUnit);
-					if(task != null) {
-						if(incremented) { incremented=false; free.decrementAndGet(); }
-						updateThreadPool();
-						try {
-							task.run();
-						} catch (Exception ex) { ex.printStackTrace(); }
-					}
-				} catch (InterruptedException e) {}
-			} while(!tasks.isEmpty() || (!shutdown && threads.size() <= coreSize));
-			if(incremented) { incremented=false; free.decrementAndGet(); }
-			threadsLock.lock();
-			threads.remove(Thread.currentThread());
-			threadsLock.unlock();
-		} });
+	/**
+	 * Executes multiple tasks. Tasks get added to the queue with a single enqueue 
+	 * operation if the queue supports it, which is cheaper than executing them one by one
+	 * @param commands Tasks that should be executed
+	 * @throws RejectedExecutionException if executor is shutting down 
+	 * or the queue is full (depending on the {@link RejectionPolicy})
+	 * @throws NullPointerException if collection or one of the tasks is null
+	 */
+	public void executeAll(Collection<? extends Runnable> commands) throws RejectedExecutionException, NullPointerException {
+		if(commands == null) throw new NullPointerException("Collection cannot be null");
+		if(workStealing) {
+			for(Runnable command : commands) executeStealing(command);
+			return;
+		}
+		final ArrayList<Runnable> list = new ArrayList<>(commands);
+		for(Runnable command : list)
+			if(command == null) throw new NullPointerException("Runnable cannot be null");
+		if(shutdown) throw shuttingDown();
+		if(list.isEmpty()) return;
+		offerTasks(list);
+		updateThreadPool();
+	}
+	
+	/**
+	 * Executes multiple tasks. Tasks get added to the queue with a single enqueue 
+	 * operation if the queue supports it, which is cheaper than executing them one by one
+	 * @param commands Tasks that should be executed
+	 * @throws RejectedExecutionException if executor is shutting down 
+	 * or the queue is full (depending on the {@link RejectionPolicy})
+	 * @throws NullPointerException if one of the tasks is null
+	 */
+	public void executeAll(Runnable... commands) throws RejectedExecutionException, NullPointerException {
+		executeAll(Arrays.asList(commands));
+	}
+	
+	/**
+	 * @param state Value of {@link DynamicThreadPoolExecutor#state}
+	 * @return Amount of live threads
+	 */
+	protected static int threadCount(long state) {
+		return (int)(state >>> 32);
+	}
+	
+	/**
+	 * @param state Value of {@link DynamicThreadPoolExecutor#state}
+	 * @return Amount of idle threads
+	 */
+	protected static int idleCount(long state) {
+		return (int)state;
+	}
+	
+	/**
+	 * Reserves a new thread if no thread is idle and the maximum is not reached. 
+	 * The reserved thread already counts as idle so concurrent callers 
+	 * do not reserve further threads for the same work
+	 * @return True if a thread has been reserved and must be started
+	 */
+	protected boolean reserveThread() {
+		final int limit = getThreadLimit();
+		long state;
+		do {
+			state = this.state.get();
+			if(idleCount(state) > 0 || (limit > 0 && threadCount(state) >= limit)) return false;
+		} while(!this.state.compareAndSet(state, state + THREAD + 1));
+		return true;
+	}
+	
+	/**
+	 * Removes an idle thread from the counters unless it should be kept alive
+	 * @return True if the calling thread has been removed and must exit
+	 */
+	protected boolean retireThread() {
+		long state;
+		do {
+			state = this.state.get();
+			if(keepWorkerAlive(threadCount(state))) return false;
+		} while(!this.state.compareAndSet(state, state - THREAD - 1));
+		return true;
+	}
+	
+	/**
+	 * Removes a busy thread from the counters if more threads 
+	 * are running than allowed by the concurrency limit
+	 * @return True if the calling thread has been removed and must exit
+	 */
+	protected boolean retireExcessThread() {
+		if(concurrencyLimit <= 0) return false;
+		long state;
+		do {
+			state = this.state.get();
+			final int limit = getThreadLimit();
+			if(limit <= 0 || threadCount(state) <= limit) return false;
+		} while(!this.state.compareAndSet(state, state - THREAD));
+		return true;
+	}
+	
+	/**
+	 * Decides if an idle thread that did not receive a task 
+	 * within the keep alive time should keep running
+	 * @param threadCount Amount of live threads including the calling one
+	 * @return True if thread should keep waiting for tasks
+	 */
+	protected boolean keepWorkerAlive(int threadCount) {
+		return !tasks.isEmpty() || (!shutdown && threadCount <= coreSize);
+	}
+	
+	/**
+	 * Creates a (not started) thread for a thread that has been reserved by 
+	 * {@link DynamicThreadPoolExecutor#reserveThread()} and adds it to the list of threads. 
+	 * If creation fails the reservation gets undone
+	 * @param worker Runnable that the thread should run
+	 * @return New thread
+	 */
+	protected Thread createThread(Runnable worker) {
+		final Thread thread;
+		try {
+			thread = newThread(worker);
+		} catch (RuntimeException | Error ex) {
+			state.addAndGet(-THREAD - 1);
+			throw ex;
+		}
 		threadsLock.lock();
 		threads.add(thread);
 		threadsLock.unlock();
-		thread.start();
+		metrics.recordSpawn();
+		return thread;
+	}
+	
+	/**
+	 * Creates the exception for a task that gets submitted while no new tasks 
+	 * are accepted because this executor is shutting down or quiescing
+	 * @return Exception that should be thrown
+	 */
+	protected RejectedExecutionException shuttingDown() {
+		return new RejectedExecutionException(getClass().getSimpleName()+" is currently shutting down");
+	}
+	
+	/**
+	 * Removes the calling thread from the list of threads after 
+	 * it has been retired by {@link DynamicThreadPoolExecutor#retireThread()}
+	 */
+	protected void removeCurrentThread() {
+		threadsLock.lock();
+		threads.remove(Thread.currentThread());
+		threadsLock.unlock();
+		metrics.recordRetire();
+	}
+	
+	/**
+	 * Pushes the task to the deque of the current thread if it is a worker 
+	 * of this executor, otherwise to the shared queue. Wakes up an idle 
+	 * worker or creates a new one so the task can be processed (or stolen)
+	 * @param command Task that should be executed
+	 */
+	protected void executeStealing(Runnable command) {
+		if(command == null) throw new NullPointerException("Runnable cannot be null");
+		if(shutdown) throw shuttingDown();
+		StealingWorker worker = currentWorker.get();
+		if(worker != null) worker.deque.offerFirst(taskTiming ? new TimedTask(command, System.nanoTime()) : command);
+		else offerTask(command);
+		signalWork();
+	}
+	
+	/**
+	 * Wakes up an idle worker of the work stealing mode or 
+	 * creates a new worker if none is idle
+	 */
+	protected void signalWork() {
+		if(idleCount(state.get()) > 0) {
+			for(StealingWorker worker : stealingWorkers) {
+				if(worker.parked.get() && worker.parked.compareAndSet(true, false)) {
+					LockSupport.unpark(worker.thread);
+					return;
+				}
+			}
+			return; // idle workers are checking for tasks right now
+		}
+		if(!reserveThread()) return;
+		StealingWorker worker = new StealingWorker();
+		worker.thread = createThread(() -> runStealingWorker(worker));
+		stealingWorkers.add(worker);
+		worker.thread.start();
+	}
+	
+	/**
+	 * Takes a task from the own deque (newest first), the shared queue 
+	 * or steals one from another worker (oldest first)
+	 * @param worker Worker that looks for a task
+	 * @return Task or null if no task is available
+	 */
+	protected Runnable findTask(StealingWorker worker) {
+		Runnable task = worker.deque.pollFirst();
+		if(task != null) return task;
+		if((task = tasks.poll()) != null) {
+			checkLowWatermark();
+			return task;
+		}
+		final Object[] others = stealingWorkers.toArray();
+		if(others.length <= 1) return null;
+		final int start = ThreadLocalRandom.current().nextInt(others.length);
+		for(int i=0; i<others.length; i++) {
+			StealingWorker victim = (StealingWorker) others[(start + i) % others.length];
+			if(victim != worker && (task = victim.deque.pollLast()) != null) return task;
+		} return null;
+	}
+	
+	/**
+	 * Loop of a worker in work stealing mode
+	 * @param worker Worker that is run by the current thread
+	 */
+	protected void runStealingWorker(StealingWorker worker) {
+		currentWorker.set(worker);
+		boolean idle = true, retired = false; // reserved threads start as idle
+		try {
+			while(true) {
+				Runnable task = findTask(worker);
+				if(task == null) {
+					if(!idle) { idle = true; state.incrementAndGet(); }
+					final long deadline = System.nanoTime() + timeUnit.toNanos(keepAlive);
+					while(true) {
+						worker.parked.set(true); // signal before checking again so no wake up gets lost
+						if((task = findTask(worker)) != null || shutdown) break;
+						final long remaining = deadline - System.nanoTime();
+						if(remaining <= 0) break;
+						LockSupport.parkNanos(this, remaining);
+					}
+					worker.parked.set(false);
+					if(task == null) {
+						if(retired = retireThread()) break;
+						continue;
+					}
+				}
+				if(idle) { idle = false; state.decrementAndGet(); }
+				if(!worker.deque.isEmpty() || !tasks.isEmpty()) signalWork();
+				runTask(task);
+				// tasks in the own deque would get lost if the thread exits
+				if(worker.deque.isEmpty() && (retired = retireExcessThread())) break;
+			}
+		} finally {
+			currentWorker.remove();
+			if(!retired) state.addAndGet(idle ? -THREAD - 1 : -THREAD); // left by an error
+			stealingWorkers.remove(worker);
+			removeCurrentThread();
+			// only the owner pushes to its deque so it is empty here, but a task may 
+			// have been queued while this thread still counted as running
+			if(!tasks.isEmpty()) signalWork();
+		}
 	}
 	
 	/**
-	 * Shuts this pool down so no further tasks will be accepted and waits 
-	 * until all pending tasks have completed. 
-	 * Afterwards new tasks can be offered again
+	 * Creates a new (not started) worker thread
+	 * @param worker Runnable that the thread should run
+	 * @return New thread
 	 */
+	protected Thread newThread(Runnable worker) {
+		Thread thread = new Thread(worker);
+		thread.setDaemon(daemon);
+		return thread;
+	}
+	
+	/**
+	 * Creates a new thread if no thread is idle and the maximum amount of threads 
+	 * (or the concurrency limit) is not reached. Only uses atomic operations so submitting does not block
+	 */
+	protected void updateThreadPool() {
+		if(reserveThread()) createThread(this::runWorker).start();
+	}
+	
+	/**
+	 * Loop of a worker that takes tasks from the shared queue 
+	 * until it retires after the keep alive time without tasks
+	 */
+	protected void runWorker() {
+		boolean idle = true, retired = false; // reserved threads start as idle
+		final ArrayList<Runnable> batch = new ArrayList<>();
+		int batchSize = maxBatchSize;
+		final QueueWorker worker = new QueueWorker(Thread.currentThread());
+		queueWorkers.add(worker);
+		try {
+			while(true) {
+				Runnable task = null;
+				try { // after shutting down idle workers only get interrupted once
+					if(!shutdown || keepWorkerAlive(threadCount(state.get()))) task = tasks.poll(keepAlive, timeUnit);
+				} catch (InterruptedException e) {}
+				if(task == null) {
+					if(retired = retireThread()) break;
+					continue;
+				}
+				idle = false;
+				state.decrementAndGet();
+				final int maxBatchSize = this.maxBatchSize;
+				if(maxBatchSize > 1) tasks.drainTo(batch, Math.min(batchSize, maxBatchSize) - 1);
+				checkLowWatermark();
+				if(!tasks.isEmpty()) updateThreadPool();
+				worker.lock.lock();
+				try {
+					if(!stopped) Thread.interrupted(); // interrupted as idle worker while it already took a task
+					if(maxBatchSize > 1) {
+						batchSize = runBatch(task, batch, Math.min(batchSize, maxBatchSize), maxBatchSize);
+					} else runTask(task);
+				} finally {
+					worker.lock.unlock();
+				}
+				if(retired = retireExcessThread()) break;
+				state.incrementAndGet();
+				idle = true;
+			}
+		} finally {
+			if(!retired) state.addAndGet(idle ? -THREAD - 1 : -THREAD); // left by an error
+			queueWorkers.remove(worker);
+			removeCurrentThread();
+			// a task may have been queued while this thread still counted as idle
+			if(!tasks.isEmpty()) updateThreadPool();
+		}
+	}
+	
+	/**
+	 * Runs a task on the calling worker thread
+	 * @param task Task that should be run
+	 */
+	protected void runTask(Runnable task) {
+		final boolean timing = taskTiming;
+		long queueWait = -1;
+		if(task instanceof TimedTask) {
+			final TimedTask timed = (TimedTask) task;
+			task = timed.task;
+			if(timing) queueWait = Math.max(0, System.nanoTime() - timed.queued);
+		} else if(timing) queueWait = getQueueWait(task);
+		for(TaskDecorator decorator : decorators)
+			try {
+				decorator.beforeExecute(Thread.currentThread(), task);
+			} catch (Exception ex) { onTaskFailure(task, ex); }
+		Exception error = null;
+		final long start = timing ? System.nanoTime() : 0;
+		try {
+			task.run();
+		} catch (Exception ex) { error = ex; }
+		final long executionTime = timing ? System.nanoTime() - start : -1;
+		metrics.recordTask(queueWait, executionTime, error != null);
+		for(TaskDecorator decorator : decorators)
+			try {
+				decorator.afterExecute(task, error, executionTime);
+			} catch (Exception ex) { onTaskFailure(task, ex); }
+		if(error != null) onTaskFailure(task, error);
+	}
+	
+	/**
+	 * Gets called on the worker thread if a task or one of the 
+	 * {@link TaskDecorator}s around it threw an exception. 
+	 * Failed tasks are already counted by the metrics and passed to 
+	 * {@link TaskDecorator#afterExecute(Runnable, Throwable, long)}, 
+	 * does nothing by default
+	 * @param task Task that has been executed
+	 * @param error Exception that has been thrown
+	 */
+	protected void onTaskFailure(Runnable task, Throwable error) {
+		
+	}
+	
+	/**
+	 * Returns how long a task that has not been queued with a timestamp 
+	 * waited before it got executed
+	 * @param task Task that is about to be executed
+	 * @return Nanoseconds the task waited or negative if unknown
+	 */
+	protected long getQueueWait(Runnable task) {
+		return -1;
+	}
+	
+	/**
+	 * Runs a batch of tasks, records its timing and adapts the batch 
+	 * size of the calling worker to the latency target. If the pool gets shut down 
+	 * with interrupting the threads the remaining tasks get returned by {@link DynamicThreadPoolExecutor#shutdownNow()}
+	 * @param first Task that has been taken first
+	 * @param batch Further tasks that have been taken, gets cleared
+	 * @param batchSize Batch size the tasks have been taken with
+	 * @param maxBatchSize Maximum batch size
+	 * @return Batch size for the next batch of the calling worker
+	 */
+	protected int runBatch(Runnable first, ArrayList<Runnable> batch, int batchSize, int maxBatchSize) {
+		final long start = System.nanoTime();
+		runTask(first);
+		int count = 1;
+		for(; count<=batch.size(); count++) {
+			if(stopped && Thread.currentThread().isInterrupted()) break;
+			runTask(batch.get(count-1));
+		}
+		final long elapsed = System.nanoTime() - start;
+		for(int i=count-1; i<batch.size(); i++) // collected by shutdownNow()
+			abandonedTasks.offer(batch.get(i));
+		final boolean full = batch.size() + 1 >= batchSize;
+		batch.clear();
+		batchCount.increment();
+		batchTasks.add(count);
+		batchNanos.add(elapsed);
+		final long target = batchLatencyTarget;
+		if(target <= 0) return maxBatchSize;
+		if(elapsed > target) return Math.max(1, batchSize / 2);
+		if(full && elapsed < target / 2) return (int)Math.min(maxBatchSize, 2L * batchSize);
+		return batchSize;
+	}
+	
+	/**
+	 * Executes a supplier asynchronously
+	 * @param <T> Type of the result
+	 * @param supplier Supplier whose result completes the returned future
+	 * @return Future that gets completed with the result of the supplier
+	 */
+	public <T> CompletableFuture<T> supplyAsync(Supplier<T> supplier) {
+		return CompletableFuture.supplyAsync(supplier, this);
+	}
+	
+	/**
+	 * Executes a task asynchronously
+	 * @param runnable Task that should be executed
+	 * @return Future that gets completed after the task has run
+	 */
+	public CompletableFuture<Void> runAsync(Runnable runnable) {
+		return CompletableFuture.runAsync(runnable, this);
+	}
+	
+	/**
+	 * Returns a snapshot of the currently running threads
+	 * @return Running threads
+	 */
+	protected Thread[] getThreads() {
+		threadsLock.lock();
+		try {
+			return threads.toArray(new Thread[threads.size()]);
+		} finally {
+			threadsLock.unlock();
+		}
+	}
+	
+	/**
+	 * Waits until all threads have exited
+	 */
+	protected void joinThreads() {
+		Thread[] running;
+		while((running = getThreads()).length > 0)
+			for(Thread thr : running) // join without lock as threads remove themselves
+				try { thr.join(); } catch (InterruptedException e) {}
+	}
+	
+	/**
+	 * Wakes up all workers that are waiting for tasks so they 
+	 * can exit if no further tasks are pending
+	 */
+	protected void interruptIdleWorkers() {
+		for(QueueWorker worker : queueWorkers) {
+			if(!worker.lock.tryLock()) continue; // running tasks
+			try {
+				worker.thread.interrupt();
+			} finally {
+				worker.lock.unlock();
+			}
+		}
+		for(StealingWorker worker : stealingWorkers)
+			LockSupport.unpark(worker.thread);
+	}
+	
+	/**
+	 * Shuts this pool down so no further tasks will be accepted. 
+	 * Pending tasks still get executed, threads exit once no more tasks are pending. 
+	 * Does not wait, use {@link DynamicThreadPoolExecutor#awaitTermination(long, TimeUnit)} for that
+	 */
+	@Override
 	public synchronized void shutdown() {
+		closed = true;
 		shutdown = true;
-		while(!threads.isEmpty()) {
-			threadsLock.lock();
-			for(Thread thr : threads)
-				try { thr.join(); } catch (InterruptedException e) {}
-			threadsLock.unlock();
+		onShutdown();
+		interruptIdleWorkers();
+	}
+	
+	/**
+	 * Called by {@link DynamicThreadPoolExecutor#shutdown()} after 
+	 * new tasks are no longer accepted and before idle workers get woken up
+	 */
+	protected void onShutdown() {}
+	
+	/**
+	 * Shuts this pool down so no further tasks will be accepted, removes all 
+	 * pending tasks and interrupts running tasks. Does not wait until the 
+	 * threads have exited, use {@link DynamicThreadPoolExecutor#awaitTermination(long, TimeUnit)} for that. 
+	 * Tasks of batches that get interrupted after this method returned are not executed
+	 * @return Tasks that have been removed without being executed
+	 */
+	@Override
+	public synchronized List<Runnable> shutdownNow() {
+		closed = true;
+		stopped = true;
+		shutdown = true;
+		ArrayList<Runnable> pending = new ArrayList<>();
+		drainPendingTasks(pending);
+		for(Thread thr : getThreads())
+			thr.interrupt();
+		return pending;
+	}
+	
+	/**
+	 * Stops accepting new tasks and waits until all pending tasks have completed 
+	 * and all threads have exited. Afterwards new tasks are accepted again 
+	 * unless this pool has been shut down in the meantime
+	 * @throws IllegalStateException if called by a thread of this pool
+	 */
+	public void quiesce() throws IllegalStateException {
+		if(Arrays.asList(getThreads()).contains(Thread.currentThread()))
+			throw new IllegalStateException("Thread of "+getClass().getSimpleName()+" cannot wait for itself");
+		synchronized (this) {
+			quiescing++;
+			shutdown = true;
+		}
+		try {
+			interruptIdleWorkers();
+			joinThreads();
+		} finally {
+			synchronized (this) {
+				if(--quiescing == 0 && !closed) shutdown = false;
+			}
+		}
+	}
+	
+	/**
+	 * Removes all pending tasks (without the wrappers of the task timing)
+	 * @param pending List the removed tasks get added to
+	 */
+	protected void drainPendingTasks(List<Runnable> pending) {
+		tasks.drainTo(pending);
+		Runnable abandoned;
+		while((abandoned = abandonedTasks.poll()) != null)
+			pending.add(abandoned);
+		for(StealingWorker worker : stealingWorkers) {
+			Runnable task;
+			while((task = worker.deque.pollLast()) != null)
+				pending.add(task);
 		}
-		shutdown = false;
+		pending.replaceAll(task -> task instanceof TimedTask ? ((TimedTask)task).task : task);
+	}
+	
+	/**
+	 * Returns true if this pool has been shut down by {@link DynamicThreadPoolExecutor#shutdown()} 
+	 * or {@link DynamicThreadPoolExecutor#shutdownNow()} (not while quiescing)
+	 * @return True if pool has been shut down
+	 */
+	@Override
+	public boolean isShutdown() {
+		return closed;
+	}
+	
+	/**
+	 * Returns true if this pool has been shut down, 
+	 * all threads have exited and no tasks are pending
+	 * @return True if pool has been shut down and terminated
+	 */
+	@Override
+	public boolean isTerminated() {
+		return closed && getPoolSize() == 0 && getThreads().length == 0 && !hasPendingTasks();
+	}
+	
+	/**
+	 * Waits until this pool has terminated after it has been shut down
+	 * @param timeout How long to wait at maximum
+	 * @param unit Time unit of the timeout
+	 * @return True if pool has terminated, false if timeout elapsed
+	 * @throws InterruptedException if interrupted while waiting
+	 */
+	@Override
+	public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+		final long deadline = System.nanoTime() + unit.toNanos(timeout);
+		while(!isTerminated()) {
+			final long remaining = deadline - System.nanoTime();
+			if(remaining <= 0) return false;
+			final Thread[] running = getThreads();
+			if(running.length > 0 && running[0] != Thread.currentThread())
+				TimeUnit.NANOSECONDS.timedJoin(running[0], remaining);
+			else TimeUnit.NANOSECONDS.sleep(Math.min(remaining, TimeUnit.MILLISECONDS.toNanos(10)));
+		} return true;
 	}
 	
 	@Override
 	public String toString() {
 		return new StringBuilder(getClass().getSimpleName()).append("{coreSize=").append(coreSize).
-				append("; maxSize=").append(maxSize).append("; threads=").append(threads.size()).
-				append(" (active=").append(getActiveCount()).append(" free=").append(free.get()).
+				append("; maxSize=").append(maxSize).append("; threads=").append(getPoolSize()).
+				append(" (active=").append(getActiveCount()).append(" free=").append(getWaitingCount()).
 				append("); pendingTasks=").append(tasks.size()).append("}").toString();
 	}
 }
@@ -0,0 +1,52 @@
+package com.lupcode.Utilities.executors;
+
+/**
+ * Management interface of a {@link DynamicThreadPoolExecutor} that gets registered
+ * at the platform MBean server by {@link DynamicThreadPoolExecutor#registerMBean(String)}.
+ * Times are in nanoseconds and require task timing to be enabled
+ * @author LupCode.com (Luca Vogels)
+ * @since 2026-10-16
+ */
+public interface ExecutorMXBean {
+
+	public abstract int getPoolSize();
+
+	public abstract int getActiveCount();
+
+	public abstract int getCorePoolSize();
+
+	public abstract int getMaximumPoolSize();
+
+	public abstract int getPendingTasks();
+
+	public abstract int getPeakQueueDepth();
+
+	public abstract long getCompletedTaskCount();
+
+	public abstract long getFailedTaskCount();
+
+	public abstract long getSpawnedThreadCount();
+
+	public abstract long getRetiredThreadCount();
+
+	public abstract double getQueueWaitMean();
+
+	public abstract long getQueueWaitP99();
+
+	public abstract long getQueueWaitMax();
+
+	public abstract double getExecutionTimeMean();
+
+	public abstract long getExecutionTimeP99();
+
+	public abstract long getExecutionTimeMax();
+
+	public abstract boolean isTaskTiming();
+
+	public abstract void setTaskTiming(boolean taskTiming);
+
+	/**
+	 * Resets the histograms and the peak queue depth
+	 */
+	public abstract void resetMetrics();
+}
@@ -0,0 +1,127 @@
+package com.lupcode.Utilities.executors;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.lupcode.Utilities.math.LatencyHistogram;
+
+/**
+ * Live metrics of a {@link DynamicThreadPoolExecutor} that get recorded by its threads.
+ * Counters are always recorded, histograms of the queue wait and execution time
+ * as well as the peak queue depth only if task timing is enabled with
+ * {@link DynamicThreadPoolExecutor#setTaskTiming(boolean)}
+ * @author LupCode.com (Luca Vogels)
+ * @since 2026-10-16
+ */
+public class ExecutorMetrics {
+
+	protected final LongAdder completed = new LongAdder(), failed = new LongAdder();
+	protected final LongAdder spawned = new LongAdder(), retired = new LongAdder();
+	protected final AtomicInteger peakQueueDepth = new AtomicInteger(0);
+	protected final LatencyHistogram queueWait = new LatencyHistogram(), executionTime = new LatencyHistogram();
+
+	/**
+	 * Records a task that has been executed
+	 * @param queueWait Nanoseconds the task waited in the queue (negative if unknown)
+	 * @param executionTime Nanoseconds the task ran (negative if unknown)
+	 * @param failed True if the task threw an exception
+	 */
+	protected void recordTask(long queueWait, long executionTime, boolean failed) {
+		completed.increment();
+		if(failed) this.failed.increment();
+		if(queueWait >= 0) this.queueWait.record(queueWait);
+		if(executionTime >= 0) this.executionTime.record(executionTime);
+	}
+
+	/**
+	 * Records that a thread has been created
+	 */
+	protected void recordSpawn() {
+		spawned.increment();
+	}
+
+	/**
+	 * Records that a thread has exited
+	 */
+	protected void recordRetire() {
+		retired.increment();
+	}
+
+	/**
+	 * Records the current amount of queued tasks
+	 * @param depth Amount of queued tasks
+	 */
+	protected void recordQueueDepth(int depth) {
+		int peak;
+		while(depth > (peak = peakQueueDepth.get()) && !peakQueueDepth.compareAndSet(peak, depth));
+	}
+
+	/**
+	 * @return Amount of executed tasks (including failed ones)
+	 */
+	public long getCompletedTaskCount() {
+		return completed.sum();
+	}
+
+	/**
+	 * @return Amount of executed tasks that threw an exception
+	 */
+	public long getFailedTaskCount() {
+		return failed.sum();
+	}
+
+	/**
+	 * @return Amount of threads that have been created
+	 */
+	public long getSpawnedThreadCount() {
+		return spawned.sum();
+	}
+
+	/**
+	 * @return Amount of threads that have exited
+	 */
+	public long getRetiredThreadCount() {
+		return retired.sum();
+	}
+
+	/**
+	 * @return Highest amount of queued tasks while task timing has been enabled
+	 */
+	public int getPeakQueueDepth() {
+		return peakQueueDepth.get();
+	}
+
+	/**
+	 * Returns the histogram of how long tasks waited in the queue before they
+	 * got executed. For scheduled tasks the time since they became due is recorded
+	 * @return Live histogram in nanoseconds
+	 */
+	public LatencyHistogram getQueueWait() {
+		return queueWait;
+	}
+
+	/**
+	 * @return Live histogram of how long tasks ran in nanoseconds
+	 */
+	public LatencyHistogram getExecutionTime() {
+		return executionTime;
+	}
+
+	/**
+	 * Resets the histograms and the peak queue depth.
+	 * Counters keep their values so rates can be calculated from snapshots
+	 */
+	public void reset() {
+		queueWait.reset();
+		executionTime.reset();
+		peakQueueDepth.set(0);
+	}
+
+	@Override
+	public String toString() {
+		return new StringBuilder(getClass().getSimpleName()).append("{completed=").append(completed.sum()).
+				append("; failed=").append(failed.sum()).append("; spawned=").append(spawned.sum()).
+				append("; retired=").append(retired.sum()).append("; peakQueueDepth=").append(peakQueueDepth.get()).
+				append("; queueWait=").append(queueWait).append("; executionTime=").append(executionTime).append("}").toString();
+	}
+}
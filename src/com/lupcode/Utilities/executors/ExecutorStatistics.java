@@ -0,0 +1,160 @@
+package com.lupcode.Utilities.executors;
+
+import com.lupcode.Utilities.math.LatencyHistogram;
+
+/**
+ * Immutable snapshot of the metrics of a {@link DynamicThreadPoolExecutor}
+ * taken by {@link DynamicThreadPoolExecutor#getStatistics()}
+ * @author LupCode.com (Luca Vogels)
+ * @since 2026-10-16
+ */
+public class ExecutorStatistics {
+
+	protected final long time, completed, failed, spawned, retired;
+	protected final int poolSize, activeCount, pendingTasks, peakQueueDepth;
+	protected final LatencyHistogram queueWait, executionTime;
+
+	/**
+	 * @param time System time in milliseconds when snapshot has been taken
+	 * @param poolSize Amount of threads
+	 * @param activeCount Amount of threads executing tasks
+	 * @param pendingTasks Amount of tasks waiting for execution
+	 * @param peakQueueDepth Highest amount of queued tasks
+	 * @param completed Amount of executed tasks
+	 * @param failed Amount of executed tasks that threw an exception
+	 * @param spawned Amount of threads that have been created
+	 * @param retired Amount of threads that have exited
+	 * @param queueWait Histogram of the queue wait in nanoseconds (must not change anymore)
+	 * @param executionTime Histogram of the execution time in nanoseconds (must not change anymore)
+	 */
+	public ExecutorStatistics(long time, int poolSize, int activeCount, int pendingTasks, int peakQueueDepth,
+			long completed, long failed, long spawned, long retired, LatencyHistogram queueWait, LatencyHistogram executionTime) {
+		this.time = time;
+		this.poolSize = poolSize;
+		this.activeCount = activeCount;
+		this.pendingTasks = pendingTasks;
+		this.peakQueueDepth = peakQueueDepth;
+		this.completed = completed;
+		this.failed = failed;
+		this.spawned = spawned;
+		this.retired = retired;
+		this.queueWait = queueWait;
+		this.executionTime = executionTime;
+	}
+
+	/**
+	 * @return System time in milliseconds when snapshot has been taken
+	 */
+	public long getTime() {
+		return time;
+	}
+
+	/**
+	 * @return Amount of threads
+	 */
+	public int getPoolSize() {
+		return poolSize;
+	}
+
+	/**
+	 * @return Amount of threads executing tasks
+	 */
+	public int getActiveCount() {
+		return activeCount;
+	}
+
+	/**
+	 * @return Share of threads executing tasks (between 0 and 1)
+	 */
+	public double getUtilization() {
+		return poolSize > 0 ? Math.min(1, (double)activeCount / poolSize) : 0;
+	}
+
+	/**
+	 * Returns the share of the available thread time that has been spent executing tasks
+	 * since a previous snapshot. Requires task timing to be enabled
+	 * @param previous Earlier snapshot of the same executor
+	 * @return Share of thread time spent executing tasks (between 0 and 1)
+	 */
+	public double getUtilizationSince(ExecutorStatistics previous) {
+		final long elapsed = (time - previous.time) * 1000000L;
+		final double threads = (poolSize + previous.poolSize) / 2.0;
+		if(elapsed <= 0 || threads <= 0) return getUtilization();
+		return Math.max(0, Math.min(1, (executionTime.getSum() - previous.executionTime.getSum()) / (elapsed * threads)));
+	}
+
+	/**
+	 * @return Amount of tasks waiting for execution
+	 */
+	public int getPendingTasks() {
+		return pendingTasks;
+	}
+
+	/**
+	 * @return Highest amount of queued tasks while task timing has been enabled
+	 */
+	public int getPeakQueueDepth() {
+		return peakQueueDepth;
+	}
+
+	/**
+	 * @return Amount of executed tasks (including failed ones)
+	 */
+	public long getCompletedTaskCount() {
+		return completed;
+	}
+
+	/**
+	 * @return Amount of executed tasks that threw an exception
+	 */
+	public long getFailedTaskCount() {
+		return failed;
+	}
+
+	/**
+	 * @return Amount of threads that have been created
+	 */
+	public long getSpawnedThreadCount() {
+		return spawned;
+	}
+
+	/**
+	 * @return Amount of threads that have exited
+	 */
+	public long getRetiredThreadCount() {
+		return retired;
+	}
+
+	/**
+	 * @return Histogram of how long tasks waited in the queue in nanoseconds
+	 */
+	public LatencyHistogram getQueueWait() {
+		return queueWait;
+	}
+
+	/**
+	 * @return Histogram of how long tasks ran in nanoseconds
+	 */
+	public LatencyHistogram getExecutionTime() {
+		return executionTime;
+	}
+
+	/**
+	 * @param previous Earlier snapshot of the same executor
+	 * @return Executed tasks per second since the previous snapshot
+	 */
+	public double getCompletionRate(ExecutorStatistics previous) {
+		final long duration = time - previous.time;
+		return duration > 0 ? (completed - previous.completed) * 1000.0 / duration : 0;
+	}
+
+	@Override
+	public String toString() {
+		return new StringBuilder(getClass().getSimpleName()).append("{time=").append(time).
+				append("; threads=").append(poolSize).append(" (active=").append(activeCount).
+				append("); pendingTasks=").append(pendingTasks).append(" (peak=").append(peakQueueDepth).
+				append("); completed=").append(completed).append(" (failed=").append(failed).
+				append("); spawned=").append(spawned).append("; retired=").append(retired).
+				append("; queueWait=").append(queueWait).append("; executionTime=").append(executionTime).append("}").toString();
+	}
+}
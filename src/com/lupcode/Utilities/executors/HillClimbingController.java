@@ -0,0 +1,321 @@
+package com.lupcode.Utilities.executors;
+
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import com.lupcode.Utilities.math.LatencyHistogram;
+
+/**
+ * Adapts the concurrency limit of a {@link DynamicThreadPoolExecutor} to the
+ * throughput it achieves (hill climbing). Periodically samples how many tasks completed
+ * per second and the queue latency, which is the queue wait measured by the executor 
+ * if task timing is enabled or else estimated from the pending tasks (Little's law).
+ * While tasks are waiting the limit gets moved in the direction that increased the
+ * throughput and gets reversed once the throughput drops, so CPU bound tasks do not
+ * oversubscribe the cores and blocking tasks do not starve the queue.
+ * Threads are not given up while the queue latency keeps growing and more threads get 
+ * added while the latency exceeds the target latency (if set) as long as they do not 
+ * reduce the throughput. The limit stays between the core and the maximum pool size.
+ * The decisions are exposed as metrics by the getters of this controller
+ * @author LupCode.com (Luca Vogels)
+ * @since 2026-10-16
+ */
+public class HillClimbingController implements Runnable {
+
+	public static long DEFAULT_INTERVAL = 500;
+	public static double DEFAULT_THRESHOLD = 0.05;
+
+	/**
+	 * Decision of a sample
+	 */
+	public static enum Decision {
+		/** Concurrency limit has been increased */
+		INCREASE,
+		/** Concurrency limit has been decreased */
+		DECREASE,
+		/** Concurrency limit has not been changed */
+		HOLD
+	}
+
+	private static DynamicScheduledThreadPoolExecutor shared = null;
+
+	/**
+	 * Returns the executor that runs all controllers that have been created without an executor.
+	 * It uses a single daemon thread that terminates if no controllers are running
+	 * @return Shared executor of the controllers
+	 */
+	public static synchronized DynamicScheduledThreadPoolExecutor getSharedScheduler() {
+		if(shared == null) {
+			shared = new DynamicScheduledThreadPoolExecutor(0, 1, 60, TimeUnit.SECONDS);
+			shared.setDaemon(true);
+		} return shared;
+	}
+
+	protected final DynamicThreadPoolExecutor executor;
+	protected final DynamicScheduledThreadPoolExecutor scheduler;
+	protected final long interval;
+	protected volatile int stepSize = 1;
+	protected volatile double threshold = DEFAULT_THRESHOLD, targetLatency = 0;
+	protected ScheduledFuture<?> future = null;
+
+	protected volatile int target = 0, direction = 1;
+	protected volatile double throughput = 0, latency = 0, baseline = -1;
+	protected volatile Decision lastDecision = Decision.HOLD;
+	protected volatile long increases = 0, decreases = 0, holds = 0;
+	protected long lastCompleted, lastTime, lastWaitCount, lastWaitSum;
+
+	/**
+	 * Creates a controller that samples every {@link HillClimbingController#DEFAULT_INTERVAL}
+	 * milliseconds on the {@link HillClimbingController#getSharedScheduler()}
+	 * @param executor Executor whose concurrency limit should be controlled
+	 * @throws NullPointerException if executor is null
+	 */
+	public HillClimbingController(DynamicThreadPoolExecutor executor) throws NullPointerException {
+		this(executor, getSharedScheduler(), DEFAULT_INTERVAL);
+	}
+
+	/**
+	 * Creates a controller
+	 * @param executor Executor whose concurrency limit should be controlled
+	 * @param scheduler Executor the samples are taken on
+	 * @param interval Milliseconds between two samples
+	 * @throws NullPointerException if an executor is null
+	 */
+	public HillClimbingController(DynamicThreadPoolExecutor executor, DynamicScheduledThreadPoolExecutor scheduler, long interval) throws NullPointerException {
+		if(executor == null || scheduler == null) throw new NullPointerException("Executors cannot be null");
+		this.executor = executor;
+		this.scheduler = scheduler;
+		this.interval = Math.max(1, interval);
+	}
+
+	/**
+	 * @return Executor whose concurrency limit gets controlled
+	 */
+	public DynamicThreadPoolExecutor getExecutor() {
+		return executor;
+	}
+
+	/**
+	 * @return Milliseconds between two samples
+	 */
+	public long getInterval() {
+		return interval;
+	}
+
+	/**
+	 * @return Amount of threads the limit gets changed by per decision
+	 */
+	public int getStepSize() {
+		return stepSize;
+	}
+
+	/**
+	 * Sets by how many threads the limit gets changed per decision
+	 * @param stepSize Amount of threads per decision
+	 */
+	public void setStepSize(int stepSize) {
+		this.stepSize = Math.max(1, stepSize);
+	}
+
+	/**
+	 * Returns the relative change of the throughput below which
+	 * the change is considered to be noise (e.g. 0.05 for 5%)
+	 * @return Relative throughput change considered as noise
+	 */
+	public double getThreshold() {
+		return threshold;
+	}
+
+	/**
+	 * Sets the relative change of the throughput below which
+	 * the change is considered to be noise (e.g. 0.05 for 5%)
+	 * @param threshold Relative throughput change considered as noise
+	 */
+	public void setThreshold(double threshold) {
+		this.threshold = Math.max(0, threshold);
+	}
+
+	/**
+	 * @return Queue latency in milliseconds above which more threads get added 
+	 * as long as they do not reduce the throughput (zero or negative for none)
+	 */
+	public double getTargetLatency() {
+		return targetLatency;
+	}
+
+	/**
+	 * Sets the queue latency above which more threads get added as long as 
+	 * they do not reduce the throughput. Works best if task timing of the 
+	 * executor is enabled so the queue wait gets measured instead of estimated
+	 * @param targetLatency Queue latency in milliseconds (zero or negative for none)
+	 */
+	public void setTargetLatency(double targetLatency) {
+		this.targetLatency = targetLatency;
+	}
+
+	/**
+	 * @return True if the controller is sampling
+	 */
+	public synchronized boolean isRunning() {
+		return future != null;
+	}
+
+	/**
+	 * Starts sampling and controlling the concurrency limit
+	 * beginning with the current amount of threads
+	 */
+	public synchronized void start() {
+		if(future != null) return;
+		target = clamp(executor.getPoolSize());
+		direction = 1;
+		baseline = -1;
+		lastCompleted = executor.getCompletedTaskCount();
+		lastTime = System.nanoTime();
+		lastWaitCount = executor.getMetrics().getQueueWait().getCount();
+		lastWaitSum = executor.getMetrics().getQueueWait().getSum();
+		latency = 0;
+		executor.setConcurrencyLimit(target);
+		future = scheduler.scheduleWithFixedDelay(this, interval, interval, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Stops sampling and removes the concurrency limit from the executor
+	 */
+	public synchronized void stop() {
+		if(future == null) return;
+		future.cancel(false);
+		future = null;
+		executor.setConcurrencyLimit(0);
+	}
+
+	/**
+	 * Bounds a limit by the core and maximum pool size
+	 * @param limit Limit that should be bounded
+	 * @return Bounded limit
+	 */
+	protected int clamp(int limit) {
+		final int maxSize = executor.getMaximumPoolSize();
+		limit = Math.max(limit, Math.max(1, executor.getCorePoolSize()));
+		return maxSize > 0 ? Math.min(limit, maxSize) : limit;
+	}
+
+	/**
+	 * Takes a sample and adjusts the concurrency limit
+	 */
+	@Override
+	public synchronized void run() {
+		if(future == null) return;
+		final long now = System.nanoTime(), completed = executor.getCompletedTaskCount();
+		final long elapsed = Math.max(1, now - lastTime);
+		final int pending = executor.getPendingTasks();
+		final double throughput = (completed - lastCompleted) * 1e9 / elapsed;
+		lastCompleted = completed;
+		lastTime = now;
+		final double lastLatency = this.latency, latency = sampleLatency(pending, throughput);
+		this.throughput = throughput;
+		this.latency = latency;
+
+		final int current = clamp(target);
+		int next = current;
+		if(pending == 0) {
+			// throughput is limited by the submitted tasks, not by the threads
+			baseline = -1;
+		} else {
+			final double baseline = this.baseline, targetLatency = this.targetLatency;
+			final boolean worse = baseline >= 0 && throughput < baseline * (1 - threshold);
+			if(baseline < 0) direction = 1; // tasks are waiting so try more threads first
+			else if(worse) direction = -direction; // last move made it worse
+			else if(throughput <= baseline * (1 + threshold)) direction = -1; // no gain so save threads
+			int move = direction;
+			if(targetLatency > 0 && latency > targetLatency && !worse) move = direction = 1; // drain the queue faster
+			else if(move < 0 && !worse && lastLatency > 0 && latency > lastLatency * (1 + threshold)) move = 0; // backlog is growing
+			next = clamp(current + move * stepSize);
+			this.baseline = throughput;
+		}
+
+		if(next > current) { lastDecision = Decision.INCREASE; increases++; }
+		else if(next < current) { lastDecision = Decision.DECREASE; decreases++; }
+		else { lastDecision = Decision.HOLD; holds++; }
+		target = next;
+		if(next != executor.getConcurrencyLimit()) executor.setConcurrencyLimit(next);
+	}
+
+	/**
+	 * Returns the queue latency of the last sample. The mean queue wait measured 
+	 * by the executor (if task timing is enabled) lags behind because it only 
+	 * contains tasks that already started, so the higher of it and the estimate 
+	 * from the pending tasks (Little's law) gets used
+	 * @param pending Amount of tasks that are waiting
+	 * @param throughput Completed tasks per second
+	 * @return Queue latency in milliseconds
+	 */
+	protected double sampleLatency(int pending, double throughput) {
+		final LatencyHistogram wait = executor.getMetrics().getQueueWait();
+		final long count = wait.getCount(), sum = wait.getSum();
+		final long waited = count - lastWaitCount, waitedSum = sum - lastWaitSum;
+		lastWaitCount = count;
+		lastWaitSum = sum;
+		final double estimated = pending == 0 ? 0 : (throughput > 0 ? pending * 1000.0 / throughput : Double.POSITIVE_INFINITY);
+		if(waited <= 0 || waitedSum < 0) return estimated; // timing disabled or metrics got reset
+		return Math.max(estimated, waitedSum / 1e6 / waited);
+	}
+
+	/**
+	 * @return Current concurrency limit decided by this controller
+	 */
+	public int getTarget() {
+		return target;
+	}
+
+	/**
+	 * @return Completed tasks per second during the last sample
+	 */
+	public double getThroughput() {
+		return throughput;
+	}
+
+	/**
+	 * Returns how long tasks waited in the queue during the last sample
+	 * (see {@link HillClimbingController#sampleLatency(int, double)})
+	 * @return Queue latency in milliseconds
+	 */
+	public double getQueueLatency() {
+		return latency;
+	}
+
+	/**
+	 * @return Decision of the last sample
+	 */
+	public Decision getLastDecision() {
+		return lastDecision;
+	}
+
+	/**
+	 * @return How often the concurrency limit has been increased
+	 */
+	public long getIncreaseCount() {
+		return increases;
+	}
+
+	/**
+	 * @return How often the concurrency limit has been decreased
+	 */
+	public long getDecreaseCount() {
+		return decreases;
+	}
+
+	/**
+	 * @return How often the concurrency limit has been kept
+	 */
+	public long getHoldCount() {
+		return holds;
+	}
+
+	@Override
+	public String toString() {
+		return new StringBuilder(getClass().getSimpleName()).append("{target=").append(target).
+				append("; throughput=").append(String.format("%.1f", throughput)).append("/s; latency=").append(String.format("%.1f", latency)).
+				append("ms; decision=").append(lastDecision).append(" (+").append(increases).append(" -").append(decreases).
+				append(" =").append(holds).append("); executor=").append(executor).append("}").toString();
+	}
+}
@@ -0,0 +1,228 @@
+package com.lupcode.Utilities.executors;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Executes tasks of the same key one after another in the order they have been
+ * submitted (e.g. per connection or per account) while tasks of different keys
+ * run in parallel on the threads of the underlying executor.
+ * Tasks wait in a lane per key instead of blocking threads, lanes of
+ * keys without pending tasks get removed without locking
+ * @author LupCode.com (Luca Vogels)
+ * @since 2026-10-16
+ * @param <K> Key that decides which tasks get executed in order
+ */
+public class KeyedSerialExecutor<K> {
+
+	public static int DEFAULT_BATCH_SIZE = 16;
+
+	/** Value of {@link Lane#pending} once the lane got removed */
+	protected static final int DEAD = -1;
+
+	/**
+	 * Tasks of a key. A task reserves its slot in the pending count before it gets
+	 * added to the queue, the thread that increments the pending count from zero
+	 * submits the lane to the executor
+	 */
+	protected class Lane implements Runnable {
+		protected final K key;
+		protected final ConcurrentLinkedQueue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+		protected final AtomicInteger pending = new AtomicInteger(0);
+
+		protected Lane(K key) {
+			this.key = key;
+		}
+
+		@Override
+		public void run() {
+			Throwable escaped = null; // gets rethrown once the lane is done or runs on another thread
+			while(true) {
+				for(int i=0; i<batchSize; i++) {
+					Runnable task;
+					while((task = tasks.poll()) == null)
+						Thread.onSpinWait(); // slot reserved but task not added yet
+					try {
+						task.run();
+					} catch (Exception ex) {
+						try {
+							onTaskFailure(key, task, ex);
+						} catch (Throwable t) { if(escaped == null) escaped = t; }
+					} catch (Throwable t) { if(escaped == null) escaped = t; } // errors must not stall the key
+					if(pending.decrementAndGet() == 0) {
+						release();
+						rethrow(escaped);
+						return;
+					}
+					if(escaped != null) break; // leave this thread as soon as possible
+				}
+				try {
+					submit(this); // give other keys a chance before continuing
+				} catch (RuntimeException ex) { continue; } // keep running on this thread
+				rethrow(escaped);
+				return;
+			}
+		}
+		
+		/**
+		 * Reserves a slot for a task that gets added to the queue afterwards
+		 * @return Previous pending count or {@link KeyedSerialExecutor#DEAD} if the lane got removed
+		 */
+		protected int reserve() {
+			int pending;
+			do {
+				pending = this.pending.get();
+			} while(pending != DEAD && !this.pending.compareAndSet(pending, pending + 1));
+			return pending;
+		}
+		
+		/**
+		 * Removes the lane after its pending count dropped to zero. 
+		 * Tasks that increment the count before the lane is dead submit it again
+		 */
+		protected void release() {
+			if(pending.compareAndSet(0, DEAD)) lanes.remove(key, this);
+		}
+	}
+
+	protected final Executor executor;
+	protected final int batchSize;
+	protected final ConcurrentHashMap<K, Lane> lanes = new ConcurrentHashMap<>();
+
+	/**
+	 * Creates a keyed executor that runs up to {@link KeyedSerialExecutor#DEFAULT_BATCH_SIZE}
+	 * tasks of a key before other keys get the thread
+	 * @param executor Executor that runs the tasks
+	 * @throws NullPointerException if executor is null
+	 */
+	public KeyedSerialExecutor(Executor executor) throws NullPointerException {
+		this(executor, DEFAULT_BATCH_SIZE);
+	}
+
+	/**
+	 * Creates a keyed executor
+	 * @param executor Executor that runs the tasks
+	 * @param batchSize How many tasks of a key run on a thread before other keys get the thread
+	 * @throws NullPointerException if executor is null
+	 */
+	public KeyedSerialExecutor(Executor executor, int batchSize) throws NullPointerException {
+		if(executor == null) throw new NullPointerException("Executor cannot be null");
+		this.executor = executor;
+		this.batchSize = Math.max(1, batchSize);
+	}
+
+	/**
+	 * @return Executor that runs the tasks
+	 */
+	public Executor getExecutor() {
+		return executor;
+	}
+
+	/**
+	 * @return How many tasks of a key run on a thread before other keys get the thread
+	 */
+	public int getBatchSize() {
+		return batchSize;
+	}
+
+	/**
+	 * Returns how many keys currently have pending or running tasks
+	 * @return Amount of active keys
+	 */
+	public int getActiveKeyCount() {
+		return lanes.size();
+	}
+
+	/**
+	 * Returns how many tasks of a key are pending or running
+	 * @param key Key whose tasks should be counted
+	 * @return Amount of tasks of the key
+	 */
+	public int getPendingTasks(K key) {
+		Lane lane = lanes.get(key);
+		return lane != null ? Math.max(0, lane.pending.get()) : 0;
+	}
+
+	/**
+	 * Executes a task after all previously submitted tasks
+	 * of the same key have completed
+	 * @param key Key the task belongs to
+	 * @param command Task that should be executed
+	 * @throws NullPointerException if key or task is null
+	 */
+	public void execute(K key, Runnable command) throws NullPointerException {
+		if(key == null || command == null) throw new NullPointerException("Key and runnable cannot be null");
+		while(true) {
+			Lane lane = lanes.computeIfAbsent(key, Lane::new);
+			final int pending = lane.reserve();
+			if(pending == DEAD) { // lane got removed in the meantime
+				lanes.remove(key, lane);
+				continue;
+			}
+			lane.tasks.offer(command);
+			if(pending == 0) {
+				try {
+					submit(lane);
+				} catch (RuntimeException ex) {
+					// lane does not run so task gets removed again
+					lane.tasks.remove(command);
+					if(lane.pending.decrementAndGet() > 0) lane.run(); // tasks added in the meantime must not get stuck
+					else lane.release();
+					throw ex;
+				}
+			}
+			return;
+		}
+	}
+
+	/**
+	 * Returns an {@link Executor} that executes all tasks with the given key
+	 * @param key Key the tasks belong to
+	 * @return Executor for the key
+	 * @throws NullPointerException if key is null
+	 */
+	public Executor forKey(K key) throws NullPointerException {
+		if(key == null) throw new NullPointerException("Key cannot be null");
+		return command -> execute(key, command);
+	}
+
+	/**
+	 * Gets called on the thread of the lane if a task threw an exception, 
+	 * afterwards the next task of the key gets executed. Errors are not passed 
+	 * to this hook, they get rethrown once the remaining tasks of the key have been 
+	 * handed to another thread. Does nothing by default
+	 * @param key Key the task belongs to
+	 * @param task Task that failed
+	 * @param error Exception thrown by the task
+	 */
+	protected void onTaskFailure(K key, Runnable task, Exception error) {
+		
+	}
+
+	/**
+	 * Throws the given throwable if it is not null
+	 * @param t Error or runtime exception (other throwables get wrapped)
+	 */
+	protected static void rethrow(Throwable t) {
+		if(t == null) return;
+		if(t instanceof Error) throw (Error) t;
+		if(t instanceof RuntimeException) throw (RuntimeException) t;
+		throw new RuntimeException(t);
+	}
+
+	/**
+	 * Submits a lane to the executor
+	 * @param lane Lane that should run
+	 */
+	protected void submit(Lane lane) {
+		executor.execute(lane);
+	}
+
+	@Override
+	public String toString() {
+		return new StringBuilder(getClass().getSimpleName()).append("{activeKeys=").append(lanes.size()).
+				append("; batchSize=").append(batchSize).append("; executor=").append(executor).append("}").toString();
+	}
+}
@@ -0,0 +1,26 @@
+package com.lupcode.Utilities.executors;
+
+/**
+ * Gets notified when the amount of pending tasks of a {@link DynamicThreadPoolExecutor} 
+ * reaches the high watermark and when it drops back to the low watermark, 
+ * so producers can shed load before the queue is full
+ * @author LupCode.com (Luca Vogels)
+ * @since 2026-10-16
+ */
+public interface QueueWatermarkListener {
+
+	/**
+	 * Gets called once when the amount of pending tasks reaches the high watermark
+	 * @param executor Executor whose queue reached the high watermark
+	 * @param pending Amount of pending tasks
+	 */
+	public abstract void onHighWatermark(DynamicThreadPoolExecutor executor, int pending);
+	
+	/**
+	 * Gets called once when the amount of pending tasks dropped 
+	 * to the low watermark after the high watermark had been reached
+	 * @param executor Executor whose queue dropped to the low watermark
+	 * @param pending Amount of pending tasks
+	 */
+	public abstract void onLowWatermark(DynamicThreadPoolExecutor executor, int pending);
+}
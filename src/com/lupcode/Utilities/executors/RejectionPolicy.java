@@ -0,0 +1,68 @@
+package com.lupcode.Utilities.executors;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Policy that decides what happens with a task that does not fit into 
+ * the task queue of a {@link DynamicThreadPoolExecutor} because its capacity is reached
+ * @author LupCode.com (Luca Vogels)
+ * @since 2026-10-16
+ */
+public interface RejectionPolicy {
+
+	/**
+	 * Throws a {@link RejectedExecutionException}
+	 */
+	public static final RejectionPolicy FAIL_FAST = (task, executor) -> {
+		throw new RejectedExecutionException("Task queue of "+executor.getClass().getSimpleName()+" is full");
+	};
+	
+	/**
+	 * Runs the task in the thread that tried to execute it, 
+	 * which slows down the producer until the executor caught up
+	 */
+	public static final RejectionPolicy CALLER_RUNS = (task, executor) -> {
+		task.run();
+	};
+	
+	/**
+	 * Removes the oldest pending task without executing it and queues the task instead
+	 */
+	public static final RejectionPolicy DROP_OLDEST = (task, executor) -> {
+		final BlockingQueue<Runnable> queue = executor.getQueue();
+		while(!queue.offer(task))
+			if(queue.poll() == null) // only tasks scheduled for later
+				throw new RejectedExecutionException("Task queue of "+executor.getClass().getSimpleName()+" is full");
+	};
+	
+	/**
+	 * Creates a policy that blocks the thread that tries to execute a task 
+	 * until space in the queue becomes available
+	 * @param timeout How long to wait at maximum before a {@link RejectedExecutionException} gets thrown
+	 * @param unit Time unit of the timeout
+	 * @return Policy that blocks
+	 */
+	public static RejectionPolicy block(long timeout, TimeUnit unit) {
+		final long nanos = unit.toNanos(timeout);
+		return (task, executor) -> {
+			try {
+				if(executor.getQueue().offer(task, nanos, TimeUnit.NANOSECONDS)) return;
+			} catch (InterruptedException ex) {
+				Thread.currentThread().interrupt();
+				throw new RejectedExecutionException("Interrupted while waiting for space in task queue", ex);
+			}
+			throw new RejectedExecutionException("Task queue of "+executor.getClass().getSimpleName()+" is still full after waiting");
+		};
+	}
+	
+	/**
+	 * Handles a task that does not fit into the task queue. 
+	 * The policy may run the task, queue it after making space or throw an exception
+	 * @param task Task that could not be queued
+	 * @param executor Executor whose queue is full
+	 * @throws RejectedExecutionException if task should not be executed
+	 */
+	public abstract void reject(Runnable task, DynamicThreadPoolExecutor executor) throws RejectedExecutionException;
+}
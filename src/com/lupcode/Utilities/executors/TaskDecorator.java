@@ -0,0 +1,30 @@
+package com.lupcode.Utilities.executors;
+
+/**
+ * Hooks that get called by the threads of a {@link DynamicThreadPoolExecutor}
+ * around every task (e.g. to set up a logging context or to trace slow tasks).
+ * Hooks run on the thread that executes the task and should be fast
+ * @author LupCode.com (Luca Vogels)
+ * @since 2026-10-16
+ */
+public interface TaskDecorator {
+
+	/**
+	 * Gets called before a task gets executed
+	 * @param thread Thread that executes the task
+	 * @param task Task that gets executed
+	 */
+	public default void beforeExecute(Thread thread, Runnable task) {
+
+	}
+
+	/**
+	 * Gets called after a task has been executed
+	 * @param task Task that has been executed
+	 * @param error Exception thrown by the task or null if it completed normally
+	 * @param executionTime Nanoseconds the task ran (negative if task timing is disabled)
+	 */
+	public default void afterExecute(Runnable task, Throwable error, long executionTime) {
+
+	}
+}
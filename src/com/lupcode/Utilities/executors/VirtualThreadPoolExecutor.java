@@ -0,0 +1,69 @@
+package com.lupcode.Utilities.executors;
+
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link DynamicThreadPoolExecutor} that runs its workers on virtual threads so 
+ * blocking tasks (e.g. I/O) do not occupy an operating system thread while they wait. 
+ * The maximum size limits how many tasks run concurrently instead of how many 
+ * platform threads get created, so it can be set to many thousands. 
+ * If the Java runtime does not support virtual threads (before Java 21) 
+ * platform threads get used instead
+ * @author LupCode.com (Luca Vogels)
+ * @since 2026-10-16
+ */
+public class VirtualThreadPoolExecutor extends DynamicThreadPoolExecutor {
+
+	private static final ThreadFactory VIRTUAL_THREAD_FACTORY;
+	static {
+		ThreadFactory factory = null;
+		try {
+			Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+			factory = (ThreadFactory) Class.forName("java.lang.Thread$Builder").getMethod("factory").invoke(builder);
+		} catch (Throwable ex) {} // not supported by runtime
+		VIRTUAL_THREAD_FACTORY = factory;
+	}
+
+	/**
+	 * Returns true if the Java runtime supports virtual threads. 
+	 * Otherwise platform threads get used
+	 * @return True if virtual threads are supported
+	 */
+	public static boolean isVirtualThreadSupported() {
+		return VIRTUAL_THREAD_FACTORY != null;
+	}
+
+	/**
+	 * Creates a dynamic thread pool executor that uses virtual threads
+	 * @param coreSize Amount of threads that will be kept alive even if no more tasks are available
+	 * @param maxSize Maximum of tasks that can run concurrently (zero or negative for no limit) 
+	 * @param keepAlive Time how long threads should wait for new tasks before they get destructed
+	 * @param timeUnit Time unit for waiting for new tasks
+	 */
+	public VirtualThreadPoolExecutor(int coreSize, int maxSize, long keepAlive, TimeUnit timeUnit) {
+		super(coreSize, maxSize, keepAlive, timeUnit);
+	}
+
+	/**
+	 * Virtual threads are always daemon threads
+	 * @return True if virtual threads are supported or platform threads are daemon threads
+	 */
+	@Override
+	public boolean isDaemon() {
+		return VIRTUAL_THREAD_FACTORY != null || daemon;
+	}
+
+	@Override
+	protected Thread newThread(Runnable worker) {
+		if(VIRTUAL_THREAD_FACTORY == null) return super.newThread(worker);
+		return VIRTUAL_THREAD_FACTORY.newThread(worker);
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder(super.toString());
+		sb.setLength(sb.length()-1);
+		return sb.append("; virtual=").append(VIRTUAL_THREAD_FACTORY != null).append("}").toString();
+	}
+}
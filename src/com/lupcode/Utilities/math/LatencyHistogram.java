@@ -0,0 +1,150 @@
+package com.lupcode.Utilities.math;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Histogram of non-negative values (e.g. nanoseconds) that can be recorded concurrently
+ * without locking. Values get counted in buckets whose size grows exponentially
+ * (four buckets per power of two) so percentiles have a relative error below 25%
+ * while the histogram has a fixed size independent of the recorded values
+ * @author LupCode.com (Luca Vogels)
+ * @since 2026-10-16
+ */
+public class LatencyHistogram {
+
+	protected static final int SUB_BITS = 2, SUB_BUCKETS = 1 << SUB_BITS, BUCKETS = 64 * SUB_BUCKETS;
+
+	protected final AtomicLongArray buckets;
+	protected final LongAdder sum = new LongAdder();
+	protected final AtomicLong max = new AtomicLong(0);
+
+	/**
+	 * Creates an empty histogram
+	 */
+	public LatencyHistogram() {
+		this.buckets = new AtomicLongArray(BUCKETS);
+	}
+
+	/**
+	 * Creates a copy of a histogram
+	 * @param histogram Histogram that should be copied
+	 */
+	protected LatencyHistogram(LatencyHistogram histogram) {
+		final long[] counts = new long[BUCKETS];
+		for(int i=0; i<BUCKETS; i++) counts[i] = histogram.buckets.get(i);
+		this.buckets = new AtomicLongArray(counts);
+		this.sum.add(histogram.sum.sum());
+		this.max.set(histogram.max.get());
+	}
+
+	/**
+	 * Returns the bucket a value gets counted in
+	 * @param value Non-negative value
+	 * @return Index of the bucket
+	 */
+	protected static int indexOf(long value) {
+		if(value < SUB_BUCKETS) return (int)Math.max(0, value);
+		final int msb = 63 - Long.numberOfLeadingZeros(value);
+		return (msb - SUB_BITS + 1) * SUB_BUCKETS + (int)((value >>> (msb - SUB_BITS)) & (SUB_BUCKETS - 1));
+	}
+
+	/**
+	 * Returns the highest value that gets counted in a bucket
+	 * @param index Index of the bucket
+	 * @return Highest value of the bucket
+	 */
+	protected static long upperBoundOf(int index) {
+		if(index < SUB_BUCKETS) return index;
+		final int shift = index / SUB_BUCKETS - 1;
+		final long lower = (long)(SUB_BUCKETS + index % SUB_BUCKETS) << shift;
+		return lower + (1L << shift) - 1;
+	}
+
+	/**
+	 * Records a value. Negative values are counted as zero
+	 * @param value Value that should be recorded
+	 */
+	public void record(long value) {
+		value = Math.max(0, value);
+		buckets.incrementAndGet(indexOf(value));
+		sum.add(value);
+		long m;
+		while(value > (m = max.get()) && !max.compareAndSet(m, value));
+	}
+
+	/**
+	 * @return Amount of recorded values
+	 */
+	public long getCount() {
+		long count = 0;
+		for(int i=0; i<BUCKETS; i++) count += buckets.get(i);
+		return count;
+	}
+
+	/**
+	 * @return Sum of all recorded values
+	 */
+	public long getSum() {
+		return sum.sum();
+	}
+
+	/**
+	 * @return Average of the recorded values or zero if no values have been recorded
+	 */
+	public double getMean() {
+		final long count = getCount();
+		return count > 0 ? (double)sum.sum() / count : 0;
+	}
+
+	/**
+	 * @return Highest recorded value
+	 */
+	public long getMax() {
+		return max.get();
+	}
+
+	/**
+	 * Returns the value below or equal to which the given share of the recorded values
+	 * lies. The value is the upper bound of the bucket the percentile falls into
+	 * @param percentile Share of values between 0 and 1 (e.g. 0.99 for the 99th percentile)
+	 * @return Value of the percentile or zero if no values have been recorded
+	 */
+	public long getPercentile(double percentile) {
+		final long[] counts = new long[BUCKETS];
+		long count = 0;
+		for(int i=0; i<BUCKETS; i++) count += (counts[i] = buckets.get(i));
+		if(count == 0) return 0;
+		final long rank = Math.max(1, (long)Math.ceil(Math.min(1, Math.max(0, percentile)) * count));
+		long seen = 0;
+		for(int i=0; i<BUCKETS; i++)
+			if((seen += counts[i]) >= rank) return Math.min(upperBoundOf(i), max.get());
+		return max.get();
+	}
+
+	/**
+	 * Removes all recorded values
+	 */
+	public void reset() {
+		for(int i=0; i<BUCKETS; i++) buckets.set(i, 0);
+		sum.reset();
+		max.set(0);
+	}
+
+	/**
+	 * Returns a copy of this histogram that does not change anymore
+	 * when further values get recorded in this histogram
+	 * @return Copy of this histogram
+	 */
+	public LatencyHistogram copy() {
+		return new LatencyHistogram(this);
+	}
+
+	@Override
+	public String toString() {
+		return new StringBuilder(getClass().getSimpleName()).append("{count=").append(getCount()).
+				append("; mean=").append(String.format("%.1f", getMean())).append("; p50=").append(getPercentile(0.5)).
+				append("; p99=").append(getPercentile(0.99)).append("; max=").append(max.get()).append("}").toString();
+	}
+}
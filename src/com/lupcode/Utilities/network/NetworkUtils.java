@@ -22,12 +22,15 @@ import java.util.concurrent.atomic.AtomicInteger;
 
 import com.lupcode.Utilities.concurrent.ConcurrentInteger;
 import com.lupcode.Utilities.executors.DynamicThreadPoolExecutor;
+import com.lupcode.Utilities.executors.VirtualThreadPoolExecutor;
 import com.lupcode.Utilities.listeners.NetworkListener;
 import com.lupcode.Utilities.network.upnp.UPnPClient;
 
 public class NetworkUtils {
 
-	public static Executor NETWORK_PING_EXECUTOR = new DynamicThreadPoolExecutor(0, Runtime.getRuntime().availableProcessors()*32, 5000, TimeUnit.MILLISECONDS);
+	public static Executor NETWORK_PING_EXECUTOR = VirtualThreadPoolExecutor.isVirtualThreadSupported() ? 
+			new VirtualThreadPoolExecutor(0, 10000, 5000, TimeUnit.MILLISECONDS) : 
+			new DynamicThreadPoolExecutor(0, Runtime.getRuntime().availableProcessors()*32, 5000, TimeUnit.MILLISECONDS);
 	
 	public static int NETWORK_REACHABLE_TIMEOUT = 5000;
 	
@@ -1,6 +1,10 @@
 package com.lupcode.Utilities.pools;
 
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.lupcode.Utilities.exceptions.ObjectPoolCapacityException;
 
 /** 
  * Abstract class for pools that implements the simple set/get methods and a constructor
@@ -17,6 +21,11 @@ public abstract class AbstractObjectPool<O> implements ObjectPool<O> {
 	protected long max_total_size, keep_unused_alive;
 	protected ObjectPoolFullMode full_mode;
 	protected AtomicInteger waiting = new AtomicInteger();
+	protected volatile PoolMaintenance maintenance = null;
+	protected volatile PoolStatistics statistics = null;
+	protected volatile PoolSizingPolicy sizing_policy = null;
+	protected final LongAdder allocation_count = new LongAdder(), miss_count = new LongAdder();
+	protected final AtomicInteger peak_in_use = new AtomicInteger();
 
 	/**
 	 * @param max_total_size the maximum amount of bytes this reuser is allowed to allocate. Negative means unlimited
@@ -74,6 +83,171 @@ public abstract class AbstractObjectPool<O> implements ObjectPool<O> {
 		this.full_mode = full_mode!=null ? full_mode : DEFAULT_FULL_MODE;
 	}
 
+	/**
+	 * Returns the background maintenance of this pool
+	 * @return Maintenance or null if pool trims itself when objects get released
+	 */
+	public PoolMaintenance getMaintenance() {
+		return maintenance;
+	}
+
+	/**
+	 * Sets the background maintenance that periodically releases expired unused objects, 
+	 * creates objects until the minimum keep count is reached and takes statistics snapshots. 
+	 * If set releasing an object only returns it to the pool without trimming
+	 * @param maintenance Maintenance (e.g. {@link PoolMaintenance#getShared()}) or null to trim when objects get released
+	 */
+	public synchronized void setMaintenance(PoolMaintenance maintenance) {
+		if(this.maintenance == maintenance) return;
+		if(this.maintenance != null) this.maintenance.unregister(this);
+		this.maintenance = maintenance;
+		if(maintenance != null) maintenance.register(this);
+	}
+
+	/**
+	 * Returns the statistics snapshot taken by the last background maintenance
+	 * @return Statistics or null if no background maintenance has run yet
+	 */
+	public PoolStatistics getStatistics() {
+		return statistics;
+	}
+
+	/**
+	 * Returns the policy that adjusts the sizing of this pool
+	 * @return Sizing policy or null if sizing is static
+	 */
+	public PoolSizingPolicy getSizingPolicy() {
+		return sizing_policy;
+	}
+
+	/**
+	 * Sets the policy that adjusts the sizing of this pool based on demand. 
+	 * The policy gets applied by the background maintenance so a 
+	 * {@link PoolMaintenance} needs to be set too
+	 * @param sizing_policy Sizing policy or null for static sizing
+	 */
+	public void setSizingPolicy(PoolSizingPolicy sizing_policy) {
+		this.sizing_policy = sizing_policy;
+	}
+
+	/**
+	 * Counts an allocation that had to create a new object. 
+	 * Should be called by the pool each time an object gets created on demand
+	 */
+	protected void recordMiss() {
+		miss_count.increment();
+	}
+
+	/**
+	 * Updates the peak amount of objects in use. Should be called by the pool 
+	 * when an object gets allocated (pools that cannot cheaply count their 
+	 * objects in use may only call it when new objects get created)
+	 * @param in_use Amount of objects that are in use including the allocated one
+	 */
+	protected void recordInUse(int in_use) {
+		int peak;
+		while(in_use > (peak = peak_in_use.get()) && !peak_in_use.compareAndSet(peak, in_use));
+	}
+
+	/**
+	 * Gets called periodically by the {@link PoolMaintenance}. 
+	 * Takes a statistics snapshot, applies the sizing policy, releases expired 
+	 * unused objects and creates objects until the minimum keep count is reached
+	 */
+	protected void maintain() {
+		final long current_time = System.currentTimeMillis();
+		final PoolStatistics last = statistics;
+		final int free_count = getFreeCount(), total_count = getTotalCount();
+		final int in_use = Math.max(0, total_count - free_count);
+		final PoolStatistics current = new PoolStatistics(current_time, last != null ? current_time - last.time : 0,
+				getCurrentTotalSize(), free_count, total_count, waiting.get(), allocation_count.sumThenReset(),
+				miss_count.sumThenReset(), Math.max(in_use, peak_in_use.getAndSet(in_use)));
+		statistics = current;
+		final PoolSizingPolicy sizing_policy = this.sizing_policy;
+		if(sizing_policy != null) sizing_policy.resize(this, current);
+		clearUnused();
+		replenish();
+	}
+
+	/**
+	 * Creates unused objects until the minimum keep count is reached. 
+	 * Gets called by the background maintenance, does nothing by default
+	 */
+	protected void replenish() {}
+
+	/**
+	 * Same as {@link ObjectPool#allocateFreeObject(long, TimeUnit)} but waits without limit. 
+	 * If interrupted while waiting an {@link ObjectPoolCapacityException} gets thrown 
+	 * and the interrupt flag stays set
+	 */
+	@Override
+	public O allocateFreeObject() throws ObjectPoolCapacityException {
+		try {
+			return allocateFreeObject(-1, TimeUnit.NANOSECONDS);
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			throw new ObjectPoolCapacityException("Interrupted while waiting for a free object", ex);
+		}
+	}
+	
+	/**
+	 * Tries to allocate a new/recycled object and returns a handle for it.
+	 * The object gets released by closing the handle (e.g. try-with-resources).
+	 * Depending on the {@link ObjectPoolFullMode} this function may return null, block or
+	 * throws an {@link ObjectPoolCapacityException}
+	 * @return Handle of the allocated object (or null depending on full mode)
+	 * @throws ObjectPoolCapacityException if capacity of pool is reached and
+	 * full mode is set to {@link ObjectPoolFullMode#THROW_EXCEPTION} 
+	 * or if interrupted while waiting (interrupt flag stays set)
+	 */
+	public PooledObject<O> allocate() throws ObjectPoolCapacityException {
+		try {
+			return allocate(-1, TimeUnit.NANOSECONDS);
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			throw new ObjectPoolCapacityException("Interrupted while waiting for a free object", ex);
+		}
+	}
+	
+	/**
+	 * Tries to allocate a new/recycled object and returns a handle for it.
+	 * The object gets released by closing the handle (e.g. try-with-resources).
+	 * Depending on the {@link ObjectPoolFullMode} this function may return null, 
+	 * throw an {@link ObjectPoolCapacityException} or block up to the given timeout
+	 * @param timeout How long to wait at maximum if full mode is {@link ObjectPoolFullMode#BLOCK} 
+	 * (negative to wait without limit)
+	 * @param unit Time unit of the timeout
+	 * @return Handle of the allocated object or null if timeout elapsed (or depending on full mode)
+	 * @throws ObjectPoolCapacityException if capacity of pool is reached and
+	 * full mode is set to {@link ObjectPoolFullMode#THROW_EXCEPTION}
+	 * @throws InterruptedException if interrupted while waiting
+	 */
+	public PooledObject<O> allocate(long timeout, TimeUnit unit) throws ObjectPoolCapacityException, InterruptedException {
+		O object = allocateFreeObject(timeout, unit);
+		return object != null ? new PooledObject<O>(this, object, -1) : null;
+	}
+	
+	/**
+	 * Converts a timeout into nanoseconds for {@link HandOverQueue#await(java.util.function.Supplier, java.util.function.Consumer, long)}
+	 * @param timeout Timeout (negative for no limit)
+	 * @param unit Time unit of the timeout
+	 * @return Timeout in nanoseconds (negative for no limit)
+	 */
+	protected static long toNanos(long timeout, TimeUnit unit) {
+		return timeout < 0 ? -1 : (unit != null ? unit : TimeUnit.MILLISECONDS).toNanos(timeout);
+	}
+
+	/**
+	 * Releases the object of a handle that has been allocated by {@link AbstractObjectPool#allocate()}.
+	 * Gets called by {@link PooledObject#close()}
+	 * @param handle Handle whose object should be released
+	 */
+	protected void release(PooledObject<O> handle) {
+		if(!handle.markReleased()) return; // already released
+		handle.last_used = System.currentTimeMillis();
+		releaseObject(handle.object);
+	}
+
 	@Override
 	public String toString() {
 		final long current_total_size = getCurrentTotalSize();
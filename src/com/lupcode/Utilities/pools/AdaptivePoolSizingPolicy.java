@@ -0,0 +1,133 @@
+package com.lupcode.Utilities.pools;
+
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * {@link PoolSizingPolicy} that sizes the retained objects of a pool based on its demand 
+ * within a sliding window of statistics snapshots. The minimum keep count follows the 
+ * peak amount of objects in use within the window (plus headroom) and grows further 
+ * if too many allocations had to create new objects. Unused objects are kept for as 
+ * long as the window spans so memory gets returned once demand has been low for 
+ * a whole window. The keep alive time configured on the pool stays the upper bound 
+ * (also if it gets changed later on), pools that keep unused objects without limit 
+ * are not changed. The maximum total size is never changed
+ * @author LupCode.com (Luca Vogels)
+ * @since 2026-10-16
+ */
+public class AdaptivePoolSizingPolicy implements PoolSizingPolicy {
+
+	public static int DEFAULT_WINDOW = 60;
+	public static double DEFAULT_HEADROOM = 1.25, DEFAULT_TARGET_MISS_RATE = 0.05;
+
+	/**
+	 * Snapshots of a single pool in a ring buffer
+	 */
+	protected static class Window {
+		protected final PoolStatistics[] snapshots;
+		protected int next = 0, count = 0;
+		/** Keep alive time configured on the pool and the one set by this policy */
+		protected long configured_keep_alive, applied_keep_alive = Long.MIN_VALUE;
+
+		protected Window(int size) {
+			this.snapshots = new PoolStatistics[size];
+		}
+
+		protected void add(PoolStatistics statistics) {
+			snapshots[next] = statistics;
+			next = (next + 1) % snapshots.length;
+			if(count < snapshots.length) count++;
+		}
+	}
+
+	protected final int window, lower_bound, upper_bound;
+	protected final double headroom, target_miss_rate;
+	protected final Map<AbstractObjectPool<?>, Window> windows = new WeakHashMap<>();
+
+	/**
+	 * Creates a policy with {@link AdaptivePoolSizingPolicy#DEFAULT_WINDOW}, 
+	 * {@link AdaptivePoolSizingPolicy#DEFAULT_HEADROOM} and 
+	 * {@link AdaptivePoolSizingPolicy#DEFAULT_TARGET_MISS_RATE}
+	 */
+	public AdaptivePoolSizingPolicy() {
+		this(DEFAULT_WINDOW, DEFAULT_HEADROOM, DEFAULT_TARGET_MISS_RATE, 0, Integer.MAX_VALUE);
+	}
+
+	/**
+	 * @param window Amount of maintenance runs the sliding window spans
+	 * @param headroom Factor the peak amount of objects in use gets multiplied with (at least 1)
+	 * @param target_miss_rate Share of allocations that may create a new object before more objects get retained (between 0 and 1)
+	 * @param lower_bound Minimum keep count will not be set lower than this
+	 * @param upper_bound Minimum keep count will not be set higher than this
+	 * @throws IllegalArgumentException if window is not positive or bounds are invalid
+	 */
+	public AdaptivePoolSizingPolicy(int window, double headroom, double target_miss_rate, int lower_bound, int upper_bound) throws IllegalArgumentException {
+		if(window <= 0) throw new IllegalArgumentException("Window must be positive");
+		if(lower_bound < 0 || upper_bound < lower_bound) throw new IllegalArgumentException("Invalid bounds "+lower_bound+" - "+upper_bound);
+		this.window = window;
+		this.headroom = Math.max(1, headroom);
+		this.target_miss_rate = target_miss_rate;
+		this.lower_bound = lower_bound;
+		this.upper_bound = upper_bound;
+	}
+
+	/**
+	 * @return Amount of maintenance runs the sliding window spans
+	 */
+	public int getWindow() {
+		return window;
+	}
+
+	/**
+	 * @return Factor the peak amount of objects in use gets multiplied with
+	 */
+	public double getHeadroom() {
+		return headroom;
+	}
+
+	/**
+	 * @return Share of allocations that may create a new object before more objects get retained
+	 */
+	public double getTargetMissRate() {
+		return target_miss_rate;
+	}
+
+	@Override
+	public void resize(AbstractObjectPool<?> pool, PoolStatistics statistics) {
+		int peak = 0;
+		long allocations = 0, misses = 0, span = 0, keep_alive;
+		synchronized (windows) {
+			Window w = windows.get(pool);
+			if(w == null) windows.put(pool, w = new Window(window));
+			w.add(statistics);
+			for(int i=0; i<w.count; i++) {
+				PoolStatistics s = w.snapshots[i];
+				peak = Math.max(peak, s.peak_in_use);
+				allocations += s.allocation_count;
+				misses += s.miss_count;
+				span += s.duration;
+			}
+			// keep alive time has been changed by someone else since the last run
+			final long current = pool.getKeepUnusedAlive();
+			if(current != w.applied_keep_alive) w.configured_keep_alive = current;
+			keep_alive = w.configured_keep_alive < 0 || span <= 0 ? current : Math.min(span, w.configured_keep_alive);
+			w.applied_keep_alive = keep_alive;
+		}
+
+		// retain the peak demand of the window and grow by a quarter per run while misses stay too high
+		long min_keep_count = (long)Math.ceil(peak * headroom);
+		if(allocations > 0 && (double)misses / allocations > target_miss_rate && statistics.getMissRate() > target_miss_rate) {
+			final int current = pool.getMinKeepCount();
+			min_keep_count = Math.max(min_keep_count, (long)current + Math.max(1, current / 4));
+		}
+		pool.setMinKeepCount((int)Math.max(lower_bound, Math.min(upper_bound, min_keep_count)));
+		pool.setKeepUnusedAlive(keep_alive);
+	}
+
+	@Override
+	public String toString() {
+		return new StringBuilder(getClass().getSimpleName()).append("{window=").append(window).
+				append("; headroom=").append(headroom).append("; target_miss_rate=").append(target_miss_rate).
+				append("; bounds=").append(lower_bound).append("-").append(upper_bound).append("}").toString();
+	}
+}
@@ -1,10 +1,8 @@
 package com.lupcode.Utilities.pools;
 
 import java.io.ByteArrayOutputStream;
-import java.util.HashMap;
-import java.util.Iterator;
-import java.util.LinkedList;
-import java.util.Queue;
+import java.util.IdentityHashMap;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 
@@ -14,8 +12,10 @@ public class ByteArrayOutputStreamPool extends AbstractObjectPool<ByteArrayOutpu
 	
 	protected int initial_capacity;
 	protected Lock lock = new ReentrantLock();
-	protected HashMap<ByteArrayOutputStream, Long> objects = new HashMap<>();
-	protected Queue<ByteArrayOutputStream> free_objects = new LinkedList<>();
+	protected ObjectSlots<ByteArrayOutputStream> slots = new ObjectSlots<>();
+	protected IdentityHashMap<ByteArrayOutputStream, PooledObject<ByteArrayOutputStream>> leased = new IdentityHashMap<>();
+	protected final HandOverQueue<PooledObject<ByteArrayOutputStream>> waiters = new HandOverQueue<>();
+	protected final LeakDetector<ByteArrayOutputStream> leak_detector = new LeakDetector<>(getClass().getSimpleName());
 
 	public ByteArrayOutputStreamPool(int initial_capacity, long max_total_size, int min_keep_count, long keep_unused_alive, ObjectPoolFullMode full_mode) {
 		super(max_total_size, min_keep_count, keep_unused_alive, full_mode);
@@ -36,33 +36,57 @@ public class ByteArrayOutputStreamPool extends AbstractObjectPool<ByteArrayOutpu
 		this.initial_capacity = initial_capacity;
 	}
 	
+	/**
+	 * Returns the leak detector that tracks streams which get 
+	 * garbage collected without being released
+	 * @return Leak detector of this pool
+	 */
+	public LeakDetector<ByteArrayOutputStream> getLeakDetector() {
+		return leak_detector;
+	}
+
+	/**
+	 * Enables or disables leak detection. If enabled every leased stream is tracked 
+	 * with a weak reference and streams that get garbage collected without being 
+	 * released are removed from the pool and reported to the listener of the {@link LeakDetector}
+	 * @param stack_sample_rate Share of leases that record the stack trace of their allocation 
+	 * (between 0 and 1) or negative to disable leak detection
+	 */
+	public void setLeakDetection(double stack_sample_rate) {
+		if(stack_sample_rate >= 0) leak_detector.setStackSampleRate(stack_sample_rate);
+		leak_detector.setEnabled(stack_sample_rate >= 0);
+	}
+	
 	@Override
 	public long getCurrentTotalSize(){
-		long sum = 0;
+		long sum = leak_detector.getTrackedSize();
 		int size;
-		Iterator<ByteArrayOutputStream> it = objects.keySet().iterator();
-		while(it.hasNext()) {
-			size = it.next().size();
+		PooledObject<ByteArrayOutputStream> handle;
+		for(int i=0; i<slots.getSlotCount(); i++) {
+			if((handle = slots.get(i)) == null) continue;
+			size = handle.object.size();
 			sum += size > 0 ? size : initial_capacity;
 		} return sum;
 	}
 	
 	@Override
 	public int getFreeCount(){
-		return free_objects.size();
+		return slots.getFreeCount();
 	}
 	
 	@Override
 	public int getTotalCount(){
-		return objects.size();
+		return slots.size() + leak_detector.getTrackedCount();
 	}
 
 	@Override
 	public void clear() {
 		lock.lock();
-		objects.clear();
-		free_objects.clear();
+		slots.clear();
+		leased.clear();
+		leak_detector.clear();
 		lock.unlock();
+		waiters.wakeFirst();
 	}
 
 	@Override
@@ -71,75 +95,189 @@ public class ByteArrayOutputStreamPool extends AbstractObjectPool<ByteArrayOutpu
 	}
 
 	@Override
-	public ByteArrayOutputStream allocateFreeObject() throws ObjectPoolCapacityException {
+	public ByteArrayOutputStream allocateFreeObject(long timeout, TimeUnit unit) throws ObjectPoolCapacityException, InterruptedException {
+		PooledObject<ByteArrayOutputStream> handle = allocateSlot(true, timeout, unit);
+		return handle != null ? handle.object : null;
+	}
+	
+	/**
+	 * Tries to allocate a new/recycled {@link ByteArrayOutputStream} and returns a handle for it. 
+	 * The stream gets released by closing the handle which does not need any lookups. 
+	 * Depending on the {@link ObjectPoolFullMode} this function may return null, 
+	 * throw an {@link ObjectPoolCapacityException} or block up to the given timeout
+	 * @param timeout How long to wait at maximum if full mode is {@link ObjectPoolFullMode#BLOCK} 
+	 * (negative to wait without limit)
+	 * @param unit Time unit of the timeout
+	 * @return Handle of the allocated stream or null if timeout elapsed (or depending on full mode)
+	 * @throws ObjectPoolCapacityException if capacity of pool is reached and
+	 * full mode is set to {@link ObjectPoolFullMode#THROW_EXCEPTION}
+	 * @throws InterruptedException if interrupted while waiting
+	 */
+	@Override
+	public PooledObject<ByteArrayOutputStream> allocate(long timeout, TimeUnit unit) throws ObjectPoolCapacityException, InterruptedException {
+		return allocateSlot(false, timeout, unit);
+	}
+	
+	/**
+	 * Takes a free stream or creates a new one without blocking
+	 * @param raw If stream gets returned without handle and needs to be looked up on release
+	 * @return Handle of the stream or null if none available
+	 */
+	protected PooledObject<ByteArrayOutputStream> pollSlot(boolean raw) {
 		lock.lock();
-		if(isFull() && free_objects.isEmpty()){
-			switch (full_mode) {
-			case RETURN_NULL: lock.unlock(); return null;
-			case THROW_EXCEPTION: lock.unlock(); throw new ObjectPoolCapacityException();
-			default: break;
-			}
-		}
-		ByteArrayOutputStream output = null;
-		do {
-			
-			output = free_objects.poll();
-			if(output!=null){ output.reset(); break; }
-			
-			if(!isFull()){
-				output = new ByteArrayOutputStream(initial_capacity);
-				break;
+		try {
+			PooledObject<ByteArrayOutputStream> handle = slots.pollFree(System.currentTimeMillis());
+			if(handle != null) {
+				handle.object.reset();
+			} else {
+				if(isFull()) return null;
+				handle = slots.add(this, new ByteArrayOutputStream(initial_capacity));
+				recordMiss();
 			}
-			
+			recordInUse(slots.size() - slots.getFreeCount());
+			if(raw) leased.put(handle.object, handle);
+			return handle;
+		} finally {
 			lock.unlock();
-			waiting.incrementAndGet();
-			synchronized (this) {
-				try { wait(); } catch (InterruptedException e) { e.printStackTrace(); }
-			}
-			lock.lock();
+		}
+	}
+	
+	/**
+	 * Takes a free stream or creates a new one, blocking if necessary
+	 * @param raw If stream gets returned without handle and needs to be looked up on release
+	 * @param timeout How long to wait at maximum (negative to wait without limit)
+	 * @param unit Time unit of the timeout
+	 * @return Handle of the stream or null if timeout elapsed (or depending on full mode)
+	 * @throws ObjectPoolCapacityException if capacity of pool is reached and
+	 * full mode is set to {@link ObjectPoolFullMode#THROW_EXCEPTION}
+	 * @throws InterruptedException if interrupted while waiting
+	 */
+	protected PooledObject<ByteArrayOutputStream> allocateSlot(boolean raw, long timeout, TimeUnit unit) throws ObjectPoolCapacityException, InterruptedException {
+		allocation_count.increment();
+		PooledObject<ByteArrayOutputStream> handle = pollSlot(raw);
+		if(handle == null && leak_detector.getTrackedCount() > 0) {
+			reclaimLeaks(); // leaked streams may have freed capacity
+			handle = pollSlot(raw);
+		}
+		if(handle != null) return trackLease(handle, raw);
+		switch (full_mode) {
+		case RETURN_NULL: return null;
+		case THROW_EXCEPTION: throw new ObjectPoolCapacityException();
+		default: break;
+		}
+		waiting.incrementAndGet();
+		try {
+			handle = waiters.await(() -> pollSlot(false), h -> release(h), toNanos(timeout, unit));
+		} finally {
 			waiting.decrementAndGet();
-			
-		} while(output==null);
+		}
+		if(handle == null) return null;
+		handle.object.reset();
+		if(raw) {
+			lock.lock();
+			leased.put(handle.object, handle);
+			lock.unlock();
+		}
+		return trackLease(handle, raw);
+	}
 
-		objects.put(output, System.currentTimeMillis());
+	/**
+	 * Tracks the lease if leak detection is enabled. Tracked streams are removed 
+	 * from the slots so the pool holds no strong references to them
+	 * @param handle Handle of the leased stream
+	 * @param raw If stream gets returned without handle
+	 * @return Handle that should be returned to the caller
+	 */
+	protected PooledObject<ByteArrayOutputStream> trackLease(PooledObject<ByteArrayOutputStream> handle, boolean raw) {
+		if(!leak_detector.enabled) return handle;
+		lock.lock();
+		if(raw) leased.remove(handle.object);
+		slots.remove(handle);
 		lock.unlock();
-		return output;
+		leak_detector.track(handle.object, initial_capacity);
+		return raw ? handle : new PooledObject<ByteArrayOutputStream>(this, handle.object, -1);
+	}
+
+	/**
+	 * Removes streams that have been garbage collected without being released
+	 */
+	protected void reclaimLeaks() {
+		while(leak_detector.pollLeak() >= 0)
+			waiters.wakeFirst();
 	}
 
 	@Override
 	public void releaseObject(ByteArrayOutputStream output) {
 		if(output!=null){
 			lock.lock();
-			Long previous = objects.put(output, System.currentTimeMillis());
-			if(previous!=null)
-				free_objects.add(output);
-			else
-				objects.remove(output); // object wasn't created by this reuser
+			PooledObject<ByteArrayOutputStream> handle = leased.remove(output);
+			if(handle!=null) // otherwise object wasn't created by this reuser or pool got cleared
+				releaseSlot(handle);
+			else if(leak_detector.untrack(output))
+				releaseSlot(slots.add(this, output));
+			else if((handle = slots.findLeased(output)) != null)
+				releaseSlot(handle); // allocated with a handle but released without it
 			lock.unlock();
 		}
-		clearUnused();
+		if(maintenance == null) clearUnused();
 	}
 	
 	@Override
-	public void clearUnused(){
-		// notify waiting threads
-		synchronized (this) {
-			notifyAll();
+	protected void release(PooledObject<ByteArrayOutputStream> handle) {
+		if(handle.slot < 0) {
+			super.release(handle);
+			return;
 		}
-		
+		lock.lock();
+		if(handle.leased && slots.contains(handle)) // otherwise handle isn't from this pool or pool got cleared
+			releaseSlot(handle);
+		lock.unlock();
+		if(maintenance == null) clearUnused();
+	}
+	
+	/**
+	 * Hands the stream over to the longest waiting thread or marks it as free. 
+	 * Lock must be held by caller
+	 * @param handle Handle of the stream that should be released
+	 */
+	protected void releaseSlot(PooledObject<ByteArrayOutputStream> handle) {
+		final long current_time = System.currentTimeMillis();
+		if(waiters.handOver(handle))
+			handle.last_used = current_time;
+		else
+			slots.pushFree(handle, current_time);
+	}
+	
+	/**
+	 * Creates free streams until the minimum keep count is reached
+	 */
+	@Override
+	protected void replenish() {
+		lock.lock();
+		final long current_time = System.currentTimeMillis();
+		while(slots.size() < min_keep_count && !isFull()) {
+			PooledObject<ByteArrayOutputStream> handle = slots.add(this, new ByteArrayOutputStream(initial_capacity));
+			if(!waiters.handOver(handle))
+				slots.pushFree(handle, current_time);
+		}
+		lock.unlock();
+	}
+	
+	@Override
+	public void clearUnused(){
+		reclaimLeaks();
 		if(this.keep_unused_alive<0){ return;} 
 		
-		// clean unused buffers
+		// clean unused streams (oldest are at the bottom of the free stack)
 		lock.lock();
 		final long current_time = System.currentTimeMillis();
-		ByteArrayOutputStream output;
-		while(!free_objects.isEmpty() && objects.size() > min_keep_count){
-			output = free_objects.peek();
-			if(current_time - objects.get(output) >= this.keep_unused_alive){
-				free_objects.poll();
-				objects.remove(output);
-			} else { break; }
-		}
+		int expired = 0;
+		final int free_count = slots.getFreeCount(), count = getTotalCount();
+		while(expired < free_count && count - expired > min_keep_count &&
+				current_time - slots.getFree(expired).last_used >= this.keep_unused_alive)
+			expired++;
+		slots.removeOldestFree(expired);
 		lock.unlock();
+		if(expired > 0) waiters.wakeFirst(); // memory got freed
 	}
 }
@@ -1,40 +1,132 @@
 package com.lupcode.Utilities.pools;
 
+import java.lang.ref.WeakReference;
 import java.nio.ByteBuffer;
-import java.util.HashMap;
-import java.util.LinkedList;
-import java.util.Queue;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 
 import com.lupcode.Utilities.exceptions.ObjectPoolCapacityException;
 
-/** Manages multiple {@link ByteBuffer} for efficient memory usage
+/** Manages multiple {@link ByteBuffer} for efficient memory usage.
+ * Buffers can either be allocated directly or as {@link PooledObject} handle 
+ * that releases the buffer without any lookups when it gets closed.
+ * If a magazine size is set every thread caches a small amount of free buffers
+ * (magazines) that get exchanged in batches with a shared depot so
+ * that allocating and releasing does not need a lock in most cases
  * @author LupCode.com (Luca Vogels)
  * @since 2020-02-11
  */
 public class ByteBufferPool extends AbstractObjectPool<ByteBuffer> {
-	
+
+	/**
+	 * Stack of free buffers that is owned by one thread or stored in the depot
+	 */
+	protected static class Magazine {
+		protected final ByteBuffer[] buffers;
+		protected int count = 0;
+		protected long last_used;
+
+		protected Magazine(int size) {
+			this.buffers = new ByteBuffer[size];
+		}
+	}
+
+	/**
+	 * Magazines that are owned by a single thread. The owner marks the cache as busy 
+	 * while using it so other threads can steal the magazines of idle caches
+	 */
+	protected static class ThreadCache {
+		protected final WeakReference<Thread> owner;
+		protected final AtomicBoolean busy = new AtomicBoolean();
+		protected Magazine loaded, previous;
+		protected int generation;
+
+		protected ThreadCache(Thread owner, int magazine_size, int generation) {
+			this.owner = new WeakReference<Thread>(owner);
+			this.loaded = new Magazine(magazine_size);
+			this.previous = new Magazine(magazine_size);
+			this.generation = generation;
+		}
+	}
+
+	/**
+	 * Compares buffers by identity because {@link ByteBuffer#equals(Object)} compares their content
+	 */
+	protected static final class BufferKey {
+		protected final ByteBuffer buffer;
+
+		protected BufferKey(ByteBuffer buffer) {
+			this.buffer = buffer;
+		}
+
+		@Override
+		public int hashCode() {
+			return System.identityHashCode(buffer);
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			return obj instanceof BufferKey && ((BufferKey)obj).buffer == buffer;
+		}
+	}
+
 	protected int buffer_size;
 	protected Lock lock = new ReentrantLock();
-	protected HashMap<Integer, Long> buffers = new HashMap<>();
-	protected Queue<ByteBuffer> free_buffers = new LinkedList<>();
+	protected ObjectSlots<ByteBuffer> slots = new ObjectSlots<>();
+	protected IdentityHashMap<ByteBuffer, PooledObject<ByteBuffer>> leased = new IdentityHashMap<>();
+	protected final HandOverQueue<PooledObject<ByteBuffer>> slot_waiters = new HandOverQueue<>();
+	protected final HandOverQueue<ByteBuffer> cache_waiters = new HandOverQueue<>();
 	protected AtomicLong current_total_size = new AtomicLong();
+	protected AtomicInteger total_count = new AtomicInteger();
+	protected final LeakDetector<ByteBuffer> leak_detector = new LeakDetector<>(getClass().getSimpleName());
+
+	protected final int magazine_size;
+	protected volatile int cache_generation = 0;
+	protected final ThreadLocal<ThreadCache> thread_caches = new ThreadLocal<>();
+	protected final ConcurrentLinkedQueue<ThreadCache> registered_caches = new ConcurrentLinkedQueue<>();
+	protected final ConcurrentLinkedDeque<Magazine> full_magazines = new ConcurrentLinkedDeque<>();
+	protected final ConcurrentLinkedQueue<Magazine> empty_magazines = new ConcurrentLinkedQueue<>();
+	/** Buffers of the thread caching mode that are not tracked by the leak detector and if they are leased */
+	protected final ConcurrentHashMap<BufferKey, Boolean> cached_buffers = new ConcurrentHashMap<>();
 
 	public ByteBufferPool(int buffer_size, long max_total_size, int min_keep_count, long keep_unused_alive, ObjectPoolFullMode full_mode) {
+		this(buffer_size, max_total_size, min_keep_count, keep_unused_alive, full_mode, 0);
+	}
+
+	/**
+	 * @param buffer_size size in bytes for the capacity per {@link ByteBuffer}
+	 * @param max_total_size the maximum amount of bytes this pool is allowed to allocate. Negative means unlimited
+	 * @param min_keep_count how many buffers should be kept in memory at minimum
+	 * @param keep_unused_alive milliseconds how long unused buffers should be kept in memory. Negative for unlimited
+	 * @param full_mode how the pool should behave if it reaches the maximum total size
+	 * @param magazine_size how many free buffers each thread can cache without locking (zero or negative disables thread caching).
+	 * Buffers cached by a thread count into the maximum total size and are only available to other threads
+	 * after they have been exchanged with the depot, the thread calls {@link ByteBufferPool#flushThreadCache()} 
+	 * or another thread steals them because the maximum total size has been reached
+	 */
+	public ByteBufferPool(int buffer_size, long max_total_size, int min_keep_count, long keep_unused_alive, ObjectPoolFullMode full_mode, int magazine_size) {
 		super(max_total_size, min_keep_count, keep_unused_alive, full_mode);
 		this.buffer_size = buffer_size;
+		this.magazine_size = Math.max(0, magazine_size);
 	}
-	
+
 	/**
 	 * @return size in bytes for the capacity per {@link ByteBuffer}
 	 */
 	public int getBufferSize(){
 		return buffer_size;
 	}
-	
-	/** Sets the size in bytes for the capacity per {@link ByteBuffer}. 
+
+	/** Sets the size in bytes for the capacity per {@link ByteBuffer}.
 	 * Also clears this {@link ByteBufferPool} if new buffer size is smaller than previous one
 	 * @param buffer_size size in bytes
 	 */
@@ -44,111 +136,660 @@ public class ByteBufferPool extends AbstractObjectPool<ByteBuffer> {
 		if(need_update)
 			clear();
 	}
-	
+
+	/**
+	 * @return how many free buffers each thread can cache without locking (zero if thread caching is disabled)
+	 */
+	public int getMagazineSize() {
+		return magazine_size;
+	}
+
 	@Override
 	public long getCurrentTotalSize(){
 		return this.current_total_size.get();
 	}
 	
+	/**
+	 * Returns the memory in bytes that is held by buffers on the heap
+	 * @return Amount of heap memory in bytes
+	 */
+	public long getCurrentHeapSize(){
+		return this.current_total_size.get();
+	}
+	
+	/**
+	 * Returns the memory in bytes that is held outside of the heap (direct memory)
+	 * @return Amount of direct memory in bytes
+	 */
+	public long getCurrentDirectSize(){
+		return 0;
+	}
+
 	@Override
 	public int getFreeCount(){
-		return free_buffers.size();
+		if(magazine_size <= 0) return slots.getFreeCount();
+		int count = 0;
+		for(ThreadCache cache : registered_caches) {
+			Magazine loaded = cache.loaded, previous = cache.previous;
+			count += (loaded!=null ? loaded.count : 0) + (previous!=null ? previous.count : 0);
+		}
+		for(Magazine magazine : full_magazines)
+			count += magazine.count;
+		return count;
 	}
-	
+
 	@Override
 	public int getTotalCount(){
-		return buffers.size();
+		return total_count.get();
 	}
-	
+
+	/**
+	 * Returns the leak detector that tracks buffers which get 
+	 * garbage collected without being released
+	 * @return Leak detector of this pool
+	 */
+	public LeakDetector<ByteBuffer> getLeakDetector() {
+		return leak_detector;
+	}
+
+	/**
+	 * Enables or disables leak detection. If enabled every leased buffer is tracked 
+	 * with a weak reference and buffers that get garbage collected without being 
+	 * released are reclaimed into the maximum total size and reported to the 
+	 * listener of the {@link LeakDetector}. Direct buffers stay referenced by their 
+	 * slab so leaks of a {@link DirectByteBufferPool} cannot be detected
+	 * @param stack_sample_rate Share of leases that record the stack trace of their allocation 
+	 * (between 0 and 1) or negative to disable leak detection
+	 */
+	public void setLeakDetection(double stack_sample_rate) {
+		if(stack_sample_rate >= 0) leak_detector.setStackSampleRate(stack_sample_rate);
+		leak_detector.setEnabled(stack_sample_rate >= 0);
+	}
+
+	/**
+	 * Clears all free buffers. Buffers that are currently in use stay 
+	 * accounted in the total size until they get released again. 
+	 * If thread caching is enabled buffers cached by other threads 
+	 * get dropped on their next access
+	 */
 	@Override
 	public void clear(){
 		lock.lock();
-		buffers.clear();
-		free_buffers.clear();
-		current_total_size.set(0);
+		if(magazine_size > 0) {
+			cache_generation++;
+			Magazine magazine;
+			while((magazine = full_magazines.poll()) != null)
+				dropMagazine(magazine);
+		} else {
+			final int free_count = slots.getFreeCount();
+			for(int i=0; i<free_count; i++)
+				dropBuffer(slots.getFree(i).object);
+			slots.removeOldestFree(free_count);
+		}
 		lock.unlock();
 	}
-	
+
 	@Override
 	public boolean isFull(){
 		return this.max_total_size > 0 && this.current_total_size.get() + buffer_size > this.max_total_size;
 	}
+
+	@Override
+	public ByteBuffer allocateFreeObject(long timeout, TimeUnit unit) throws ObjectPoolCapacityException, InterruptedException {
+		if(magazine_size > 0)
+			return allocateCachedObject(timeout, unit);
+		PooledObject<ByteBuffer> handle = allocateSlot(true, timeout, unit);
+		return handle != null ? handle.object : null;
+	}
 	
+	/**
+	 * Tries to allocate a new/recycled buffer and returns a handle for it. 
+	 * The buffer gets released by closing the handle which does not need any lookups. 
+	 * If thread caching is enabled a new handle gets created for each allocation.
+	 * Depending on the {@link ObjectPoolFullMode} this function may return null, 
+	 * throw an {@link ObjectPoolCapacityException} or block up to the given timeout
+	 * @param timeout How long to wait at maximum if full mode is {@link ObjectPoolFullMode#BLOCK} 
+	 * (negative to wait without limit)
+	 * @param unit Time unit of the timeout
+	 * @return Handle of the allocated buffer or null if timeout elapsed (or depending on full mode)
+	 * @throws ObjectPoolCapacityException if capacity of pool is reached and
+	 * full mode is set to {@link ObjectPoolFullMode#THROW_EXCEPTION}
+	 * @throws InterruptedException if interrupted while waiting
+	 */
 	@Override
-	public ByteBuffer allocateFreeObject() throws ObjectPoolCapacityException {
+	public PooledObject<ByteBuffer> allocate(long timeout, TimeUnit unit) throws ObjectPoolCapacityException, InterruptedException {
+		if(magazine_size > 0)
+			return super.allocate(timeout, unit);
+		return allocateSlot(false, timeout, unit);
+	}
+	
+	/**
+	 * Takes a free buffer or creates a new one without blocking
+	 * @param raw If buffer gets returned without handle and needs to be looked up on release
+	 * @return Handle of the buffer or null if none available
+	 */
+	protected PooledObject<ByteBuffer> pollSlot(boolean raw) {
 		lock.lock();
-		if(isFull() && free_buffers.isEmpty()){
-			switch (full_mode) {
-			case RETURN_NULL: lock.unlock(); return null;
-			case THROW_EXCEPTION: lock.unlock(); throw new ObjectPoolCapacityException();
-			default: break;
-			}
-		}
-		ByteBuffer buffer = null;
-		do {
-			
-			buffer = free_buffers.poll();
-			if(buffer!=null){ buffer.clear(); break; }
-			
-			if(!isFull()){
+		try {
+			PooledObject<ByteBuffer> handle = slots.pollFree(System.currentTimeMillis());
+			if(handle == null) {
+				if(isFull()) return null;
 				this.current_total_size.addAndGet(this.buffer_size);
-				buffer = ByteBuffer.allocate(buffer_size);
-				break;
+				this.total_count.incrementAndGet();
+				handle = slots.add(this, createBuffer(buffer_size));
+				recordMiss();
 			}
-			
+			recordInUse(total_count.get() - slots.getFreeCount());
+			handle.object.clear();
+			if(raw) leased.put(handle.object, handle);
+			return handle;
+		} finally {
 			lock.unlock();
-			waiting.incrementAndGet();
-			synchronized (this) {
-				try { wait(); } catch (InterruptedException e) { e.printStackTrace(); }
-			}
-			lock.lock();
+		}
+	}
+	
+	/**
+	 * Takes a free buffer or creates a new one, blocking if necessary
+	 * @param raw If buffer gets returned without handle and needs to be looked up on release
+	 * @param timeout How long to wait at maximum (negative to wait without limit)
+	 * @param unit Time unit of the timeout
+	 * @return Handle of the buffer or null if timeout elapsed (or depending on full mode)
+	 * @throws ObjectPoolCapacityException if capacity of pool is reached and
+	 * full mode is set to {@link ObjectPoolFullMode#THROW_EXCEPTION}
+	 * @throws InterruptedException if interrupted while waiting
+	 */
+	protected PooledObject<ByteBuffer> allocateSlot(boolean raw, long timeout, TimeUnit unit) throws ObjectPoolCapacityException, InterruptedException {
+		allocation_count.increment();
+		PooledObject<ByteBuffer> handle = pollSlot(raw);
+		if(handle == null && leak_detector.getTrackedCount() > 0) {
+			reclaimLeaks(); // leaked buffers may have freed capacity
+			handle = pollSlot(raw);
+		}
+		if(handle != null) return trackLease(handle, raw);
+		switch (full_mode) {
+		case RETURN_NULL: return null;
+		case THROW_EXCEPTION: throw new ObjectPoolCapacityException();
+		default: break;
+		}
+		waiting.incrementAndGet();
+		try {
+			handle = slot_waiters.await(() -> pollSlot(false), h -> release(h), toNanos(timeout, unit));
+		} finally {
 			waiting.decrementAndGet();
-			
-		} while(buffer==null);
+		}
+		if(handle == null) return null;
+		handle.object.clear();
+		if(raw) {
+			lock.lock();
+			leased.put(handle.object, handle);
+			lock.unlock();
+		}
+		return trackLease(handle, raw);
+	}
 
-		buffers.put(System.identityHashCode(buffer), System.currentTimeMillis());
+	/**
+	 * Tracks the lease if leak detection is enabled. Tracked buffers are removed 
+	 * from the slots so the pool holds no strong references to them
+	 * @param handle Handle of the leased buffer
+	 * @param raw If buffer gets returned without handle
+	 * @return Handle that should be returned to the caller
+	 */
+	protected PooledObject<ByteBuffer> trackLease(PooledObject<ByteBuffer> handle, boolean raw) {
+		if(!leak_detector.enabled) return handle;
+		lock.lock();
+		if(raw) leased.remove(handle.object);
+		slots.remove(handle);
 		lock.unlock();
-		return buffer;
+		leak_detector.track(handle.object, handle.object.capacity());
+		return raw ? handle : new PooledObject<ByteBuffer>(this, handle.object, -1);
+	}
+
+	/**
+	 * Reclaims the memory of buffers that have been garbage collected without being released
+	 */
+	protected void reclaimLeaks() {
+		long size;
+		while((size = leak_detector.pollLeak()) >= 0) {
+			current_total_size.addAndGet(-size);
+			total_count.decrementAndGet();
+			if(magazine_size > 0) cache_waiters.wakeFirst();
+			else slot_waiters.wakeFirst();
+		}
 	}
 
 	@Override
 	public void releaseObject(ByteBuffer buffer) {
+		if(magazine_size > 0) {
+			releaseCachedObject(buffer);
+			return;
+		}
 		if(buffer!=null){
 			lock.lock();
-			final int buffer_key = System.identityHashCode(buffer);
-			Long previous = buffers.put(buffer_key, System.currentTimeMillis());
-			if(previous!=null)
-				free_buffers.add(buffer);
-			else
-				buffers.remove(buffer_key); // object wasn't generated by this reuser
+			PooledObject<ByteBuffer> handle = leased.remove(buffer);
+			if(handle!=null)
+				releaseSlot(handle);
+			else if(leak_detector.untrack(buffer))
+				releaseSlot(slots.add(this, buffer));
+			else if((handle = slots.findLeased(buffer)) != null)
+				releaseSlot(handle); // allocated with a handle but released without it
+			// otherwise buffer wasn't created by this pool or has already been released
 			lock.unlock();
 		}
-		clearUnused();
+		if(maintenance == null) clearUnused();
+	}
+	
+	@Override
+	protected void release(PooledObject<ByteBuffer> handle) {
+		if(handle.slot < 0) {
+			super.release(handle);
+			return;
+		}
+		lock.lock();
+		if(handle.leased && slots.contains(handle)) // otherwise handle has already been released
+			releaseSlot(handle);
+		lock.unlock();
+		if(maintenance == null) clearUnused();
 	}
 	
+	/**
+	 * Hands the buffer over to the longest waiting thread or marks it as free. 
+	 * Lock must be held by caller
+	 * @param handle Handle of the buffer that should be released
+	 */
+	protected void releaseSlot(PooledObject<ByteBuffer> handle) {
+		final long current_time = System.currentTimeMillis();
+		if(handle.object.capacity() != buffer_size) { // buffer size has changed
+			slots.remove(handle);
+			dropBuffer(handle.object);
+		} else if(slot_waiters.handOver(handle)) {
+			handle.last_used = current_time;
+		} else {
+			slots.pushFree(handle, current_time);
+		}
+	}
+
 	@Override
 	public void clearUnused(){
-		// notify waiting threads
-		synchronized (this) {
-			notifyAll();
+		reclaimLeaks();
+		if(magazine_size > 0) {
+			reclaimDeadThreadCaches();
+			trimDepot();
+			return;
 		}
-		
-		if(this.keep_unused_alive<0){ return;} 
-		
-		// clean unused buffers
+
+		if(this.keep_unused_alive<0){ return;}
+
+		// clean unused buffers (oldest are at the bottom of the free stack)
 		lock.lock();
 		final long current_time = System.currentTimeMillis();
-		ByteBuffer buffer;
-		int buffer_key;
-		while(!free_buffers.isEmpty() && buffers.size() > min_keep_count){
-			buffer = free_buffers.peek();
-			buffer_key = System.identityHashCode(buffer);
-			if(current_time - buffers.get(buffer_key) >= this.keep_unused_alive){
-				free_buffers.poll();
-				buffers.remove(buffer_key);
-				this.current_total_size.addAndGet(-buffer.capacity());
-			} else { break; }
+		int expired = 0;
+		final int free_count = slots.getFreeCount(), count = total_count.get();
+		while(expired < free_count && count - expired > min_keep_count &&
+				current_time - slots.getFree(expired).last_used >= this.keep_unused_alive)
+			expired++;
+		for(int i=0; i<expired; i++)
+			dropBuffer(slots.getFree(i).object);
+		slots.removeOldestFree(expired);
+		lock.unlock();
+	}
+
+	/**
+	 * Returns all buffers cached by the calling thread to the shared depot
+	 * so other threads can use them. Should be called by threads that
+	 * will no longer use this pool. Has no effect if thread caching is disabled
+	 */
+	public void flushThreadCache() {
+		if(magazine_size <= 0) return;
+		ThreadCache cache = thread_caches.get();
+		if(cache == null) return;
+		while(!cache.busy.compareAndSet(false, true)) Thread.onSpinWait();
+		try {
+			if(cache.generation == cache_generation) flushThreadCache(cache);
+			else dropThreadCache(cache);
+			registered_caches.remove(cache);
+			thread_caches.remove();
+		} finally {
+			cache.busy.set(false);
+		}
+	}
+
+	/**
+	 * Returns the cache of the calling thread marked as busy and drops its buffers
+	 * if the pool has been cleared since its last access. 
+	 * Must be released with {@link ByteBufferPool#releaseThreadCache(ThreadCache)}
+	 * @return Cache of the calling thread
+	 */
+	protected ThreadCache acquireThreadCache() {
+		ThreadCache cache = thread_caches.get();
+		if(cache == null) {
+			cache = new ThreadCache(Thread.currentThread(), magazine_size, cache_generation);
+			cache.busy.set(true);
+			thread_caches.set(cache);
+			registered_caches.add(cache);
+			return cache;
+		}
+		while(!cache.busy.compareAndSet(false, true)) Thread.onSpinWait(); // magazines get stolen
+		if(cache.generation != cache_generation) dropThreadCache(cache);
+		return cache;
+	}
+
+	/**
+	 * Allows other threads to steal the magazines of the cache again
+	 * @param cache Cache returned by {@link ByteBufferPool#acquireThreadCache()}
+	 */
+	protected void releaseThreadCache(ThreadCache cache) {
+		cache.busy.set(false);
+	}
+
+	/**
+	 * Drops the buffers of a cache that belong to a previous generation (cache must be busy)
+	 * @param cache Cache whose buffers should be dropped
+	 */
+	protected void dropThreadCache(ThreadCache cache) {
+		cache.generation = cache_generation;
+		dropMagazine(cache.loaded);
+		dropMagazine(cache.previous);
+	}
+
+	/**
+	 * Takes a buffer from the cache of the calling thread, the depot, 
+	 * the caches of idle threads or by creating a new one
+	 * @return Buffer or null if no buffer is available without waiting
+	 */
+	protected ByteBuffer pollCached() {
+		final ThreadCache cache = acquireThreadCache();
+		try {
+			return pollCached(cache);
+		} finally {
+			releaseThreadCache(cache);
+		}
+	}
+
+	/**
+	 * Moves the buffers cached by threads that are currently not using 
+	 * this pool into the depot so they become available to the calling thread
+	 * @param own Cache of the calling thread that gets skipped
+	 * @return True if buffers have been moved into the depot or dropped
+	 */
+	protected boolean stealThreadCaches(ThreadCache own) {
+		boolean stolen = false;
+		for(ThreadCache cache : registered_caches) {
+			if(cache == own || !cache.busy.compareAndSet(false, true)) continue;
+			try {
+				if(cache.loaded.count == 0 && cache.previous.count == 0) continue;
+				if(cache.generation != cache_generation) dropThreadCache(cache);
+				else flushThreadCache(cache);
+				stolen = true;
+			} finally {
+				cache.busy.set(false);
+			}
+		}
+		return stolen;
+	}
+
+	/**
+	 * Tries to get a buffer from the thread cache, the depot or by
+	 * creating a new one if maximum total size is not reached yet.
+	 * Does not lock
+	 * @param cache Cache of the calling thread
+	 * @return Buffer or null if no buffer is available without waiting
+	 */
+	protected ByteBuffer pollCached(ThreadCache cache) {
+		Magazine loaded = cache.loaded;
+		if(loaded.count == 0) {
+			if(cache.previous.count > 0) {
+				cache.loaded = cache.previous;
+				cache.previous = loaded;
+			} else {
+				Magazine full = full_magazines.pollFirst();
+				if(full == null) {
+					ByteBuffer buffer = createCachedBuffer();
+					if(buffer == null && stealThreadCaches(cache) && (full = full_magazines.pollFirst()) == null)
+						buffer = createCachedBuffer(); // stolen buffers have been dropped or taken by others
+					if(full == null) {
+						if(buffer != null) { recordMiss(); recordInUse(total_count.get() - getFreeCount()); }
+						return buffer;
+					}
+				}
+				empty_magazines.offer(cache.previous);
+				cache.previous = loaded;
+				cache.loaded = full;
+			}
+			loaded = cache.loaded;
+		}
+		ByteBuffer buffer = loaded.buffers[--loaded.count];
+		loaded.buffers[loaded.count] = null;
+		return buffer;
+	}
+
+	/**
+	 * Reserves memory for a new buffer without locking
+	 * @return New buffer or null if maximum total size would be exceeded
+	 */
+	protected ByteBuffer createCachedBuffer() {
+		final int size = buffer_size;
+		long current;
+		do {
+			current = current_total_size.get();
+			if(max_total_size > 0 && current + size > max_total_size) return null;
+		} while(!current_total_size.compareAndSet(current, current + size));
+		total_count.incrementAndGet();
+		final ByteBuffer buffer = createBuffer(size);
+		cached_buffers.put(new BufferKey(buffer), Boolean.FALSE);
+		return buffer;
+	}
+
+	protected ByteBuffer allocateCachedObject(long timeout, TimeUnit unit) throws ObjectPoolCapacityException, InterruptedException {
+		allocation_count.increment();
+		ByteBuffer buffer = pollCached();
+		if(buffer == null && leak_detector.getTrackedCount() > 0) {
+			reclaimLeaks(); // leaked buffers may have freed capacity
+			buffer = pollCached();
+		}
+		if(buffer == null) {
+			switch (full_mode) {
+			case RETURN_NULL: return null;
+			case THROW_EXCEPTION: throw new ObjectPoolCapacityException();
+			default: break;
+			}
+			waiting.incrementAndGet();
+			try {
+				buffer = cache_waiters.await(() -> pollCached(), b -> recycleCachedObject(b), toNanos(timeout, unit));
+			} finally {
+				waiting.decrementAndGet();
+			}
+			if(buffer == null) return null;
+		}
+		buffer.clear();
+		if(leak_detector.enabled) { // pool must not hold strong references to tracked buffers
+			cached_buffers.remove(new BufferKey(buffer));
+			leak_detector.track(buffer, buffer.capacity());
+		} else {
+			cached_buffers.put(new BufferKey(buffer), Boolean.TRUE);
+		}
+		return buffer;
+	}
+
+	protected void releaseCachedObject(ByteBuffer buffer) {
+		if(buffer == null) return;
+		if(leak_detector.untrack(buffer))
+			cached_buffers.put(new BufferKey(buffer), Boolean.FALSE);
+		else if(!cached_buffers.replace(new BufferKey(buffer), Boolean.TRUE, Boolean.FALSE))
+			return; // buffer wasn't created by this pool or has already been released
+		recycleCachedObject(buffer);
+	}
+
+	/**
+	 * Hands a released buffer over to a waiting thread or puts it into the thread cache
+	 * @param buffer Buffer of this pool that is marked as free
+	 */
+	protected void recycleCachedObject(ByteBuffer buffer) {
+		if(buffer.capacity() != buffer_size) { dropBuffer(buffer); return; } // buffer size has changed
+		if(cache_waiters.hasWaiters() && cache_waiters.handOver(buffer)) return;
+		final ThreadCache cache = acquireThreadCache();
+		try {
+			releaseCachedObject(cache, buffer);
+		} finally {
+			releaseThreadCache(cache);
+		}
+	}
+
+	/**
+	 * Puts a buffer into the given cache and exchanges 
+	 * a full magazine with the depot if necessary
+	 * @param cache Cache of the calling thread (must be busy)
+	 * @param buffer Buffer that should be cached
+	 */
+	protected void releaseCachedObject(ThreadCache cache, ByteBuffer buffer) {
+		Magazine loaded = cache.loaded;
+		if(loaded.count == loaded.buffers.length) {
+			if(cache.previous.count == 0) {
+				cache.loaded = cache.previous;
+				cache.previous = loaded;
+			} else {
+				Magazine empty = empty_magazines.poll();
+				if(empty == null) empty = new Magazine(magazine_size);
+				cache.previous.last_used = System.currentTimeMillis();
+				full_magazines.offerFirst(cache.previous);
+				cache.previous = loaded;
+				cache.loaded = empty;
+				cache_waiters.wakeFirst();
+				if(maintenance == null) trimDepot();
+			}
+			loaded = cache.loaded;
+		}
+		loaded.buffers[loaded.count++] = buffer;
+	}
+
+	/**
+	 * Moves all buffers of the given cache into the depot
+	 * @param cache Cache that should be emptied (must be busy or owned by the calling thread)
+	 */
+	protected void flushThreadCache(ThreadCache cache) {
+		final long current_time = System.currentTimeMillis();
+		for(Magazine magazine : new Magazine[] { cache.loaded, cache.previous }) {
+			if(magazine.count == 0) { empty_magazines.offer(magazine); continue; }
+			magazine.last_used = current_time;
+			full_magazines.offerFirst(magazine);
+		}
+		cache.loaded = new Magazine(magazine_size);
+		cache.previous = new Magazine(magazine_size);
+		cache_waiters.wakeFirst();
+	}
+
+	/**
+	 * Moves the cached buffers of terminated threads back into the depot
+	 */
+	protected void reclaimDeadThreadCaches() {
+		Iterator<ThreadCache> it = registered_caches.iterator();
+		while(it.hasNext()) {
+			ThreadCache cache = it.next();
+			Thread owner = cache.owner.get();
+			if((owner == null || !owner.isAlive()) && cache.busy.compareAndSet(false, true)) {
+				it.remove();
+				if(cache.generation == cache_generation)
+					flushThreadCache(cache);
+				else
+					dropThreadCache(cache); // pool has been cleared in the meantime
+				cache.busy.set(false);
+			}
+		}
+	}
+
+	/**
+	 * Releases the memory of magazines in the depot that have exceeded expire time
+	 */
+	protected void trimDepot() {
+		if(this.keep_unused_alive<0) return;
+		final long current_time = System.currentTimeMillis();
+		Magazine magazine;
+		while(total_count.get() > min_keep_count && (magazine = full_magazines.pollLast()) != null) {
+			if(current_time - magazine.last_used < this.keep_unused_alive) {
+				full_magazines.offerLast(magazine);
+				break;
+			}
+			dropMagazine(magazine);
+			empty_magazines.offer(magazine);
+		}
+	}
+
+	/**
+	 * Creates free buffers until the minimum keep count is reached. 
+	 * If thread caching is enabled the buffers get put into the depot
+	 */
+	@Override
+	protected void replenish() {
+		if(magazine_size > 0) {
+			Magazine magazine = null;
+			ByteBuffer buffer;
+			while(total_count.get() < min_keep_count && (buffer = createCachedBuffer()) != null) {
+				if(magazine == null) {
+					magazine = empty_magazines.poll();
+					if(magazine == null) magazine = new Magazine(magazine_size);
+				}
+				magazine.buffers[magazine.count++] = buffer;
+				if(magazine.count == magazine.buffers.length) {
+					magazine.last_used = System.currentTimeMillis();
+					full_magazines.offerFirst(magazine);
+					magazine = null;
+				}
+			}
+			if(magazine != null) {
+				magazine.last_used = System.currentTimeMillis();
+				full_magazines.offerFirst(magazine);
+			}
+			cache_waiters.wakeFirst();
+			return;
+		}
+		lock.lock();
+		final long current_time = System.currentTimeMillis();
+		while(total_count.get() < min_keep_count && !isFull()) {
+			this.current_total_size.addAndGet(this.buffer_size);
+			this.total_count.incrementAndGet();
+			PooledObject<ByteBuffer> handle = slots.add(this, createBuffer(buffer_size));
+			if(!slot_waiters.handOver(handle))
+				slots.pushFree(handle, current_time);
 		}
 		lock.unlock();
 	}
+
+	protected void dropMagazine(Magazine magazine) {
+		while(magazine.count > 0) {
+			dropBuffer(magazine.buffers[--magazine.count]);
+			magazine.buffers[magazine.count] = null;
+		}
+	}
+
+	/**
+	 * Removes a buffer from the accounting of this pool and destroys it
+	 * @param buffer Buffer that is no longer used by this pool
+	 */
+	protected void dropBuffer(ByteBuffer buffer) {
+		current_total_size.addAndGet(-buffer.capacity());
+		total_count.decrementAndGet();
+		if(magazine_size > 0) cached_buffers.remove(new BufferKey(buffer));
+		destroyBuffer(buffer);
+		// memory got freed so waiting threads may create a new buffer
+		if(magazine_size > 0) cache_waiters.wakeFirst();
+		else slot_waiters.wakeFirst();
+	}
+	
+	/**
+	 * Creates the memory for a new buffer. Accounting is done by the caller
+	 * @param size Capacity in bytes of the new buffer
+	 * @return New buffer
+	 */
+	protected ByteBuffer createBuffer(int size) {
+		return ByteBuffer.allocate(size);
+	}
+	
+	/**
+	 * Called if a buffer created by {@link ByteBufferPool#createBuffer(int)} 
+	 * will no longer be used by this pool. Accounting is done by the caller. 
+	 * May also be called with buffers that have not been created by this pool
+	 * @param buffer Buffer that is no longer used
+	 */
+	protected void destroyBuffer(ByteBuffer buffer) {
+		
+	}
 }
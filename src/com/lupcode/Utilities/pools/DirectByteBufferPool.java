@@ -0,0 +1,232 @@
+package com.lupcode.Utilities.pools;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/** {@link ByteBufferPool} that manages direct (off-heap) {@link ByteBuffer}s
+ * so they can be used for channel I/O without copying.
+ * Buffers are carved from large aligned slabs that are freed explicitly
+ * as soon as all buffers of a slab got trimmed by {@link ByteBufferPool#clearUnused()}
+ * @author LupCode.com (Luca Vogels)
+ * @since 2026-10-16
+ */
+public class DirectByteBufferPool extends ByteBufferPool {
+
+	public static int DEFAULT_SLAB_SIZE = 1048576;
+	public static int DEFAULT_ALIGNMENT = 4096;
+
+	private static Object UNSAFE = null;
+	private static Method INVOKE_CLEANER = null;
+	static {
+		try {
+			Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+			Field field = unsafeClass.getDeclaredField("theUnsafe");
+			field.setAccessible(true);
+			UNSAFE = field.get(null);
+			INVOKE_CLEANER = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+		} catch (Exception ex) {} // memory will be freed by garbage collector
+	}
+
+	/**
+	 * Buffer carved from a slab with its position inside the slab
+	 */
+	protected static class Slice {
+		protected final ByteBuffer buffer;
+		protected final Slab slab;
+		protected final int index;
+
+		protected Slice(ByteBuffer buffer, Slab slab, int index) {
+			this.buffer = buffer;
+			this.slab = slab;
+			this.index = index;
+		}
+	}
+
+	/**
+	 * Large direct memory block that gets split into buffers of equal size
+	 */
+	protected static class Slab {
+		protected final ByteBuffer memory;
+		protected final Slice[] slices;
+		protected final int[] free_slices;
+		protected final int slice_size;
+		protected int free_count;
+		/** If slab is in the list of slabs with free slices */
+		protected boolean listed = false;
+
+		protected Slab(ByteBuffer memory, int slice_size, int count, int alignment) {
+			this.memory = memory;
+			this.slice_size = slice_size;
+			this.slices = new Slice[count];
+			this.free_slices = new int[count];
+			ByteBuffer aligned = alignment > 1 ? memory.alignedSlice(alignment) : memory;
+			if(aligned.capacity() < (long)count*slice_size)
+				throw new IllegalStateException("Slab of "+aligned.capacity()+" aligned bytes cannot hold "+count+" buffers of "+slice_size+" bytes");
+			for(int i=0; i<count; i++) {
+				aligned.limit(i*slice_size + slice_size).position(i*slice_size);
+				slices[i] = new Slice(aligned.slice(), this, i);
+				free_slices[i] = count-1-i;
+			}
+			this.free_count = count;
+		}
+	}
+
+	protected final int slab_size, alignment;
+	protected Lock slab_lock = new ReentrantLock();
+	protected final ArrayList<Slab> slabs = new ArrayList<>();
+	/** Slabs that may have free slices, slabs without free slices or of another size get removed lazily */
+	protected final ArrayDeque<Slab> free_slabs = new ArrayDeque<>();
+	protected final IdentityHashMap<ByteBuffer, Slice> slice_of = new IdentityHashMap<>();
+	protected final AtomicLong current_direct_size = new AtomicLong();
+
+	public DirectByteBufferPool(int buffer_size, long max_total_size, int min_keep_count, long keep_unused_alive, ObjectPoolFullMode full_mode) {
+		this(buffer_size, max_total_size, min_keep_count, keep_unused_alive, full_mode, 0, DEFAULT_SLAB_SIZE, DEFAULT_ALIGNMENT);
+	}
+
+	/**
+	 * @param buffer_size size in bytes for the capacity per {@link ByteBuffer}
+	 * @param max_total_size the maximum amount of bytes this pool is allowed to allocate. Negative means unlimited
+	 * @param min_keep_count how many buffers should be kept in memory at minimum
+	 * @param keep_unused_alive milliseconds how long unused buffers should be kept in memory. Negative for unlimited
+	 * @param full_mode how the pool should behave if it reaches the maximum total size
+	 * @param magazine_size how many free buffers each thread can cache without locking (zero or negative disables thread caching)
+	 * @param slab_size size in bytes of the direct memory blocks buffers get carved from
+	 * (at least one buffer per slab, never more than the remaining maximum total size)
+	 * @param alignment byte alignment of the slabs (zero or one for no alignment)
+	 */
+	public DirectByteBufferPool(int buffer_size, long max_total_size, int min_keep_count, long keep_unused_alive, ObjectPoolFullMode full_mode, int magazine_size, int slab_size, int alignment) {
+		super(buffer_size, max_total_size, min_keep_count, keep_unused_alive, full_mode, magazine_size);
+		if(alignment > 1 && Integer.bitCount(alignment) != 1) throw new IllegalArgumentException("Alignment must be a power of two");
+		this.slab_size = slab_size;
+		this.alignment = Math.max(1, alignment);
+	}
+
+	/**
+	 * @return size in bytes of the direct memory blocks buffers get carved from
+	 */
+	public int getSlabSize() {
+		return slab_size;
+	}
+
+	/**
+	 * @return byte alignment of the slabs
+	 */
+	public int getAlignment() {
+		return alignment;
+	}
+
+	/**
+	 * Returns how many slabs are currently allocated
+	 * @return Amount of slabs
+	 */
+	public int getSlabCount() {
+		slab_lock.lock();
+		try {
+			return slabs.size();
+		} finally {
+			slab_lock.unlock();
+		}
+	}
+
+	@Override
+	public long getCurrentHeapSize() {
+		return 0;
+	}
+
+	/**
+	 * Returns the direct memory in bytes that is held by all slabs
+	 * (including buffers not yet handed out and alignment padding)
+	 */
+	@Override
+	public long getCurrentDirectSize() {
+		return current_direct_size.get();
+	}
+
+	@Override
+	protected ByteBuffer createBuffer(int size) {
+		slab_lock.lock();
+		try {
+			Slab slab;
+			while((slab = free_slabs.peekFirst()) != null && (slab.free_count == 0 || slab.slice_size != size)) {
+				free_slabs.pollFirst();
+				slab.listed = false;
+			}
+			if(slab == null) {
+				long count = Math.max(1, slab_size / size);
+				if(max_total_size > 0) // current size already contains the requested buffer
+					count = Math.max(1, Math.min(count, (max_total_size - current_total_size.get()) / size + 1));
+				// alignedSlice() also rounds the end down so slab gets rounded up to the alignment plus padding for the start
+				final long bytes = alignment > 1 ? ((count*size + alignment - 1) & -(long)alignment) + alignment : count*size;
+				ByteBuffer memory = ByteBuffer.allocateDirect((int)bytes);
+				current_direct_size.addAndGet(memory.capacity());
+				slab = new Slab(memory, size, (int)count, alignment);
+				slabs.add(slab);
+				free_slabs.addFirst(slab);
+				slab.listed = true;
+			}
+			final Slice slice = slab.slices[slab.free_slices[--slab.free_count]];
+			if(slab.free_count == 0) {
+				free_slabs.pollFirst();
+				slab.listed = false;
+			}
+			slice_of.put(slice.buffer, slice);
+			return slice.buffer;
+		} finally {
+			slab_lock.unlock();
+		}
+	}
+
+	@Override
+	protected void destroyBuffer(ByteBuffer buffer) {
+		slab_lock.lock();
+		try {
+			final Slice slice = slice_of.remove(buffer);
+			if(slice == null) return; // not created by this pool
+			final Slab slab = slice.slab;
+			slab.free_slices[slab.free_count++] = slice.index;
+			if(slab.free_count < slab.slices.length) {
+				if(!slab.listed && slab.slice_size == buffer_size) {
+					free_slabs.addLast(slab);
+					slab.listed = true;
+				}
+				return;
+			}
+			slabs.remove(slab); // once per slab
+			if(slab.listed) {
+				free_slabs.remove(slab);
+				slab.listed = false;
+			}
+			current_direct_size.addAndGet(-slab.memory.capacity());
+			free(slab.memory);
+		} finally {
+			slab_lock.unlock();
+		}
+	}
+
+	/**
+	 * Frees the memory of a direct {@link ByteBuffer} immediately.
+	 * Buffer must not be used afterwards
+	 * @param memory Direct buffer that is no slice or duplicate
+	 */
+	protected static void free(ByteBuffer memory) {
+		if(INVOKE_CLEANER == null) return;
+		try {
+			INVOKE_CLEANER.invoke(UNSAFE, memory);
+		} catch (Exception ex) {}
+	}
+
+	@Override
+	public String toString() {
+		final String str = super.toString();
+		return new StringBuilder(str.substring(0, str.length()-1)).
+				append("; direct=").append(current_direct_size.get()).append("; slabs=").
+				append(getSlabCount()).append("}").toString();
+	}
+}
@@ -0,0 +1,280 @@
+package com.lupcode.Utilities.pools;
+
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.function.ToLongFunction;
+
+import com.lupcode.Utilities.exceptions.ObjectPoolCapacityException;
+
+/** Pool for any type of objects (e.g. {@link java.util.zip.Deflater}, {@link javax.crypto.Cipher},
+ * {@link java.security.MessageDigest}) that get created by a factory.
+ * Free objects are stored in a lock-free deque so allocating and releasing does not need a lock.
+ * Instead of remembering when each object got released the pool tracks the lowest amount 
+ * of free objects between two trims, so unused objects are kept for once to twice the keep alive time.
+ * Released objects are not checked if they have been created by this pool or 
+ * have already been released, so an object must only be released once per allocation
+ * @author LupCode.com (Luca Vogels)
+ * @since 2026-10-16
+ *
+ * @param <O> Objects that can be created and recycled
+ */
+public class GenericObjectPool<O> extends AbstractObjectPool<O> {
+
+	protected final Supplier<O> factory;
+	protected final Consumer<O> reset, destroy;
+	protected final Predicate<O> validate;
+	protected final ToLongFunction<O> size_estimator;
+	protected final ConcurrentLinkedDeque<O> free_objects = new ConcurrentLinkedDeque<>();
+	protected final HandOverQueue<O> waiters = new HandOverQueue<>();
+	protected final AtomicLong current_total_size = new AtomicLong(), last_trim = new AtomicLong(System.currentTimeMillis());
+	protected final AtomicInteger total_count = new AtomicInteger(), free_count = new AtomicInteger();
+	/** Lowest amount of free objects since the last trim */
+	protected final AtomicInteger min_free_count = new AtomicInteger();
+	/** Size of the last created object that gets reserved before the next object gets created */
+	protected volatile long size_estimate = 1;
+
+	/**
+	 * Creates a pool where each object has a size of one so the maximum total size limits the amount of objects
+	 * @param factory creates new objects
+	 * @param max_total_size the maximum amount of objects this pool is allowed to create. Negative means unlimited
+	 * @param min_keep_count how many objects should be kept in memory at minimum
+	 * @param keep_unused_alive milliseconds how long unused objects should be kept in memory. Negative for unlimited
+	 * @param full_mode how the pool should behave if it reaches the maximum total size
+	 * @throws NullPointerException if factory is null
+	 */
+	public GenericObjectPool(Supplier<O> factory, long max_total_size, int min_keep_count, long keep_unused_alive, ObjectPoolFullMode full_mode) throws NullPointerException {
+		this(factory, null, null, null, null, max_total_size, min_keep_count, keep_unused_alive, full_mode);
+	}
+
+	/**
+	 * @param factory creates new objects
+	 * @param reset gets called when an object gets released to reset its state (null if not needed)
+	 * @param validate gets called after resetting a released object, if false the object gets destroyed (null if not needed)
+	 * @param destroy gets called if an object gets removed from this pool e.g. to free native resources (null if not needed)
+	 * @param size_estimator estimates the size of an object in bytes, should return the same value during
+	 * the whole life time of an object (null for a size of one per object)
+	 * @param max_total_size the maximum amount of bytes this pool is allowed to allocate. Negative means unlimited
+	 * @param min_keep_count how many objects should be kept in memory at minimum
+	 * @param keep_unused_alive milliseconds how long unused objects should be kept in memory. Negative for unlimited
+	 * @param full_mode how the pool should behave if it reaches the maximum total size
+	 * @throws NullPointerException if factory is null
+	 */
+	public GenericObjectPool(Supplier<O> factory, Consumer<O> reset, Predicate<O> validate, Consumer<O> destroy, ToLongFunction<O> size_estimator,
+			long max_total_size, int min_keep_count, long keep_unused_alive, ObjectPoolFullMode full_mode) throws NullPointerException {
+		super(max_total_size, min_keep_count, keep_unused_alive, full_mode);
+		if(factory == null) throw new NullPointerException("Factory cannot be null");
+		this.factory = factory;
+		this.reset = reset;
+		this.validate = validate;
+		this.destroy = destroy;
+		this.size_estimator = size_estimator;
+	}
+
+	protected long sizeOf(O object) {
+		return size_estimator != null ? size_estimator.applyAsLong(object) : 1;
+	}
+
+	@Override
+	public long getCurrentTotalSize() {
+		return current_total_size.get();
+	}
+
+	@Override
+	public int getFreeCount() {
+		return Math.max(0, free_count.get());
+	}
+
+	@Override
+	public int getTotalCount() {
+		return total_count.get();
+	}
+
+	@Override
+	public void clear() {
+		O object;
+		while((object = free_objects.pollFirst()) != null) {
+			tookFree();
+			dropObject(object);
+		}
+	}
+
+	/**
+	 * Returns true if no free objects are available and
+	 * the maximum total size has been reached
+	 */
+	@Override
+	public boolean isFull() {
+		return max_total_size > 0 && current_total_size.get() >= max_total_size && free_objects.isEmpty();
+	}
+
+	/**
+	 * Tries to get a free object or create a new one if maximum total size is not reached yet.
+	 * Does not block
+	 * @return Object or null if no object is available without waiting
+	 */
+	protected O pollObject() {
+		O object = free_objects.pollFirst();
+		if(object != null) {
+			recordInUse(total_count.get() - tookFree());
+			return object;
+		}
+		object = createObject();
+		if(object != null) { recordMiss(); recordInUse(total_count.get() - free_count.get()); }
+		return object;
+	}
+
+	/**
+	 * Counts an object that has been taken from the free objects 
+	 * and updates the lowest amount of free objects since the last trim
+	 * @return Amount of free objects left
+	 */
+	protected int tookFree() {
+		final int free = free_count.decrementAndGet();
+		int min;
+		while(free < (min = min_free_count.get()) && !min_free_count.compareAndSet(min, free));
+		return free;
+	}
+
+	/**
+	 * Creates a new object if maximum total size is not reached yet. Does not block. 
+	 * The size of the previously created object gets reserved before the factory is called 
+	 * so concurrent callers cannot create more objects than fit, afterwards the 
+	 * reservation gets corrected to the actual size
+	 * @return New object or null if maximum total size would be exceeded
+	 */
+	protected O createObject() {
+		final long estimate = size_estimate;
+		if(!reserve(estimate)) return null;
+		final O object;
+		try {
+			object = factory.get();
+		} catch (RuntimeException | Error ex) {
+			unreserve(estimate);
+			throw ex;
+		}
+		final long size = sizeOf(object);
+		if(size != estimate) {
+			size_estimate = size;
+			if(size < estimate) unreserve(estimate - size);
+			else if(!reserve(size - estimate)) {
+				unreserve(estimate);
+				if(destroy != null) destroy.accept(object);
+				return null;
+			}
+		}
+		total_count.incrementAndGet();
+		return object;
+	}
+
+	/**
+	 * Adds to the current total size if the maximum total size does not get exceeded
+	 * @param size Size that should be reserved
+	 * @return True if reserved, false if maximum total size would be exceeded
+	 */
+	protected boolean reserve(long size) {
+		long current;
+		do {
+			current = current_total_size.get();
+			if(max_total_size > 0 && current + size > max_total_size) return false;
+		} while(!current_total_size.compareAndSet(current, current + size));
+		return true;
+	}
+
+	/**
+	 * Subtracts from the current total size and wakes up a waiting thread
+	 * @param size Size that is no longer needed
+	 */
+	protected void unreserve(long size) {
+		current_total_size.addAndGet(-size);
+		waiters.wakeFirst();
+	}
+
+	@Override
+	public O allocateFreeObject(long timeout, TimeUnit unit) throws ObjectPoolCapacityException, InterruptedException {
+		allocation_count.increment();
+		O object = pollObject();
+		if(object != null) return object;
+
+		switch (full_mode) {
+		case RETURN_NULL: return null;
+		case THROW_EXCEPTION: throw new ObjectPoolCapacityException();
+		default: break;
+		}
+
+		waiting.incrementAndGet();
+		try {
+			return waiters.await(this::pollObject, this::releaseObject, toNanos(timeout, unit));
+		} finally {
+			waiting.decrementAndGet();
+		}
+	}
+
+	@Override
+	public void releaseObject(O object) {
+		if(object == null) return;
+		if(reset != null) reset.accept(object);
+		if(validate != null && !validate.test(object)) {
+			dropObject(object);
+		} else offerFree(object);
+		if(maintenance == null) clearUnused();
+	}
+
+	/**
+	 * Hands a free object over to a waiting thread or adds it to the free objects
+	 * @param object Object that is ready to be allocated
+	 */
+	protected void offerFree(O object) {
+		if(waiters.hasWaiters() && waiters.handOver(object)) return;
+		free_count.incrementAndGet(); // before offering so it never drops below zero
+		free_objects.offerFirst(object);
+		// thread may have started waiting after the check so let it poll again
+		waiters.wakeFirst();
+	}
+
+	/**
+	 * Destroys the free objects that have not been used since the last trim if 
+	 * that has been at least keep unused alive ago. Free objects get taken from the 
+	 * head of the deque so the lowest amount of free objects since the last trim 
+	 * is the amount of objects at the tail that have not been used
+	 */
+	@Override
+	public void clearUnused() {
+		if(this.keep_unused_alive<0){ return;}
+
+		final long current_time = System.currentTimeMillis(), last = last_trim.get();
+		if(current_time - last < this.keep_unused_alive || !last_trim.compareAndSet(last, current_time)) return;
+		O object;
+		for(int unused = min_free_count.get(); unused > 0 && total_count.get() > min_keep_count && (object = free_objects.pollLast()) != null; unused--) {
+			free_count.decrementAndGet();
+			dropObject(object);
+		}
+		min_free_count.set(Math.max(0, free_count.get()));
+	}
+
+	/**
+	 * Creates free objects until the minimum keep count is reached. 
+	 * New objects skip the reset and validation of released objects
+	 */
+	@Override
+	protected void replenish() {
+		O object;
+		while(total_count.get() < min_keep_count && (object = createObject()) != null)
+			offerFree(object);
+	}
+
+	/**
+	 * Removes an object from the accounting of this pool and destroys it
+	 * @param object Object that is no longer used by this pool
+	 */
+	protected void dropObject(O object) {
+		final long size = sizeOf(object);
+		total_count.decrementAndGet();
+		if(destroy != null) destroy.accept(object);
+		unreserve(size); // memory got freed
+	}
+}
@@ -0,0 +1,135 @@
+package com.lupcode.Utilities.pools;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * First-in-first-out queue of threads waiting for an object of a pool.
+ * Released objects get handed over directly to the thread that waits
+ * the longest so only that thread gets woken up
+ * @author LupCode.com (Luca Vogels)
+ * @since 2026-10-16
+ *
+ * @param <T> Objects that get handed over
+ */
+public class HandOverQueue<T> {
+
+	protected static final Object CANCELLED = new Object();
+
+	/** Amount of cancelled waiters after which they get swept out of the queue */
+	protected static final int SWEEP_THRESHOLD = 64;
+
+	/**
+	 * Waiting thread whose value is null while waiting,
+	 * the handed over object or {@link HandOverQueue#CANCELLED}. 
+	 * Cancelled waiters stay in the queue until they get skipped 
+	 * or swept so cancelling does not need to search the queue
+	 */
+	protected static class Waiter extends AtomicReference<Object> {
+		private static final long serialVersionUID = 1L;
+		protected final Thread thread = Thread.currentThread();
+	}
+
+	protected final ConcurrentLinkedQueue<Waiter> waiters = new ConcurrentLinkedQueue<>();
+	protected final AtomicInteger cancelled = new AtomicInteger();
+
+	/**
+	 * @return True if threads are currently waiting (may include threads that stopped waiting)
+	 */
+	public boolean hasWaiters() {
+		return !waiters.isEmpty();
+	}
+
+	/**
+	 * Hands over an object to the thread that waits the longest
+	 * @param object Object that should be handed over
+	 * @return True if object has been handed over, false if no thread is waiting
+	 */
+	public boolean handOver(T object) {
+		Waiter waiter;
+		while((waiter = waiters.poll()) != null) {
+			if(waiter.compareAndSet(null, object)) {
+				LockSupport.unpark(waiter.thread);
+				return true;
+			}
+		} return false;
+	}
+
+	/**
+	 * Wakes up the thread that waits the longest so it polls again
+	 * (e.g. because memory got freed so new objects can be created)
+	 */
+	public void wakeFirst() {
+		for(Waiter waiter : waiters) {
+			if(waiter.get() == null) { // skip waiters that already stopped waiting
+				LockSupport.unpark(waiter.thread);
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Waits until an object gets handed over or the poller returns an object.
+	 * The poller gets called after the calling thread has been enqueued and
+	 * every time the thread gets woken up
+	 * @param poller Tries to get an object without blocking, returns null if none available
+	 * @param give_back Gets called with a handed over object if the calling thread does not need it anymore
+	 * @param timeout Nanoseconds how long to wait at maximum (negative to wait without limit)
+	 * @return Object or null if timeout elapsed
+	 * @throws InterruptedException if interrupted while waiting
+	 */
+	@SuppressWarnings("unchecked")
+	public T await(Supplier<T> poller, Consumer<T> give_back, long timeout) throws InterruptedException {
+		final long deadline = timeout >= 0 ? System.nanoTime() + timeout : 0;
+		final Waiter waiter = new Waiter();
+		waiters.add(waiter);
+		while(true) {
+			T object;
+			try {
+				object = poller.get();
+			} catch (RuntimeException ex) {
+				if(!cancel(waiter)) give_back.accept((T)waiter.get());
+				throw ex;
+			}
+			if(object != null) {
+				if(!cancel(waiter)) give_back.accept((T)waiter.get()); // also got one handed over
+				wakeFirst(); // next thread may also be able to poll
+				return object;
+			}
+			Object state = waiter.get();
+			if(state != null) return (T)state;
+			if(Thread.interrupted()) {
+				if(!cancel(waiter)) give_back.accept((T)waiter.get());
+				throw new InterruptedException();
+			}
+			if(timeout < 0) {
+				LockSupport.park(this);
+			} else {
+				final long remaining = deadline - System.nanoTime();
+				if(remaining <= 0) return cancel(waiter) ? null : (T)waiter.get();
+				LockSupport.parkNanos(this, remaining);
+			}
+			state = waiter.get();
+			if(state != null) return (T)state;
+		}
+	}
+
+	/**
+	 * Stops waiting without searching the queue. 
+	 * Once enough waiters stopped they get swept out of the queue at once
+	 * @param waiter Waiter that should be cancelled
+	 * @return True if cancelled, false if an object has already been handed over
+	 */
+	protected boolean cancel(Waiter waiter) {
+		if(!waiter.compareAndSet(null, CANCELLED)) return waiter.get() == CANCELLED;
+		if(cancelled.incrementAndGet() >= SWEEP_THRESHOLD) {
+			cancelled.set(0);
+			waiters.removeIf(w -> w.get() == CANCELLED);
+		}
+		return true;
+	}
+}
@@ -0,0 +1,261 @@
+package com.lupcode.Utilities.pools;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Consumer;
+
+import com.lupcode.Utilities.exceptions.ObjectPoolLeakException;
+
+/**
+ * Tracks leased objects of a pool with weak references so objects that get 
+ * garbage collected without being released can be detected, reclaimed and reported. 
+ * A configurable share of the leases records the stack trace of the allocation. 
+ * The pool must not hold strong references to tracked objects
+ * @author LupCode.com (Luca Vogels)
+ * @since 2026-10-16
+ *
+ * @param <O> Objects that are tracked
+ */
+public class LeakDetector<O> {
+
+	public static Consumer<ObjectPoolLeakException> DEFAULT_LISTENER = ObjectPoolLeakException::printStackTrace;
+
+	/**
+	 * Tracked lease of an object, chained by the identity hash of the object
+	 */
+	protected static class Lease<O> extends WeakReference<O> {
+		protected final int hash;
+		protected final long size;
+		protected final ObjectPoolLeakException trace;
+		protected Lease<O> next;
+		protected boolean tracked = true;
+
+		protected Lease(O object, int hash, long size, ObjectPoolLeakException trace, ReferenceQueue<O> queue) {
+			super(object, queue);
+			this.hash = hash;
+			this.size = size;
+			this.trace = trace;
+		}
+	}
+
+	protected final String name;
+	protected final ReferenceQueue<O> queue = new ReferenceQueue<>();
+	protected Lease<O>[] table = newTable(64);
+	protected volatile int count = 0;
+	protected long tracked_size = 0, leak_count = 0, leak_size = 0;
+	protected volatile boolean enabled = false;
+	protected volatile double stack_sample_rate = 0;
+	protected volatile Consumer<ObjectPoolLeakException> listener = DEFAULT_LISTENER;
+
+	@SuppressWarnings("unchecked")
+	protected static <O> Lease<O>[] newTable(int length) {
+		return (Lease<O>[]) new Lease<?>[length];
+	}
+
+	/**
+	 * @param name Name of the pool used in reports
+	 */
+	public LeakDetector(String name) {
+		this.name = name;
+	}
+
+	/**
+	 * @return True if new leases get tracked
+	 */
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	/**
+	 * Enables or disables tracking of new leases. 
+	 * Already tracked leases are still detected after disabling
+	 * @param enabled True if new leases should get tracked
+	 */
+	public void setEnabled(boolean enabled) {
+		this.enabled = enabled;
+	}
+
+	/**
+	 * @return Share of tracked leases that record the stack trace of their allocation (between 0 and 1)
+	 */
+	public double getStackSampleRate() {
+		return stack_sample_rate;
+	}
+
+	/**
+	 * Sets the share of tracked leases that record the stack trace of their allocation
+	 * @param stack_sample_rate Share between 0 (never) and 1 (always)
+	 */
+	public void setStackSampleRate(double stack_sample_rate) {
+		this.stack_sample_rate = stack_sample_rate;
+	}
+
+	/**
+	 * @return Listener that gets called for each detected leak
+	 */
+	public Consumer<ObjectPoolLeakException> getListener() {
+		return listener;
+	}
+
+	/**
+	 * Sets the listener that gets called for each detected leak
+	 * @param listener Listener or null for {@link LeakDetector#DEFAULT_LISTENER}
+	 */
+	public void setListener(Consumer<ObjectPoolLeakException> listener) {
+		this.listener = listener != null ? listener : DEFAULT_LISTENER;
+	}
+
+	/**
+	 * @return Amount of currently tracked leases
+	 */
+	public int getTrackedCount() {
+		return count;
+	}
+
+	/**
+	 * @return Sum of the sizes of currently tracked leases
+	 */
+	public synchronized long getTrackedSize() {
+		return tracked_size;
+	}
+
+	/**
+	 * @return Amount of objects that have been garbage collected without being released
+	 */
+	public synchronized long getLeakCount() {
+		return leak_count;
+	}
+
+	/**
+	 * @return Sum of the sizes of objects that have been garbage collected without being released
+	 */
+	public synchronized long getLeakSize() {
+		return leak_size;
+	}
+
+	/**
+	 * Starts tracking a leased object
+	 * @param object Object that has been leased
+	 * @param size Size of the object that gets reclaimed if it leaks
+	 */
+	public void track(O object, long size) {
+		final double rate = stack_sample_rate;
+		ObjectPoolLeakException trace = rate > 0 && (rate >= 1 || ThreadLocalRandom.current().nextDouble() < rate) ?
+				new ObjectPoolLeakException(object.getClass().getSimpleName()+" of "+name+
+						" has been garbage collected without being released, allocated at:", true) : null;
+		final int hash = System.identityHashCode(object);
+		synchronized (this) {
+			if(count >= table.length * 3 / 4) resize();
+			Lease<O> lease = new Lease<O>(object, hash, size, trace, queue);
+			final int index = hash & (table.length-1);
+			lease.next = table[index];
+			table[index] = lease;
+			tracked_size += size;
+			count++;
+		}
+	}
+
+	/**
+	 * Stops tracking an object because it got released
+	 * @param object Object that has been released
+	 * @return True if object has been tracked
+	 */
+	public boolean untrack(O object) {
+		if(count == 0) return false;
+		final int hash = System.identityHashCode(object);
+		synchronized (this) {
+			final int index = hash & (table.length-1);
+			Lease<O> prev = null, lease = table[index];
+			while(lease != null && (lease.hash != hash || lease.get() != object)) {
+				prev = lease;
+				lease = lease.next;
+			}
+			if(lease == null) return false;
+			unlink(index, prev, lease);
+			lease.clear();
+			return true;
+		}
+	}
+
+	/**
+	 * Removes the next lease whose object has been garbage collected 
+	 * without being released and reports it to the listener
+	 * @return Size of the leaked object or -1 if no more leaks are detected
+	 */
+	public long pollLeak() {
+		if(count == 0) return -1;
+		Lease<O> lease;
+		while(true) {
+			@SuppressWarnings("unchecked")
+			Lease<O> polled = (Lease<O>) queue.poll();
+			if(polled == null) return -1;
+			synchronized (this) {
+				if(!polled.tracked) continue; // released or cleared before it got enqueued
+				final int index = polled.hash & (table.length-1);
+				Lease<O> prev = null;
+				lease = table[index];
+				while(lease != polled) { prev = lease; lease = lease.next; }
+				unlink(index, prev, lease);
+				leak_count++;
+				leak_size += lease.size;
+			}
+			break;
+		}
+		try {
+			listener.accept(lease.trace != null ? lease.trace : new ObjectPoolLeakException("Object of "+name+
+					" has been garbage collected without being released (increase stack sample rate to see where it has been allocated)", false));
+		} catch (Exception ex) { ex.printStackTrace(); }
+		return lease.size;
+	}
+
+	/**
+	 * Stops tracking all leases without reporting them
+	 */
+	public synchronized void clear() {
+		for(Lease<O> lease : table)
+			for(; lease != null; lease = lease.next) {
+				lease.tracked = false;
+				lease.clear();
+			}
+		table = newTable(64);
+		tracked_size = 0;
+		count = 0;
+	}
+
+	/**
+	 * Removes a lease from the table. Lock must be held by caller
+	 */
+	protected void unlink(int index, Lease<O> prev, Lease<O> lease) {
+		if(prev == null) table[index] = lease.next;
+		else prev.next = lease.next;
+		lease.next = null;
+		lease.tracked = false;
+		tracked_size -= lease.size;
+		count--;
+	}
+
+	/**
+	 * Doubles the size of the table. Lock must be held by caller
+	 */
+	protected void resize() {
+		Lease<O>[] newTable = newTable(table.length*2);
+		for(Lease<O> lease : table) {
+			while(lease != null) {
+				Lease<O> next = lease.next;
+				final int index = lease.hash & (newTable.length-1);
+				lease.next = newTable[index];
+				newTable[index] = lease;
+				lease = next;
+			}
+		}
+		table = newTable;
+	}
+
+	@Override
+	public String toString() {
+		return new StringBuilder(getClass().getSimpleName()).append("{enabled=").append(enabled).
+				append("; tracked=").append(count).append("; leaks=").append(getLeakCount()).
+				append("; stack_sample_rate=").append(stack_sample_rate).append("}").toString();
+	}
+}
@@ -1,5 +1,7 @@
 package com.lupcode.Utilities.pools;
 
+import java.util.concurrent.TimeUnit;
+
 import com.lupcode.Utilities.exceptions.ObjectPoolCapacityException;
 
 /** Interface that every object pool implements. 
@@ -96,12 +98,34 @@ public interface ObjectPool<O> {
 	 * throws an {@link ObjectPoolCapacityException}
 	 * @return Object that was allocated (or null depending on full mode)
 	 * @throws ObjectPoolCapacityException if capacity of pool is reached and 
-	 * full mode is set to {@link ObjectPoolFullMode#THROW_EXCEPTION}
+	 * full mode is set to {@link ObjectPoolFullMode#THROW_EXCEPTION} 
+	 * or if interrupted while waiting (interrupt flag stays set)
 	 */
 	public abstract O allocateFreeObject() throws ObjectPoolCapacityException;
 	
+	/**
+	 * Tries to allocate a new/recycled object and returns it. 
+	 * Object must be released afterwards by calling {@link ObjectPool#releaseObject(Object)}. 
+	 * Depending on the {@link ObjectPoolFullMode} this function may return null, 
+	 * throw an {@link ObjectPoolCapacityException} or block up to the given timeout. 
+	 * Blocked threads are served in first-in-first-out order
+	 * @param timeout How long to wait at maximum if full mode is {@link ObjectPoolFullMode#BLOCK} 
+	 * (negative to wait without limit)
+	 * @param unit Time unit of the timeout
+	 * @return Object that was allocated or null if timeout elapsed (or depending on full mode)
+	 * @throws ObjectPoolCapacityException if capacity of pool is reached and 
+	 * full mode is set to {@link ObjectPoolFullMode#THROW_EXCEPTION}
+	 * @throws InterruptedException if interrupted while waiting
+	 */
+	public abstract O allocateFreeObject(long timeout, TimeUnit unit) throws ObjectPoolCapacityException, InterruptedException;
+	
 	/** 
-	 * Releases the allocated objects for reusing it
+	 * Releases the allocated objects for reusing it. 
+	 * Pools that track their leases ignore objects that have not been allocated 
+	 * from them or have already been released, so releasing an object twice has no 
+	 * effect as long as it has not been allocated again in the meantime. 
+	 * Pools that do not track their leases document it and must not be 
+	 * called twice for the same allocation
 	 * @param object Object that should be released for reusing
 	 */
 	public abstract void releaseObject(O object);
@@ -7,7 +7,7 @@ package com.lupcode.Utilities.pools;
  * @since 2020-02-12
  */
 public enum ObjectPoolFullMode {
-	/** It will block until  */
+	/** It will block until an object gets released or memory becomes available */
 	BLOCK,
 	
 	RETURN_NULL,
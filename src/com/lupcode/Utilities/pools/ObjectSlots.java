@@ -0,0 +1,180 @@
+package com.lupcode.Utilities.pools;
+
+/**
+ * Table of {@link PooledObject}s indexed by their slot that also holds a stack
+ * of free objects (newest on top, oldest at the bottom).
+ * Used by pools to track their objects without maps. Not thread-safe,
+ * the pool needs to guard all accesses
+ * @author LupCode.com (Luca Vogels)
+ * @since 2026-10-16
+ *
+ * @param <O> Objects that are held by the slots
+ */
+public class ObjectSlots<O> {
+
+	protected PooledObject<O>[] slots = newArray(16);
+	protected int[] unused_slots = new int[16];
+	protected int slot_count = 0, unused_count = 0;
+
+	protected PooledObject<O>[] free = newArray(16);
+	protected int free_count = 0;
+
+	@SuppressWarnings("unchecked")
+	protected static <O> PooledObject<O>[] newArray(int length) {
+		return (PooledObject<O>[]) new PooledObject<?>[length];
+	}
+
+	/**
+	 * Creates a handle for a new object and assigns it a free slot.
+	 * The handle is marked as leased
+	 * @param pool Pool the object belongs to
+	 * @param object Object that should be added
+	 * @return Handle of the object
+	 */
+	public PooledObject<O> add(AbstractObjectPool<O> pool, O object) {
+		int slot;
+		if(unused_count > 0) {
+			slot = unused_slots[--unused_count];
+		} else {
+			if(slot_count == slots.length) {
+				PooledObject<O>[] newSlots = newArray(slots.length*2);
+				System.arraycopy(slots, 0, newSlots, 0, slot_count);
+				slots = newSlots;
+			}
+			slot = slot_count++;
+		}
+		PooledObject<O> handle = new PooledObject<O>(pool, object, slot);
+		slots[slot] = handle;
+		return handle;
+	}
+
+	/**
+	 * Frees the slot of a handle. Handle must not be in the free stack
+	 * @param handle Handle that should be removed
+	 */
+	public void remove(PooledObject<O> handle) {
+		slots[handle.slot] = null;
+		if(unused_count == unused_slots.length) {
+			int[] newUnused = new int[unused_slots.length*2];
+			System.arraycopy(unused_slots, 0, newUnused, 0, unused_count);
+			unused_slots = newUnused;
+		}
+		unused_slots[unused_count++] = handle.slot;
+	}
+
+	/**
+	 * Returns true if the handle is still held by its slot
+	 * (false if handle belongs to another pool or slots got cleared)
+	 * @param handle Handle that should be checked
+	 * @return True if handle is known
+	 */
+	public boolean contains(PooledObject<O> handle) {
+		return handle.slot >= 0 && handle.slot < slot_count && slots[handle.slot] == handle;
+	}
+
+	/**
+	 * Searches the leased handle of an object. 
+	 * Needs to check all slots so should only be used if the handle is unknown
+	 * @param object Object whose handle should be found
+	 * @return Leased handle of the object or null if object is not leased from these slots
+	 */
+	public PooledObject<O> findLeased(O object) {
+		for(int i=0; i<slot_count; i++) {
+			final PooledObject<O> handle = slots[i];
+			if(handle != null && handle.object == object && handle.leased) return handle;
+		}
+		return null;
+	}
+
+	/**
+	 * Returns the handle in the given slot
+	 * @param slot Index of the slot
+	 * @return Handle or null if slot is unused
+	 */
+	public PooledObject<O> get(int slot) {
+		return slot >= 0 && slot < slot_count ? slots[slot] : null;
+	}
+
+	/**
+	 * @return Amount of handles currently held by the slots (free and leased)
+	 */
+	public int size() {
+		return slot_count - unused_count;
+	}
+
+	/**
+	 * @return Amount of slots that have been used so far (highest slot index plus one)
+	 */
+	public int getSlotCount() {
+		return slot_count;
+	}
+
+	/**
+	 * Marks the handle as free and pushes it on top of the free stack
+	 * @param handle Handle that should be freed
+	 * @param time System time in milliseconds when handle got released
+	 */
+	public void pushFree(PooledObject<O> handle, long time) {
+		if(free_count == free.length) {
+			PooledObject<O>[] newFree = newArray(free.length*2);
+			System.arraycopy(free, 0, newFree, 0, free_count);
+			free = newFree;
+		}
+		handle.leased = false;
+		handle.last_used = time;
+		free[free_count++] = handle;
+	}
+
+	/**
+	 * Removes the newest free handle and marks it as leased
+	 * @param time System time in milliseconds when handle got allocated
+	 * @return Newest free handle or null if no free handles
+	 */
+	public PooledObject<O> pollFree(long time) {
+		if(free_count == 0) return null;
+		PooledObject<O> handle = free[--free_count];
+		free[free_count] = null;
+		handle.leased = true;
+		handle.last_used = time;
+		return handle;
+	}
+
+	/**
+	 * Returns the free handle at the given position of the stack
+	 * @param index Position where zero is the oldest free handle
+	 * @return Free handle
+	 */
+	public PooledObject<O> getFree(int index) {
+		return free[index];
+	}
+
+	/**
+	 * Removes the oldest free handles from the stack and frees their slots
+	 * @param n Amount of handles that should be removed
+	 */
+	public void removeOldestFree(int n) {
+		for(int i=0; i<n; i++) remove(free[i]);
+		System.arraycopy(free, n, free, 0, free_count-n);
+		for(int i=free_count-n; i<free_count; i++) free[i] = null;
+		free_count -= n;
+	}
+
+	/**
+	 * @return Amount of free handles
+	 */
+	public int getFreeCount() {
+		return free_count;
+	}
+
+	/**
+	 * Removes all handles (free and leased)
+	 */
+	public void clear() {
+		slots = newArray(16);
+		unused_slots = new int[16];
+		slot_count = 0;
+		unused_count = 0;
+		free = newArray(16);
+		free_count = 0;
+	}
+}
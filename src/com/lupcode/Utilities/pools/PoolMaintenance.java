@@ -0,0 +1,136 @@
+package com.lupcode.Utilities.pools;
+
+import java.lang.ref.WeakReference;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import com.lupcode.Utilities.executors.DynamicScheduledThreadPoolExecutor;
+
+/**
+ * Periodically maintains all registered pools in a single task on a 
+ * {@link DynamicScheduledThreadPoolExecutor}. Maintenance releases expired 
+ * unused objects, creates objects until the minimum keep count is reached 
+ * and takes a {@link PoolStatistics} snapshot. Pools that use background 
+ * maintenance do not trim themselves when objects get released. 
+ * Pools are only weakly referenced so they get unregistered once garbage collected
+ * @author LupCode.com (Luca Vogels)
+ * @since 2026-10-16
+ */
+public class PoolMaintenance implements Runnable {
+
+	public static long DEFAULT_INTERVAL = 1000;
+
+	private static PoolMaintenance shared = null;
+
+	/**
+	 * Returns the maintenance that is shared by all pools. 
+	 * It runs every {@link PoolMaintenance#DEFAULT_INTERVAL} milliseconds 
+	 * on a single daemon thread that terminates if no pools are registered
+	 * @return Shared maintenance
+	 */
+	public static synchronized PoolMaintenance getShared() {
+		if(shared == null) {
+			DynamicScheduledThreadPoolExecutor executor = new DynamicScheduledThreadPoolExecutor(0, 1, 60, TimeUnit.SECONDS);
+			executor.setDaemon(true);
+			shared = new PoolMaintenance(executor, DEFAULT_INTERVAL);
+		} return shared;
+	}
+
+	protected final DynamicScheduledThreadPoolExecutor executor;
+	protected volatile long interval;
+	protected final ConcurrentLinkedQueue<WeakReference<AbstractObjectPool<?>>> pools = new ConcurrentLinkedQueue<>();
+	protected final AtomicBoolean scheduled = new AtomicBoolean(false);
+
+	/**
+	 * @param executor Executor the maintenance runs on
+	 * @param interval Milliseconds between two maintenance runs
+	 * @throws NullPointerException if executor is null
+	 */
+	public PoolMaintenance(DynamicScheduledThreadPoolExecutor executor, long interval) throws NullPointerException {
+		if(executor == null) throw new NullPointerException("Executor cannot be null");
+		this.executor = executor;
+		this.interval = Math.max(1, interval);
+	}
+
+	/**
+	 * @return Executor the maintenance runs on
+	 */
+	public DynamicScheduledThreadPoolExecutor getExecutor() {
+		return executor;
+	}
+
+	/**
+	 * @return Milliseconds between two maintenance runs
+	 */
+	public long getInterval() {
+		return interval;
+	}
+
+	/**
+	 * Sets the time between two maintenance runs. 
+	 * Takes effect after the next run
+	 * @param interval Milliseconds between two maintenance runs
+	 */
+	public void setInterval(long interval) {
+		this.interval = Math.max(1, interval);
+	}
+
+	/**
+	 * Returns how many pools are currently registered
+	 * @return Amount of registered pools
+	 */
+	public int getPoolCount() {
+		return pools.size();
+	}
+
+	/**
+	 * Registers a pool so it gets maintained periodically. 
+	 * Should be called by {@link AbstractObjectPool#setMaintenance(PoolMaintenance)}
+	 * @param pool Pool that should be maintained
+	 */
+	protected void register(AbstractObjectPool<?> pool) {
+		pools.add(new WeakReference<AbstractObjectPool<?>>(pool));
+		if(scheduled.compareAndSet(false, true))
+			executor.executeIn(interval, this);
+	}
+
+	/**
+	 * Unregisters a pool so it no longer gets maintained. 
+	 * Should be called by {@link AbstractObjectPool#setMaintenance(PoolMaintenance)}
+	 * @param pool Pool that should not be maintained anymore
+	 */
+	protected void unregister(AbstractObjectPool<?> pool) {
+		Iterator<WeakReference<AbstractObjectPool<?>>> it = pools.iterator();
+		while(it.hasNext()) {
+			AbstractObjectPool<?> p = it.next().get();
+			if(p == null || p == pool) it.remove();
+		}
+	}
+
+	/**
+	 * Maintains all registered pools and schedules the next run
+	 */
+	@Override
+	public void run() {
+		Iterator<WeakReference<AbstractObjectPool<?>>> it = pools.iterator();
+		while(it.hasNext()) {
+			AbstractObjectPool<?> pool = it.next().get();
+			if(pool == null) { it.remove(); continue; }
+			try {
+				pool.maintain();
+			} catch (Exception ex) { ex.printStackTrace(); }
+		}
+		scheduled.set(false);
+		// pool may have registered after the iteration finished
+		if(!pools.isEmpty() && scheduled.compareAndSet(false, true))
+			executor.executeIn(interval, this);
+	}
+
+	@Override
+	public String toString() {
+		return new StringBuilder(getClass().getSimpleName()).append("{pools=").append(pools.size()).
+				append("; interval=").append(interval).append("; scheduled=").append(scheduled.get()).append("}").toString();
+	}
+}
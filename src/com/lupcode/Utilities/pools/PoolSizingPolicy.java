@@ -0,0 +1,19 @@
+package com.lupcode.Utilities.pools;
+
+/**
+ * Policy that adjusts the sizing parameters of a pool (e.g. minimum keep count 
+ * or how long unused objects are kept) based on its demand. 
+ * Gets called by the background maintenance of the pool
+ * @author LupCode.com (Luca Vogels)
+ * @since 2026-10-16
+ */
+public interface PoolSizingPolicy {
+
+	/**
+	 * Adjusts the sizing of the pool based on the latest statistics. 
+	 * Expired objects get released and missing objects get created after this call
+	 * @param pool Pool whose sizing should be adjusted
+	 * @param statistics Statistics since the previous call
+	 */
+	public abstract void resize(AbstractObjectPool<?> pool, PoolStatistics statistics);
+}
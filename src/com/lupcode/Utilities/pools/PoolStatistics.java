@@ -0,0 +1,123 @@
+package com.lupcode.Utilities.pools;
+
+/**
+ * Immutable snapshot of the statistics of an {@link ObjectPool} 
+ * that gets taken during background maintenance
+ * @author LupCode.com (Luca Vogels)
+ * @since 2026-10-16
+ */
+public class PoolStatistics {
+
+	protected final long time, duration, total_size, allocation_count, miss_count;
+	protected final int free_count, total_count, waiting, peak_in_use;
+
+	/**
+	 * @param time System time in milliseconds when snapshot has been taken
+	 * @param duration Milliseconds since the previous snapshot
+	 * @param total_size Amount of bytes in memory
+	 * @param free_count Amount of unused objects
+	 * @param total_count Total amount of objects
+	 * @param waiting Amount of threads waiting for an object
+	 * @param allocation_count Amount of allocations since the previous snapshot
+	 * @param miss_count Amount of allocations since the previous snapshot that had to create a new object
+	 * @param peak_in_use Highest amount of objects in use at the same time since the previous snapshot
+	 */
+	public PoolStatistics(long time, long duration, long total_size, int free_count, int total_count, int waiting,
+			long allocation_count, long miss_count, int peak_in_use) {
+		this.time = time;
+		this.duration = duration;
+		this.total_size = total_size;
+		this.free_count = free_count;
+		this.total_count = total_count;
+		this.waiting = waiting;
+		this.allocation_count = allocation_count;
+		this.miss_count = miss_count;
+		this.peak_in_use = peak_in_use;
+	}
+
+	/**
+	 * @return System time in milliseconds when snapshot has been taken
+	 */
+	public long getTime() {
+		return time;
+	}
+
+	/**
+	 * @return Milliseconds since the previous snapshot
+	 */
+	public long getDuration() {
+		return duration;
+	}
+
+	/**
+	 * @return Amount of bytes in memory
+	 */
+	public long getTotalSize() {
+		return total_size;
+	}
+
+	/**
+	 * @return Amount of unused objects
+	 */
+	public int getFreeCount() {
+		return free_count;
+	}
+
+	/**
+	 * @return Total amount of objects
+	 */
+	public int getTotalCount() {
+		return total_count;
+	}
+
+	/**
+	 * @return Amount of threads that have been waiting for an object
+	 */
+	public int getWaiting() {
+		return waiting;
+	}
+
+	/**
+	 * @return Amount of allocations since the previous snapshot
+	 */
+	public long getAllocationCount() {
+		return allocation_count;
+	}
+
+	/**
+	 * @return Amount of allocations since the previous snapshot that had to create a new object
+	 */
+	public long getMissCount() {
+		return miss_count;
+	}
+
+	/**
+	 * @return Share of allocations since the previous snapshot that had to create a new object (between 0 and 1)
+	 */
+	public double getMissRate() {
+		return allocation_count > 0 ? (double)miss_count / allocation_count : 0;
+	}
+
+	/**
+	 * @return Allocations per second since the previous snapshot
+	 */
+	public double getAllocationRate() {
+		return duration > 0 ? allocation_count * 1000.0 / duration : 0;
+	}
+
+	/**
+	 * @return Highest amount of objects in use at the same time since the previous snapshot
+	 */
+	public int getPeakInUse() {
+		return peak_in_use;
+	}
+
+	@Override
+	public String toString() {
+		return new StringBuilder(getClass().getSimpleName()).append("{time=").append(time).
+				append("; free_count=").append(free_count).append("/").append(total_count).
+				append("; memory=").append(total_size).append("; waiting=").append(waiting).
+				append("; allocations=").append(allocation_count).append(" (misses=").append(miss_count).
+				append("); peak_in_use=").append(peak_in_use).append("}").toString();
+	}
+}
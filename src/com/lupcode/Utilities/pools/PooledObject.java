@@ -0,0 +1,103 @@
+package com.lupcode.Utilities.pools;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+/**
+ * Handle for an object that has been allocated from an {@link AbstractObjectPool}.
+ * Closing the handle releases the object back to its pool so it can be used
+ * in try-with-resources statements. Handles know their slot in the pool
+ * so releasing does not need any lookups.
+ * Neither the handle nor the object must be used after the handle got closed
+ * @author LupCode.com (Luca Vogels)
+ * @since 2026-10-16
+ *
+ * @param <O> Object that is held by the handle
+ */
+public class PooledObject<O> implements AutoCloseable {
+
+	protected static final VarHandle LEASED;
+	static {
+		try {
+			LEASED = MethodHandles.lookup().findVarHandle(PooledObject.class, "leased", boolean.class);
+		} catch (ReflectiveOperationException ex) {
+			throw new ExceptionInInitializerError(ex);
+		}
+	}
+
+	protected final AbstractObjectPool<O> pool;
+	protected final O object;
+	protected final int slot;
+	protected long last_used;
+	protected volatile boolean leased = true;
+
+	/**
+	 * @param pool Pool the object belongs to
+	 * @param object Object that is held by the handle
+	 * @param slot Index of the slot in the pool (negative if pool does not use slots)
+	 */
+	protected PooledObject(AbstractObjectPool<O> pool, O object, int slot) {
+		this.pool = pool;
+		this.object = object;
+		this.slot = slot;
+		this.last_used = System.currentTimeMillis();
+	}
+
+	/**
+	 * @return Object that is held by this handle
+	 */
+	public O get() {
+		return object;
+	}
+
+	/**
+	 * @return Pool the object belongs to
+	 */
+	public AbstractObjectPool<O> getPool() {
+		return pool;
+	}
+
+	/**
+	 * @return Index of the slot in the pool (negative if pool does not use slots)
+	 */
+	public int getSlot() {
+		return slot;
+	}
+
+	/**
+	 * @return System time in milliseconds when the object got allocated or released the last time
+	 */
+	public long getLastUsed() {
+		return last_used;
+	}
+
+	/**
+	 * @return True if object is currently allocated and has not been released yet
+	 */
+	public boolean isLeased() {
+		return leased;
+	}
+
+	/**
+	 * Marks the object as released. If multiple threads release 
+	 * the same handle concurrently only one of them succeeds
+	 * @return True if object was leased and is released now
+	 */
+	protected boolean markReleased() {
+		return LEASED.compareAndSet(this, true, false);
+	}
+
+	/**
+	 * Releases the object back to its pool
+	 */
+	@Override
+	public void close() {
+		pool.release(this);
+	}
+
+	@Override
+	public String toString() {
+		return new StringBuilder(getClass().getSimpleName()).append("{slot=").append(slot).
+				append("; leased=").append(leased).append("; object=").append(object).append("}").toString();
+	}
+}
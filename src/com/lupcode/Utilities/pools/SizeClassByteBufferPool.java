@@ -0,0 +1,396 @@
+package com.lupcode.Utilities.pools;
+
+import java.nio.ByteBuffer;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+import com.lupcode.Utilities.exceptions.ObjectPoolCapacityException;
+
+/** Manages {@link ByteBuffer}s of different sizes. Capacities are rounded up to the
+ * next power of two (size class) and every size class has its own list of free buffers.
+ * All size classes share the same maximum total size. If the maximum total size is reached
+ * free buffers of other size classes get released to make room for the requested one
+ * @author LupCode.com (Luca Vogels)
+ * @since 2026-10-16
+ */
+public class SizeClassByteBufferPool extends AbstractObjectPool<ByteBuffer> {
+
+	/**
+	 * Free buffers and statistics of a single size class
+	 */
+	protected static class SizeClass {
+		protected final int size;
+		protected final HandOverQueue<ByteBuffer> waiters = new HandOverQueue<>();
+		protected ByteBuffer[] free = new ByteBuffer[8];
+		protected long[] free_since = new long[8];
+		protected int free_count = 0, total_count = 0;
+		protected volatile long hits = 0, misses = 0;
+
+		protected SizeClass(int size) {
+			this.size = size;
+		}
+
+		protected void push(ByteBuffer buffer, long time) {
+			if(free_count == free.length) {
+				ByteBuffer[] newFree = new ByteBuffer[free.length*2];
+				long[] newSince = new long[free.length*2];
+				System.arraycopy(free, 0, newFree, 0, free_count);
+				System.arraycopy(free_since, 0, newSince, 0, free_count);
+				free = newFree;
+				free_since = newSince;
+			}
+			free[free_count] = buffer;
+			free_since[free_count++] = time;
+		}
+
+		protected ByteBuffer pop() {
+			if(free_count == 0) return null;
+			ByteBuffer buffer = free[--free_count];
+			free[free_count] = null;
+			return buffer;
+		}
+
+		/**
+		 * Removes the oldest free buffers
+		 * @param n Amount of buffers that should be removed from the bottom of the stack
+		 */
+		protected void removeOldest(int n) {
+			System.arraycopy(free, n, free, 0, free_count-n);
+			System.arraycopy(free_since, n, free_since, 0, free_count-n);
+			for(int i=free_count-n; i<free_count; i++) free[i] = null;
+			free_count -= n;
+			total_count -= n;
+		}
+	}
+
+	protected final int min_shift, max_shift;
+	protected final SizeClass[] classes;
+	protected Lock lock = new ReentrantLock();
+	protected Set<ByteBuffer> leased = Collections.newSetFromMap(new IdentityHashMap<ByteBuffer, Boolean>());
+	protected volatile long current_total_size = 0;
+	protected volatile int total_count = 0;
+
+	/**
+	 * @param min_size smallest buffer capacity in bytes (rounded up to the next power of two)
+	 * @param max_size largest buffer capacity in bytes (rounded up to the next power of two)
+	 * @param max_total_size the maximum amount of bytes this pool is allowed to allocate over all size classes. Negative means unlimited
+	 * @param min_keep_count how many buffers should be kept in memory at minimum
+	 * @param keep_unused_alive milliseconds how long unused buffers should be kept in memory. Negative for unlimited
+	 * @param full_mode how the pool should behave if it reaches the maximum total size
+	 * @throws IllegalArgumentException if sizes are not positive or min size is greater than max size
+	 */
+	public SizeClassByteBufferPool(int min_size, int max_size, long max_total_size, int min_keep_count, long keep_unused_alive, ObjectPoolFullMode full_mode) throws IllegalArgumentException {
+		super(max_total_size, min_keep_count, keep_unused_alive, full_mode);
+		if(min_size <= 0 || max_size < min_size || max_size > (1 << 30)) throw new IllegalArgumentException("Invalid size range "+min_size+" - "+max_size);
+		this.min_shift = shiftOf(min_size);
+		this.max_shift = shiftOf(max_size);
+		this.classes = new SizeClass[max_shift - min_shift + 1];
+		for(int i=0; i<classes.length; i++)
+			classes[i] = new SizeClass(1 << (min_shift + i));
+	}
+
+	protected static int shiftOf(int capacity) {
+		return capacity <= 1 ? 0 : 32 - Integer.numberOfLeadingZeros(capacity - 1);
+	}
+
+	/**
+	 * Returns the index of the smallest size class that fits the given capacity
+	 * @param capacity Capacity in bytes
+	 * @return Index of size class or -1 if capacity is greater than max size
+	 */
+	protected int indexOf(int capacity) {
+		final int shift = shiftOf(capacity);
+		if(shift > max_shift) return -1;
+		return Math.max(0, shift - min_shift);
+	}
+
+	/**
+	 * @return capacity in bytes of the smallest size class
+	 */
+	public int getMinSize() {
+		return 1 << min_shift;
+	}
+
+	/**
+	 * @return capacity in bytes of the largest size class
+	 */
+	public int getMaxSize() {
+		return 1 << max_shift;
+	}
+
+	/**
+	 * Returns the capacity of the buffers that will be returned for the given minimum capacity
+	 * @param minCapacity Minimum capacity in bytes
+	 * @return Capacity of the fitting size class or -1 if no size class fits
+	 */
+	public int getSizeClass(int minCapacity) {
+		final int index = indexOf(minCapacity);
+		return index >= 0 ? classes[index].size : -1;
+	}
+
+	/**
+	 * Returns how often a free buffer of the size class of the given capacity could be reused
+	 * @param capacity Capacity in bytes whose size class should be looked up
+	 * @return Amount of allocations served by free buffers
+	 * @throws IllegalArgumentException if no size class fits the capacity
+	 */
+	public long getHitCount(int capacity) throws IllegalArgumentException {
+		return getSizeClassOf(capacity).hits;
+	}
+
+	/**
+	 * Returns how often a new buffer had to be created (or waited for) for the size class of the given capacity
+	 * @param capacity Capacity in bytes whose size class should be looked up
+	 * @return Amount of allocations not served by free buffers
+	 * @throws IllegalArgumentException if no size class fits the capacity
+	 */
+	public long getMissCount(int capacity) throws IllegalArgumentException {
+		return getSizeClassOf(capacity).misses;
+	}
+
+	/**
+	 * Returns how many buffers of the size class of the given capacity are unused
+	 * @param capacity Capacity in bytes whose size class should be looked up
+	 * @return Amount of free buffers in size class
+	 * @throws IllegalArgumentException if no size class fits the capacity
+	 */
+	public int getFreeCount(int capacity) throws IllegalArgumentException {
+		return getSizeClassOf(capacity).free_count;
+	}
+
+	/**
+	 * Returns how many buffers of the size class of the given capacity are allocated
+	 * @param capacity Capacity in bytes whose size class should be looked up
+	 * @return Amount of allocated buffers in size class
+	 * @throws IllegalArgumentException if no size class fits the capacity
+	 */
+	public int getTotalCount(int capacity) throws IllegalArgumentException {
+		return getSizeClassOf(capacity).total_count;
+	}
+
+	protected SizeClass getSizeClassOf(int capacity) throws IllegalArgumentException {
+		final int index = indexOf(capacity);
+		if(index < 0) throw new IllegalArgumentException("No size class fits capacity of "+capacity+" bytes");
+		return classes[index];
+	}
+
+	@Override
+	public long getCurrentTotalSize() {
+		return current_total_size;
+	}
+
+	@Override
+	public int getFreeCount() {
+		int count = 0;
+		for(SizeClass c : classes)
+			count += c.free_count;
+		return count;
+	}
+
+	@Override
+	public int getTotalCount() {
+		return total_count;
+	}
+
+	@Override
+	public void clear() {
+		lock.lock();
+		try {
+			for(SizeClass c : classes) {
+				for(int i=0; i<c.free_count; i++) c.free[i] = null;
+				c.total_count = 0;
+				c.free_count = 0;
+			}
+			leased.clear();
+			current_total_size = 0;
+			total_count = 0;
+		} finally {
+			lock.unlock();
+		}
+		wakeWaiters(null);
+	}
+
+	@Override
+	public boolean isFull() {
+		return this.max_total_size > 0 && current_total_size + classes[0].size > this.max_total_size;
+	}
+
+	/**
+	 * Same as {@link SizeClassByteBufferPool#allocate(int, long, TimeUnit)} with the smallest size class
+	 */
+	@Override
+	public ByteBuffer allocateFreeObject(long timeout, TimeUnit unit) throws ObjectPoolCapacityException, InterruptedException {
+		return allocate(classes[0].size, timeout, unit);
+	}
+
+	/**
+	 * Same as {@link SizeClassByteBufferPool#allocate(int, long, TimeUnit)} but waits without limit. 
+	 * If interrupted while waiting an {@link ObjectPoolCapacityException} gets thrown 
+	 * and the interrupt flag stays set
+	 */
+	public ByteBuffer allocate(int minCapacity) throws IllegalArgumentException, ObjectPoolCapacityException {
+		try {
+			return allocate(minCapacity, -1, TimeUnit.NANOSECONDS);
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			throw new ObjectPoolCapacityException("Interrupted while waiting for a free object", ex);
+		}
+	}
+
+	/**
+	 * Tries to allocate a new/recycled buffer of the smallest size class that
+	 * has at least the given capacity. Buffer must be released afterwards by
+	 * calling {@link SizeClassByteBufferPool#releaseObject(ByteBuffer)}.
+	 * Depending on the {@link ObjectPoolFullMode} this function may return null, 
+	 * throw an {@link ObjectPoolCapacityException} or block up to the given timeout. 
+	 * Waiting threads get served in the order they started waiting per size class
+	 * @param minCapacity Minimum capacity in bytes the buffer needs to have
+	 * @param timeout How long to wait at maximum if full mode is {@link ObjectPoolFullMode#BLOCK} 
+	 * (negative to wait without limit)
+	 * @param unit Time unit of the timeout
+	 * @return Buffer with a capacity of at least the given capacity or null if timeout elapsed (or depending on full mode)
+	 * @throws IllegalArgumentException if no size class fits the capacity
+	 * @throws ObjectPoolCapacityException if capacity of pool is reached and
+	 * full mode is set to {@link ObjectPoolFullMode#THROW_EXCEPTION}
+	 * @throws InterruptedException if interrupted while waiting
+	 */
+	public ByteBuffer allocate(int minCapacity, long timeout, TimeUnit unit) throws IllegalArgumentException, ObjectPoolCapacityException, InterruptedException {
+		final SizeClass c = getSizeClassOf(minCapacity);
+		allocation_count.increment();
+		ByteBuffer buffer = poll(c, true);
+		if(buffer == null) {
+			switch (full_mode) {
+			case RETURN_NULL: return null;
+			case THROW_EXCEPTION: throw new ObjectPoolCapacityException();
+			default: break;
+			}
+			waiting.incrementAndGet();
+			try {
+				buffer = c.waiters.await(() -> poll(c, false), b -> releaseObject(b), toNanos(timeout, unit));
+			} finally {
+				waiting.decrementAndGet();
+			}
+			if(buffer == null) return null;
+		}
+		buffer.clear();
+		return buffer;
+	}
+
+	/**
+	 * Takes a free buffer of the size class or creates a new one without blocking
+	 * @param c Size class of the buffer
+	 * @param count If hits and misses should be counted
+	 * @return Buffer or null if none available
+	 */
+	protected ByteBuffer poll(SizeClass c, boolean count) {
+		lock.lock();
+		try {
+			ByteBuffer buffer = c.pop();
+			if(buffer != null) {
+				if(count) c.hits++;
+			} else {
+				if(count) c.misses++;
+				if(!reserve(c.size)) return null;
+				buffer = ByteBuffer.allocate(c.size);
+				c.total_count++;
+				total_count++;
+				recordMiss();
+			}
+			recordInUse(leased.size() + 1);
+			leased.add(buffer);
+			return buffer;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Wakes up the longest waiting thread of every size class 
+	 * so they can try to evict free buffers of other size classes
+	 * @param except Size class whose waiters should not be woken up (null for none)
+	 */
+	protected void wakeWaiters(SizeClass except) {
+		for(SizeClass c : classes)
+			if(c != except) c.waiters.wakeFirst();
+	}
+
+	/**
+	 * Reserves memory for a new buffer and releases free buffers
+	 * of other size classes if maximum total size would be exceeded.
+	 * Lock must be held by caller
+	 * @param size Size in bytes that should be reserved
+	 * @return True if memory could be reserved
+	 */
+	protected boolean reserve(int size) {
+		while(max_total_size > 0 && current_total_size + size > max_total_size) {
+			SizeClass victim = null;
+			for(int i=classes.length-1; i>=0 && victim == null; i--)
+				if(classes[i].free_count > 0) victim = classes[i];
+			if(victim == null) return false;
+			victim.removeOldest(1);
+			current_total_size -= victim.size;
+			total_count--;
+		}
+		current_total_size += size;
+		return true;
+	}
+
+	@Override
+	public void releaseObject(ByteBuffer buffer) {
+		if(buffer == null) return;
+		final int index = indexOf(buffer.capacity());
+		if(index < 0) return; // larger than any size class so it wasn't created by this pool
+		final SizeClass c = classes[index];
+		lock.lock();
+		try {
+			if(!leased.contains(buffer)) return; // buffer wasn't created by this pool or pool got cleared
+			if(c.waiters.handOver(buffer)) return; // stays leased by the waiting thread
+			leased.remove(buffer);
+			c.push(buffer, System.currentTimeMillis());
+		} finally {
+			lock.unlock();
+		}
+		if(waiting.get() > 0) wakeWaiters(c);
+		if(maintenance == null) clearUnused();
+	}
+
+	@Override
+	public void clearUnused() {
+		if(this.keep_unused_alive<0) return;
+		lock.lock();
+		try {
+			final long current_time = System.currentTimeMillis();
+			for(SizeClass c : classes) {
+				int expired = 0;
+				while(expired < c.free_count && total_count - expired > min_keep_count &&
+						current_time - c.free_since[expired] >= this.keep_unused_alive)
+					expired++;
+				if(expired == 0) continue;
+				c.removeOldest(expired);
+				current_total_size -= (long)expired * c.size;
+				total_count -= expired;
+			}
+		} finally {
+			lock.unlock();
+		}
+		if(waiting.get() > 0) wakeWaiters(null);
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder(super.toString());
+		sb.setLength(sb.length()-1);
+		sb.append("; classes=[");
+		for(int i=0; i<classes.length; i++) {
+			SizeClass c = classes[i];
+			if(i > 0) sb.append(", ");
+			sb.append(c.size).append(":").append(c.free_count).append("/").append(c.total_count).
+				append(" (hits=").append(c.hits).append(" misses=").append(c.misses).append(")");
+		}
+		return sb.append("]}").toString();
+	}
+}
@@ -2,6 +2,8 @@ package com.lupcode.Utilities.streams;
 
 import java.io.InputStream;
 import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.function.Consumer;
 
 /**
  * Same behavior as a {@link java.io.ByteArrayInputStream} but can dynamically handle 
@@ -17,6 +19,8 @@ public class ByteArrayInputStream extends InputStream {
 		byte[] buffer;
 		int off=0, curr=0, endIdx;
 		Node next = null;
+		ByteBuffer source = null;
+		Consumer<ByteBuffer> release = null;
 		
 		Node(byte[] buffer, int off, int len, boolean copy) {
 			if(copy) {
@@ -36,12 +40,20 @@ public class ByteArrayInputStream extends InputStream {
 			clone.curr = curr;
 			return clone;
 		}
+		
+		void release() {
+			if(release == null) return;
+			Consumer<ByteBuffer> r = release;
+			release = null;
+			r.accept(source);
+		}
 	}
 	
 	protected Node head = null, tail = null, mark = null;
 	int markStartOff = 0, markCounter = 0, markLimit = 0;
 	protected long available = 0;
 	protected boolean closed = false;
+	protected ArrayDeque<Node> releasable = null; // in order they have been added
 	
 	/**
 	 * Creates a new {@link ByteArrayInputStream} instance without data for reading
@@ -170,10 +182,62 @@ public class ByteArrayInputStream extends InputStream {
 		add(buf.array(), buf.position(), buf.remaining(), copy);
 	}
 	
+	/**
+	 * Adds the data of the given byte buffer (from its position until its limit) without copying it. 
+	 * Once the data has been read completely or this stream gets cleared or closed 
+	 * the buffer gets handed to the release function (e.g. to return it to its pool) 
+	 * and must not be used by this stream anymore
+	 * @param buf Buffer that contains the data (must be backed by an accessible array)
+	 * @param release Gets called with the buffer once it is not needed anymore (null if it does not need to be released)
+	 * @throws NullPointerException if buffer is null
+	 * @throws UnsupportedOperationException if buffer is not backed by an accessible array
+	 */
+	public synchronized void add(ByteBuffer buf, Consumer<ByteBuffer> release) throws NullPointerException, UnsupportedOperationException {
+		if(buf == null) throw new NullPointerException("Buffer cannot be null");
+		if(!buf.hasArray()) throw new UnsupportedOperationException("Buffer is not backed by an accessible array");
+		final int len = buf.remaining();
+		if(len <= 0) {
+			if(release != null) release.accept(buf);
+			return;
+		}
+		add(buf.array(), buf.arrayOffset() + buf.position(), len, false);
+		if(release != null) {
+			tail.source = buf;
+			tail.release = release;
+			if(releasable == null) releasable = new ArrayDeque<>();
+			releasable.add(tail);
+		}
+	}
+	
+	/**
+	 * Moves to the next node after the head node has been read completely 
+	 * and releases the head node if no mark needs it anymore
+	 */
+	protected void nextNode() {
+		Node done = head;
+		head = head.next;
+		if(head != null) head.curr = head.off; // if read again because of marker
+		else tail = null;
+		if(markLimit <= 0 && done.release != null) {
+			done.release();
+			releasable.removeFirstOccurrence(done);
+		}
+	}
+	
+	/**
+	 * Releases all buffers that have been added with a release function
+	 */
+	protected void releaseAll() {
+		if(releasable == null) return;
+		for(Node n : releasable) n.release();
+		releasable = null;
+	}
+	
 	/**
 	 * Deletes all data stored in this {@link ByteArrayInputStream} and resets markers
 	 */
-	public void clear() {
+	public synchronized void clear() {
+		releaseAll();
 		available = 0;
 		head = null;
 		tail = null;
@@ -223,9 +287,14 @@ public class ByteArrayInputStream extends InputStream {
 		return (int) available;
 	}
 	
+	/**
+	 * Closes the stream. Buffers that have been added with a release function 
+	 * get released so their data is lost even if stream gets reopened
+	 */
 	@Override
-	public void close() {
+	public synchronized void close() {
 		closed = true;
+		if(releasable != null) clear();
 	}
 	
 	@Override
@@ -257,10 +326,7 @@ public class ByteArrayInputStream extends InputStream {
 			long l = Math.min(n, head.endIdx-head.curr);
 			n -= l;
 			head.curr += l;
-			if(head.curr >= head.endIdx) {
-				head = head.next;
-				if(head != null) head.curr = head.off; // if read again because of marker
-			}
+			if(head.curr >= head.endIdx) nextNode();
 			if(markLimit > 0) {
 				markCounter += l;
 				if(markCounter > markLimit) reset();
@@ -273,11 +339,7 @@ public class ByteArrayInputStream extends InputStream {
 		if(closed || head == null) return -1;
 		available--;
 		int b = head.buffer[head.curr++] & 255;
-		if(head.curr >= head.endIdx) {
-			head = head.next;
-			if(head != null) head.curr = head.off; // if read again because of marker
-			else tail = null;
-		}
+		if(head.curr >= head.endIdx) nextNode();
 		if(markLimit > 0) {
 			markCounter++;
 			if(markCounter > markLimit) reset();
@@ -301,11 +363,7 @@ public class ByteArrayInputStream extends InputStream {
 			available -= l;
 			off += l;
 			head.curr += l;
-			if(head.curr >= head.endIdx) {
-				head = head.next;
-				if(head != null) head.curr = head.off; // if read again because of marker
-				else tail = null;
-			}
+			if(head.curr >= head.endIdx) nextNode();
 			if(markLimit > 0) {
 				markCounter += l;
 				if(markCounter > markLimit) reset();
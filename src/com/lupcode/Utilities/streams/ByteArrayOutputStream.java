@@ -31,11 +31,18 @@ public class ByteArrayOutputStream extends OutputStream {
 		this.buffer = new byte[Math.max(0, initialCapacity)];
 	}
 	
+	/**
+	 * Grows the array geometrically (at least doubles it) 
+	 * so writing n bytes only copies O(n) bytes in total
+	 * @param needed Amount of bytes that will be written
+	 */
 	protected void checkCapacity(int needed) {
 		needed += offset;
 		if(needed > buffer.length) {
-			byte[] newBuf = new byte[needed];
-			System.arraycopy(buffer, 0, newBuf, 0, buffer.length);
+			if(needed < 0) throw new OutOfMemoryError("Required array size too large");
+			final int grown = buffer.length + Math.max(buffer.length, 16);
+			byte[] newBuf = new byte[grown > needed ? grown : needed]; // grown can overflow
+			System.arraycopy(buffer, 0, newBuf, 0, offset);
 			this.buffer = newBuf;
 		}
 	}
@@ -85,10 +92,10 @@ public class ByteArrayOutputStream extends OutputStream {
 	}
 
 	/**
-	 * @return Copy of buffer
+	 * @return Copy of the written bytes
 	 */
 	public synchronized byte[] toByteArray() {
-		byte[] clone = new byte[buffer.length];
+		byte[] clone = new byte[offset];
 		System.arraycopy(buffer, 0, clone, 0, offset);
 		return clone;
 	}
@@ -0,0 +1,294 @@
+package com.lupcode.Utilities.streams;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.GatheringByteChannel;
+
+import com.lupcode.Utilities.exceptions.ObjectPoolCapacityException;
+import com.lupcode.Utilities.pools.ByteBufferPool;
+
+/**
+ * Output stream that stores the written data in a list of chunks instead of a single array
+ * so growing never copies already written data. Chunks are either taken from a
+ * {@link ByteBufferPool} (fixed chunk size) or allocated on the heap with geometrically
+ * growing sizes. The chunks can be written with a single gathering write or handed over
+ * to a {@link ByteArrayInputStream} without copying
+ * @author LupCode.com (Luca Vogels)
+ * @since 2026-10-16
+ */
+public class SegmentedByteArrayOutputStream extends OutputStream {
+
+	public static int DEFAULT_CHUNK_SIZE = 4096, DEFAULT_MAX_CHUNK_SIZE = 1048576;
+
+	protected final ByteBufferPool pool;
+	protected final int maxChunkSize;
+	protected int nextChunkSize;
+	protected ByteBuffer[] segments = new ByteBuffer[8];
+	protected int segmentCount = 0;
+	protected ByteBuffer current = null;
+	protected long size = 0;
+	protected boolean closed = false;
+
+	/**
+	 * Creates a new {@link SegmentedByteArrayOutputStream} instance with heap chunks
+	 * starting at {@link SegmentedByteArrayOutputStream#DEFAULT_CHUNK_SIZE} bytes that
+	 * double up to {@link SegmentedByteArrayOutputStream#DEFAULT_MAX_CHUNK_SIZE} bytes
+	 */
+	public SegmentedByteArrayOutputStream() {
+		this(DEFAULT_CHUNK_SIZE, DEFAULT_MAX_CHUNK_SIZE);
+	}
+
+	/**
+	 * Creates a new {@link SegmentedByteArrayOutputStream} instance with heap chunks
+	 * whose sizes double with every new chunk
+	 * @param initialChunkSize Size in bytes of the first chunk
+	 * @param maxChunkSize Size in bytes chunks will not grow beyond
+	 * @throws IllegalArgumentException if sizes are not positive
+	 */
+	public SegmentedByteArrayOutputStream(int initialChunkSize, int maxChunkSize) throws IllegalArgumentException {
+		if(initialChunkSize <= 0 || maxChunkSize <= 0) throw new IllegalArgumentException("Chunk sizes must be positive");
+		this.pool = null;
+		this.nextChunkSize = initialChunkSize;
+		this.maxChunkSize = Math.max(initialChunkSize, maxChunkSize);
+	}
+
+	/**
+	 * Creates a new {@link SegmentedByteArrayOutputStream} instance that takes its
+	 * chunks from the given pool. Chunks are returned to the pool by
+	 * {@link SegmentedByteArrayOutputStream#reset()} or once the
+	 * {@link ByteArrayInputStream} created by
+	 * {@link SegmentedByteArrayOutputStream#toInputStream()} has read them
+	 * @param pool Pool the chunks are allocated from
+	 * @throws NullPointerException if pool is null
+	 */
+	public SegmentedByteArrayOutputStream(ByteBufferPool pool) throws NullPointerException {
+		if(pool == null) throw new NullPointerException("Pool cannot be null");
+		this.pool = pool;
+		this.nextChunkSize = pool.getBufferSize();
+		this.maxChunkSize = nextChunkSize;
+	}
+
+	/**
+	 * @return Pool the chunks are allocated from or null if chunks are allocated on the heap
+	 */
+	public ByteBufferPool getPool() {
+		return pool;
+	}
+
+	/**
+	 * Appends a new empty chunk
+	 * @throws IOException if pool has no free buffer
+	 */
+	protected void nextChunk() throws IOException {
+		ByteBuffer chunk;
+		if(pool != null) {
+			try {
+				chunk = pool.allocateFreeObject();
+			} catch (ObjectPoolCapacityException ex) {
+				throw new IOException("Could not allocate chunk from pool", ex);
+			}
+			if(chunk == null) throw new IOException("Could not allocate chunk from pool");
+		} else {
+			chunk = ByteBuffer.allocate(nextChunkSize);
+			nextChunkSize = (int)Math.min(maxChunkSize, 2L * nextChunkSize);
+		}
+		if(segmentCount == segments.length) {
+			ByteBuffer[] newSegments = new ByteBuffer[segments.length*2];
+			System.arraycopy(segments, 0, newSegments, 0, segmentCount);
+			segments = newSegments;
+		}
+		segments[segmentCount++] = chunk;
+		current = chunk;
+	}
+
+	/**
+	 * Removes all written data. Chunks of a pool get released
+	 */
+	public synchronized void reset() {
+		for(int i=0; i<segmentCount; i++) {
+			if(pool != null) pool.releaseObject(segments[i]);
+			segments[i] = null;
+		}
+		segmentCount = 0;
+		current = null;
+		size = 0;
+	}
+
+	/**
+	 * @return How many bytes have been written
+	 */
+	public long size() {
+		return size;
+	}
+
+	/**
+	 * @return Amount of chunks that hold the written data
+	 */
+	public int getSegmentCount() {
+		return segmentCount;
+	}
+
+	/**
+	 * Returns read-only views of the chunks that contain the written data
+	 * (from position zero until the amount of bytes written into the chunk).
+	 * Can be used for gathering writes. Views must not be used after
+	 * this stream got reset
+	 * @return Views of the chunks (no copy)
+	 */
+	public synchronized ByteBuffer[] getSegments() {
+		ByteBuffer[] views = new ByteBuffer[segmentCount];
+		for(int i=0; i<segmentCount; i++) {
+			ByteBuffer view = segments[i].duplicate();
+			view.flip();
+			views[i] = view.asReadOnlyBuffer();
+		} return views;
+	}
+
+	/**
+	 * @return Copy of the written bytes
+	 * @throws OutOfMemoryError if more bytes have been written than an array can hold
+	 */
+	public synchronized byte[] toByteArray() throws OutOfMemoryError {
+		if(size > Integer.MAX_VALUE - 8) throw new OutOfMemoryError("Written data does not fit into an array");
+		byte[] array = new byte[(int)size];
+		int off = 0;
+		for(int i=0; i<segmentCount; i++) {
+			ByteBuffer view = segments[i].duplicate();
+			view.flip();
+			final int len = view.remaining();
+			view.get(array, off, len);
+			off += len;
+		} return array;
+	}
+
+	/**
+	 * @return True if stream has been closed
+	 */
+	public boolean isClosed() {
+		return closed;
+	}
+
+	/**
+	 * Re-opens stream so it can be used with
+	 * the same state before it got closed
+	 */
+	public void reopen() {
+		closed = false;
+	}
+
+	/**
+	 * Closes the stream so no more data can be written.
+	 * Written data stays accessible and chunks of a pool stay allocated until
+	 * {@link SegmentedByteArrayOutputStream#reset()} gets called
+	 */
+	@Override
+	public void close() {
+		closed = true;
+	}
+
+	@Override
+	public void flush() {
+
+	}
+
+	@Override
+	public synchronized void write(int b) throws IOException {
+		if(closed) throw new IOException(getClass().getSimpleName()+" already closed");
+		if(current == null || !current.hasRemaining()) nextChunk();
+		current.put((byte)b);
+		size++;
+	}
+
+	@Override
+	public synchronized void write(byte[] b, int off, int len) throws IOException {
+		if(closed) throw new IOException(getClass().getSimpleName()+" already closed");
+		if(off < 0 || len < 0 || off+len > b.length) throw new IndexOutOfBoundsException();
+		while(len > 0) {
+			if(current == null || !current.hasRemaining()) nextChunk();
+			final int l = Math.min(len, current.remaining());
+			current.put(b, off, l);
+			off += l;
+			len -= l;
+			size += l;
+		}
+	}
+
+	/**
+	 * Writes the stored data to a given {@link OutputStream}
+	 * @param output Stream the data should be written to
+	 * @throws IOException If writing fails
+	 */
+	public synchronized void writeTo(OutputStream output) throws IOException {
+		byte[] tmp = null;
+		for(int i=0; i<segmentCount; i++) {
+			ByteBuffer segment = segments[i];
+			if(segment.hasArray()) {
+				output.write(segment.array(), segment.arrayOffset(), segment.position());
+			} else {
+				ByteBuffer view = segment.duplicate();
+				view.flip();
+				if(tmp == null) tmp = new byte[Math.min(view.remaining(), 8192)];
+				while(view.hasRemaining()) {
+					final int l = Math.min(tmp.length, view.remaining());
+					view.get(tmp, 0, l);
+					output.write(tmp, 0, l);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Writes the stored data to a given channel with gathering writes
+	 * until all data has been written
+	 * @param channel Blocking channel the data should be written to
+	 * @return Amount of bytes written
+	 * @throws IOException If writing fails
+	 */
+	public synchronized long writeTo(GatheringByteChannel channel) throws IOException {
+		ByteBuffer[] views = getSegments();
+		long written = 0;
+		int first = 0;
+		while(written < size) {
+			written += channel.write(views, first, views.length - first);
+			while(first < views.length && !views[first].hasRemaining()) first++;
+		} return written;
+	}
+
+	/**
+	 * Creates a {@link ByteArrayInputStream} that reads the written data and
+	 * hands the chunks over to it without copying (only chunks without accessible
+	 * array get copied). Chunks of a pool get released once they have been read
+	 * or the {@link ByteArrayInputStream} gets closed. This stream gets reset
+	 * so that it can be written again as it is a new instance
+	 * @return Stream that reads the written data
+	 */
+	public synchronized ByteArrayInputStream toInputStream() {
+		ByteArrayInputStream input = new ByteArrayInputStream();
+		for(int i=0; i<segmentCount; i++) {
+			final ByteBuffer segment = segments[i];
+			segments[i] = null;
+			ByteBuffer view = segment.duplicate();
+			view.flip();
+			if(segment.hasArray()) {
+				input.add(view, pool != null ? b -> pool.releaseObject(segment) : null);
+			} else {
+				byte[] copy = new byte[view.remaining()];
+				view.get(copy);
+				input.add(copy, false);
+				if(pool != null) pool.releaseObject(segment);
+			}
+		}
+		segmentCount = 0;
+		current = null;
+		size = 0;
+		return input;
+	}
+
+	@Override
+	public String toString() {
+		return new StringBuilder(getClass().getSimpleName()).append("{size=").append(size).
+				append("; segments=").append(segmentCount).append("; pooled=").append(pool != null).
+				append("; closed=").append(closed).append("}").toString();
+	}
+}
@@ -0,0 +1,121 @@
+package com.lupcode.Utilities.collections;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Checks that waiting producers and consumers of a {@link ConcurrentLinkedBlockingQueue} 
+ * get woken up exactly when needed and that no element gets lost or duplicated
+ * @author LupCode.com (Luca Vogels)
+ * @since 2026-10-17
+ */
+public class ConcurrentLinkedBlockingQueueTest {
+
+	public static void main(String[] args) throws Exception {
+		timedOutWaitersDoNotSwallowSignals();
+		capacityBlocksProducers();
+		concurrentProducersAndConsumers();
+		System.out.println(ConcurrentLinkedBlockingQueueTest.class.getSimpleName()+" passed");
+	}
+
+	/**
+	 * Many consumers time out and leave their waiters in the queue. 
+	 * A consumer that waits afterwards must still get the next element 
+	 * and the stopped waiters must get swept
+	 */
+	protected static void timedOutWaitersDoNotSwallowSignals() throws InterruptedException {
+		final ConcurrentLinkedBlockingQueue<Integer> queue = new ConcurrentLinkedBlockingQueue<>();
+		for(int i=0; i<ConcurrentLinkedBlockingQueue.SWEEP_THRESHOLD * 2; i++)
+			check(queue.poll(0, TimeUnit.MILLISECONDS) == null && queue.poll(1, TimeUnit.MICROSECONDS) == null, "empty queue must time out");
+		check(queue.waiters.size() < ConcurrentLinkedBlockingQueue.SWEEP_THRESHOLD, "stopped waiters must get swept but "+queue.waiters.size()+" remain");
+
+		final Integer[] taken = new Integer[1];
+		final Thread consumer = new Thread(() -> {
+			try {
+				taken[0] = queue.take();
+			} catch (InterruptedException ex) { }
+		});
+		consumer.start();
+		awaitParked(consumer);
+		queue.offer(42);
+		consumer.join(TimeUnit.SECONDS.toMillis(5));
+		check(!consumer.isAlive(), "waiting consumer must be woken up");
+		check(taken[0] != null && taken[0] == 42, "consumer must take the element");
+	}
+
+	/**
+	 * Producers must wait while the capacity is reached and continue once space got freed
+	 */
+	protected static void capacityBlocksProducers() throws InterruptedException {
+		final ConcurrentLinkedBlockingQueue<Integer> queue = new ConcurrentLinkedBlockingQueue<>(2);
+		check(queue.offer(1) && queue.offer(2), "elements within capacity must be added");
+		check(!queue.offer(3), "element above capacity must be rejected");
+		check(!queue.offer(3, 10, TimeUnit.MILLISECONDS), "timed offer must time out while full");
+		check(queue.remainingCapacity() == 0, "no capacity must remain");
+
+		final Thread producer = new Thread(() -> {
+			try {
+				queue.put(3);
+			} catch (InterruptedException ex) { }
+		});
+		producer.start();
+		awaitParked(producer);
+		check(queue.size() == 2, "waiting producer must not add its element");
+		check(queue.poll() == 1, "elements must be taken in order");
+		producer.join(TimeUnit.SECONDS.toMillis(5));
+		check(!producer.isAlive(), "waiting producer must be woken up once space is free");
+		check(queue.poll() == 2 && queue.poll() == 3 && queue.isEmpty(), "elements must be taken in order");
+	}
+
+	/**
+	 * Every element added by concurrent producers must be taken exactly once by concurrent consumers
+	 */
+	protected static void concurrentProducersAndConsumers() throws InterruptedException {
+		final int producers = 4, consumers = 4, perProducer = 20000;
+		final ConcurrentLinkedBlockingQueue<Integer> queue = new ConcurrentLinkedBlockingQueue<>(64);
+		final AtomicLong sum = new AtomicLong(), taken = new AtomicLong();
+		final CountDownLatch done = new CountDownLatch(producers + consumers);
+		for(int p=0; p<producers; p++) {
+			new Thread(() -> {
+				try {
+					for(int i=1; i<=perProducer; i++) queue.put(i);
+				} catch (InterruptedException ex) { }
+				done.countDown();
+			}).start();
+		}
+		for(int c=0; c<consumers; c++) {
+			new Thread(() -> {
+				try {
+					while(taken.get() < (long)producers * perProducer) {
+						final Integer e = queue.poll(1, TimeUnit.MILLISECONDS);
+						if(e == null) continue;
+						sum.addAndGet(e);
+						taken.incrementAndGet();
+					}
+				} catch (InterruptedException ex) { }
+				done.countDown();
+			}).start();
+		}
+		check(done.await(30, TimeUnit.SECONDS), "producers and consumers must finish");
+		check(taken.get() == (long)producers * perProducer, "every element must be taken once but took "+taken.get());
+		check(sum.get() == (long)producers * perProducer * (perProducer + 1) / 2, "elements must not be lost or duplicated");
+		check(queue.isEmpty(), "queue must be empty");
+	}
+
+	/**
+	 * Waits until the thread parks
+	 * @param thread Thread that should wait
+	 */
+	protected static void awaitParked(Thread thread) throws InterruptedException {
+		final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+		while(thread.getState() != Thread.State.WAITING && thread.getState() != Thread.State.TIMED_WAITING) {
+			check(System.nanoTime() < deadline, "thread must start waiting");
+			Thread.sleep(1);
+		}
+	}
+
+	protected static void check(boolean condition, String message) {
+		if(!condition) throw new AssertionError(message);
+	}
+}
@@ -0,0 +1,137 @@
+package com.lupcode.Utilities.collections.scheduled;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the order of a {@link ScheduledArrayBlockingQueue} with a sorted list 
+ * for different arities and checks the heap after elements got removed
+ * @author LupCode.com (Luca Vogels)
+ * @since 2026-10-17
+ */
+public class ScheduledArrayBlockingQueueTest {
+
+	public static void main(String[] args) throws Exception {
+		for(int arity : new int[] { 2, 3, 4, 8 }) {
+			orderMatchesSort(arity);
+			removeKeepsHeap(arity);
+		}
+		capacityBoundsArrays();
+		earlierElementWakesLeader();
+		System.out.println(ScheduledArrayBlockingQueueTest.class.getSimpleName()+" passed");
+	}
+
+	/**
+	 * Elements with random (often equal) times must be taken ordered by 
+	 * time and in the order they have been added if times are equal
+	 * @param arity Amount of children per node of the heap
+	 */
+	protected static void orderMatchesSort(int arity) {
+		final ScheduledArrayBlockingQueue<Integer> queue = new ScheduledArrayBlockingQueue<>(-1, arity);
+		final Random random = new Random(arity);
+		final long now = System.nanoTime();
+		final int count = 5000;
+		final long[] times = new long[count];
+		for(int i=0; i<count; i++) {
+			times[i] = now - 1 - random.nextInt(100);
+			queue.addAtNanoTime(times[i], i);
+		}
+		checkHeap(queue);
+		check(queue.getTotalSize() == count, "all elements must be counted");
+
+		Integer previous = null, e;
+		int taken = 0;
+		while((e = queue.poll()) != null) {
+			if(previous != null) check(times[previous] < times[e] || (times[previous] == times[e] && previous < e),
+					"arity "+arity+": element "+e+" must not be taken after "+previous);
+			previous = e;
+			taken++;
+		}
+		check(taken == count, "arity "+arity+": every element must be taken but took "+taken);
+		check(queue.isCompletelyEmpty(), "queue must be empty");
+	}
+
+	/**
+	 * Removing elements from the middle must keep the heap intact
+	 * @param arity Amount of children per node of the heap
+	 */
+	protected static void removeKeepsHeap(int arity) {
+		final ScheduledArrayBlockingQueue<Integer> queue = new ScheduledArrayBlockingQueue<>(-1, arity);
+		final Random random = new Random(arity * 31);
+		final long now = System.nanoTime();
+		for(int i=0; i<1000; i++) queue.addAtNanoTime(now - 1 - random.nextInt(1000), i);
+		for(int i=0; i<1000; i+=3) check(queue.remove(i), "contained element must be removed");
+		check(!queue.remove(0) && !queue.contains(3), "removed element must not be contained");
+		checkHeap(queue);
+		final List<Integer> drained = new ArrayList<>();
+		check(queue.drainTo(drained) == 1000 - 334, "remaining elements must be drained");
+		for(Integer e : drained) check(e % 3 != 0, "removed element "+e+" must not be drained");
+	}
+
+	/**
+	 * Arrays must not grow beyond the capacity and producers must wait while it is reached
+	 */
+	protected static void capacityBoundsArrays() throws InterruptedException {
+		final ScheduledArrayBlockingQueue<Integer> queue = new ScheduledArrayBlockingQueue<>(20);
+		for(int i=0; i<20; i++) check(queue.offerIn(TimeUnit.MINUTES.toMillis(1), i), "element within capacity must be added");
+		check(queue.elements.length == 20 && queue.times.length == 20, "arrays must not grow beyond the capacity");
+		check(!queue.offer(20), "element above capacity must be rejected");
+		check(!queue.offer(20, 10, TimeUnit.MILLISECONDS), "timed offer must time out while full");
+
+		final Thread producer = new Thread(() -> {
+			try {
+				queue.put(20);
+			} catch (InterruptedException ex) { }
+		});
+		producer.start();
+		final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+		while(producer.getState() != Thread.State.WAITING) {
+			check(System.nanoTime() < deadline, "producer must wait for space");
+			Thread.sleep(1);
+		}
+		check(queue.remove(5), "scheduled element must be removed");
+		producer.join(TimeUnit.SECONDS.toMillis(5));
+		check(!producer.isAlive(), "waiting producer must be woken up once space is free");
+		check(queue.poll() == 20 && queue.getTotalSize() == 19, "added element must be available");
+	}
+
+	/**
+	 * The leader waits for a late element, an earlier element must wake it up
+	 */
+	protected static void earlierElementWakesLeader() throws InterruptedException {
+		final ScheduledArrayBlockingQueue<String> queue = new ScheduledArrayBlockingQueue<>();
+		queue.offerIn(TimeUnit.MINUTES.toMillis(1), "late");
+		final String[] taken = new String[1];
+		final Thread consumer = new Thread(() -> {
+			try {
+				taken[0] = queue.take();
+			} catch (InterruptedException ex) { }
+		});
+		consumer.start();
+		final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+		while(consumer.getState() != Thread.State.TIMED_WAITING) {
+			check(System.nanoTime() < deadline, "consumer must wait for the late element");
+			Thread.sleep(1);
+		}
+		queue.offerIn(10, "early");
+		consumer.join(TimeUnit.SECONDS.toMillis(5));
+		check(!consumer.isAlive(), "consumer must wake up for the earlier element");
+		check("early".equals(taken[0]), "earlier element must be taken first");
+		check(queue.getTotalSize() == 1, "late element must stay scheduled");
+	}
+
+	/**
+	 * Checks that no node comes before its parent
+	 * @param queue Queue whose heap should be checked
+	 */
+	protected static void checkHeap(ScheduledArrayBlockingQueue<?> queue) {
+		for(int i=1; i<queue.totalSize; i++)
+			check(!queue.before(i, (i - 1) / queue.arity), "node "+i+" must not come before its parent");
+	}
+
+	protected static void check(boolean condition, String message) {
+		if(!condition) throw new AssertionError(message);
+	}
+}
@@ -0,0 +1,143 @@
+package com.lupcode.Utilities.collections.scheduled;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Checks the order of a {@link ScheduledSkipListBlockingQueue} and that only 
+ * one consumer (leader) waits for the first element while all others park
+ * @author LupCode.com (Luca Vogels)
+ * @since 2026-10-17
+ */
+public class ScheduledSkipListBlockingQueueTest {
+
+	public static void main(String[] args) throws Exception {
+		equalTimesKeepInsertionOrder();
+		onlyLeaderWaitsTimed();
+		timedOutFollowersDoNotSwallowSignals();
+		capacityBlocksProducers();
+		System.out.println(ScheduledSkipListBlockingQueueTest.class.getSimpleName()+" passed");
+	}
+
+	/**
+	 * Elements must be taken ordered by time and in the order they have been added if times are equal
+	 */
+	protected static void equalTimesKeepInsertionOrder() {
+		final ScheduledSkipListBlockingQueue<String> queue = new ScheduledSkipListBlockingQueue<>();
+		final long now = System.nanoTime();
+		queue.addAtNanoTime(now - 1000, "B");
+		queue.addAtNanoTime(now - 1000, "C");
+		queue.addAtNanoTime(now - 2000, "A");
+		queue.addAtNanoTime(now - 1000, "D");
+		queue.addAtNanoTime(now + TimeUnit.MINUTES.toNanos(1), "E");
+		check(queue.size() == 4 && queue.getTotalSize() == 5, "only elements that reached their time must be available");
+		final StringBuilder taken = new StringBuilder();
+		String e;
+		while((e = queue.poll()) != null) taken.append(e);
+		check(taken.toString().equals("ABCD"), "elements must be taken in order but were "+taken);
+		check(!queue.isCompletelyEmpty() && queue.isEmpty(), "scheduled element must stay in the queue");
+	}
+
+	/**
+	 * Multiple consumers wait for scheduled elements. Only the leader 
+	 * must wait timed, all elements must be taken exactly once
+	 */
+	protected static void onlyLeaderWaitsTimed() throws InterruptedException {
+		final int consumers = 4;
+		final ScheduledSkipListBlockingQueue<Integer> queue = new ScheduledSkipListBlockingQueue<>();
+		for(int i=0; i<consumers; i++) queue.offerIn(500, i);
+		final Set<Integer> taken = ConcurrentHashMap.newKeySet();
+		final Thread[] threads = new Thread[consumers];
+		for(int i=0; i<consumers; i++) {
+			threads[i] = new Thread(() -> {
+				try {
+					taken.add(queue.take());
+				} catch (InterruptedException ex) { }
+			});
+			threads[i].start();
+		}
+		final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+		int timed, parked;
+		do {
+			check(System.nanoTime() < deadline, "consumers must start waiting");
+			Thread.sleep(1);
+			timed = parked = 0;
+			for(Thread thread : threads) {
+				if(thread.getState() == Thread.State.TIMED_WAITING) timed++;
+				else if(thread.getState() == Thread.State.WAITING) parked++;
+			}
+		} while(timed + parked < consumers && queue.getTotalSize() == consumers);
+		if(queue.getTotalSize() == consumers) check(timed == 1, "only the leader must wait timed but "+timed+" did");
+
+		for(Thread thread : threads) thread.join(TimeUnit.SECONDS.toMillis(5));
+		for(Thread thread : threads) check(!thread.isAlive(), "every consumer must take an element");
+		check(taken.size() == consumers, "every element must be taken exactly once");
+		check(queue.isCompletelyEmpty(), "queue must be empty");
+	}
+
+	/**
+	 * Many consumers time out and leave their waiters in the queue. 
+	 * A consumer that waits afterwards must still get the next element 
+	 * and the stopped waiters must get swept
+	 */
+	protected static void timedOutFollowersDoNotSwallowSignals() throws InterruptedException {
+		final ScheduledSkipListBlockingQueue<String> queue = new ScheduledSkipListBlockingQueue<>();
+		for(int i=0; i<ScheduledSkipListBlockingQueue.SWEEP_THRESHOLD * 2; i++)
+			check(queue.poll(1, TimeUnit.MICROSECONDS) == null, "empty queue must time out");
+		check(queue.followers.size() < ScheduledSkipListBlockingQueue.SWEEP_THRESHOLD, "stopped waiters must get swept but "+queue.followers.size()+" remain");
+
+		final String[] taken = new String[1];
+		final Thread consumer = new Thread(() -> {
+			try {
+				taken[0] = queue.take();
+			} catch (InterruptedException ex) { }
+		});
+		consumer.start();
+		awaitParked(consumer);
+		queue.offer("A");
+		consumer.join(TimeUnit.SECONDS.toMillis(5));
+		check(!consumer.isAlive(), "waiting consumer must be woken up");
+		check("A".equals(taken[0]), "consumer must take the element");
+	}
+
+	/**
+	 * Producers must wait while the capacity (including scheduled elements) 
+	 * is reached and continue once space got freed
+	 */
+	protected static void capacityBlocksProducers() throws InterruptedException {
+		final ScheduledSkipListBlockingQueue<String> queue = new ScheduledSkipListBlockingQueue<>(2);
+		check(queue.offer("A") && queue.offerIn(TimeUnit.MINUTES.toMillis(1), "Z"), "elements within capacity must be added");
+		check(!queue.offer("B"), "element above capacity must be rejected");
+		check(!queue.offer("B", 10, TimeUnit.MILLISECONDS), "timed offer must time out while full");
+
+		final Thread producer = new Thread(() -> {
+			try {
+				queue.put("B");
+			} catch (InterruptedException ex) { }
+		});
+		producer.start();
+		awaitParked(producer);
+		check(queue.getTotalSize() == 2, "waiting producer must not add its element");
+		check("A".equals(queue.poll()), "available element must be taken");
+		producer.join(TimeUnit.SECONDS.toMillis(5));
+		check(!producer.isAlive(), "waiting producer must be woken up once space is free");
+		check("B".equals(queue.poll()) && queue.getTotalSize() == 1, "added element must be available");
+	}
+
+	/**
+	 * Waits until the thread parks
+	 * @param thread Thread that should wait
+	 */
+	protected static void awaitParked(Thread thread) throws InterruptedException {
+		final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+		while(thread.getState() != Thread.State.WAITING && thread.getState() != Thread.State.TIMED_WAITING) {
+			check(System.nanoTime() < deadline, "thread must start waiting");
+			Thread.sleep(1);
+		}
+	}
+
+	protected static void check(boolean condition, String message) {
+		if(!condition) throw new AssertionError(message);
+	}
+}
@@ -0,0 +1,155 @@
+package com.lupcode.Utilities.collections.scheduled;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Moves the clock of a {@link ScheduledTimingWheelQueue} step by step so
+ * the ticks at which elements become available do not depend on thread scheduling
+ * @author LupCode.com (Luca Vogels)
+ * @since 2026-10-17
+ */
+public class ScheduledTimingWheelQueueTest {
+
+	protected static final long TICK = TimeUnit.MILLISECONDS.toNanos(1);
+
+	/**
+	 * Queue whose clock only moves when the test sets it
+	 */
+	protected static class ManualClockQueue extends ScheduledTimingWheelQueue<String> {
+		protected long now = 0;
+
+		protected ManualClockQueue() {
+			super(TICK, TimeUnit.NANOSECONDS);
+		}
+
+		@Override
+		protected long nanoTime() {
+			return now;
+		}
+	}
+
+	public static void main(String[] args) throws Exception {
+		ticksReleaseInOrder();
+		higherLevelsCascade();
+		cancelRemovesExactly();
+		clearResetsLevels();
+		leaderWakesForEarlierElement();
+		System.out.println(ScheduledTimingWheelQueueTest.class.getSimpleName()+" passed");
+	}
+
+	/**
+	 * Elements must become available at their tick and in the order they have been added within a tick
+	 */
+	protected static void ticksReleaseInOrder() {
+		final ManualClockQueue queue = new ManualClockQueue();
+		queue.scheduleInNanos(3 * TICK, "A");
+		queue.scheduleInNanos(TICK, "B");
+		queue.scheduleInNanos(TICK, "C");
+		queue.scheduleInNanos(2 * TICK, "D");
+		check(queue.poll() == null, "no element must be available before its tick");
+		check(queue.getTotalSize() == 4, "scheduled elements must be counted");
+
+		queue.now = TICK - 1;
+		check(queue.poll() == null, "element must not be available before its tick");
+		queue.now = TICK;
+		check("B".equals(queue.poll()) && "C".equals(queue.poll()), "elements of a tick must be taken in the order they have been added");
+		check(queue.poll() == null, "later elements must not be available");
+		queue.now = 3 * TICK;
+		check(queue.size() == 2, "all reached ticks must be available at once");
+		check("D".equals(queue.poll()) && "A".equals(queue.poll()), "elements must be taken in the order of their ticks");
+		check(queue.isCompletelyEmpty(), "queue must be empty");
+	}
+
+	/**
+	 * Elements far in the future must cascade down through all levels 
+	 * and become available exactly at their tick
+	 */
+	protected static void higherLevelsCascade() {
+		final ManualClockQueue queue = new ManualClockQueue();
+		final long[] ticks = { 300, 70000, 20000000, 255, 65536 };
+		for(long tick : ticks) queue.scheduleInNanos(tick * TICK, "T"+tick);
+		check(queue.levelCounts[1] == 2 && queue.levelCounts[2] == 1 && queue.levelCounts[3] == 1, "elements must be placed on the level matching their delay");
+
+		final long[] sorted = ticks.clone();
+		Arrays.sort(sorted);
+		for(long tick : sorted) {
+			queue.now = tick * TICK - 1;
+			check(queue.poll() == null, "T"+tick+" must not be available before its tick");
+			queue.now = tick * TICK;
+			check(("T"+tick).equals(queue.poll()), "T"+tick+" must be available at its tick");
+		}
+		check(queue.isCompletelyEmpty(), "queue must be empty");
+		for(int level : queue.levelCounts) check(level == 0, "levels must be empty");
+	}
+
+	/**
+	 * Cancelled elements must never become available, cancelling twice must fail
+	 */
+	protected static void cancelRemovesExactly() {
+		final ManualClockQueue queue = new ManualClockQueue();
+		final List<ScheduledTimingWheelQueue<String>.Timer> timers = new ArrayList<>();
+		for(int i=0; i<10000; i++) timers.add(queue.scheduleInNanos((1 + i % 1000) * TICK, Integer.toString(i)));
+		for(int i=0; i<timers.size(); i+=2) check(timers.get(i).cancel(), "scheduled element must be cancelled");
+		for(int i=0; i<timers.size(); i+=2) {
+			check(!timers.get(i).isPending(), "cancelled element must not be pending");
+			check(!timers.get(i).cancel(), "element must not be cancelled twice");
+		}
+		check(queue.getTotalSize() == 5000, "cancelled elements must not be counted");
+
+		queue.now = 1000 * TICK;
+		final List<String> taken = new ArrayList<>();
+		check(queue.drainTo(taken) == 5000, "all remaining elements must be available");
+		for(String e : taken) check(Integer.parseInt(e) % 2 == 1, "cancelled element "+e+" must not be available");
+		for(int i=1; i<timers.size(); i+=2) check(!timers.get(i).cancel(), "taken element must not be cancelled");
+		check(queue.isCompletelyEmpty(), "queue must be empty");
+	}
+
+	/**
+	 * Clearing must reset the counts of all levels so ticks do not get processed for removed elements
+	 */
+	protected static void clearResetsLevels() {
+		final ManualClockQueue queue = new ManualClockQueue();
+		for(long tick : new long[] { 10, 1000, 100000, 30000000 }) queue.scheduleInNanos(tick * TICK, "X");
+		queue.clear();
+		check(queue.isCompletelyEmpty(), "queue must be empty");
+		for(int level : queue.levelCounts) check(level == 0, "levels must be empty after clear");
+		check(queue.nextTick() == Long.MAX_VALUE, "no tick must be pending after clear");
+
+		queue.now = 5 * TICK;
+		queue.scheduleInNanos(TICK, "Y");
+		queue.now = 6 * TICK;
+		check("Y".equals(queue.poll()), "element added after clear must be available at its tick");
+	}
+
+	/**
+	 * The consumer sleeps until a late tick, an earlier element must wake it up
+	 */
+	protected static void leaderWakesForEarlierElement() throws InterruptedException {
+		final ScheduledTimingWheelQueue<String> queue = new ScheduledTimingWheelQueue<>();
+		queue.scheduleIn(TimeUnit.MINUTES.toMillis(1), "late");
+		final String[] taken = new String[1];
+		final Thread consumer = new Thread(() -> {
+			try {
+				taken[0] = queue.take();
+			} catch (InterruptedException ex) { }
+		});
+		consumer.start();
+		final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+		while(consumer.getState() != Thread.State.TIMED_WAITING) {
+			check(System.nanoTime() < deadline, "consumer must wait for the late element");
+			Thread.sleep(1);
+		}
+		queue.scheduleIn(10, "early");
+		consumer.join(TimeUnit.SECONDS.toMillis(5));
+		check(!consumer.isAlive(), "consumer must wake up for the earlier element");
+		check("early".equals(taken[0]), "earlier element must be taken first");
+		check(queue.getTotalSize() == 1, "late element must stay scheduled");
+	}
+
+	protected static void check(boolean condition, String message) {
+		if(!condition) throw new AssertionError(message);
+	}
+}
@@ -0,0 +1,85 @@
+package com.lupcode.Utilities.executors;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Checks that tasks submitted concurrently to a {@link DynamicThreadPoolExecutor} 
+ * run exactly once and that threads get spawned up to the maximum pool size
+ * @author LupCode.com (Luca Vogels)
+ * @since 2026-10-17
+ */
+public class DynamicThreadPoolExecutorTest {
+
+	public static void main(String[] args) throws Exception {
+		concurrentSubmissionRunsEveryTaskOnce();
+		blockedThreadsSpawnUpToMaximum();
+		System.out.println(DynamicThreadPoolExecutorTest.class.getSimpleName()+" passed");
+	}
+
+	/**
+	 * Many producers submit at the same time. Every task must run exactly once
+	 */
+	protected static void concurrentSubmissionRunsEveryTaskOnce() throws InterruptedException {
+		final int producers = 16, perProducer = 10000;
+		final DynamicThreadPoolExecutor executor = new DynamicThreadPoolExecutor(0, 8, 1, TimeUnit.SECONDS);
+		final AtomicIntegerArray ran = new AtomicIntegerArray(producers * perProducer);
+		final CountDownLatch start = new CountDownLatch(1), submitted = new CountDownLatch(producers);
+		for(int p=0; p<producers; p++) {
+			final int offset = p * perProducer;
+			new Thread(() -> {
+				try {
+					start.await();
+					for(int i=0; i<perProducer; i++) {
+						final int index = offset + i;
+						executor.execute(() -> ran.incrementAndGet(index));
+					}
+				} catch (InterruptedException ex) { }
+				submitted.countDown();
+			}).start();
+		}
+		start.countDown();
+		check(submitted.await(30, TimeUnit.SECONDS), "producers must finish submitting");
+		executor.shutdown();
+		check(executor.awaitTermination(30, TimeUnit.SECONDS), "executor must terminate after all tasks ran");
+		for(int i=0; i<ran.length(); i++)
+			check(ran.get(i) == 1, "task "+i+" ran "+ran.get(i)+" times");
+		check(executor.getCompletedTaskCount() == ran.length(), "completed count must match but was "+executor.getCompletedTaskCount());
+		check(executor.getPoolSize() <= 8, "pool must not exceed its maximum size");
+	}
+
+	/**
+	 * Tasks that block must not keep queued tasks from starting while 
+	 * the pool is below its maximum size, but no more threads may be spawned
+	 */
+	protected static void blockedThreadsSpawnUpToMaximum() throws InterruptedException {
+		final int max = 4;
+		final DynamicThreadPoolExecutor executor = new DynamicThreadPoolExecutor(0, max, 1, TimeUnit.SECONDS);
+		final CountDownLatch release = new CountDownLatch(1), started = new CountDownLatch(max);
+		final AtomicInteger running = new AtomicInteger(), peak = new AtomicInteger();
+		for(int i=0; i<max * 2; i++) {
+			executor.execute(() -> {
+				peak.accumulateAndGet(running.incrementAndGet(), Math::max);
+				started.countDown();
+				try {
+					release.await();
+				} catch (InterruptedException ex) { }
+				running.decrementAndGet();
+			});
+		}
+		check(started.await(5, TimeUnit.SECONDS), "a thread must be spawned for each blocked task up to the maximum");
+		check(executor.getPoolSize() == max, "pool must grow to its maximum size but has "+executor.getPoolSize());
+		check(executor.getPendingTasks() == max, "remaining tasks must wait but "+executor.getPendingTasks()+" are pending");
+		release.countDown();
+		executor.shutdown();
+		check(executor.awaitTermination(5, TimeUnit.SECONDS), "executor must terminate after all tasks ran");
+		check(peak.get() == max, "at most "+max+" tasks must run at once but "+peak.get()+" did");
+		check(executor.getCompletedTaskCount() == max * 2, "all tasks must complete");
+	}
+
+	protected static void check(boolean condition, String message) {
+		if(!condition) throw new AssertionError(message);
+	}
+}
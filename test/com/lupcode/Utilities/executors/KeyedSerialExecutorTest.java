@@ -0,0 +1,158 @@
+package com.lupcode.Utilities.executors;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Replays interleavings of concurrent {@link KeyedSerialExecutor#execute(Object, Runnable)} calls
+ * step by step on a manual executor so the outcome does not depend on thread scheduling
+ * @author LupCode.com (Luca Vogels)
+ * @since 2026-10-17
+ */
+public class KeyedSerialExecutorTest {
+
+	/**
+	 * Executor that only collects the submitted lanes
+	 */
+	protected static class ManualExecutor implements java.util.concurrent.Executor {
+		protected final List<Runnable> submitted = new ArrayList<>();
+
+		@Override
+		public synchronized void execute(Runnable command) {
+			submitted.add(command);
+		}
+
+		protected synchronized Runnable next() {
+			return submitted.isEmpty() ? null : submitted.remove(0);
+		}
+
+		protected void runAll() {
+			Runnable r;
+			while((r = next()) != null) r.run();
+		}
+	}
+
+	public static void main(String[] args) throws Exception {
+		producerPreemptedBeforeOffer();
+		workerWaitsForReservedTask();
+		errorDoesNotStallKey();
+		failuresReachHook();
+		System.out.println(KeyedSerialExecutorTest.class.getSimpleName()+" passed");
+	}
+
+	/**
+	 * Producer 1 reserves its slot and gets preempted before adding task B,
+	 * producer 2 adds task C in the meantime. Both tasks must run exactly once
+	 * and the lane must only be removed after both ran
+	 */
+	protected static void producerPreemptedBeforeOffer() {
+		final ManualExecutor manual = new ManualExecutor();
+		final KeyedSerialExecutor<String> executor = new KeyedSerialExecutor<>(manual);
+		final StringBuilder ran = new StringBuilder();
+
+		// producer 1: reserves the first slot, then gets preempted
+		final KeyedSerialExecutor<String>.Lane lane = executor.lanes.computeIfAbsent("key", k -> executor.new Lane(k));
+		check(lane.reserve() == 0, "first reservation must start the lane");
+
+		// producer 2: does not start the lane because producer 1 will
+		executor.execute("key", () -> ran.append('C'));
+		check(manual.submitted.isEmpty(), "lane must only be submitted once");
+		check(lane.pending.get() == 2, "both tasks must be pending");
+
+		// producer 1 continues
+		lane.tasks.offer(() -> ran.append('B'));
+		executor.submit(lane);
+		manual.runAll();
+
+		check(ran.toString().equals("CB"), "each task must run exactly once but ran "+ran);
+		check(lane.pending.get() == KeyedSerialExecutor.DEAD, "lane must be removed after its tasks ran");
+		check(executor.getActiveKeyCount() == 0, "no key must be active");
+
+		executor.execute("key", () -> ran.append('D'));
+		manual.runAll();
+		check(ran.toString().equals("CBD"), "task after removal must run on a new lane but ran "+ran);
+	}
+
+	/**
+	 * The lane runs while a producer has reserved a slot but not added its task yet.
+	 * The lane must wait for the task instead of dropping the slot
+	 */
+	protected static void workerWaitsForReservedTask() throws InterruptedException {
+		final ManualExecutor manual = new ManualExecutor();
+		final KeyedSerialExecutor<String> executor = new KeyedSerialExecutor<>(manual);
+		final StringBuilder ran = new StringBuilder();
+		final CountDownLatch firstRan = new CountDownLatch(1);
+
+		executor.execute("key", () -> { ran.append('C'); firstRan.countDown(); });
+		final KeyedSerialExecutor<String>.Lane lane = executor.lanes.get("key");
+		check(lane.reserve() == 1, "second reservation must not start the lane");
+
+		final Thread worker = new Thread(manual::runAll);
+		worker.start();
+		check(firstRan.await(5, TimeUnit.SECONDS), "first task must run");
+		check(lane.pending.get() == 1, "reserved slot must stay pending");
+		check(executor.lanes.get("key") == lane, "lane must not be removed while a slot is reserved");
+
+		lane.tasks.offer(() -> ran.append('B'));
+		worker.join(TimeUnit.SECONDS.toMillis(5));
+		check(!worker.isAlive(), "lane must finish after the reserved task has been added");
+		check(ran.toString().equals("CB"), "each task must run exactly once but ran "+ran);
+		check(executor.getActiveKeyCount() == 0, "no key must be active");
+	}
+
+	/**
+	 * A task throws an error. The error must leave the thread of the lane 
+	 * but the remaining tasks of the key must still run
+	 */
+	protected static void errorDoesNotStallKey() {
+		final ManualExecutor manual = new ManualExecutor();
+		final KeyedSerialExecutor<String> executor = new KeyedSerialExecutor<>(manual);
+		final StringBuilder ran = new StringBuilder();
+
+		executor.execute("key", () -> { throw new AssertionError("task failed"); });
+		executor.execute("key", () -> ran.append('B'));
+		try {
+			manual.next().run();
+			check(false, "error must be rethrown");
+		} catch (AssertionError ex) {
+			check("task failed".equals(ex.getMessage()), "error of the task must be rethrown");
+		}
+		check(manual.submitted.size() == 1, "lane must be submitted again for the remaining task");
+		manual.runAll();
+		check(ran.toString().equals("B"), "remaining task must run but ran "+ran);
+		check(executor.getActiveKeyCount() == 0, "no key must be active");
+
+		executor.execute("key", () -> ran.append('C'));
+		manual.runAll();
+		check(ran.toString().equals("BC"), "key must accept new tasks but ran "+ran);
+	}
+
+	/**
+	 * Exceptions of tasks must be passed to the hook and the next task must run on the same thread
+	 */
+	protected static void failuresReachHook() {
+		final ManualExecutor manual = new ManualExecutor();
+		final List<Exception> failures = new ArrayList<>();
+		final KeyedSerialExecutor<String> executor = new KeyedSerialExecutor<String>(manual) {
+			@Override
+			protected void onTaskFailure(String key, Runnable task, Exception error) {
+				failures.add(error);
+			}
+		};
+		final StringBuilder ran = new StringBuilder();
+
+		executor.execute("key", () -> { throw new IllegalStateException("task failed"); });
+		executor.execute("key", () -> ran.append('B'));
+		manual.next().run();
+		check(manual.submitted.isEmpty(), "lane must continue on the same thread");
+		check(failures.size() == 1 && "task failed".equals(failures.get(0).getMessage()), "failure must be reported to the hook");
+		check(ran.toString().equals("B"), "next task must run but ran "+ran);
+		check(executor.getActiveKeyCount() == 0, "no key must be active");
+	}
+
+	protected static void check(boolean condition, String message) {
+		if(!condition) throw new AssertionError(message);
+	}
+}
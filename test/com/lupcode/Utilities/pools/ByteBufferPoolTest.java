@@ -0,0 +1,136 @@
+package com.lupcode.Utilities.pools;
+
+import java.nio.ByteBuffer;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Checks the thread caching mode of the {@link ByteBufferPool}: buffers must only 
+ * be leased once at a time, foreign buffers and double releases must be ignored 
+ * and buffers cached by idle threads must be stolen before the pool reports being full
+ * @author LupCode.com (Luca Vogels)
+ * @since 2026-10-17
+ */
+public class ByteBufferPoolTest {
+
+	protected static final int SIZE = 1024;
+
+	public static void main(String[] args) throws Exception {
+		bufferIsReusedByThread();
+		foreignAndDoubleReleasesAreIgnored();
+		idleCachesGetStolen();
+		concurrentLeasesAreExclusive();
+		System.out.println(ByteBufferPoolTest.class.getSimpleName()+" passed");
+	}
+
+	/**
+	 * A released buffer must be cached by the thread and handed out again without creating a new one
+	 */
+	protected static void bufferIsReusedByThread() {
+		final ByteBufferPool pool = new ByteBufferPool(SIZE, -1, 0, -1, ObjectPoolFullMode.BLOCK, 4);
+		final ByteBuffer buffer = pool.allocateFreeObject();
+		buffer.put((byte)1);
+		pool.releaseObject(buffer);
+		check(pool.getFreeCount() == 1 && pool.getTotalCount() == 1, "released buffer must be cached");
+		final ByteBuffer again = pool.allocateFreeObject();
+		check(again == buffer, "cached buffer must be reused");
+		check(again.position() == 0, "reused buffer must be cleared");
+		check(pool.getTotalCount() == 1 && pool.getCurrentTotalSize() == SIZE, "no new buffer must be created");
+	}
+
+	/**
+	 * Buffers that have not been created by the pool or that have already been 
+	 * released must not be cached, otherwise they would be handed out twice
+	 */
+	protected static void foreignAndDoubleReleasesAreIgnored() {
+		final ByteBufferPool pool = new ByteBufferPool(SIZE, -1, 0, -1, ObjectPoolFullMode.BLOCK, 4);
+		pool.releaseObject(ByteBuffer.allocate(SIZE));
+		check(pool.getFreeCount() == 0 && pool.getTotalCount() == 0, "foreign buffer must be ignored");
+
+		final ByteBuffer buffer = pool.allocateFreeObject();
+		pool.releaseObject(buffer);
+		pool.releaseObject(buffer);
+		check(pool.getFreeCount() == 1, "double release must be ignored but "+pool.getFreeCount()+" buffers are free");
+		final ByteBuffer a = pool.allocateFreeObject(), b = pool.allocateFreeObject();
+		check(a != b, "buffer must not be leased twice");
+		check(pool.getTotalCount() == 2 && pool.getCurrentTotalSize() == 2 * SIZE, "pool must account both buffers");
+	}
+
+	/**
+	 * All buffers are cached by another thread that is idle. 
+	 * Allocating must steal them instead of reporting the pool as full
+	 */
+	protected static void idleCachesGetStolen() throws InterruptedException {
+		final int count = 4;
+		final ByteBufferPool pool = new ByteBufferPool(SIZE, count * SIZE, 0, -1, ObjectPoolFullMode.RETURN_NULL, 2);
+		final CountDownLatch cached = new CountDownLatch(1), done = new CountDownLatch(1);
+		final Thread owner = new Thread(() -> {
+			final ByteBuffer[] buffers = new ByteBuffer[count];
+			for(int i=0; i<count; i++) buffers[i] = pool.allocateFreeObject();
+			for(ByteBuffer buffer : buffers) pool.releaseObject(buffer);
+			cached.countDown();
+			try {
+				done.await(); // stays alive so its cache does not get reclaimed as dead
+			} catch (InterruptedException ex) { }
+		});
+		owner.start();
+		check(cached.await(5, TimeUnit.SECONDS), "other thread must cache its buffers");
+		check(pool.getFreeCount() == count && pool.isFull(), "all buffers must be cached by the other thread");
+
+		final Set<ByteBuffer> stolen = Collections.newSetFromMap(new IdentityHashMap<>());
+		for(int i=0; i<count; i++) {
+			final ByteBuffer buffer = pool.allocateFreeObject();
+			check(buffer != null, "cached buffers of the idle thread must be stolen");
+			stolen.add(buffer);
+		}
+		check(stolen.size() == count, "stolen buffers must be distinct");
+		check(pool.allocateFreeObject() == null, "pool must be full once all buffers are leased");
+		check(pool.getTotalCount() == count, "no buffer must be created above the maximum total size");
+		done.countDown();
+		owner.join();
+	}
+
+	/**
+	 * Threads allocate and release concurrently while the maximum total size is reached. 
+	 * A buffer must never be leased by two threads at the same time
+	 */
+	protected static void concurrentLeasesAreExclusive() throws InterruptedException {
+		final int threads = 8, rounds = 20000, max = 16;
+		final ByteBufferPool pool = new ByteBufferPool(SIZE, max * SIZE, 0, -1, ObjectPoolFullMode.BLOCK, 2);
+		final Set<ByteBuffer> leased = Collections.synchronizedSet(Collections.newSetFromMap(new IdentityHashMap<>()));
+		final AtomicReference<Throwable> failure = new AtomicReference<>();
+		final CountDownLatch done = new CountDownLatch(threads);
+		for(int t=0; t<threads; t++) {
+			new Thread(() -> {
+				try {
+					for(int i=0; i<rounds; i++) {
+						final ByteBuffer a = pool.allocateFreeObject(5, TimeUnit.SECONDS), b = pool.allocateFreeObject(5, TimeUnit.SECONDS);
+						check(a != null && b != null, "waiting thread must get a buffer");
+						check(leased.add(a) && leased.add(b), "buffer must not be leased twice");
+						leased.remove(a);
+						pool.releaseObject(a);
+						leased.remove(b);
+						pool.releaseObject(b);
+					}
+					pool.flushThreadCache();
+				} catch (Throwable ex) {
+					failure.compareAndSet(null, ex);
+				}
+				done.countDown();
+			}).start();
+		}
+		check(done.await(60, TimeUnit.SECONDS), "threads must finish");
+		if(failure.get() != null) throw new AssertionError("concurrent lease failed", failure.get());
+		check(pool.getTotalCount() <= max, "no buffer must be created above the maximum total size");
+		check(pool.getFreeCount() == pool.getTotalCount(), "all buffers must be free after being flushed");
+		check(pool.getCurrentTotalSize() == (long)pool.getTotalCount() * SIZE, "size must match the amount of buffers");
+	}
+
+	protected static void check(boolean condition, String message) {
+		if(!condition) throw new AssertionError(message);
+	}
+}
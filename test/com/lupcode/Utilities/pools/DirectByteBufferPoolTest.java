@@ -0,0 +1,97 @@
+package com.lupcode.Utilities.pools;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Checks that the {@link DirectByteBufferPool} carves non overlapping buffers from 
+ * aligned slabs for any buffer size and only frees a slab once all its buffers got dropped
+ * @author LupCode.com (Luca Vogels)
+ * @since 2026-10-17
+ */
+public class DirectByteBufferPoolTest {
+
+	protected static final int ALIGNMENT = 4096;
+
+	public static void main(String[] args) throws Exception {
+		for(int size : new int[] { 100, 1000, 4096, 5000 })
+			unalignedSizesFitSlab(size);
+		doubleReleaseKeepsSlab();
+		trimmedSlabsGetFreed();
+		maxTotalSizeLimitsSlab();
+		System.out.println(DirectByteBufferPoolTest.class.getSimpleName()+" passed");
+	}
+
+	/**
+	 * All buffers of a slab must be direct, have the requested capacity, 
+	 * not overlap each other and start at an aligned address
+	 * @param size Capacity of the buffers
+	 */
+	protected static void unalignedSizesFitSlab(int size) {
+		final int count = 7;
+		final DirectByteBufferPool pool = new DirectByteBufferPool(size, -1, 0, -1, ObjectPoolFullMode.BLOCK, 0, size * count, ALIGNMENT);
+		final ByteBuffer[] buffers = new ByteBuffer[count];
+		for(int i=0; i<count; i++) {
+			buffers[i] = pool.allocateFreeObject();
+			check(buffers[i].isDirect() && buffers[i].capacity() == size, "size "+size+": buffer must be direct with the requested capacity");
+			while(buffers[i].hasRemaining()) buffers[i].put((byte)i);
+		}
+		check(pool.getSlabCount() == 1, "size "+size+": all buffers must be carved from one slab but "+pool.getSlabCount()+" slabs exist");
+		check(pool.slabs.get(0).slices[0].buffer.alignmentOffset(0, ALIGNMENT) == 0, "size "+size+": slab must start aligned");
+		for(int i=0; i<count; i++)
+			for(int j=0; j<size; j++)
+				check(buffers[i].get(j) == (byte)i, "size "+size+": buffer "+i+" must not overlap another buffer");
+		check(pool.getCurrentHeapSize() == 0 && pool.getCurrentDirectSize() >= (long)size * count, "size "+size+": memory must be reported as direct");
+	}
+
+	/**
+	 * Releasing a buffer twice must not free its slot twice, 
+	 * otherwise the slab would be freed while a buffer is still in use
+	 */
+	protected static void doubleReleaseKeepsSlab() {
+		final DirectByteBufferPool pool = new DirectByteBufferPool(1024, -1, 0, -1, ObjectPoolFullMode.BLOCK, 0, 2 * 1024, ALIGNMENT);
+		final ByteBuffer a = pool.allocateFreeObject(), b = pool.allocateFreeObject();
+		pool.releaseObject(a);
+		pool.releaseObject(a);
+		check(pool.getFreeCount() == 1, "double release must be ignored");
+		pool.clear();
+		check(pool.getSlabCount() == 1 && pool.getTotalCount() == 1, "slab must be kept while a buffer is in use");
+		b.putInt(0, 42);
+		check(b.getInt(0) == 42, "buffer in use must stay valid");
+
+		pool.releaseObject(b);
+		pool.clear();
+		check(pool.getSlabCount() == 0 && pool.getCurrentDirectSize() == 0, "slab must be freed once all buffers got dropped");
+	}
+
+	/**
+	 * Trimming unused buffers must free all slabs and report no more memory
+	 */
+	protected static void trimmedSlabsGetFreed() {
+		final DirectByteBufferPool pool = new DirectByteBufferPool(1024, -1, 0, 0, ObjectPoolFullMode.BLOCK, 0, 4 * 1024, ALIGNMENT);
+		final ByteBuffer[] buffers = new ByteBuffer[8];
+		for(int i=0; i<buffers.length; i++) buffers[i] = pool.allocateFreeObject();
+		check(pool.getSlabCount() == 2, "buffers must be carved from two slabs");
+		pool.releaseObject(buffers[0]);
+		check(pool.getTotalCount() == 7, "expired buffer must be trimmed on release without maintenance");
+		check(pool.getSlabCount() == 2, "slab must be kept while buffers are in use");
+		for(ByteBuffer buffer : buffers) pool.releaseObject(buffer);
+		pool.clearUnused();
+		check(pool.getTotalCount() == 0 && pool.getCurrentTotalSize() == 0, "unused buffers must be trimmed");
+		check(pool.getSlabCount() == 0 && pool.getCurrentDirectSize() == 0, "trimmed slabs must be freed");
+	}
+
+	/**
+	 * A slab must not hold more buffers than the maximum total size allows
+	 */
+	protected static void maxTotalSizeLimitsSlab() {
+		final DirectByteBufferPool pool = new DirectByteBufferPool(1024, 3 * 1024, 0, -1, ObjectPoolFullMode.RETURN_NULL, 0, 1048576, ALIGNMENT);
+		for(int i=0; i<3; i++) check(pool.allocateFreeObject() != null, "buffer within maximum total size must be allocated");
+		check(pool.allocateFreeObject() == null, "buffer above maximum total size must not be allocated");
+		check(pool.getSlabCount() == 1 && pool.slabs.get(0).slices.length == 3, "slab must only hold the buffers that fit into the maximum total size");
+		check(pool.getCurrentDirectSize() <= 3 * 1024 + 2 * ALIGNMENT, "slab must not allocate more than needed but has "+pool.getCurrentDirectSize()+" bytes");
+	}
+
+	protected static void check(boolean condition, String message) {
+		if(!condition) throw new AssertionError(message);
+	}
+}
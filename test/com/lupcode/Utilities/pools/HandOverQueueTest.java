@@ -0,0 +1,128 @@
+package com.lupcode.Utilities.pools;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Checks that pools in {@link ObjectPoolFullMode#BLOCK} hand released objects over 
+ * to the longest waiting thread through their {@link HandOverQueue}, 
+ * that waiting times out and that interrupts are propagated
+ * @author LupCode.com (Luca Vogels)
+ * @since 2026-10-17
+ */
+public class HandOverQueueTest {
+
+	public static void main(String[] args) throws Exception {
+		waitersGetObjectsInOrder();
+		timedAllocateReturnsNull();
+		interruptIsPropagated();
+		timedOutWaitersDoNotGetObjects();
+		System.out.println(HandOverQueueTest.class.getSimpleName()+" passed");
+	}
+
+	/**
+	 * Threads wait for the only buffer of a pool. Each release must hand 
+	 * the buffer over to the thread that waits the longest
+	 */
+	protected static void waitersGetObjectsInOrder() throws InterruptedException {
+		final int count = 5;
+		final ByteBufferPool pool = new ByteBufferPool(64, 64, 0, -1, ObjectPoolFullMode.BLOCK);
+		final ByteBuffer buffer = pool.allocateFreeObject();
+		final List<Integer> order = new CopyOnWriteArrayList<>();
+		final Thread[] threads = new Thread[count];
+		for(int i=0; i<count; i++) {
+			final int index = i;
+			threads[i] = new Thread(() -> {
+				final ByteBuffer b = pool.allocateFreeObject();
+				order.add(index);
+				pool.releaseObject(b);
+			});
+			threads[i].start();
+			awaitParked(threads[i]); // enqueue in a known order
+		}
+		check(pool.getTotalCount() == 1, "no buffer must be created above the maximum total size");
+		pool.releaseObject(buffer);
+		for(Thread thread : threads) thread.join(TimeUnit.SECONDS.toMillis(5));
+		for(Thread thread : threads) check(!thread.isAlive(), "every waiting thread must get the buffer");
+		check(order.equals(List.of(0, 1, 2, 3, 4)), "buffer must be handed over in the order threads started waiting but was "+order);
+		check(pool.getFreeCount() == 1, "buffer must be free after the last thread released it");
+	}
+
+	/**
+	 * Timed allocate must give up after the timeout while the pool stays full
+	 */
+	protected static void timedAllocateReturnsNull() throws InterruptedException {
+		final GenericObjectPool<Object> pool = new GenericObjectPool<>(Object::new, 1, 0, -1, ObjectPoolFullMode.BLOCK);
+		final Object object = pool.allocateFreeObject();
+		final long start = System.nanoTime();
+		check(pool.allocateFreeObject(50, TimeUnit.MILLISECONDS) == null, "timed allocate must time out while full");
+		check(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(50), "timed allocate must wait for the timeout");
+		check(pool.allocateFreeObject(0, TimeUnit.MILLISECONDS) == null, "zero timeout must not wait");
+		pool.releaseObject(object);
+		check(pool.allocateFreeObject(50, TimeUnit.MILLISECONDS) == object, "released object must be allocated");
+	}
+
+	/**
+	 * Interrupting a waiting thread must throw an {@link InterruptedException} and leave the queue
+	 */
+	protected static void interruptIsPropagated() throws InterruptedException {
+		final GenericObjectPool<Object> pool = new GenericObjectPool<>(Object::new, 1, 0, -1, ObjectPoolFullMode.BLOCK);
+		final Object object = pool.allocateFreeObject();
+		final AtomicReference<Throwable> thrown = new AtomicReference<>();
+		final Thread waiter = new Thread(() -> {
+			try {
+				pool.allocateFreeObject(-1, TimeUnit.MILLISECONDS);
+			} catch (Throwable ex) {
+				thrown.set(ex);
+			}
+		});
+		waiter.start();
+		awaitParked(waiter);
+		waiter.interrupt();
+		waiter.join(TimeUnit.SECONDS.toMillis(5));
+		check(!waiter.isAlive(), "interrupted thread must stop waiting");
+		check(thrown.get() instanceof InterruptedException, "interrupt must be propagated but got "+thrown.get());
+		pool.releaseObject(object);
+		check(pool.getFreeCount() == 1, "released object must not be handed over to the interrupted thread");
+	}
+
+	/**
+	 * Many threads time out. Released objects must not be handed over to them
+	 * and a thread that waits afterwards must still get the next object
+	 */
+	protected static void timedOutWaitersDoNotGetObjects() throws InterruptedException {
+		final GenericObjectPool<Object> pool = new GenericObjectPool<>(Object::new, 1, 0, -1, ObjectPoolFullMode.BLOCK);
+		final Object object = pool.allocateFreeObject();
+		for(int i=0; i<HandOverQueue.SWEEP_THRESHOLD * 2; i++)
+			check(pool.allocateFreeObject(1, TimeUnit.MICROSECONDS) == null, "timed allocate must time out while full");
+		check(pool.waiters.waiters.size() < HandOverQueue.SWEEP_THRESHOLD, "timed out waiters must get swept");
+
+		final AtomicReference<Object> taken = new AtomicReference<>();
+		final Thread waiter = new Thread(() -> taken.set(pool.allocateFreeObject()));
+		waiter.start();
+		awaitParked(waiter);
+		pool.releaseObject(object);
+		waiter.join(TimeUnit.SECONDS.toMillis(5));
+		check(taken.get() == object, "released object must be handed over to the waiting thread");
+		check(pool.getFreeCount() == 0, "handed over object must not be free");
+	}
+
+	/**
+	 * Waits until the thread parks
+	 * @param thread Thread that should wait
+	 */
+	protected static void awaitParked(Thread thread) throws InterruptedException {
+		final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+		while(thread.getState() != Thread.State.WAITING && thread.getState() != Thread.State.TIMED_WAITING) {
+			check(System.nanoTime() < deadline, "thread must start waiting");
+			Thread.sleep(1);
+		}
+	}
+
+	protected static void check(boolean condition, String message) {
+		if(!condition) throw new AssertionError(message);
+	}
+}